@@ -0,0 +1,37 @@
+package com.kirisamemarisa.blog.common;
+
+import java.util.regex.Pattern;
+
+/**
+ * 从 Markdown/HTML 正文生成纯文本摘要，用于列表卡片和检索
+ */
+public final class ExcerptUtil {
+
+    // 摘要最大字符数，与 blog_post.excerpt 列长度一致
+    public static final int MAX_LENGTH = 200;
+
+    private static final Pattern MARKUP = Pattern.compile(
+            "!\\[[^\\]]*\\]\\([^)]*\\)|<[^>]+>|\\]\\([^)]*\\)|```[a-zA-Z0-9]*|[#>*`_~|\\[\\]]");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private ExcerptUtil() {
+    }
+
+    public static String of(String content) {
+        if (content == null || content.isEmpty()) {
+            return "";
+        }
+        // 只处理开头一段，避免对超长正文做整段正则替换
+        String head = content.length() > MAX_LENGTH * 8 ? content.substring(0, MAX_LENGTH * 8) : content;
+        String plain = SPACES.matcher(MARKUP.matcher(head).replaceAll(" ")).replaceAll(" ").trim();
+        if (plain.length() <= MAX_LENGTH) {
+            return plain;
+        }
+        int end = MAX_LENGTH;
+        // 不在代理对中间截断
+        if (Character.isHighSurrogate(plain.charAt(end - 1))) {
+            end--;
+        }
+        return plain.substring(0, end);
+    }
+}
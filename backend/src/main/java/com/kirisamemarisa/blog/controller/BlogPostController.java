@@ -66,6 +66,24 @@ public class BlogPostController {
         return new ApiResponse<>(200, "获取成功", result);
     }
 
+    /**
+     * 游标分页列表。首页不传 cursor，之后传上一页返回的 nextCursor；total 为近似值
+     */
+    @GetMapping("/feed")
+    public ApiResponse<CursorPageResult<BlogPostDTO>> feed(@RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String directory,
+            @RequestParam(required = false) String categoryName,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String sortMode) {
+        Long currentUserId = com.kirisamemarisa.blog.common.JwtUtil.getCurrentUserId();
+        CursorPageResult<BlogPostDTO> result = blogPostService.searchByCursor(keyword, userId, directory,
+                categoryName, status, cursor, size, currentUserId, sortMode);
+        return new ApiResponse<>(200, "获取成功", result);
+    }
+
     @GetMapping("/directories")
     public ApiResponse<java.util.List<String>> getDirectories(@RequestParam Long userId) {
         Long currentUserId = com.kirisamemarisa.blog.common.JwtUtil.getCurrentUserId();
@@ -107,9 +125,56 @@ public class BlogPostController {
         return new ApiResponse<>(200, "获取成功", blogPostService.getFavoriteCategories(userId));
     }
 
+    /**
+     * 博客详情两级缓存的命中率指标
+     */
+    @GetMapping("/cache/metrics")
+    public ApiResponse<java.util.Map<String, Object>> getDetailCacheMetrics() {
+        return new ApiResponse<>(200, "获取成功", blogPostService.getDetailCacheMetrics());
+    }
+
+    /**
+     * 重建博客检索索引（所有实例，有冷却时间），仅 blog.ops.user-ids 中的用户可调用
+     */
+    @PostMapping("/search-index/rebuild")
+    public ApiResponse<Boolean> rebuildSearchIndex() {
+        Long currentUserId = com.kirisamemarisa.blog.common.JwtUtil.getCurrentUserId();
+        if (currentUserId == null) {
+            return new ApiResponse<>(401, "未登录", null);
+        }
+        return blogPostService.rebuildSearchIndex(currentUserId);
+    }
+
+    @GetMapping("/search-index/metrics")
+    public ApiResponse<java.util.Map<String, Object>> getSearchIndexMetrics() {
+        return new ApiResponse<>(200, "获取成功", blogPostService.getSearchIndexMetrics());
+    }
+
+    /**
+     * 已删除博客的后台清理进度：待清理数、当前博客、各表已删行数
+     */
+    @GetMapping("/purge/metrics")
+    public ApiResponse<java.util.Map<String, Object>> getPurgeMetrics() {
+        return new ApiResponse<>(200, "获取成功", blogPostService.getPurgeMetrics());
+    }
+
+    /**
+     * 点赞/收藏/分享/评论计数的待落库积压与落库情况
+     */
+    @GetMapping("/counters/metrics")
+    public ApiResponse<java.util.Map<String, Object>> getCounterMetrics() {
+        return new ApiResponse<>(200, "获取成功", blogPostService.getCounterMetrics());
+    }
+
+    // 支持 If-None-Match：快照未变化时返回 304，不带响应体
     @GetMapping("/top-per-category")
-    public ApiResponse<java.util.List<BlogPostDTO>> getTopPostPerCategory() {
-        return new ApiResponse<>(200, "获取成功", blogPostService.getTopPostPerCategory());
+    public ApiResponse<java.util.List<BlogPostDTO>> getTopPostPerCategory(
+            org.springframework.web.context.request.WebRequest webRequest) {
+        CategoryChampionsSnapshot snapshot = blogPostService.getTopPostPerCategorySnapshot();
+        if (webRequest.checkNotModified(snapshot.getEtag())) {
+            return null;
+        }
+        return new ApiResponse<>(200, "获取成功", snapshot.getPosts());
     }
 
     @PostMapping("/{id}/like")
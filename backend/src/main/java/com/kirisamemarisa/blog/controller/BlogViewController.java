@@ -3,6 +3,7 @@ package com.kirisamemarisa.blog.controller;
 import com.kirisamemarisa.blog.common.ApiResponse;
 import com.kirisamemarisa.blog.dto.BlogViewRecordCreateDTO;
 import com.kirisamemarisa.blog.dto.BlogViewStatsDTO;
+import com.kirisamemarisa.blog.dto.BlogViewTrendPointDTO;
 import com.kirisamemarisa.blog.service.BlogViewService;
 import org.springframework.web.bind.annotation.*;
 
@@ -32,6 +33,42 @@ public class BlogViewController {
         return blogViewService.getStats(blogPostId);
     }
 
+    /**
+     * 获取某篇博客的独立登录访客数（估算）
+     */
+    @GetMapping("/{blogPostId}/unique-viewers")
+    public ApiResponse<Long> getUniqueViewerEstimate(@PathVariable Long blogPostId) {
+        return blogViewService.getUniqueViewerEstimate(blogPostId);
+    }
+
+    /**
+     * 某篇博客的浏览趋势：granularity=hour|day，points 为最近的分桶数
+     */
+    @GetMapping("/{blogPostId}/trend")
+    public ApiResponse<java.util.List<BlogViewTrendPointDTO>> getTrend(@PathVariable Long blogPostId,
+            @RequestParam(defaultValue = "hour") String granularity,
+            @RequestParam(defaultValue = "24") int points) {
+        return blogViewService.getTrend(blogPostId, granularity, points);
+    }
+
+    /**
+     * 作者全部博客汇总的浏览趋势
+     */
+    @GetMapping("/author/{authorId}/trend")
+    public ApiResponse<java.util.List<BlogViewTrendPointDTO>> getAuthorTrend(@PathVariable Long authorId,
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(defaultValue = "30") int points) {
+        return blogViewService.getAuthorTrend(authorId, granularity, points);
+    }
+
+    /**
+     * 浏览同步任务的积压与吞吐指标
+     */
+    @GetMapping("/metrics")
+    public ApiResponse<java.util.Map<String, Object>> getSyncMetrics() {
+        return new ApiResponse<>(200, "获取成功", blogViewService.getSyncMetrics());
+    }
+
     @PostMapping("/batch")
     public ApiResponse<java.util.Map<Long, Long>> getBatchStats(@RequestBody java.util.List<Long> blogPostIds) {
         return blogViewService.getBatchStats(blogPostIds);
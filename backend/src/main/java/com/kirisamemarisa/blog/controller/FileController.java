@@ -4,6 +4,7 @@ import com.kirisamemarisa.blog.common.ApiResponse;
 import com.kirisamemarisa.blog.model.User;
 import com.kirisamemarisa.blog.service.CurrentUserResolver;
 import com.kirisamemarisa.blog.service.FileStorageService;
+import com.kirisamemarisa.blog.service.StorageDeletionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
@@ -20,6 +21,9 @@ public class FileController {
     @Autowired
     private CurrentUserResolver currentUserResolver;
 
+    @Autowired
+    private StorageDeletionService storageDeletionService;
+
     @GetMapping("/presigned-url")
     public ApiResponse<Map<String, String>> getPresignedUrl(
             @RequestParam String fileName,
@@ -44,4 +48,10 @@ public class FileController {
 
         return ApiResponse.success(fileStorageService.generateMessagePresignedUrl(fileName, me.getId(), otherId));
     }
+
+    // 异步删除发件箱：待删除、放弃重试的数量与累计结果
+    @GetMapping("/deletion/metrics")
+    public ApiResponse<Map<String, Object>> getDeletionMetrics() {
+        return ApiResponse.success(storageDeletionService.getMetrics());
+    }
 }
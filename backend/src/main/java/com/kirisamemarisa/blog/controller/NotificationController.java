@@ -73,6 +73,22 @@ public class NotificationController {
         return new ApiResponse<>(200, "Success", result);
     }
 
+    /**
+     * 通知发件箱的积压与投递指标
+     */
+    @GetMapping("/outbox/metrics")
+    public ApiResponse<java.util.Map<String, Object>> getDispatchMetrics() {
+        return new ApiResponse<>(200, "获取成功", notificationService.getDispatchMetrics());
+    }
+
+    /**
+     * 未读计数的命中、重建与对账指标
+     */
+    @GetMapping("/unread/metrics")
+    public ApiResponse<java.util.Map<String, Object>> getUnreadCounterMetrics() {
+        return new ApiResponse<>(200, "获取成功", notificationService.getUnreadCounterMetrics());
+    }
+
     @GetMapping("/unread-count")
     public ApiResponse<Long> getUnreadCount(
             @AuthenticationPrincipal Object principal) {
@@ -9,6 +9,8 @@ public class BlogPostDTO {
     private Long userId;
     private String coverImageUrl;
     private String content;
+    // 正文纯文本摘要；列表接口只返回摘要，不返回正文
+    private String excerpt;
     private String directory;
     private Long likeCount;
     private Long commentCount;
@@ -38,6 +40,8 @@ public class BlogPostDTO {
     public void setCoverImageUrl(String coverImageUrl) { this.coverImageUrl = coverImageUrl; }
     public String getContent() { return content; }
     public void setContent(String content) { this.content = content; }
+    public String getExcerpt() { return excerpt; }
+    public void setExcerpt(String excerpt) { this.excerpt = excerpt; }
     public String getDirectory() { return directory; }
     public void setDirectory(String directory) { this.directory = directory; }
     public Long getLikeCount() { return likeCount; }
@@ -0,0 +1,34 @@
+package com.kirisamemarisa.blog.dto;
+
+import java.time.LocalDateTime;
+
+public class BlogViewTrendPointDTO {
+
+    // 分桶起始时间（整点或当日零点）
+    private LocalDateTime bucketStart;
+    private Long viewCount;
+
+    public BlogViewTrendPointDTO() {
+    }
+
+    public BlogViewTrendPointDTO(LocalDateTime bucketStart, Long viewCount) {
+        this.bucketStart = bucketStart;
+        this.viewCount = viewCount;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public Long getViewCount() {
+        return viewCount;
+    }
+
+    public void setViewCount(Long viewCount) {
+        this.viewCount = viewCount;
+    }
+}
@@ -0,0 +1,27 @@
+package com.kirisamemarisa.blog.dto;
+
+import java.util.List;
+
+/**
+ * 首页各分类榜首文章的快照，etag 随内容变化
+ */
+public class CategoryChampionsSnapshot {
+    // 与固定分类顺序一一对应，没有文章的分类为占位卡片
+    private List<BlogPostDTO> posts;
+    private String etag;
+    // 生成时间（毫秒时间戳）
+    private long generatedAt;
+
+    public CategoryChampionsSnapshot() {}
+    public CategoryChampionsSnapshot(List<BlogPostDTO> posts, String etag, long generatedAt) {
+        this.posts = posts;
+        this.etag = etag;
+        this.generatedAt = generatedAt;
+    }
+    public List<BlogPostDTO> getPosts() { return posts; }
+    public void setPosts(List<BlogPostDTO> posts) { this.posts = posts; }
+    public String getEtag() { return etag; }
+    public void setEtag(String etag) { this.etag = etag; }
+    public long getGeneratedAt() { return generatedAt; }
+    public void setGeneratedAt(long generatedAt) { this.generatedAt = generatedAt; }
+}
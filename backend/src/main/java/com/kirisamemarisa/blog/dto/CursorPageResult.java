@@ -0,0 +1,32 @@
+package com.kirisamemarisa.blog.dto;
+
+import java.util.List;
+
+public class CursorPageResult<T> {
+    private List<T> list;
+    // 下一页游标，没有更多数据时为 null
+    private String nextCursor;
+    private boolean hasMore;
+    // 近似总数（按过滤条件缓存，后台刷新）
+    private long approximateTotal;
+    private int size;
+
+    public CursorPageResult() {}
+    public CursorPageResult(List<T> list, String nextCursor, boolean hasMore, long approximateTotal, int size) {
+        this.list = list;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+        this.approximateTotal = approximateTotal;
+        this.size = size;
+    }
+    public List<T> getList() { return list; }
+    public void setList(List<T> list) { this.list = list; }
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+    public long getApproximateTotal() { return approximateTotal; }
+    public void setApproximateTotal(long approximateTotal) { this.approximateTotal = approximateTotal; }
+    public int getSize() { return size; }
+    public void setSize(int size) { this.size = size; }
+}
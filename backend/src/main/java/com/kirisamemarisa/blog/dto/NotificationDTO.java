@@ -1,6 +1,7 @@
 package com.kirisamemarisa.blog.dto;
 
 import java.time.Instant;
+import java.util.List;
 
 /**
  * 业务层使用的通知 DTO。
@@ -26,6 +27,10 @@ public class NotificationDTO {
     private String senderNickname;
     private String senderAvatarUrl;
 
+    // 聚合通知（“X 等 N 人赞了你的文章”）：参与人数与最近参与者 id；普通通知为空
+    private Integer actorCount;
+    private List<Long> recentActorIds;
+
     private boolean read;
 
     public String getType() {
@@ -116,6 +121,22 @@ public class NotificationDTO {
         this.senderAvatarUrl = senderAvatarUrl;
     }
 
+    public Integer getActorCount() {
+        return actorCount;
+    }
+
+    public void setActorCount(Integer actorCount) {
+        this.actorCount = actorCount;
+    }
+
+    public List<Long> getRecentActorIds() {
+        return recentActorIds;
+    }
+
+    public void setRecentActorIds(List<Long> recentActorIds) {
+        this.recentActorIds = recentActorIds;
+    }
+
     public boolean isRead() {
         return read;
     }
@@ -20,6 +20,14 @@ public class NotificationMessage implements Serializable {
     private Long referenceId;
     private Long referenceExtraId;
 
+    // 发送者资料，由投递方批量补齐
+    private String senderNickname;
+    private String senderAvatarUrl;
+
+    // 聚合通知的参与人数与最近参与者
+    private Integer actorCount;
+    private java.util.List<Long> recentActorIds;
+
     public Long getRequestId() { return requestId; }
     public void setRequestId(Long requestId) { this.requestId = requestId; }
 
@@ -56,4 +64,16 @@ public class NotificationMessage implements Serializable {
     public void setReferenceExtraId(Long referenceExtraId) {
         this.referenceExtraId = referenceExtraId;
     }
+
+    public String getSenderNickname() { return senderNickname; }
+    public void setSenderNickname(String senderNickname) { this.senderNickname = senderNickname; }
+
+    public String getSenderAvatarUrl() { return senderAvatarUrl; }
+    public void setSenderAvatarUrl(String senderAvatarUrl) { this.senderAvatarUrl = senderAvatarUrl; }
+
+    public Integer getActorCount() { return actorCount; }
+    public void setActorCount(Integer actorCount) { this.actorCount = actorCount; }
+
+    public java.util.List<Long> getRecentActorIds() { return recentActorIds; }
+    public void setRecentActorIds(java.util.List<Long> recentActorIds) { this.recentActorIds = recentActorIds; }
 }
\ No newline at end of file
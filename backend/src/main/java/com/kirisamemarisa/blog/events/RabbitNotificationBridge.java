@@ -18,6 +18,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.stereotype.Component;
 import org.springframework.amqp.core.AnonymousQueue;
 
+import java.util.List;
+
 /**
  * Simple RabbitMQ bridge: publish NotificationMessage to exchange with routing key 'notification.{userId}',
  * and each instance creates an exclusive anonymous queue bound to the exchange so all instances receive messages
@@ -85,6 +87,32 @@ public class RabbitNotificationBridge {
         }
     }
 
+    /**
+     * 在同一信道上批量发布，开启 publisher confirms（spring.rabbitmq.publisher-confirm-type=simple）时
+     * 等待 broker 确认全部消息。失败时不做本地兜底，由调用方决定重试。
+     *
+     * @return 全部发布（并确认）成功
+     */
+    public boolean publishAll(List<NotificationMessage> msgs, long confirmTimeoutMs) {
+        if (msgs == null || msgs.isEmpty()) return true;
+        boolean confirms = rabbitTemplate.getConnectionFactory().isSimplePublisherConfirms();
+        try {
+            Boolean ok = rabbitTemplate.invoke(ops -> {
+                for (NotificationMessage m : msgs) {
+                    ops.convertAndSend(exchangeName, "notification." + m.getReceiverId(), m);
+                }
+                if (confirms) {
+                    ops.waitForConfirmsOrDie(confirmTimeoutMs);
+                }
+                return true;
+            });
+            return Boolean.TRUE.equals(ok);
+        } catch (Exception ex) {
+            logger.warn("Failed to publish {} notifications to RabbitMQ: {}", msgs.size(), ex.toString());
+            return false;
+        }
+    }
+
     @RabbitListener(queues = "#{notificationQueue.name}")
     public void onMessage(NotificationMessage msg) {
         if (msg == null) return;
@@ -107,6 +135,10 @@ public class RabbitNotificationBridge {
         d.setCreatedAt(m.getCreatedAt());
         d.setReferenceId(m.getReferenceId());
         d.setReferenceExtraId(m.getReferenceExtraId());
+        d.setSenderNickname(m.getSenderNickname());
+        d.setSenderAvatarUrl(m.getSenderAvatarUrl());
+        d.setActorCount(m.getActorCount());
+        d.setRecentActorIds(m.getRecentActorIds());
         return d;
     }
 }
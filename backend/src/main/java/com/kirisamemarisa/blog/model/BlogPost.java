@@ -3,7 +3,9 @@ package com.kirisamemarisa.blog.model;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.kirisamemarisa.blog.common.ExcerptUtil;
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -11,7 +13,14 @@ import java.util.List;
 import java.util.Set;
 
 @Entity
-@Table(name = "blog_post")
+@Table(name = "blog_post", indexes = {
+        // 游标分页：各排序键 + id，状态在前用于过滤已发布
+        @Index(name = "idx_blog_post_status_created", columnList = "status, created_at, id"),
+        @Index(name = "idx_blog_post_status_likes", columnList = "status, like_count, id"),
+        @Index(name = "idx_blog_post_status_favorites", columnList = "status, favorite_count, id"),
+        @Index(name = "idx_blog_post_user_created", columnList = "user_id, created_at, id"),
+        @Index(name = "idx_blog_post_category_created", columnList = "category_id, created_at, id")
+})
 public class BlogPost {
     private static final Logger logger = LoggerFactory.getLogger(BlogPost.class);
 
@@ -33,19 +42,24 @@ public class BlogPost {
     @Column(nullable = false, columnDefinition = "TEXT")
     private String content;
 
+    // 正文纯文本摘要，写入时生成，列表只读取该列而不加载正文
+    @Column(length = 200)
+    private String excerpt;
+
     @Lob
     private String directory;
 
-    @Column(nullable = false)
+    // 计数列只由 EngagementCounterService 以增量 UPDATE 维护，保存实体时不写入
+    @Column(nullable = false, updatable = false)
     private Long likeCount = 0L;
 
-    @Column(nullable = false)
+    @Column(nullable = false, updatable = false)
     private Long commentCount = 0L;
 
-    @Column(nullable = false)
+    @Column(nullable = false, updatable = false)
     private Long shareCount = 0L;
 
-    @Column(name = "favorite_count", nullable = false)
+    @Column(name = "favorite_count", nullable = false, updatable = false)
     private Long favoriteCount = 0L;
 
     @Column(nullable = false)
@@ -75,6 +89,7 @@ public class BlogPost {
     private Category category;
 
     @ManyToMany
+    @BatchSize(size = 50)
     @JoinTable(name = "blog_post_tag", joinColumns = @JoinColumn(name = "blog_post_id"), inverseJoinColumns = @JoinColumn(name = "tag_id"))
     private Set<Tag> tags = new HashSet<>();
 
@@ -88,11 +103,13 @@ public class BlogPost {
     protected void prePersist() {
         createdAt = LocalDateTime.now();
         updatedAt = createdAt;
+        excerpt = ExcerptUtil.of(content);
     }
 
     @PreUpdate
     protected void preUpdate() {
         updatedAt = LocalDateTime.now();
+        excerpt = ExcerptUtil.of(content);
     }
 
     public Long getId() {
@@ -131,6 +148,10 @@ public class BlogPost {
         this.content = content;
     }
 
+    public String getExcerpt() {
+        return excerpt;
+    }
+
     public String getDirectory() {
         return directory;
     }
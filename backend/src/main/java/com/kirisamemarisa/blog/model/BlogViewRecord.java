@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "blog_view_record")
+@Table(name = "blog_view_record", indexes = {
+        @Index(name = "idx_view_record_post_user", columnList = "blog_post_id, user_id")
+})
 public class BlogViewRecord {
 
     @Id
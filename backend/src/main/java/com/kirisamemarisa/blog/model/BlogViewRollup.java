@@ -0,0 +1,87 @@
+package com.kirisamemarisa.blog.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 按小时 / 按天预聚合的浏览量，由 Redis 分桶计数定期压缩写入。
+ * author_id 冗余存储，作者维度的汇总无需关联 blog_post。
+ */
+@Entity
+@Table(name = "blog_view_rollup", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_view_rollup_post_bucket", columnNames = { "blog_post_id", "granularity",
+                "bucket_start" })
+}, indexes = {
+        @Index(name = "idx_view_rollup_author_bucket", columnList = "author_id, granularity, bucket_start"),
+        @Index(name = "idx_view_rollup_bucket", columnList = "granularity, bucket_start")
+})
+public class BlogViewRollup {
+
+    public static final String HOUR = "HOUR";
+    public static final String DAY = "DAY";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "blog_post_id", nullable = false)
+    private Long blogPostId;
+
+    @Column(name = "author_id", nullable = false)
+    private Long authorId;
+
+    // HOUR / DAY
+    @Column(name = "granularity", nullable = false, length = 8)
+    private String granularity;
+
+    // 分桶起始时间（整点或当日零点）
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "view_count", nullable = false)
+    private Long viewCount = 0L;
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getBlogPostId() {
+        return blogPostId;
+    }
+
+    public void setBlogPostId(Long blogPostId) {
+        this.blogPostId = blogPostId;
+    }
+
+    public Long getAuthorId() {
+        return authorId;
+    }
+
+    public void setAuthorId(Long authorId) {
+        this.authorId = authorId;
+    }
+
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(String granularity) {
+        this.granularity = granularity;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public Long getViewCount() {
+        return viewCount;
+    }
+
+    public void setViewCount(Long viewCount) {
+        this.viewCount = viewCount;
+    }
+}
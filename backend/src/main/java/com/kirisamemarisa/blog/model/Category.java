@@ -1,11 +1,13 @@
 package com.kirisamemarisa.blog.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@BatchSize(size = 50)
 @Table(name = "category")
 public class Category {
     @Id
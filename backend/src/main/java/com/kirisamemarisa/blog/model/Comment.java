@@ -26,7 +26,8 @@ public class Comment {
     @Column(nullable = false)
     private String content;
 
-    @Column(name = "like_count", nullable = false)
+    // 只由 EngagementCounterService 维护，保存实体时不写入
+    @Column(name = "like_count", nullable = false, updatable = false)
     private Long likeCount = 0L;
 
     @Column(name = "created_at", nullable = false)
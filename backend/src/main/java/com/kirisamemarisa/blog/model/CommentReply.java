@@ -26,8 +26,8 @@ public class CommentReply {
     @Column(nullable = false)
     private String content;
 
-    // 点赞数
-    @Column(name = "like_count", nullable = false)
+    // 点赞数，只由 EngagementCounterService 维护，保存实体时不写入
+    @Column(name = "like_count", nullable = false, updatable = false)
     private Long likeCount = 0L;
 
     // 创建时间
@@ -4,7 +4,11 @@ import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+        @Index(name = "idx_notifications_receiver_read_type", columnList = "receiver_id, is_read, type"),
+        @Index(name = "idx_notifications_receiver_created", columnList = "receiver_id, created_at"),
+        @Index(name = "idx_notifications_last_event", columnList = "last_event_id")
+})
 public class Notification {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -29,12 +33,34 @@ public class Notification {
     @Column(name = "content", length = 500)
     private String content;
 
+    // 单条已读标记；id 不大于 notification_read_marks 中对应水位的通知同样视为已读
     @Column(name = "is_read", nullable = false)
     private boolean isRead = false;
 
     @Column(name = "created_at", nullable = false)
     private Instant createdAt = Instant.now();
 
+    // 来源发件箱行 id，唯一约束保证重复投递不会产生重复通知
+    @Column(name = "outbox_id", unique = true)
+    private Long outboxId;
+
+    // 聚合通知（点赞、收藏）的分组键：类型:接收者:文章:评论/回复，普通通知为空
+    @Column(name = "aggregate_key", length = 100, unique = true)
+    private String aggregateKey;
+
+    // 上次已读以来的参与人数，普通通知为空（视为 1）
+    @Column(name = "actor_count")
+    private Integer actorCount;
+
+    // 最近几位参与者 id，最新的在前，逗号分隔
+    @Column(name = "recent_actor_ids", length = 200)
+    private String recentActorIds;
+
+    // 水位序号，落库及每次聚合更新时从 notification_sequence 分配（聚合通知 id 保持不变）；
+    // 引入发号器之前的旧通知为空，按 id 比较水位（发号器从当时的最大 id 起步）
+    @Column(name = "last_event_id")
+    private Long lastEventId;
+
     public Long getId() {
         return id;
     }
@@ -106,4 +132,44 @@ public class Notification {
     public void setCreatedAt(Instant createdAt) {
         this.createdAt = createdAt;
     }
+
+    public Long getOutboxId() {
+        return outboxId;
+    }
+
+    public void setOutboxId(Long outboxId) {
+        this.outboxId = outboxId;
+    }
+
+    public String getAggregateKey() {
+        return aggregateKey;
+    }
+
+    public void setAggregateKey(String aggregateKey) {
+        this.aggregateKey = aggregateKey;
+    }
+
+    public Integer getActorCount() {
+        return actorCount;
+    }
+
+    public void setActorCount(Integer actorCount) {
+        this.actorCount = actorCount;
+    }
+
+    public String getRecentActorIds() {
+        return recentActorIds;
+    }
+
+    public void setRecentActorIds(String recentActorIds) {
+        this.recentActorIds = recentActorIds;
+    }
+
+    public Long getLastEventId() {
+        return lastEventId;
+    }
+
+    public void setLastEventId(Long lastEventId) {
+        this.lastEventId = lastEventId;
+    }
 }
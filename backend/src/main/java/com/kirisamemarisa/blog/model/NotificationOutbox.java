@@ -0,0 +1,148 @@
+package com.kirisamemarisa.blog.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * 通知发件箱：与触发通知的业务操作同一事务写入，提交后由后台批量落库并推送
+ */
+@Entity
+@Table(name = "notification_outbox", indexes = {
+        @Index(name = "idx_notification_outbox_due", columnList = "next_attempt_at")
+})
+public class NotificationOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "receiver_id", nullable = false)
+    private Long receiverId;
+
+    @Column(name = "sender_id")
+    private Long senderId;
+
+    // NotificationDTO.type 原值，PRIVATE_MESSAGE 只推送不落库
+    @Column(nullable = false, length = 32)
+    private String type;
+
+    @Column(length = 500)
+    private String content;
+
+    @Column(length = 32)
+    private String status;
+
+    @Column(name = "request_id")
+    private Long requestId;
+
+    @Column(name = "reference_id")
+    private Long referenceId;
+
+    @Column(name = "reference_extra_id")
+    private Long referenceExtraId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    // 推送失败次数，用于退避
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getReceiverId() {
+        return receiverId;
+    }
+
+    public void setReceiverId(Long receiverId) {
+        this.receiverId = receiverId;
+    }
+
+    public Long getSenderId() {
+        return senderId;
+    }
+
+    public void setSenderId(Long senderId) {
+        this.senderId = senderId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(Long requestId) {
+        this.requestId = requestId;
+    }
+
+    public Long getReferenceId() {
+        return referenceId;
+    }
+
+    public void setReferenceId(Long referenceId) {
+        this.referenceId = referenceId;
+    }
+
+    public Long getReferenceExtraId() {
+        return referenceExtraId;
+    }
+
+    public void setReferenceExtraId(Long referenceExtraId) {
+        this.referenceExtraId = referenceExtraId;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(Instant nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+}
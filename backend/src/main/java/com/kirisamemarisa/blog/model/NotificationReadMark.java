@@ -0,0 +1,71 @@
+package com.kirisamemarisa.blog.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * 通知已读水位：用户在某一通知类型下水位序号不大于 last_read_id 的通知都视为已读。
+ * “全部已读”只需推进水位；水位之上单独点开的通知仍用 notifications.is_read 标记。
+ */
+@Entity
+@Table(name = "notification_read_marks", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_notification_read_mark_user_type", columnNames = { "user_id", "type" })
+})
+public class NotificationReadMark {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // NotificationType 名称
+    @Column(nullable = false, length = 32)
+    private String type;
+
+    @Column(name = "last_read_id", nullable = false)
+    private long lastReadId;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt = Instant.now();
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public long getLastReadId() {
+        return lastReadId;
+    }
+
+    public void setLastReadId(long lastReadId) {
+        this.lastReadId = lastReadId;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
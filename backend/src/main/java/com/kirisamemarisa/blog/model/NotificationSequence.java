@@ -0,0 +1,35 @@
+package com.kirisamemarisa.blog.model;
+
+import jakarta.persistence.*;
+
+/**
+ * 通知水位序号的发号器，只有 id = 1 一行。
+ * 每条落库或更新的通知都从这里取序号写入 notifications.last_event_id，已读水位与之比较，
+ * 不依赖自增 id 的取值与连续性。
+ */
+@Entity
+@Table(name = "notification_sequence")
+public class NotificationSequence {
+    @Id
+    private Integer id;
+
+    // 已分配出去的最大序号
+    @Column(name = "seq_value", nullable = false)
+    private long seqValue;
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public long getSeqValue() {
+        return seqValue;
+    }
+
+    public void setSeqValue(long seqValue) {
+        this.seqValue = seqValue;
+    }
+}
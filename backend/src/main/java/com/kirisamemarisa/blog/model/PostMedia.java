@@ -0,0 +1,86 @@
+package com.kirisamemarisa.blog.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * 博客引用的媒体文件（正文图片与封面），写博客时维护。
+ * 同一存储 key 可被多篇博客引用，行数即引用计数。
+ */
+@Entity
+@Table(name = "post_media", uniqueConstraints = {
+        @UniqueConstraint(columnNames = { "post_id", "storage_key" })
+}, indexes = {
+        @Index(name = "idx_post_media_key", columnList = "storage_key")
+})
+public class PostMedia {
+    public static final String KIND_CONTENT = "CONTENT";
+    public static final String KIND_COVER = "COVER";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "post_id", nullable = false)
+    private Long postId;
+
+    // 存储 key，如 sources/blogpostcontent/{userId}/{file}
+    @Column(name = "storage_key", nullable = false, length = 255)
+    private String storageKey;
+
+    @Column(nullable = false, length = 16)
+    private String kind;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public PostMedia() {
+    }
+
+    public PostMedia(Long postId, String storageKey, String kind) {
+        this.postId = postId;
+        this.storageKey = storageKey;
+        this.kind = kind;
+        this.createdAt = Instant.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    public void setPostId(Long postId) {
+        this.postId = postId;
+    }
+
+    public String getStorageKey() {
+        return storageKey;
+    }
+
+    public void setStorageKey(String storageKey) {
+        this.storageKey = storageKey;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,106 @@
+package com.kirisamemarisa.blog.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * 对象存储删除发件箱：与业务数据同一事务写入，提交后由后台批量删除文件
+ */
+@Entity
+@Table(name = "storage_deletion_outbox", indexes = {
+        @Index(name = "idx_storage_deletion_due", columnList = "attempts, next_attempt_at")
+})
+public class StorageDeletion {
+    public static final String SOURCE_POST_MEDIA = "POST_MEDIA";
+    public static final String SOURCE_MESSAGE = "MESSAGE";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // 文件 URL 或存储 key，由存储实现解析
+    @Column(name = "file_url", nullable = false, length = 512)
+    private String fileUrl;
+
+    // 来源，用于删除前的引用检查
+    @Column(nullable = false, length = 32)
+    private String source;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "last_error", length = 255)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public StorageDeletion() {
+    }
+
+    public StorageDeletion(String fileUrl, String source) {
+        this.fileUrl = fileUrl;
+        this.source = source;
+        this.createdAt = Instant.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getFileUrl() {
+        return fileUrl;
+    }
+
+    public void setFileUrl(String fileUrl) {
+        this.fileUrl = fileUrl;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(Instant nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -1,11 +1,13 @@
 package com.kirisamemarisa.blog.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@BatchSize(size = 50)
 @Table(name = "tag")
 public class Tag {
     @Id
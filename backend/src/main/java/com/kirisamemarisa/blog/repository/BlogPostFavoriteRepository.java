@@ -6,9 +6,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -29,4 +31,8 @@ public interface BlogPostFavoriteRepository extends JpaRepository<BlogPostFavori
     Page<BlogPostFavorite> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
 
     long countByBlogPostId(Long blogPostId);
+
+    // 给定博客中该用户收藏过的博客 ID
+    @Query("SELECT f.blogPost.id FROM BlogPostFavorite f WHERE f.user.id = :userId AND f.blogPost.id IN :postIds")
+    List<Long> findFavoritedPostIds(@Param("userId") Long userId, @Param("postIds") java.util.Collection<Long> postIds);
 }
@@ -2,13 +2,21 @@ package com.kirisamemarisa.blog.repository;
 
 import com.kirisamemarisa.blog.model.BlogPostLike;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.util.Optional;
 import java.util.List;
 
 public interface BlogPostLikeRepository extends JpaRepository<BlogPostLike, Long> {
     Optional<BlogPostLike> findByBlogPostIdAndUserId(Long blogPostId, Long userId);
+
+    boolean existsByBlogPostIdAndUserId(Long blogPostId, Long userId);
     long countByBlogPostId(Long blogPostId);
 
+    // 给定博客中该用户点赞过的博客 ID
+    @Query("SELECT l.blogPost.id FROM BlogPostLike l WHERE l.user.id = :userId AND l.blogPost.id IN :postIds")
+    List<Long> findLikedPostIds(@Param("userId") Long userId, @Param("postIds") java.util.Collection<Long> postIds);
+
     // 根据博客 ID 删除点赞
     void deleteByBlogPost_Id(Long blogPostId);
 
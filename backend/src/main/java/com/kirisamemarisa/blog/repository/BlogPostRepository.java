@@ -10,54 +10,100 @@ import org.springframework.data.repository.query.Param;
 import java.util.List;
 import java.util.Optional;
 
-public interface BlogPostRepository extends JpaRepository<BlogPost, Long> {
+public interface BlogPostRepository extends JpaRepository<BlogPost, Long>, BlogPostRepositoryCustom {
 
         // 用于校验“只有作者能删除”
         Optional<BlogPost> findByIdAndUserId(Long id, Long userId);
 
-        // 搜索：标题包含 OR 标签名包含
-        @Query(value = "SELECT b FROM BlogPost b " +
+        // 未被软删除的博客；已删除的博客等待后台清理，对外视为不存在
+        Optional<BlogPost> findByIdAndDeletedFalse(Long id);
+
+        // 搜索的公共过滤条件：标题包含 OR 标签名包含，以及作者 / 目录 / 分类 / 状态
+        String SEARCH_FROM = "FROM BlogPost b " +
                         "LEFT JOIN b.viewStats s " +
                         "LEFT JOIN b.category c " +
-                        "WHERE " +
-                        "(:keyword IS NULL OR :keyword = '' OR b.title LIKE %:keyword% OR EXISTS (SELECT t FROM b.tags t WHERE t.name LIKE %:keyword%)) " +
-                        "AND (:userId IS NULL OR b.user.id = :userId) " +
-                        "AND (:directory IS NULL OR :directory = '' OR b.directory = :directory) " +
-                        "AND (:categoryName IS NULL OR :categoryName = '' OR c.name = :categoryName) " +
-                        "AND (:status IS NULL OR :status = '' OR b.status = :status OR (:status = 'PUBLISHED' AND b.status IS NULL))",
-               countQuery = "SELECT count(b) FROM BlogPost b " +
-                        "LEFT JOIN b.category c " +
-                        "WHERE " +
-                        "(:keyword IS NULL OR :keyword = '' OR b.title LIKE %:keyword% OR EXISTS (SELECT t FROM b.tags t WHERE t.name LIKE %:keyword%)) " +
+                        "WHERE b.deleted = false " +
+                        "AND (:keyword IS NULL OR :keyword = '' OR b.title LIKE %:keyword% OR EXISTS (SELECT t FROM b.tags t WHERE t.name LIKE %:keyword%)) " +
                         "AND (:userId IS NULL OR b.user.id = :userId) " +
                         "AND (:directory IS NULL OR :directory = '' OR b.directory = :directory) " +
                         "AND (:categoryName IS NULL OR :categoryName = '' OR c.name = :categoryName) " +
-                        "AND (:status IS NULL OR :status = '' OR b.status = :status OR (:status = 'PUBLISHED' AND b.status IS NULL))")
-        Page<BlogPost> search(@Param("keyword") String keyword,
+                        "AND (:status IS NULL OR :status = '' OR b.status = :status OR (:status = 'PUBLISHED' AND b.status IS NULL)) ";
+
+        // 偏移分页搜索（兼容旧接口），只取 id，总数由 countSearch 单独获取并缓存
+        @Query("SELECT b.id " + SEARCH_FROM)
+        List<Long> searchIds(@Param("keyword") String keyword,
                         @Param("userId") Long userId,
                         @Param("directory") String directory,
                         @Param("categoryName") String categoryName,
                         @Param("status") String status,
                         Pageable pageable);
 
+        @Query("SELECT count(b) " + SEARCH_FROM)
+        long countSearch(@Param("keyword") String keyword,
+                        @Param("userId") Long userId,
+                        @Param("directory") String directory,
+                        @Param("categoryName") String categoryName,
+                        @Param("status") String status);
+
         // 获取用户的所有目录
-        @Query("SELECT DISTINCT b.directory FROM BlogPost b WHERE b.user.id = :userId AND b.directory IS NOT NULL AND b.directory <> ''")
+        @Query("SELECT DISTINCT b.directory FROM BlogPost b WHERE b.user.id = :userId AND b.deleted = false AND b.directory IS NOT NULL AND b.directory <> ''")
         List<String> findDirectoriesByUserId(@Param("userId") Long userId);
 
-        // 获取用户收藏的文章
-        @Query("SELECT b FROM BlogPost b JOIN BlogPostFavorite f ON b.id = f.blogPost.id LEFT JOIN b.category c WHERE f.user.id = :userId AND (:categoryName IS NULL OR :categoryName = '' OR c.name = :categoryName)")
-        Page<BlogPost> findFavoritesByUserId(@Param("userId") Long userId, @Param("categoryName") String categoryName,
+        // 获取用户收藏的文章 id
+        @Query(value = "SELECT b.id FROM BlogPost b JOIN BlogPostFavorite f ON b.id = f.blogPost.id LEFT JOIN b.category c WHERE f.user.id = :userId AND b.deleted = false AND (:categoryName IS NULL OR :categoryName = '' OR c.name = :categoryName)",
+               countQuery = "SELECT count(b) FROM BlogPost b JOIN BlogPostFavorite f ON b.id = f.blogPost.id LEFT JOIN b.category c WHERE f.user.id = :userId AND b.deleted = false AND (:categoryName IS NULL OR :categoryName = '' OR c.name = :categoryName)")
+        Page<Long> findFavoriteIdsByUserId(@Param("userId") Long userId, @Param("categoryName") String categoryName,
                         Pageable pageable);
 
         // 获取用户收藏文章的所有分类
-        @Query("SELECT DISTINCT c.name FROM BlogPostFavorite f JOIN f.blogPost p JOIN p.category c WHERE f.user.id = :userId")
+        @Query("SELECT DISTINCT c.name FROM BlogPostFavorite f JOIN f.blogPost p JOIN p.category c WHERE f.user.id = :userId AND p.deleted = false")
         List<String> findFavoriteCategories(@Param("userId") Long userId);
 
-        long countByUserId(Long userId);
+        long countByUserIdAndDeletedFalse(Long userId);
+
+        // 按 id 升序分批遍历未删除的博客（索引重建用）
+        List<BlogPost> findByIdGreaterThanAndDeletedFalseOrderByIdAsc(Long id, Pageable pageable);
+
+        // 按 id 升序分批取应进入排行榜的博客 id（排行榜重建用）
+        @Query("SELECT b.id FROM BlogPost b " +
+                        "WHERE b.deleted = false AND (b.status = 'PUBLISHED' OR b.status IS NULL) AND b.id > :afterId " +
+                        "ORDER BY b.id")
+        List<Long> findLeaderboardIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+        // 排行榜重建所需的轻量字段：id, 分类 id, 作者 id, 目录, 点赞数, 收藏数, 已落库浏览量, 评论数, 分享数, 创建时间
+        @Query("SELECT b.id, c.id, b.user.id, b.directory, b.likeCount, b.favoriteCount, COALESCE(s.viewCount, 0), " +
+                        "b.commentCount, b.shareCount, b.createdAt " +
+                        "FROM BlogPost b LEFT JOIN b.category c LEFT JOIN b.viewStats s " +
+                        "WHERE b.id IN :ids AND b.deleted = false AND (b.status = 'PUBLISHED' OR b.status IS NULL)")
+        List<Object[]> findLeaderboardRowsByIds(@Param("ids") List<Long> ids);
+
+        // 全部博客 ID，用于预热 Redis 中的博客存在性集合
+        @Query("SELECT b.id FROM BlogPost b WHERE b.deleted = false")
+        List<Long> findAllIds();
+
+        // 某作者的全部博客 ID
+        @Query("SELECT b.id FROM BlogPost b WHERE b.user.id = :userId")
+        List<Long> findIdsByUserId(@Param("userId") Long userId);
+
+        // 批量查询博客作者：{博客 id, 作者 id}
+        @Query("SELECT b.id, b.user.id FROM BlogPost b WHERE b.id IN :ids")
+        List<Object[]> findAuthorIdsByIds(@Param("ids") java.util.Collection<Long> ids);
 
         // 获取某分类下点赞最多的文章
         // BlogPost findFirstByCategoryOrderByLikeCountDesc(com.kirisamemarisa.blog.model.Category category);
         
-        @Query("SELECT b FROM BlogPost b LEFT JOIN b.viewStats s WHERE b.category = :category ORDER BY b.likeCount DESC, COALESCE(s.viewCount, 0) DESC, b.favoriteCount DESC, b.id DESC")
-        List<BlogPost> findTopByCategory(@Param("category") com.kirisamemarisa.blog.model.Category category, Pageable pageable);
+        @Query("SELECT b.id FROM BlogPost b LEFT JOIN b.viewStats s WHERE b.category = :category AND b.deleted = false ORDER BY b.likeCount DESC, COALESCE(s.viewCount, 0) DESC, b.favoriteCount DESC, b.id DESC")
+        List<Long> findTopIdsByCategory(@Param("category") com.kirisamemarisa.blog.model.Category category, Pageable pageable);
+
+        // 列表卡片列（不含正文）：{id, 标题, 封面, 摘要, 点赞, 评论, 分享, 收藏, 转发, 创建时间, 更新时间,
+        // 是否转发, 原文 id, 状态, 目录, 作者 id, 分类名}
+        @Query("SELECT b.id, b.title, b.coverImageUrl, b.excerpt, b.likeCount, b.commentCount, b.shareCount, " +
+                        "b.favoriteCount, b.repostCount, b.createdAt, b.updatedAt, b.repost, o.id, b.status, b.directory, " +
+                        "b.user.id, c.name " +
+                        "FROM BlogPost b LEFT JOIN b.category c LEFT JOIN b.originalPost o WHERE b.id IN :ids AND b.deleted = false")
+        List<Object[]> findCardsByIds(@Param("ids") java.util.Collection<Long> ids);
+
+        // 批量查询博客标签：{博客 id, 标签名}
+        @Query("SELECT b.id, t.name FROM BlogPost b JOIN b.tags t WHERE b.id IN :ids")
+        List<Object[]> findTagNamesByPostIds(@Param("ids") java.util.Collection<Long> ids);
 }
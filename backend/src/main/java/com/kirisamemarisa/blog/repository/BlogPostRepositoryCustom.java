@@ -0,0 +1,36 @@
+package com.kirisamemarisa.blog.repository;
+
+import java.util.List;
+
+/**
+ * 需要按参数拼接 JPQL 的博客查询
+ */
+public interface BlogPostRepositoryCustom {
+
+    /**
+     * 游标分页的排序键
+     */
+    enum KeysetSort {
+        CREATED_AT("b.createdAt"),
+        LIKES("b.likeCount"),
+        FAVORITES("b.favoriteCount"),
+        // 浏览量来自 LEFT JOIN 的 blog_view_stats，COALESCE 后的排序键无法走索引，
+        // 每页都要扫描并排序全部满足过滤条件的博客；已发布的全站/分类/作者目录列表由浏览排行榜按排名续页，
+        // 只有排行榜回答不了的组合（关键字、作者全部文章、草稿等，过滤后集合较小或本身已需 LIKE 扫描）才走这里
+        VIEWS("COALESCE(s.viewCount, 0)");
+
+        final String expression;
+
+        KeysetSort(String expression) {
+            this.expression = expression;
+        }
+    }
+
+    /**
+     * 游标分页搜索：按 (排序键, id) 降序取游标之后的 {id, 排序键}，afterId 为 null 时从头开始。
+     * 只拼接实际给出的过滤条件和游标条件，只有按浏览量排序时才关联浏览统计，
+     * 避免 “:x IS NULL OR ...” 形式的条件妨碍优化器按排序键索引逐页定位
+     */
+    List<Object[]> searchAfter(KeysetSort sort, String keyword, Long userId, String directory,
+            String categoryName, String status, Object afterKey, Long afterId, int limit);
+}
@@ -0,0 +1,67 @@
+package com.kirisamemarisa.blog.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BlogPostRepositoryImpl implements BlogPostRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Object[]> searchAfter(KeysetSort sort, String keyword, Long userId, String directory,
+            String categoryName, String status, Object afterKey, Long afterId, int limit) {
+        String key = sort.expression;
+        StringBuilder jpql = new StringBuilder("SELECT b.id, ").append(key).append(" FROM BlogPost b ");
+        if (sort == KeysetSort.VIEWS) {
+            jpql.append("LEFT JOIN b.viewStats s ");
+        }
+        jpql.append("WHERE b.deleted = false ");
+        Map<String, Object> params = new HashMap<>();
+        // 标题包含 OR 标签名包含，与 SEARCH_FROM 相同
+        if (hasText(keyword)) {
+            jpql.append("AND (b.title LIKE :keyword OR EXISTS (SELECT t FROM b.tags t WHERE t.name LIKE :keyword)) ");
+            params.put("keyword", "%" + keyword + "%");
+        }
+        if (userId != null) {
+            jpql.append("AND b.user.id = :userId ");
+            params.put("userId", userId);
+        }
+        if (hasText(directory)) {
+            jpql.append("AND b.directory = :directory ");
+            params.put("directory", directory);
+        }
+        if (hasText(categoryName)) {
+            jpql.append("AND b.category.name = :categoryName ");
+            params.put("categoryName", categoryName);
+        }
+        if (hasText(status)) {
+            // 旧数据 status 为空视为已发布
+            jpql.append("PUBLISHED".equals(status)
+                    ? "AND (b.status = :status OR b.status IS NULL) "
+                    : "AND b.status = :status ");
+            params.put("status", status);
+        }
+        if (afterId != null) {
+            jpql.append("AND (").append(key).append(" < :afterKey OR (").append(key)
+                    .append(" = :afterKey AND b.id < :afterId)) ");
+            params.put("afterKey", afterKey);
+            params.put("afterId", afterId);
+        }
+        jpql.append("ORDER BY ").append(key).append(" DESC, b.id DESC");
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class);
+        params.forEach(query::setParameter);
+        query.setMaxResults(limit);
+        return query.getResultList();
+    }
+
+    private static boolean hasText(String s) {
+        return s != null && !s.isEmpty();
+    }
+}
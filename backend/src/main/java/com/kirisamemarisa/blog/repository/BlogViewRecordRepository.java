@@ -2,11 +2,21 @@ package com.kirisamemarisa.blog.repository;
 
 import com.kirisamemarisa.blog.model.BlogViewRecord;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 public interface BlogViewRecordRepository extends JpaRepository<BlogViewRecord, Long> {
 
     boolean existsByBlogPostIdAndUserId(Long blogPostId, Long userId);
 
+    /**
+     * 某篇博客的全部登录浏览者 ID，用于重建 Redis 去重集合
+     */
+    @Query("SELECT DISTINCT r.user.id FROM BlogViewRecord r WHERE r.blogPost.id = :blogPostId AND r.user IS NOT NULL")
+    List<Long> findUserIdsByBlogPostId(@Param("blogPostId") Long blogPostId);
+
     /**
      * 根据文章 ID 删除所有浏览明细记录
      */
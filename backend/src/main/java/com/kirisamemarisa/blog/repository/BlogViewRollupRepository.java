@@ -0,0 +1,42 @@
+package com.kirisamemarisa.blog.repository;
+
+import com.kirisamemarisa.blog.model.BlogViewRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BlogViewRollupRepository extends JpaRepository<BlogViewRollup, Long> {
+
+    // 单篇博客的趋势：{分桶起始时间, 浏览量}
+    @Query("SELECT r.bucketStart, r.viewCount FROM BlogViewRollup r " +
+            "WHERE r.blogPostId = :postId AND r.granularity = :granularity " +
+            "AND r.bucketStart >= :from AND r.bucketStart <= :to ORDER BY r.bucketStart")
+    List<Object[]> findTrend(@Param("postId") Long postId,
+            @Param("granularity") String granularity,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    // 作者全部博客按分桶汇总：{分桶起始时间, 浏览量合计}
+    @Query("SELECT r.bucketStart, SUM(r.viewCount) FROM BlogViewRollup r " +
+            "WHERE r.authorId = :authorId AND r.granularity = :granularity " +
+            "AND r.bucketStart >= :from AND r.bucketStart <= :to " +
+            "GROUP BY r.bucketStart ORDER BY r.bucketStart")
+    List<Object[]> sumTrendByAuthor(@Param("authorId") Long authorId,
+            @Param("granularity") String granularity,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM BlogViewRollup r WHERE r.granularity = :granularity AND r.bucketStart < :before")
+    int deleteOlderThan(@Param("granularity") String granularity, @Param("before") LocalDateTime before);
+
+    @Transactional
+    @Modifying
+    void deleteByBlogPostId(Long blogPostId);
+}
@@ -2,12 +2,21 @@ package com.kirisamemarisa.blog.repository;
 
 import com.kirisamemarisa.blog.model.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
     Optional<Category> findByName(String name);
     boolean existsByName(String name);
+    List<Category> findByNameIn(Collection<String> names);
+
+    // 字典批量查询：{id, 名称}
+    @Query("SELECT c.id, c.name FROM Category c WHERE c.name IN :names")
+    List<Object[]> findIdAndNameByNameIn(@Param("names") Collection<String> names);
 }
@@ -3,6 +3,10 @@ package com.kirisamemarisa.blog.repository;
 import com.kirisamemarisa.blog.model.FriendRequest;
 import com.kirisamemarisa.blog.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +20,10 @@ public interface FriendRequestRepository extends JpaRepository<FriendRequest, Lo
     List<FriendRequest> findBySenderAndStatus(User sender, FriendRequest.Status status);
 
     long countByReceiverIdAndStatus(Long receiverId, FriendRequest.Status status);
+
+    // {receiverId, count}
+    @Query("SELECT r.receiver.id, COUNT(r) FROM FriendRequest r "
+            + "WHERE r.receiver.id IN :receiverIds AND r.status = :status GROUP BY r.receiver.id")
+    List<Object[]> countByReceiverIdsAndStatus(@Param("receiverIds") Collection<Long> receiverIds,
+            @Param("status") FriendRequest.Status status);
 }
@@ -0,0 +1,25 @@
+package com.kirisamemarisa.blog.repository;
+
+import com.kirisamemarisa.blog.model.NotificationOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+    // 到期的待投递事件，按写入顺序
+    @Query("SELECT o FROM NotificationOutbox o WHERE o.nextAttemptAt <= :now ORDER BY o.id")
+    List<NotificationOutbox> findDue(@Param("now") Instant now, Pageable pageable);
+
+    long countByAttemptsGreaterThan(int attempts);
+
+    // 最早的待投递事件时间，用于观察积压延迟
+    @Query("SELECT MIN(o.createdAt) FROM NotificationOutbox o")
+    Instant findOldestCreatedAt();
+}
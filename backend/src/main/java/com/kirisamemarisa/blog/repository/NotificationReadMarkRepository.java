@@ -0,0 +1,17 @@
+package com.kirisamemarisa.blog.repository;
+
+import com.kirisamemarisa.blog.model.NotificationReadMark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface NotificationReadMarkRepository extends JpaRepository<NotificationReadMark, Long> {
+
+    List<NotificationReadMark> findByUserIdIn(Collection<Long> userIds);
+
+    Optional<NotificationReadMark> findByUserIdAndType(Long userId, String type);
+}
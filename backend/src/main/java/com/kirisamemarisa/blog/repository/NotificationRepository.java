@@ -10,24 +10,63 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
-    Page<Notification> findByReceiverIdOrderByCreatedAtDesc(Long receiverId, Pageable pageable);
+    String ROW_SELECT = "SELECT n.id AS id, n.senderId AS senderId, n.receiverId AS receiverId, n.type AS type, "
+            + "n.referenceId AS referenceId, n.referenceExtraId AS referenceExtraId, n.content AS content, "
+            + "n.isRead AS isRead, n.createdAt AS createdAt, n.aggregateKey AS aggregateKey, "
+            + "n.actorCount AS actorCount, n.recentActorIds AS recentActorIds, n.lastEventId AS lastEventId "
+            + "FROM Notification n ";
 
-    Page<Notification> findByReceiverIdAndTypeInOrderByCreatedAtDesc(Long receiverId,
-            Collection<NotificationType> types, Pageable pageable);
+    // 通知列表分页，只取展示所需的列
+    @Query(value = ROW_SELECT + "WHERE n.receiverId = :receiverId ORDER BY n.createdAt DESC",
+            countQuery = "SELECT COUNT(n) FROM Notification n WHERE n.receiverId = :receiverId")
+    Page<NotificationRow> findRowsByReceiverId(@Param("receiverId") Long receiverId, Pageable pageable);
 
-    long countByReceiverIdAndIsReadFalse(Long receiverId);
+    @Query(value = ROW_SELECT + "WHERE n.receiverId = :receiverId AND n.type IN :types ORDER BY n.createdAt DESC",
+            countQuery = "SELECT COUNT(n) FROM Notification n WHERE n.receiverId = :receiverId AND n.type IN :types")
+    Page<NotificationRow> findRowsByReceiverIdAndTypeIn(@Param("receiverId") Long receiverId,
+            @Param("types") Collection<NotificationType> types, Pageable pageable);
 
-    @Modifying(clearAutomatically = true)
-    @Query("UPDATE Notification n SET n.isRead = true WHERE n.receiverId = :userId")
-    void markAllAsRead(@Param("userId") Long userId);
+    List<Notification> findByAggregateKeyIn(Collection<String> aggregateKeys);
 
+    // 单条已读标记（水位之上的逐条覆盖），仅未读时更新，返回 1 表示本次由未读变为已读
     @Modifying(clearAutomatically = true)
-    @Query("UPDATE Notification n SET n.isRead = true WHERE n.receiverId = :userId AND n.type IN :types")
-    void markAllAsRead(@Param("userId") Long userId, @Param("types") Collection<NotificationType> types);
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.id = :id AND n.isRead = false")
+    int markAsReadIfUnread(@Param("id") Long id);
+
+    /**
+     * 通知列表的行投影
+     */
+    interface NotificationRow {
+        Long getId();
+
+        Long getSenderId();
+
+        Long getReceiverId();
+
+        NotificationType getType();
+
+        Long getReferenceId();
+
+        Long getReferenceExtraId();
+
+        String getContent();
+
+        boolean getIsRead();
+
+        Instant getCreatedAt();
+
+        String getAggregateKey();
+
+        Integer getActorCount();
+
+        String getRecentActorIds();
 
-    long countByReceiverIdAndIsReadFalseAndTypeIn(Long receiverId, Collection<NotificationType> types);
+        Long getLastEventId();
+    }
 }
@@ -0,0 +1,28 @@
+package com.kirisamemarisa.blog.repository;
+
+import com.kirisamemarisa.blog.model.PostMedia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PostMediaRepository extends JpaRepository<PostMedia, Long> {
+    List<PostMedia> findByPostId(Long postId);
+
+    @Modifying
+    @Query("DELETE FROM PostMedia m WHERE m.postId = :postId AND m.storageKey IN :keys")
+    int deleteByPostIdAndStorageKeyIn(@Param("postId") Long postId, @Param("keys") Collection<String> keys);
+
+    @Modifying
+    @Query("DELETE FROM PostMedia m WHERE m.postId = :postId")
+    int deleteByPostId(@Param("postId") Long postId);
+
+    // 仍被引用的 key（任一博客）
+    @Query("SELECT DISTINCT m.storageKey FROM PostMedia m WHERE m.storageKey IN :keys")
+    List<String> findReferencedKeys(@Param("keys") Collection<String> keys);
+}
@@ -0,0 +1,24 @@
+package com.kirisamemarisa.blog.repository;
+
+import com.kirisamemarisa.blog.model.StorageDeletion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface StorageDeletionRepository extends JpaRepository<StorageDeletion, Long> {
+
+    // 到期且未超过重试上限的待删除项，按写入顺序
+    @Query("SELECT d FROM StorageDeletion d WHERE d.attempts < :maxAttempts AND d.nextAttemptAt <= :now ORDER BY d.id")
+    List<StorageDeletion> findDue(@Param("maxAttempts") int maxAttempts, @Param("now") Instant now,
+            Pageable pageable);
+
+    long countByAttemptsLessThan(int maxAttempts);
+
+    long countByAttemptsGreaterThanEqual(int maxAttempts);
+}
@@ -2,12 +2,20 @@ package com.kirisamemarisa.blog.repository;
 
 import com.kirisamemarisa.blog.model.Tag;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface TagRepository extends JpaRepository<Tag, Long> {
     Optional<Tag> findByName(String name);
     boolean existsByName(String name);
+
+    // 字典批量查询：{id, 名称}
+    @Query("SELECT t.id, t.name FROM Tag t WHERE t.name IN :names")
+    List<Object[]> findIdAndNameByNameIn(@Param("names") Collection<String> names);
 }
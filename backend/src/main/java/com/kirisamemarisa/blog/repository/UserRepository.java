@@ -18,4 +18,8 @@ public interface UserRepository extends JpaRepository<User, Long> {
     long countByUsername(@Param("username") String username);
     @Query("SELECT COUNT(up) FROM UserProfile up WHERE up.nickname LIKE %:nickname%")
     long countByNickname(@Param("nickname") String nickname);
+
+    // 批量查询作者展示信息：{用户 id, 用户名, 昵称, 头像}，无资料时后两项为 null
+    @Query("SELECT u.id, u.username, up.nickname, up.avatarUrl FROM User u LEFT JOIN UserProfile up ON u.id = up.id WHERE u.id IN :ids")
+    List<Object[]> findAuthorCardsByIds(@Param("ids") java.util.Collection<Long> ids);
 }
@@ -34,6 +34,11 @@ public interface BlogPostService {
                         int size,
                         Long currentUserId, String sortMode);
 
+        // 游标分页搜索文章，cursor 为空时从第一页开始
+        CursorPageResult<BlogPostDTO> searchByCursor(String keyword, Long userId, String directory,
+                        String categoryName, String status, String cursor, int size,
+                        Long currentUserId, String sortMode);
+
         // 获取用户目录列表
         List<String> getUserDirectories(Long userId);
 
@@ -50,6 +55,9 @@ public interface BlogPostService {
         // 获取每个分类下点赞最多的文章
         List<BlogPostDTO> getTopPostPerCategory();
 
+        // 各分类榜首快照（含 etag，供条件请求使用）
+        CategoryChampionsSnapshot getTopPostPerCategorySnapshot();
+
         // 新增：删除博客接口（只能作者删除）
         ApiResponse<Boolean> delete(Long blogPostId, Long userId);
 
@@ -60,4 +68,19 @@ public interface BlogPostService {
 
         // 获取用户收藏文章的分类列表
         List<String> getFavoriteCategories(Long userId);
+
+        // 博客详情缓存命中率指标
+        java.util.Map<String, Object> getDetailCacheMetrics();
+
+        // 通知所有实例从数据库重建博客检索索引，仅限运维用户
+        ApiResponse<Boolean> rebuildSearchIndex(Long userId);
+
+        // 博客检索索引状态与查询耗时
+        java.util.Map<String, Object> getSearchIndexMetrics();
+
+        // 已删除博客的后台清理进度
+        java.util.Map<String, Object> getPurgeMetrics();
+
+        // 互动计数的待落库积压与落库情况
+        java.util.Map<String, Object> getCounterMetrics();
 }
\ No newline at end of file
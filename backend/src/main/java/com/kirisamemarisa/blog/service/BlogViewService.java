@@ -3,6 +3,7 @@ package com.kirisamemarisa.blog.service;
 import com.kirisamemarisa.blog.common.ApiResponse;
 import com.kirisamemarisa.blog.dto.BlogViewRecordCreateDTO;
 import com.kirisamemarisa.blog.dto.BlogViewStatsDTO;
+import com.kirisamemarisa.blog.dto.BlogViewTrendPointDTO;
 
 public interface BlogViewService {
 
@@ -16,6 +17,21 @@ public interface BlogViewService {
      */
     ApiResponse<BlogViewStatsDTO> getStats(Long blogPostId);
 
+    /**
+     * 获取指定博客的独立登录访客数（HyperLogLog 估算值）
+     */
+    ApiResponse<Long> getUniqueViewerEstimate(Long blogPostId);
+
+    /**
+     * 获取指定博客最近 points 个小时 / 天的浏览趋势（granularity 为 hour 或 day）
+     */
+    ApiResponse<java.util.List<BlogViewTrendPointDTO>> getTrend(Long blogPostId, String granularity, int points);
+
+    /**
+     * 获取作者全部博客汇总的浏览趋势
+     */
+    ApiResponse<java.util.List<BlogViewTrendPointDTO>> getAuthorTrend(Long authorId, String granularity, int points);
+
     /**
      * 批量获取博客浏览统计
      */
@@ -27,6 +43,21 @@ public interface BlogViewService {
      */
     void flushPendingViewCounts();
 
+    /**
+     * 浏览数据同步任务的积压与吞吐指标
+     */
+    java.util.Map<String, Object> getSyncMetrics();
+
+    /**
+     * 新博客创建后登记到浏览缓存（博客 id 集合），使浏览写入无需回查数据库；处于事务中时提交后再登记
+     */
+    void registerPost(Long blogPostId);
+
+    /**
+     * 博客被软删除后移出浏览缓存，之后的浏览请求直接返回不存在；浏览数据由后台清理任务删除
+     */
+    void unregisterPost(Long blogPostId);
+
     /**
      * 删除指定博客的所有浏览相关数据（明细 + 统计）
      */
@@ -0,0 +1,107 @@
+package com.kirisamemarisa.blog.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 互动计数（点赞、收藏、分享、评论数）。
+ * 写入时只在 Redis 中原子累加增量，后台定期以增量 UPDATE 批量并入数据库；
+ * 读取时以数据库中的值加上尚未落库的增量作为当前值。
+ */
+public interface EngagementCounterService {
+
+    // 计数所属实体
+    String POST = "post";
+    String COMMENT = "comment";
+    String REPLY = "reply";
+
+    // 计数项，与 PostLeaderboardService 的维度同名
+    String LIKES = "likes";
+    String FAVORITES = "favorites";
+    String SHARES = "shares";
+    String COMMENTS = "comments";
+
+    /**
+     * 累加计数。处于事务中时提交后再累加，回滚的操作不会留下增量。
+     */
+    void increment(String type, Long id, String metric, long delta);
+
+    /**
+     * 尚未落库的增量
+     *
+     * @return id → (计数项 → 增量)；没有增量的 id 不在结果中
+     */
+    Map<Long, Map<String, Long>> pendingDeltas(String type, Collection<Long> ids);
+
+    /**
+     * 读取时在 DTO 中的数据库计数上叠加尚未落库的增量，一次批量读取
+     *
+     * @param idOf   取实体 id
+     * @param fields 需要叠加的计数项与 DTO 字段
+     */
+    default <T> void mergePending(String type, Collection<T> items, Function<T, Long> idOf,
+            List<CounterField<T>> fields) {
+        if (items == null || items.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(items.size());
+        for (T item : items) {
+            ids.add(idOf.apply(item));
+        }
+        Map<Long, Map<String, Long>> pending = pendingDeltas(type, ids);
+        if (pending.isEmpty()) {
+            return;
+        }
+        for (T item : items) {
+            Map<String, Long> d = pending.get(idOf.apply(item));
+            if (d == null) {
+                continue;
+            }
+            for (CounterField<T> f : fields) {
+                f.setter.accept(item, merge(f.getter.apply(item), d.get(f.metric)));
+            }
+        }
+    }
+
+    /**
+     * 数据库计数加增量，与落库时的 GREATEST(col + delta, 0) 一致
+     */
+    static Long merge(Long base, Long delta) {
+        if (delta == null) {
+            return base;
+        }
+        return Math.max(0L, (base != null ? base : 0L) + delta);
+    }
+
+    /**
+     * 立即把全部增量并入数据库
+     *
+     * @return 本次落库的实体数
+     */
+    int flush();
+
+    Map<String, Object> getMetrics();
+
+    /**
+     * 计数项与 DTO 字段的对应
+     */
+    final class CounterField<T> {
+        private final String metric;
+        private final Function<T, Long> getter;
+        private final BiConsumer<T, Long> setter;
+
+        private CounterField(String metric, Function<T, Long> getter, BiConsumer<T, Long> setter) {
+            this.metric = metric;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        public static <T> CounterField<T> of(String metric, Function<T, Long> getter, BiConsumer<T, Long> setter) {
+            return new CounterField<>(metric, getter, setter);
+        }
+    }
+}
@@ -32,4 +32,17 @@ public interface FileStorageService {
      * @param fileUrl 文件URL或路径
      */
     void deleteFile(String fileUrl);
+
+    /**
+     * 批量删除文件，不存在的文件视为删除成功
+     *
+     * @param fileUrls 文件URL或路径
+     * @return 删除失败、需要重试的输入项
+     */
+    default java.util.List<String> deleteFiles(java.util.Collection<String> fileUrls) {
+        for (String fileUrl : fileUrls) {
+            deleteFile(fileUrl);
+        }
+        return java.util.Collections.emptyList();
+    }
 }
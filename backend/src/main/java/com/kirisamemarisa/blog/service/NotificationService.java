@@ -17,10 +17,16 @@ public interface NotificationService {
 
     /**
      * 发送一条通知给 userId 对应的用户。
-     * 具体实现中会优先通过 RabbitMQ 暂存，再通过 SSE 下发。
+     * 与调用方同一事务写入发件箱，提交后异步落库并经 RabbitMQ 广播到各实例，再通过 SSE 下发。
+     * 发送者昵称与头像由投递时批量补齐，调用方无需填写。
      */
     void sendNotification(Long userId, NotificationDTO payload);
 
+    /**
+     * 通知发件箱的积压与投递指标
+     */
+    java.util.Map<String, Object> getDispatchMetrics();
+
     /**
      * 用户是否有活跃的 SSE 连接。
      */
@@ -37,7 +43,7 @@ public interface NotificationService {
     Page<NotificationDTO> getUserNotifications(Long userId, java.util.List<String> types, Pageable pageable);
 
     /**
-     * 获取未读通知数量
+     * 获取未读通知数量（读取 Redis 中维护的计数）
      */
     long getUnreadCount(Long userId);
 
@@ -57,7 +63,12 @@ public interface NotificationService {
     void markAllAsRead(Long userId, java.util.List<String> types);
 
     /**
-     * 获取各类通知的未读数量统计
+     * 获取各类通知的未读数量统计（读取 Redis 中维护的计数）
      */
     java.util.Map<String, Long> getUnreadStats(Long userId);
+
+    /**
+     * 未读计数的命中、重建与对账指标
+     */
+    java.util.Map<String, Object> getUnreadCounterMetrics();
 }
\ No newline at end of file
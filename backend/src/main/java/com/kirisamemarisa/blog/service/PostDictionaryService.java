@@ -0,0 +1,33 @@
+package com.kirisamemarisa.blog.service;
+
+import com.kirisamemarisa.blog.model.Category;
+import com.kirisamemarisa.blog.model.Tag;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 标签与分类字典：名称到 id 的本地缓存，写博客时批量解析并补建缺失项
+ */
+public interface PostDictionaryService {
+
+    /**
+     * 按名称取分类，不存在时创建
+     *
+     * @return 分类引用；名称为空时返回 null
+     */
+    Category resolveCategory(String name);
+
+    /**
+     * 按名称查分类 id，不创建
+     */
+    Long findCategoryId(String name);
+
+    /**
+     * 批量解析标签，不存在的标签一次性补建；空白名称被忽略
+     */
+    Set<Tag> resolveTags(Collection<String> names);
+
+    Map<String, Object> getMetrics();
+}
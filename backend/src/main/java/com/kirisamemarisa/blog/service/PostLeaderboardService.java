@@ -0,0 +1,57 @@
+package com.kirisamemarisa.blog.service;
+
+import com.kirisamemarisa.blog.dto.PageResult;
+import com.kirisamemarisa.blog.model.BlogPost;
+
+/**
+ * 博客排行榜：按浏览、点赞、收藏及随时间衰减的热度维护 Redis 有序集合，
+ * 作用域分为全站、分类、作者目录三级，写入时增量更新，读取时按排名分页。
+ */
+public interface PostLeaderboardService {
+
+    String VIEWS = "views";
+    String LIKES = "likes";
+    String FAVORITES = "favorites";
+    // 热度榜：综合各类互动并按半衰期衰减
+    String HOT = "hot";
+    // 仅计入热度、没有独立排行榜的互动
+    String COMMENTS = "comments";
+    String SHARES = "shares";
+
+    /**
+     * 根据博客当前的状态、分类与目录重新登记其所属排行榜（发布、修改后调用）
+     */
+    void reindex(BlogPost post);
+
+    /**
+     * 从所有排行榜中移除博客
+     */
+    void remove(Long blogPostId);
+
+    /**
+     * 给博客在其所属全部排行榜上的某项指标加上 delta，并按当前时间折算计入热度榜。
+     * 处于事务中时在提交后才写入
+     */
+    void increment(Long blogPostId, String metric, long delta);
+
+    /**
+     * 按指标倒序分页读取博客 ID。categoryId 与 (userId, directory) 至多指定一个作用域，均为空时为全站。
+     */
+    PageResult<Long> page(String metric, Long categoryId, Long userId, String directory, int page, int size);
+
+    /**
+     * 从第 offset 名开始取 size 个博客 id，供游标分页按排名续页。
+     * 排行榜尚未建成（首次重建中或 Redis 数据丢失）时返回 null，调用方应回退 SQL。
+     */
+    PageResult<Long> range(String metric, Long categoryId, Long userId, String directory, long offset, int size);
+
+    /**
+     * 从数据库全量重建排行榜：写入临时 key 后逐个 RENAME 覆盖线上榜单，重建期间榜单始终可读
+     */
+    void rebuild();
+
+    /**
+     * 前移热度榜纪元并整体缩放分值，防止分值随时间指数增长
+     */
+    void rebaseHotScores();
+}
@@ -0,0 +1,19 @@
+package com.kirisamemarisa.blog.service;
+
+/**
+ * 博客媒体引用索引：写博客时记录正文与封面引用的文件，不再被任何博客引用的文件交给批量删除
+ */
+public interface PostMediaService {
+
+    /**
+     * 按博客当前的正文与封面更新引用，须在博客写事务内调用
+     */
+    void sync(Long postId, String content, String coverUrl);
+
+    /**
+     * 删除博客的全部引用
+     *
+     * @return 删除的引用行数
+     */
+    int removePost(Long postId);
+}
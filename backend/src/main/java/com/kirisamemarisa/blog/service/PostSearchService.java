@@ -0,0 +1,45 @@
+package com.kirisamemarisa.blog.service;
+
+import com.kirisamemarisa.blog.dto.PageResult;
+import com.kirisamemarisa.blog.model.BlogPost;
+
+import java.util.Map;
+
+/**
+ * 博客全文检索：标题、标签、分类与正文摘要的倒排索引，结果按 BM25 相关度排序。
+ */
+public interface PostSearchService {
+
+    /**
+     * 按关键字检索并按相关度分页返回博客 ID。
+     * 索引尚未就绪或关键字无法由索引回答（如单字）时返回 null，由调用方回退到 SQL 查询。
+     * 字母数字关键字按整词、前缀（不少于 2 个字符）与中缀/后缀（不少于 3 个字符）匹配，
+     * 与 LIKE 的子串语义基本一致；仅长单词第 16 个字符之后的中缀与 2 个字符的中缀不能命中。
+     *
+     * @param status 为空时不限状态；PUBLISHED 同时匹配状态为空的旧数据
+     */
+    PageResult<Long> search(String keyword, Long userId, String directory, String categoryName, String status,
+            long offset, int size);
+
+    /**
+     * 在当前事务内生成博客的索引文档，事务提交后写入本地索引并通知其他实例
+     */
+    void index(BlogPost post);
+
+    /**
+     * 事务提交后从索引中移除博客并通知其他实例
+     */
+    void remove(Long blogPostId);
+
+    /**
+     * 从数据库全量重建本实例的索引
+     */
+    void rebuild();
+
+    /**
+     * 通知所有实例重建索引
+     */
+    void requestRebuild();
+
+    Map<String, Object> getMetrics();
+}
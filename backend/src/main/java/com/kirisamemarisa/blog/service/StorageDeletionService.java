@@ -0,0 +1,20 @@
+package com.kirisamemarisa.blog.service;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 对象存储的异步删除：在业务事务内登记待删文件，提交后由后台批量删除，失败按退避重试
+ */
+public interface StorageDeletionService {
+
+    /**
+     * 登记待删除文件，加入调用方的事务；事务回滚时不会删除
+     *
+     * @param source   来源，见 StorageDeletion.SOURCE_*
+     * @param fileUrls 文件URL或存储 key
+     */
+    void enqueue(String source, Collection<String> fileUrls);
+
+    Map<String, Object> getMetrics();
+}
@@ -0,0 +1,184 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.common.ApiResponse;
+import com.kirisamemarisa.blog.dto.BlogPostDTO;
+import com.kirisamemarisa.blog.repository.BlogPostFavoriteRepository;
+import com.kirisamemarisa.blog.repository.BlogPostLikeRepository;
+import com.kirisamemarisa.blog.repository.BlogPostRepository;
+import com.kirisamemarisa.blog.repository.UserRepository;
+import com.kirisamemarisa.blog.service.BlogViewService;
+import com.kirisamemarisa.blog.service.EngagementCounterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 博客列表的批量装配。
+ * 列表查询只返回博客 id，这里再按类别各查一次：卡片列（不含正文）一次、标签一次、作者资料一次、
+ * 点赞/收藏标记各一次、浏览量一次批量统计（DB IN + Redis MGET）、未落库的互动计数一次 Redis 管道读取，
+ * 使一页的查询次数与页大小无关。
+ */
+@Component
+public class BlogPostListEnricher {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlogPostListEnricher.class);
+
+    private static final List<EngagementCounterService.CounterField<BlogPostDTO>> POST_COUNTERS = List.of(
+            EngagementCounterService.CounterField.of(EngagementCounterService.LIKES,
+                    BlogPostDTO::getLikeCount, BlogPostDTO::setLikeCount),
+            EngagementCounterService.CounterField.of(EngagementCounterService.FAVORITES,
+                    BlogPostDTO::getFavoriteCount, BlogPostDTO::setFavoriteCount),
+            EngagementCounterService.CounterField.of(EngagementCounterService.SHARES,
+                    BlogPostDTO::getShareCount, BlogPostDTO::setShareCount),
+            EngagementCounterService.CounterField.of(EngagementCounterService.COMMENTS,
+                    BlogPostDTO::getCommentCount, BlogPostDTO::setCommentCount));
+
+    private final BlogPostRepository blogPostRepository;
+    private final UserRepository userRepository;
+    private final BlogPostLikeRepository blogPostLikeRepository;
+    private final BlogPostFavoriteRepository blogPostFavoriteRepository;
+    private final BlogViewService blogViewService;
+    private final EngagementCounterService engagementCounterService;
+
+    public BlogPostListEnricher(BlogPostRepository blogPostRepository,
+            UserRepository userRepository,
+            BlogPostLikeRepository blogPostLikeRepository,
+            BlogPostFavoriteRepository blogPostFavoriteRepository,
+            BlogViewService blogViewService,
+            EngagementCounterService engagementCounterService) {
+        this.blogPostRepository = blogPostRepository;
+        this.userRepository = userRepository;
+        this.blogPostLikeRepository = blogPostLikeRepository;
+        this.blogPostFavoriteRepository = blogPostFavoriteRepository;
+        this.blogViewService = blogViewService;
+        this.engagementCounterService = engagementCounterService;
+    }
+
+    /**
+     * 按给定 id 顺序装配一页博客卡片 DTO（不含正文），并批量填充作者信息、当前用户的点赞/收藏标记与浏览量。
+     * 已不存在的博客被跳过。
+     *
+     * @param currentUserId 当前用户，为 null 时不填充点赞/收藏标记
+     */
+    public List<BlogPostDTO> toDTOs(List<Long> postIds, Long currentUserId) {
+        if (postIds == null || postIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<Long> ids = new LinkedHashSet<>(postIds);
+        Map<Long, BlogPostDTO> cards = new HashMap<>();
+        Set<Long> authorIds = new HashSet<>();
+        for (Object[] row : blogPostRepository.findCardsByIds(ids)) {
+            BlogPostDTO dto = toCard(row);
+            cards.put(dto.getId(), dto);
+            if (dto.getUserId() != null) {
+                authorIds.add(dto.getUserId());
+            }
+        }
+        if (cards.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Long, List<String>> tags = new HashMap<>();
+        for (Object[] row : blogPostRepository.findTagNamesByPostIds(cards.keySet())) {
+            tags.computeIfAbsent(((Number) row[0]).longValue(), k -> new ArrayList<>()).add((String) row[1]);
+        }
+        Map<Long, Object[]> authors = loadAuthors(authorIds);
+        Set<Long> liked = Collections.emptySet();
+        Set<Long> favorited = Collections.emptySet();
+        if (currentUserId != null) {
+            liked = new HashSet<>(blogPostLikeRepository.findLikedPostIds(currentUserId, cards.keySet()));
+            favorited = new HashSet<>(blogPostFavoriteRepository.findFavoritedPostIds(currentUserId, cards.keySet()));
+        }
+        Map<Long, Long> views = loadViewCounts(new ArrayList<>(cards.keySet()));
+
+        List<BlogPostDTO> result = new ArrayList<>(cards.size());
+        for (Long id : ids) {
+            BlogPostDTO dto = cards.get(id);
+            if (dto == null) {
+                continue;
+            }
+            dto.setTags(tags.getOrDefault(id, new ArrayList<>()));
+            Object[] author = authors.get(dto.getUserId());
+            if (author != null && author[2] != null) {
+                dto.setAuthorNickname((String) author[2]);
+                dto.setAuthorAvatarUrl((String) author[3]);
+            } else {
+                // 与 toDTOWithProfile 一致：无资料时回退到用户名
+                dto.setAuthorNickname(author != null && author[1] != null ? (String) author[1] : "");
+                dto.setAuthorAvatarUrl("");
+            }
+            if (currentUserId != null) {
+                dto.setLikedByCurrentUser(liked.contains(id));
+                dto.setFavoritedByCurrentUser(favorited.contains(id));
+            }
+            dto.setViewCount(views.getOrDefault(id, 0L));
+            result.add(dto);
+        }
+        applyPendingCounters(result);
+        return result;
+    }
+
+    /**
+     * 在数据库中的计数上叠加 Redis 中尚未落库的点赞、收藏、分享、评论增量
+     */
+    public void applyPendingCounters(Collection<BlogPostDTO> dtos) {
+        engagementCounterService.mergePending(EngagementCounterService.POST, dtos, BlogPostDTO::getId, POST_COUNTERS);
+    }
+
+    // 列顺序见 BlogPostRepository.findCardsByIds
+    private static BlogPostDTO toCard(Object[] row) {
+        BlogPostDTO dto = new BlogPostDTO();
+        dto.setId(((Number) row[0]).longValue());
+        dto.setTitle((String) row[1]);
+        dto.setCoverImageUrl((String) row[2]);
+        dto.setExcerpt((String) row[3]);
+        dto.setLikeCount((Long) row[4]);
+        dto.setCommentCount((Long) row[5]);
+        dto.setShareCount((Long) row[6]);
+        dto.setFavoriteCount((Long) row[7]);
+        dto.setRepostCount((Integer) row[8]);
+        dto.setCreatedAt((LocalDateTime) row[9]);
+        dto.setUpdatedAt((LocalDateTime) row[10]);
+        dto.setRepost((Boolean) row[11]);
+        dto.setOriginalPostId((Long) row[12]);
+        dto.setStatus((String) row[13]);
+        dto.setDirectory((String) row[14]);
+        dto.setUserId((Long) row[15]);
+        dto.setCategoryName((String) row[16]);
+        return dto;
+    }
+
+    private Map<Long, Object[]> loadAuthors(Set<Long> authorIds) {
+        Map<Long, Object[]> authors = new HashMap<>();
+        if (authorIds.isEmpty()) {
+            return authors;
+        }
+        for (Object[] row : userRepository.findAuthorCardsByIds(authorIds)) {
+            authors.put(((Number) row[0]).longValue(), row);
+        }
+        return authors;
+    }
+
+    private Map<Long, Long> loadViewCounts(List<Long> postIds) {
+        try {
+            ApiResponse<Map<Long, Long>> batchStats = blogViewService.getBatchStats(postIds);
+            if (batchStats != null && batchStats.getData() != null) {
+                return batchStats.getData();
+            }
+        } catch (Exception e) {
+            logger.error("Failed to batch get view stats", e);
+        }
+        return Collections.emptyMap();
+    }
+}
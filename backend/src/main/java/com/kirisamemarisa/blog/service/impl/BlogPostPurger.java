@@ -0,0 +1,154 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.service.BlogViewService;
+import com.kirisamemarisa.blog.service.PostMediaService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 软删除博客的后台清理。
+ * 按依赖顺序对每张从表执行带 LIMIT 的集合删除，每条语句单独提交，单次只锁住一小批行；
+ * 然后释放博客媒体引用（不再被引用的文件交给删除发件箱），最后删除博客本身。进度完全由 is_deleted 标记和剩余行决定，每一步都可重复执行，
+ * 进程中途退出后下一轮从头再跑一遍即可续上。集群内由租约保证只有一个实例执行。
+ */
+@Component
+public class BlogPostPurger {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlogPostPurger.class);
+
+    private static final String LEASE_NAME = "post-purge";
+    private static final long LEASE_TTL_MS = 120_000L;
+    // 单轮执行时长上限，留出余量保证在租约过期前结束
+    private static final long RUN_BUDGET_MS = 60_000L;
+    private static final int POSTS_PER_RUN = 20;
+
+    // {名称, SQL}，按外键依赖顺序排列；参数均为 (博客 id, LIMIT)
+    private static final List<String[]> STEPS = Collections.unmodifiableList(Arrays.asList(
+            new String[] { "comment_reply_like",
+                    "DELETE FROM comment_reply_like WHERE reply_id IN (SELECT r.id FROM comment_reply r "
+                            + "JOIN comment c ON r.comment_id = c.id WHERE c.blog_post_id = ?) LIMIT ?" },
+            new String[] { "comment_reply",
+                    "DELETE FROM comment_reply WHERE comment_id IN "
+                            + "(SELECT c.id FROM comment c WHERE c.blog_post_id = ?) LIMIT ?" },
+            new String[] { "comment_like",
+                    "DELETE FROM comment_like WHERE comment_id IN "
+                            + "(SELECT c.id FROM comment c WHERE c.blog_post_id = ?) LIMIT ?" },
+            new String[] { "comment", "DELETE FROM comment WHERE blog_post_id = ? LIMIT ?" },
+            new String[] { "blog_post_like", "DELETE FROM blog_post_like WHERE blog_post_id = ? LIMIT ?" },
+            new String[] { "blog_post_favorite", "DELETE FROM blog_post_favorite WHERE blog_post_id = ? LIMIT ?" },
+            new String[] { "blog_post_shares", "DELETE FROM blog_post_shares WHERE blog_post_id = ? LIMIT ?" },
+            new String[] { "blog_view_record", "DELETE FROM blog_view_record WHERE blog_post_id = ? LIMIT ?" },
+            new String[] { "blog_view_rollup", "DELETE FROM blog_view_rollup WHERE blog_post_id = ? LIMIT ?" },
+            // 转发保留，只断开与原文的关联
+            new String[] { "repost_link",
+                    "UPDATE blog_post SET original_post_id = NULL WHERE original_post_id = ? LIMIT ?" },
+            new String[] { "blog_post_tag", "DELETE FROM blog_post_tag WHERE blog_post_id = ? LIMIT ?" }));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlogViewService blogViewService;
+    private final PostMediaService postMediaService;
+    private final ClusterCoordinator clusterCoordinator;
+
+    @Value("${blog.post.purge.chunk-size:500}")
+    private int chunkSize;
+
+    private final Map<String, AtomicLong> rowsByStep = new LinkedHashMap<>();
+    private final AtomicLong postsPurged = new AtomicLong();
+    private volatile Long currentPostId;
+    private volatile long lastRunAt;
+    private volatile String lastError;
+
+    public BlogPostPurger(JdbcTemplate jdbcTemplate, BlogViewService blogViewService,
+            PostMediaService postMediaService, ClusterCoordinator clusterCoordinator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blogViewService = blogViewService;
+        this.postMediaService = postMediaService;
+        this.clusterCoordinator = clusterCoordinator;
+        for (String[] step : STEPS) {
+            rowsByStep.put(step[0], new AtomicLong());
+        }
+        rowsByStep.put("post_media", new AtomicLong());
+    }
+
+    @Scheduled(initialDelayString = "${blog.post.purge.initial-delay-ms:20000}",
+            fixedDelayString = "${blog.post.purge.interval-ms:10000}")
+    public void run() {
+        ClusterCoordinator.Lease lease = clusterCoordinator.tryAcquire(LEASE_NAME, LEASE_TTL_MS);
+        if (lease == null) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + RUN_BUDGET_MS;
+        try {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM blog_post WHERE is_deleted = 1 ORDER BY id LIMIT ?", Long.class, POSTS_PER_RUN);
+            for (Long id : ids) {
+                if (!purge(id, deadline)) {
+                    break;
+                }
+            }
+            lastError = null;
+        } catch (Exception e) {
+            lastError = e.toString();
+            logger.warn("Post purge failed at post {}: {}", currentPostId, e.toString());
+        } finally {
+            currentPostId = null;
+            lastRunAt = System.currentTimeMillis();
+            clusterCoordinator.release(lease);
+        }
+    }
+
+    /**
+     * 清理一篇博客的全部从表数据并删除博客本身
+     *
+     * @return false 表示本轮时间用尽，未完成的部分留到下一轮
+     */
+    private boolean purge(Long postId, long deadline) {
+        currentPostId = postId;
+        for (String[] step : STEPS) {
+            while (true) {
+                if (System.currentTimeMillis() >= deadline) {
+                    return false;
+                }
+                int n = jdbcTemplate.update(step[1], postId, chunkSize);
+                rowsByStep.get(step[0]).addAndGet(n);
+                if (n < chunkSize) {
+                    break;
+                }
+            }
+        }
+        // 软删除时已释放过一次，这里兜底回填等在此之后写入的引用，并经删除发件箱释放文件
+        rowsByStep.get("post_media").addAndGet(postMediaService.removePost(postId));
+        // 大表已分批删完，这里只剩统计行和 Redis 中的浏览缓存
+        blogViewService.deleteByBlogPostId(postId);
+        int removed = jdbcTemplate.update("DELETE FROM blog_post WHERE id = ? AND is_deleted = 1", postId);
+        if (removed > 0) {
+            postsPurged.incrementAndGet();
+        }
+        return true;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("pending", jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM blog_post WHERE is_deleted = 1", Long.class));
+        metrics.put("currentPostId", currentPostId);
+        metrics.put("postsPurged", postsPurged.get());
+        Map<String, Long> rows = new LinkedHashMap<>();
+        rowsByStep.forEach((name, count) -> rows.put(name, count.get()));
+        metrics.put("rowsDeleted", rows);
+        metrics.put("lastRunAt", lastRunAt);
+        metrics.put("lastError", lastError);
+        return metrics;
+    }
+}
@@ -12,7 +12,12 @@ import com.kirisamemarisa.blog.service.BlogViewService;
 import com.kirisamemarisa.blog.service.FileStorageService;
 import com.kirisamemarisa.blog.mapper.BlogPostMapper;
 import com.kirisamemarisa.blog.service.CommentService;
+import com.kirisamemarisa.blog.service.EngagementCounterService;
 import com.kirisamemarisa.blog.service.NotificationService;
+import com.kirisamemarisa.blog.service.PostDictionaryService;
+import com.kirisamemarisa.blog.service.PostLeaderboardService;
+import com.kirisamemarisa.blog.service.PostMediaService;
+import com.kirisamemarisa.blog.service.PostSearchService;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.JpaSort;
@@ -25,7 +30,6 @@ import java.util.List;
 import com.kirisamemarisa.blog.dto.PageResult;
 import org.springframework.data.domain.Page;
 import org.springframework.web.multipart.MultipartFile;
-import java.util.stream.Collectors;
 
 @Service
 public class BlogPostServiceImpl implements BlogPostService {
@@ -37,16 +41,26 @@ public class BlogPostServiceImpl implements BlogPostService {
     private final BlogPostFavoriteRepository blogPostFavoriteRepository;
     private final BlogPostShareRepository blogPostShareRepository; // Added
     private final CommentLikeRepository commentLikeRepository;
-    private final CommentReplyRepository commentReplyRepository;
-    private final CommentReplyLikeRepository commentReplyLikeRepository;
     private final UserProfileRepository userProfileRepository;
     private final BlogPostMapper blogpostMapper;
     private final CommentService commentService;
     private final NotificationService notificationService;
     private final BlogViewService blogViewService; // 新增：浏览相关服务
-    private final TagRepository tagRepository;
-    private final CategoryRepository categoryRepository;
+    private final PostDictionaryService postDictionaryService;
+    private final PostMediaService postMediaService;
     private final FileStorageService fileStorageService;
+    private final PostLeaderboardService postLeaderboardService;
+    private final PostDetailCache postDetailCache;
+    private final BlogPostListEnricher blogPostListEnricher;
+    private final SearchCountCache searchCountCache;
+    private final PostSearchService postSearchService;
+    private final CategoryChampionCache categoryChampionCache;
+    private final BlogPostPurger blogPostPurger;
+    private final EngagementCounterService engagementCounterService;
+
+    // 允许执行运维操作（如重建检索索引）的用户 ID，逗号分隔；为空时任何人不可调用
+    @org.springframework.beans.factory.annotation.Value("${blog.ops.user-ids:}")
+    private java.util.Set<Long> opsUserIds;
 
     public BlogPostServiceImpl(BlogPostRepository blogPostRepository,
             UserRepository userRepository,
@@ -55,16 +69,22 @@ public class BlogPostServiceImpl implements BlogPostService {
             BlogPostFavoriteRepository blogPostFavoriteRepository,
             BlogPostShareRepository blogPostShareRepository, // Added
             CommentLikeRepository commentLikeRepository,
-            CommentReplyRepository commentReplyRepository,
-            CommentReplyLikeRepository commentReplyLikeRepository,
             UserProfileRepository userProfileRepository,
             CommentService commentService,
             NotificationService notificationService,
             BlogViewService blogViewService,
-            TagRepository tagRepository,
-            CategoryRepository categoryRepository,
+            PostDictionaryService postDictionaryService,
+            PostMediaService postMediaService,
             BlogPostMapper blogpostMapper,
-            FileStorageService fileStorageService) {
+            FileStorageService fileStorageService,
+            PostLeaderboardService postLeaderboardService,
+            PostDetailCache postDetailCache,
+            BlogPostListEnricher blogPostListEnricher,
+            SearchCountCache searchCountCache,
+            PostSearchService postSearchService,
+            CategoryChampionCache categoryChampionCache,
+            BlogPostPurger blogPostPurger,
+            EngagementCounterService engagementCounterService) {
         this.blogPostRepository = blogPostRepository;
         this.userRepository = userRepository;
         this.commentRepository = commentRepository;
@@ -72,16 +92,22 @@ public class BlogPostServiceImpl implements BlogPostService {
         this.blogPostFavoriteRepository = blogPostFavoriteRepository;
         this.blogPostShareRepository = blogPostShareRepository; // Added
         this.commentLikeRepository = commentLikeRepository;
-        this.commentReplyRepository = commentReplyRepository;
-        this.commentReplyLikeRepository = commentReplyLikeRepository;
         this.userProfileRepository = userProfileRepository;
         this.commentService = commentService;
         this.notificationService = notificationService;
         this.blogViewService = blogViewService;
-        this.tagRepository = tagRepository;
-        this.categoryRepository = categoryRepository;
+        this.postDictionaryService = postDictionaryService;
+        this.postMediaService = postMediaService;
         this.blogpostMapper = blogpostMapper;
         this.fileStorageService = fileStorageService;
+        this.postLeaderboardService = postLeaderboardService;
+        this.postDetailCache = postDetailCache;
+        this.blogPostListEnricher = blogPostListEnricher;
+        this.searchCountCache = searchCountCache;
+        this.postSearchService = postSearchService;
+        this.categoryChampionCache = categoryChampionCache;
+        this.blogPostPurger = blogPostPurger;
+        this.engagementCounterService = engagementCounterService;
     }
 
     @Override
@@ -113,67 +139,53 @@ public class BlogPostServiceImpl implements BlogPostService {
         }
 
         // Handle Category (JSON endpoint previously ignored this)
-        String categoryName = dto.getCategoryName();
-        if (categoryName != null && !categoryName.trim().isEmpty()) {
-            String cleanCategory = categoryName.trim();
-            Optional<Category> catOpt = categoryRepository.findByName(cleanCategory);
-            if (catOpt.isPresent()) {
-                post.setCategory(catOpt.get());
-            } else {
-                Category newCat = new Category();
-                newCat.setName(cleanCategory);
-                post.setCategory(categoryRepository.save(newCat));
-            }
-        }
+        post.setCategory(postDictionaryService.resolveCategory(dto.getCategoryName()));
 
         // Handle Tags (JSON endpoint previously ignored this)
         if (dto.getTags() != null) {
             if (dto.getTags().size() > 5) {
                 return new ApiResponse<>(400, "标签数量不能超过5个", null);
             }
-            java.util.Set<Tag> tagSet = new java.util.HashSet<>();
-            for (String tagName : dto.getTags()) {
-                if (tagName == null || tagName.trim().isEmpty()) continue;
-                String cleanName = tagName.trim();
-                Optional<Tag> tagOpt = tagRepository.findByName(cleanName);
-                if (tagOpt.isPresent()) {
-                    tagSet.add(tagOpt.get());
-                } else {
-                    Tag newTag = new Tag();
-                    newTag.setName(cleanName);
-                    tagSet.add(tagRepository.save(newTag));
-                }
-            }
-            post.setTags(tagSet);
+            post.setTags(new java.util.HashSet<>(postDictionaryService.resolveTags(dto.getTags())));
         }
 
         BlogPost saved = blogPostRepository.save(post);
+        blogViewService.registerPost(saved.getId());
+        postLeaderboardService.reindex(saved);
+        postSearchService.index(saved);
+        categoryChampionCache.markDirty(saved.getCategory());
+        postMediaService.sync(saved.getId(), saved.getContent(), saved.getCoverImageUrl());
         return new ApiResponse<>(200, "创建成功", saved.getId());
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public BlogPostDTO getById(Long id, Long currentUserId) {
-        Optional<BlogPost> opt = blogPostRepository.findById(id);
-        if (opt.isEmpty())
-            return null;
-
-        BlogPost post = opt.get();
-        // load author profile (may be absent)
-        UserProfile profile = userProfileRepository.findById(post.getUser().getId()).orElse(null);
-        BlogPostDTO dto = blogpostMapper.toDTOWithProfile(post, profile);
+        // 详情主体走两级缓存，与访问者相关的标记和浏览量每次单独覆盖
+        BlogPostDTO dto = postDetailCache.get(id);
+        if (dto == null) {
+            Optional<BlogPost> opt = blogPostRepository.findByIdAndDeletedFalse(id);
+            if (opt.isEmpty())
+                return null;
+
+            BlogPost post = opt.get();
+            // load author profile (may be absent)
+            UserProfile profile = userProfileRepository.findById(post.getUser().getId()).orElse(null);
+            dto = blogpostMapper.toDTOWithProfile(post, profile);
+            postDetailCache.put(dto);
+        }
 
         if (dto != null) {
             // Set user interaction flags
             if (currentUserId != null) {
-                boolean liked = blogPostLikeRepository.findByBlogPostIdAndUserId(id, currentUserId).isPresent();
-                dto.setLikedByCurrentUser(liked);
-                boolean favorited = blogPostFavoriteRepository.findByUserIdAndBlogPostId(currentUserId, id).isPresent();
-                dto.setFavoritedByCurrentUser(favorited);
+                dto.setLikedByCurrentUser(blogPostLikeRepository.existsByBlogPostIdAndUserId(id, currentUserId));
+                dto.setFavoritedByCurrentUser(blogPostFavoriteRepository.existsByUserIdAndBlogPostId(currentUserId, id));
             }
 
             // Get and set view count
             setViewCount(dto, id);
+            // 缓存中只有已落库的计数，叠加尚未落库的增量
+            blogPostListEnricher.applyPendingCounters(java.util.Collections.singletonList(dto));
         }
         return dto;
     }
@@ -183,10 +195,11 @@ public class BlogPostServiceImpl implements BlogPostService {
     public ApiResponse<Boolean> update(Long id, BlogPostUpdateDTO dto) {
         if (dto == null)
             return new ApiResponse<>(400, "请求体不能为空", false);
-        Optional<BlogPost> opt = blogPostRepository.findById(id);
+        Optional<BlogPost> opt = blogPostRepository.findByIdAndDeletedFalse(id);
         if (opt.isEmpty())
             return new ApiResponse<>(404, "博客不存在", false);
         BlogPost post = opt.get();
+        Category oldCategory = post.getCategory();
         // 支持cover字段兼容
         if (dto.getCoverImageUrl() != null)
             post.setCoverImageUrl(dto.getCoverImageUrl());
@@ -210,20 +223,8 @@ public class BlogPostServiceImpl implements BlogPostService {
 
         // Handle Category updates (mapper intentionally ignores category)
         if (dto.getCategoryName() != null) {
-            String categoryName = dto.getCategoryName();
-            if (categoryName.trim().isEmpty()) {
-                post.setCategory(null);
-            } else {
-                String cleanCategory = categoryName.trim();
-                Optional<Category> catOpt = categoryRepository.findByName(cleanCategory);
-                if (catOpt.isPresent()) {
-                    post.setCategory(catOpt.get());
-                } else {
-                    Category newCat = new Category();
-                    newCat.setName(cleanCategory);
-                    post.setCategory(categoryRepository.save(newCat));
-                }
-            }
+            // 空名称表示清除分类
+            post.setCategory(postDictionaryService.resolveCategory(dto.getCategoryName()));
         }
 
         // Handle Tag updates (mapper intentionally ignores tags)
@@ -231,25 +232,18 @@ public class BlogPostServiceImpl implements BlogPostService {
             if (dto.getTags().size() > 5) {
                 return new ApiResponse<>(400, "标签数量不能超过5个", false);
             }
-            java.util.Set<Tag> tagSet = new java.util.HashSet<>();
-            for (String tagName : dto.getTags()) {
-                if (tagName == null || tagName.trim().isEmpty()) continue;
-                String cleanName = tagName.trim();
-                Optional<Tag> tagOpt = tagRepository.findByName(cleanName);
-                if (tagOpt.isPresent()) {
-                    tagSet.add(tagOpt.get());
-                } else {
-                    Tag newTag = new Tag();
-                    newTag.setName(cleanName);
-                    tagSet.add(tagRepository.save(newTag));
-                }
-            }
-            post.setTags(tagSet);
+            post.setTags(new java.util.HashSet<>(postDictionaryService.resolveTags(dto.getTags())));
         }
 
         // 支持后续字段扩展
         blogpostMapper.updateEntityFromDTO(dto, post);
         blogPostRepository.save(post);
+        postLeaderboardService.reindex(post);
+        postSearchService.index(post);
+        postDetailCache.evict(id);
+        categoryChampionCache.markDirty(oldCategory);
+        categoryChampionCache.markDirty(post.getCategory());
+        postMediaService.sync(id, post.getContent(), post.getCoverImageUrl());
         return new ApiResponse<>(200, "更新成功", true);
     }
 
@@ -258,7 +252,7 @@ public class BlogPostServiceImpl implements BlogPostService {
     public ApiResponse<Boolean> toggleFavorite(Long blogPostId, Long userId) {
         if (blogPostId == null || userId == null)
             return new ApiResponse<>(400, "参数缺失", false);
-        Optional<BlogPost> postOpt = blogPostRepository.findById(blogPostId);
+        Optional<BlogPost> postOpt = blogPostRepository.findByIdAndDeletedFalse(blogPostId);
         if (postOpt.isEmpty())
             return new ApiResponse<>(404, "博客不存在", false);
         Optional<User> userOpt = userRepository.findById(userId);
@@ -269,16 +263,18 @@ public class BlogPostServiceImpl implements BlogPostService {
         Optional<BlogPostFavorite> favOpt = blogPostFavoriteRepository.findByUserIdAndBlogPostId(userId, blogPostId);
         if (favOpt.isPresent()) {
             blogPostFavoriteRepository.delete(favOpt.get());
-            post.setFavoriteCount(safeLong(post.getFavoriteCount()) - 1);
-            blogPostRepository.save(post);
+            engagementCounterService.increment(EngagementCounterService.POST, blogPostId,
+                    EngagementCounterService.FAVORITES, -1);
+            postLeaderboardService.increment(blogPostId, PostLeaderboardService.FAVORITES, -1);
             return new ApiResponse<>(200, "已取消收藏", false);
         } else {
             BlogPostFavorite fav = new BlogPostFavorite();
             fav.setBlogPost(post);
             fav.setUser(userOpt.get());
             blogPostFavoriteRepository.save(fav);
-            post.setFavoriteCount(safeLong(post.getFavoriteCount()) + 1);
-            blogPostRepository.save(post);
+            engagementCounterService.increment(EngagementCounterService.POST, blogPostId,
+                    EngagementCounterService.FAVORITES, 1);
+            postLeaderboardService.increment(blogPostId, PostLeaderboardService.FAVORITES, 1);
 
             // 文章被收藏通知
             try {
@@ -294,15 +290,7 @@ public class BlogPostServiceImpl implements BlogPostService {
                         dto.setMessage("你的文章《" + safeTitle(post.getTitle()) + "》被收藏了");
                         dto.setCreatedAt(Instant.now());
                         dto.setReferenceId(post.getId()); // 文章ID
-
-                        // 填充发送者信息
-                        UserProfile up = userProfileRepository.findById(likerId).orElse(null);
-                        String nickname = (up != null && up.getNickname() != null) ? up.getNickname()
-                                : userOpt.get().getUsername();
-                        String avatar = (up != null) ? up.getAvatarUrl() : null;
-                        dto.setSenderNickname(nickname);
-                        dto.setSenderAvatarUrl(avatar);
-
+                        // 发送者昵称与头像由通知投递时批量补齐
                         notificationService.sendNotification(ownerId, dto);
                     }
                 }
@@ -318,7 +306,7 @@ public class BlogPostServiceImpl implements BlogPostService {
     public ApiResponse<Boolean> toggleLike(Long blogPostId, Long userId) {
         if (blogPostId == null || userId == null)
             return new ApiResponse<>(400, "参数缺失", false);
-        Optional<BlogPost> postOpt = blogPostRepository.findById(blogPostId);
+        Optional<BlogPost> postOpt = blogPostRepository.findByIdAndDeletedFalse(blogPostId);
         if (postOpt.isEmpty())
             return new ApiResponse<>(404, "博客不存在", false);
         Optional<User> userOpt = userRepository.findById(userId);
@@ -329,16 +317,18 @@ public class BlogPostServiceImpl implements BlogPostService {
         Optional<BlogPostLike> likeOpt = blogPostLikeRepository.findByBlogPostIdAndUserId(blogPostId, userId);
         if (likeOpt.isPresent()) {
             blogPostLikeRepository.delete(likeOpt.get());
-            post.setLikeCount(safeLong(post.getLikeCount()) - 1);
-            blogPostRepository.save(post);
+            engagementCounterService.increment(EngagementCounterService.POST, blogPostId,
+                    EngagementCounterService.LIKES, -1);
+            postLeaderboardService.increment(blogPostId, PostLeaderboardService.LIKES, -1);
             return new ApiResponse<>(200, "已取消点赞", false);
         } else {
             BlogPostLike like = new BlogPostLike();
             like.setBlogPost(post);
             like.setUser(userOpt.get());
             blogPostLikeRepository.save(like);
-            post.setLikeCount(safeLong(post.getLikeCount()) + 1);
-            blogPostRepository.save(post);
+            engagementCounterService.increment(EngagementCounterService.POST, blogPostId,
+                    EngagementCounterService.LIKES, 1);
+            postLeaderboardService.increment(blogPostId, PostLeaderboardService.LIKES, 1);
 
             // 文章被点赞通知
             try {
@@ -354,15 +344,7 @@ public class BlogPostServiceImpl implements BlogPostService {
                         dto.setMessage("你的文章《" + safeTitle(post.getTitle()) + "》收到了一个点赞");
                         dto.setCreatedAt(Instant.now());
                         dto.setReferenceId(post.getId()); // 文章ID
-
-                        // 填充发送者信息
-                        UserProfile up = userProfileRepository.findById(likerId).orElse(null);
-                        String nickname = (up != null && up.getNickname() != null) ? up.getNickname()
-                                : userOpt.get().getUsername();
-                        String avatar = (up != null) ? up.getAvatarUrl() : null;
-                        dto.setSenderNickname(nickname);
-                        dto.setSenderAvatarUrl(avatar);
-
+                        // 发送者昵称与头像由通知投递时批量补齐
                         notificationService.sendNotification(ownerId, dto);
                     }
                 }
@@ -400,26 +382,7 @@ public class BlogPostServiceImpl implements BlogPostService {
             int size,
             Long currentUserId, String sortMode) {
 
-        // Ensure view-count ordering is based on up-to-date numbers.
-        // View counts are tracked as DB + Redis delta; ordering in SQL uses DB view_stats,
-        // so we flush pending deltas before executing view-based sorts.
-        if (sortMode != null && ("mostViews".equals(sortMode) || "hot".equals(sortMode))) {
-            try {
-                blogViewService.flushPendingViewCounts();
-            } catch (Exception e) {
-                logger.warn("Failed to flush pending view counts before sorting", e);
-            }
-        }
-
-        String statusFilter = "PUBLISHED";
-        if (userId != null && currentUserId != null && userId.longValue() == currentUserId.longValue()) {
-            // 如果是作者本人查看，且未指定状态，则查看所有状态（包括草稿）
-            if (status == null || status.isEmpty()) {
-                statusFilter = null;
-            } else {
-                statusFilter = status;
-            }
-        }
+        String statusFilter = resolveStatusFilter(userId, status, currentUserId);
 
         Sort sort;
         if (sortMode != null) {
@@ -450,47 +413,177 @@ public class BlogPostServiceImpl implements BlogPostService {
             sort = Sort.by(Sort.Direction.DESC, "createdAt");
         }
 
-        PageRequest pageRequest = PageRequest.of(page, size, sort);
-        Page<BlogPost> blogPage = blogPostRepository.search(keyword, userId, directory, categoryName, statusFilter,
-                pageRequest);
-        List<BlogPost> posts = blogPage.getContent();
-        // 批量获取所有 userId
-        List<Long> userIds = posts.stream()
-                .map(post -> post.getUser().getId())
-                .distinct()
-                .toList();
-        // 批量查找所有 UserProfile
-        List<UserProfile> profiles = userProfileRepository.findAllById(userIds);
-        // 构建 userId -> UserProfile 映射
-        java.util.Map<Long, UserProfile> profileMap = new java.util.HashMap<>();
-        for (UserProfile profile : profiles) {
-            profileMap.put(profile.getUser().getId(), profile);
-        }
-        // 批量获取浏览量
-        List<Long> postIds = posts.stream().map(BlogPost::getId).toList();
-        java.util.Map<Long, Long> viewCounts = new java.util.HashMap<>();
-        try {
-            ApiResponse<java.util.Map<Long, Long>> batchStats = blogViewService.getBatchStats(postIds);
-            if (batchStats != null && batchStats.getData() != null) {
-                viewCounts = batchStats.getData();
-            }
-        } catch (Exception e) {
-            logger.error("Failed to batch get view stats", e);
+        List<Long> postIds;
+        long total;
+        // 按指标排序的公开列表直接从 Redis 排行榜分页，不在读路径上同步浏览量
+        PageResult<Long> ranked = rankedRange(keyword, userId, directory, categoryName, statusFilter, sortMode,
+                (long) page * size, size);
+        if (ranked != null) {
+            postIds = ranked.getList();
+            total = ranked.getTotal();
+        } else {
+            PageRequest pageRequest = PageRequest.of(page, size, sort);
+            postIds = blogPostRepository.searchIds(keyword, userId, directory, categoryName, statusFilter,
+                    pageRequest);
+            // 总数取按过滤条件缓存的近似值，不再每页重复 count
+            total = searchCountCache.approximateCount(keyword, userId, directory, categoryName, statusFilter);
+        }
+        // 只读取卡片列，作者信息、点赞/收藏标记、浏览量按页批量装配
+        List<BlogPostDTO> dtoList = blogPostListEnricher.toDTOs(postIds, currentUserId);
+        return new PageResult<>(dtoList, total, page, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResult<BlogPostDTO> searchByCursor(String keyword, Long userId, String directory,
+            String categoryName, String status, String cursor, int size, Long currentUserId, String sortMode) {
+        int limit = Math.max(1, Math.min(size, 100));
+        String statusFilter = resolveStatusFilter(userId, status, currentUserId);
+        SearchCursor after = SearchCursor.decode(cursor);
+
+        // 排行榜能回答的查询按排名续页，ZSET 按排名取区间不随深度变慢
+        if (after == null || after.getOrder() == SearchCursor.Order.RANK) {
+            long offset = after == null ? 0L : after.getLongKey();
+            PageResult<Long> ranked = rankedRange(keyword, userId, directory, categoryName, statusFilter, sortMode,
+                    offset, limit);
+            if (ranked != null) {
+                long nextOffset = offset + ranked.getList().size();
+                boolean hasMore = !ranked.getList().isEmpty() && nextOffset < ranked.getTotal();
+                List<BlogPostDTO> list = blogPostListEnricher.toDTOs(ranked.getList(), currentUserId);
+                return new CursorPageResult<>(list, hasMore ? SearchCursor.atRank(nextOffset).encode() : null,
+                        hasMore, ranked.getTotal(), limit);
+            }
+            if (after != null) {
+                throw new com.kirisamemarisa.blog.common.BusinessException(400, "分页游标已失效，请重新加载");
+            }
+        }
+
+        SearchCursor.Order order = keysetOrder(sortMode);
+        if (after != null && after.getOrder() != order) {
+            throw new com.kirisamemarisa.blog.common.BusinessException(400, "无效的分页游标");
+        }
+        Long afterId = after == null ? null : after.getId();
+        BlogPostRepositoryCustom.KeysetSort sort;
+        switch (order) {
+            case LIKES:
+                sort = BlogPostRepositoryCustom.KeysetSort.LIKES;
+                break;
+            case FAVORITES:
+                sort = BlogPostRepositoryCustom.KeysetSort.FAVORITES;
+                break;
+            case VIEWS:
+                // 全表扫描后排序，见 KeysetSort.VIEWS；常见的已发布列表在上面由排行榜按排名续页
+                sort = BlogPostRepositoryCustom.KeysetSort.VIEWS;
+                break;
+            default:
+                sort = BlogPostRepositoryCustom.KeysetSort.CREATED_AT;
+        }
+        Object afterKey = after == null ? null
+                : order == SearchCursor.Order.LATEST ? after.getCreatedAt() : (Object) after.getLongKey();
+        // 多取一条用于判断是否还有下一页
+        List<Object[]> rows = blogPostRepository.searchAfter(sort, keyword, userId, directory, categoryName,
+                statusFilter, afterKey, afterId, limit + 1);
+        boolean hasMore = rows.size() > limit;
+        if (hasMore) {
+            rows = rows.subList(0, limit);
+        }
+        List<Long> postIds = new java.util.ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            postIds.add(((Number) row[0]).longValue());
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            // 每行为 {id, 排序键}
+            Object[] last = rows.get(rows.size() - 1);
+            long lastId = ((Number) last[0]).longValue();
+            nextCursor = order == SearchCursor.Order.LATEST
+                    ? SearchCursor.afterCreatedAt((java.time.LocalDateTime) last[1], lastId).encode()
+                    : SearchCursor.afterKey(order, last[1] == null ? 0L : ((Number) last[1]).longValue(), lastId)
+                            .encode();
+        }
+        long total = searchCountCache.approximateCount(keyword, userId, directory, categoryName, statusFilter);
+        return new CursorPageResult<>(blogPostListEnricher.toDTOs(postIds, currentUserId), nextCursor, hasMore,
+                total, limit);
+    }
+
+    /**
+     * 作者本人查看自己的列表且未指定状态时查看所有状态（包括草稿），其余情况只看已发布
+     */
+    private String resolveStatusFilter(Long userId, String status, Long currentUserId) {
+        if (userId != null && currentUserId != null && userId.longValue() == currentUserId.longValue()) {
+            return (status == null || status.isEmpty()) ? null : status;
         }
-        final java.util.Map<Long, Long> finalViewCounts = viewCounts;
+        return "PUBLISHED";
+    }
 
-        List<BlogPostDTO> dtoList = posts.stream().map(post -> {
-            UserProfile profile = profileMap.get(post.getUser().getId());
-            BlogPostDTO dto = blogpostMapper.toDTOWithProfile(post, profile);
+    private SearchCursor.Order keysetOrder(String sortMode) {
+        if (sortMode == null) {
+            return SearchCursor.Order.LATEST;
+        }
+        switch (sortMode) {
+            case "mostLikes":
+                return SearchCursor.Order.LIKES;
+            case "mostFavorites":
+                return SearchCursor.Order.FAVORITES;
+            case "mostViews":
+            case "hot":
+                return SearchCursor.Order.VIEWS;
+            default:
+                return SearchCursor.Order.LATEST;
+        }
+    }
 
-            // Add view count for each post
-            if (dto != null) {
-                dto.setViewCount(finalViewCounts.getOrDefault(post.getId(), 0L));
+    /**
+     * 能由检索索引或排行榜回答的查询返回从 offset 开始排好序的 id，否则返回 null 走 SQL。
+     * 排行榜只收录已发布文章，作用域为全站 / 分类 / 作者目录，不支持关键字过滤。
+     */
+    private PageResult<Long> rankedRange(String keyword, Long userId, String directory, String categoryName,
+            String statusFilter, String sortMode, long offset, int size) {
+        // 关键字检索在未指定其他排序时走倒排索引，按相关度排序
+        if (keyword != null && !keyword.trim().isEmpty() && (sortMode == null || "relevance".equals(sortMode))) {
+            return postSearchService.search(keyword.trim(), userId, directory, categoryName, statusFilter, offset,
+                    size);
+        }
+        String metric = leaderboardMetric(sortMode);
+        if (metric == null || (keyword != null && !keyword.isEmpty()) || !"PUBLISHED".equals(statusFilter)) {
+            return null;
+        }
+        boolean hasDirectory = directory != null && !directory.isEmpty();
+        boolean hasCategory = categoryName != null && !categoryName.isEmpty();
+        if ((userId != null && !hasDirectory) || (hasDirectory && (userId == null || hasCategory))) {
+            return null;
+        }
+        Long categoryId = null;
+        if (hasCategory) {
+            categoryId = postDictionaryService.findCategoryId(categoryName);
+            if (categoryId == null) {
+                return new PageResult<>(java.util.Collections.emptyList(), 0, (int) (offset / size), size);
             }
+        }
+        try {
+            return postLeaderboardService.range(metric, categoryId, userId, directory, offset, size);
+        } catch (Exception e) {
+            logger.warn("Leaderboard read failed, falling back to SQL ordering", e);
+            return null;
+        }
+    }
 
-            return dto;
-        }).toList();
-        return new PageResult<>(dtoList, blogPage.getTotalElements(), page, size);
+    private String leaderboardMetric(String sortMode) {
+        if (sortMode == null) {
+            return null;
+        }
+        switch (sortMode) {
+            case "mostViews":
+                return PostLeaderboardService.VIEWS;
+            case "hot":
+                return PostLeaderboardService.HOT;
+            case "mostLikes":
+                return PostLeaderboardService.LIKES;
+            case "mostFavorites":
+                return PostLeaderboardService.FAVORITES;
+            default:
+                return null;
+        }
     }
 
     @Override
@@ -510,6 +603,10 @@ public class BlogPostServiceImpl implements BlogPostService {
         Page<Comment> commentPage = commentRepository.findByBlogPostIdOrderByCreatedAtDesc(blogPostId,
                 PageRequest.of(page, size));
         List<CommentDTO> dtoList = commentPage.getContent().stream().map(c -> toCommentDTO(c, currentUserId)).toList();
+        // 叠加尚未落库的点赞增量
+        engagementCounterService.mergePending(EngagementCounterService.COMMENT, dtoList, CommentDTO::getId,
+                List.of(EngagementCounterService.CounterField.of(EngagementCounterService.LIKES,
+                        CommentDTO::getLikeCount, CommentDTO::setLikeCount)));
         return new PageResult<>(dtoList, commentPage.getTotalElements(), page, size);
     }
 
@@ -564,40 +661,18 @@ public class BlogPostServiceImpl implements BlogPostService {
         }
 
         // Handle Category
-        if (categoryName != null && !categoryName.trim().isEmpty()) {
-            Optional<Category> catOpt = categoryRepository.findByName(categoryName.trim());
-            if (catOpt.isPresent()) {
-                post.setCategory(catOpt.get());
-            } else {
-                Category newCat = new Category();
-                newCat.setName(categoryName.trim());
-                post.setCategory(categoryRepository.save(newCat));
-            }
-        }
+        post.setCategory(postDictionaryService.resolveCategory(categoryName));
 
         // Handle Tags
         if (tags != null && !tags.isEmpty()) {
             if (tags.size() > 5) {
                 return new ApiResponse<>(400, "标签数量不能超过5个", null);
             }
-            java.util.Set<Tag> tagSet = new java.util.HashSet<>();
-            for (String tagName : tags) {
-                if (tagName == null || tagName.trim().isEmpty())
-                    continue;
-                String cleanName = tagName.trim();
-                Optional<Tag> tagOpt = tagRepository.findByName(cleanName);
-                if (tagOpt.isPresent()) {
-                    tagSet.add(tagOpt.get());
-                } else {
-                    Tag newTag = new Tag();
-                    newTag.setName(cleanName);
-                    tagSet.add(tagRepository.save(newTag));
-                }
-            }
-            post.setTags(tagSet);
+            post.setTags(new java.util.HashSet<>(postDictionaryService.resolveTags(tags)));
         }
 
         BlogPost saved = blogPostRepository.save(post);
+        blogViewService.registerPost(saved.getId());
         // 保存封面文件
         if (cover != null && !cover.isEmpty()) {
             try {
@@ -609,6 +684,10 @@ public class BlogPostServiceImpl implements BlogPostService {
                 return new ApiResponse<>(500, "封面上传失败", null);
             }
         }
+        postLeaderboardService.reindex(saved);
+        postSearchService.index(saved);
+        categoryChampionCache.markDirty(saved.getCategory());
+        postMediaService.sync(saved.getId(), saved.getContent(), saved.getCoverImageUrl());
         return new ApiResponse<>(200, "创建成功", saved.getId());
     }
 
@@ -617,37 +696,17 @@ public class BlogPostServiceImpl implements BlogPostService {
     public ApiResponse<Boolean> updateWithCover(Long id, String title, String content, String directory,
             String categoryName,
             java.util.List<String> tags, String status, MultipartFile cover, Boolean removeCover) {
-        Optional<BlogPost> opt = blogPostRepository.findById(id);
+        Optional<BlogPost> opt = blogPostRepository.findByIdAndDeletedFalse(id);
         if (opt.isEmpty())
             return new ApiResponse<>(404, "博客不存在", false);
         BlogPost post = opt.get();
+        Category oldCategory = post.getCategory();
         if (title != null && !title.trim().isEmpty()) {
             post.setTitle(title.trim());
         }
         if (content != null && !content.trim().isEmpty()) {
-            // 1. Extract images from old content
-            List<String> oldImages = extractImageUrls(post.getContent());
-
-            // 2. Extract images from new content
-            String newContent = content.trim();
-            List<String> newImages = extractImageUrls(newContent);
-
-            // 3. Find images to delete (in old but not in new)
-            List<String> imagesToDelete = oldImages.stream()
-                    .filter(img -> !newImages.contains(img))
-                    .collect(Collectors.toList());
-
-            // 4. Delete from COS
-            for (String imgUrl : imagesToDelete) {
-                try {
-                    fileStorageService.deleteFile(imgUrl);
-                    logger.info("Deleted unused content image: {}", imgUrl);
-                } catch (Exception e) {
-                    logger.warn("Failed to delete unused content image: {}", imgUrl, e);
-                }
-            }
-
-            post.setContent(newContent);
+            // 不再引用的正文图片由 postMediaService.sync 在保存后统一释放
+            post.setContent(content.trim());
         }
         if (directory != null)
             post.setDirectory(directory);
@@ -657,18 +716,8 @@ public class BlogPostServiceImpl implements BlogPostService {
 
         // Handle Category
         if (categoryName != null) {
-            if (categoryName.trim().isEmpty()) {
-                post.setCategory(null);
-            } else {
-                Optional<Category> catOpt = categoryRepository.findByName(categoryName.trim());
-                if (catOpt.isPresent()) {
-                    post.setCategory(catOpt.get());
-                } else {
-                    Category newCat = new Category();
-                    newCat.setName(categoryName.trim());
-                    post.setCategory(categoryRepository.save(newCat));
-                }
-            }
+            // 空名称表示清除分类
+            post.setCategory(postDictionaryService.resolveCategory(categoryName));
         }
 
         // Handle Tags
@@ -676,39 +725,16 @@ public class BlogPostServiceImpl implements BlogPostService {
             if (tags.size() > 5) {
                 return new ApiResponse<>(400, "标签数量不能超过5个", false);
             }
-            java.util.Set<Tag> tagSet = new java.util.HashSet<>();
-            for (String tagName : tags) {
-                if (tagName == null || tagName.trim().isEmpty())
-                    continue;
-                String cleanName = tagName.trim();
-                Optional<Tag> tagOpt = tagRepository.findByName(cleanName);
-                if (tagOpt.isPresent()) {
-                    tagSet.add(tagOpt.get());
-                } else {
-                    Tag newTag = new Tag();
-                    newTag.setName(cleanName);
-                    tagSet.add(tagRepository.save(newTag));
-                }
-            }
-            post.setTags(tagSet);
+            post.setTags(new java.util.HashSet<>(postDictionaryService.resolveTags(tags)));
         }
 
-        // 处理封面逻辑：优先处理删除，再处理上传
+        // 处理封面逻辑：优先处理删除，再处理上传；旧封面文件同样由 postMediaService.sync 释放
         if (Boolean.TRUE.equals(removeCover)) {
-            // 如果原先有封面，删除文件
-            if (post.getCoverImageUrl() != null && !post.getCoverImageUrl().isEmpty()) {
-                fileStorageService.deleteFile(post.getCoverImageUrl());
-                post.setCoverImageUrl(null);
-            }
+            post.setCoverImageUrl(null);
         }
 
         // 保存新封面文件
         if (cover != null && !cover.isEmpty()) {
-            // 如果有旧封面且未被删除（removeCover为false），则先删除旧封面
-            if (post.getCoverImageUrl() != null && !post.getCoverImageUrl().isEmpty()) {
-                fileStorageService.deleteFile(post.getCoverImageUrl());
-            }
-
             try {
                 String url = fileStorageService.storeCoverImage(cover, post.getUser().getId(), post.getId());
                 post.setCoverImageUrl(url);
@@ -718,10 +744,15 @@ public class BlogPostServiceImpl implements BlogPostService {
             }
         }
         blogPostRepository.save(post);
+        postLeaderboardService.reindex(post);
+        postSearchService.index(post);
+        postDetailCache.evict(id);
+        categoryChampionCache.markDirty(oldCategory);
+        categoryChampionCache.markDirty(post.getCategory());
+        postMediaService.sync(id, post.getContent(), post.getCoverImageUrl());
         return new ApiResponse<>(200, "更新成功", true);
     }
 
-    // 只展示 delete 方法，其余保持你当前版本不变
     @Override
     @Transactional
     public ApiResponse<Boolean> delete(Long blogPostId, Long userId) {
@@ -730,7 +761,7 @@ public class BlogPostServiceImpl implements BlogPostService {
         }
 
         // 只允许作者删除
-        Optional<BlogPost> postOpt = blogPostRepository.findById(blogPostId);
+        Optional<BlogPost> postOpt = blogPostRepository.findByIdAndDeletedFalse(blogPostId);
         if (postOpt.isEmpty()) {
             return new ApiResponse<>(404, "博客不存在", false);
         }
@@ -739,70 +770,17 @@ public class BlogPostServiceImpl implements BlogPostService {
             return new ApiResponse<>(403, "无权限删除该博客", false);
         }
 
-        // 0. 清理关联的 COS 资源 (封面和正文图片)
-        // 仅当是草稿时，或者我们确定要彻底删除资源时执行。
-        // 这里我们对所有删除操作都尝试清理资源，因为博客被删除了，其专属资源也不再需要。
-        // 注意：如果图片被其他文章引用（虽然不常见），可能会误删。但通常博客图片是专属的。
-        try {
-            // 删除封面
-            if (post.getCoverImageUrl() != null && !post.getCoverImageUrl().isEmpty()) {
-                fileStorageService.deleteFile(post.getCoverImageUrl());
-            }
-
-            // 解析并删除正文中的图片
-            List<String> contentImages = extractImageUrls(post.getContent());
-            for (String imgUrl : contentImages) {
-                fileStorageService.deleteFile(imgUrl);
-            }
-        } catch (Exception e) {
-            logger.warn("清理博客 {} 的资源失败", blogPostId, e);
-            // 不阻断删除流程
-        }
-
-        // 1. 找到该博客下所有评论
-        List<Comment> comments = commentRepository.findByBlogPost_Id(blogPostId);
-        List<Long> commentIds = comments.stream()
-                .map(Comment::getId)
-                .collect(Collectors.toList());
-
-        if (!commentIds.isEmpty()) {
-            // 2. 根据评论 ID 批量查询所有楼中楼回复（只查相关评论，不全表扫）
-            List<CommentReply> replies = commentReplyRepository.findByComment_IdIn(commentIds);
-            List<Long> replyIds = replies.stream()
-                    .map(CommentReply::getId)
-                    .collect(Collectors.toList());
-
-            // 3. 先删回复的点赞
-            if (!replyIds.isEmpty()) {
-                commentReplyLikeRepository.deleteByReply_IdIn(replyIds);
-            }
-            // 4. 再删回复本身
-            if (!commentIds.isEmpty()) {
-                commentReplyRepository.deleteByComment_IdIn(commentIds);
-            }
-
-            // 5. 删评论的点赞
-            commentLikeRepository.deleteByComment_IdIn(commentIds);
-
-            // 6. 删评论本身
-            commentRepository.deleteByBlogPost_Id(blogPostId);
-        }
-
-        // 7. 删文章的点赞
-        blogPostLikeRepository.deleteByBlogPost_Id(blogPostId);
-
-        // 7.5 删文章的收藏
-        blogPostFavoriteRepository.deleteByBlogPostId(blogPostId);
-
-        // 8. 删文章的浏览记录和统计（必须在删 blog_post 之前）
-        try {
-            blogViewService.deleteByBlogPostId(blogPostId);
-        } catch (Exception e) {
-            logger.warn("删除博客 {} 的浏览数据失败", blogPostId, e);
-        }
+        // 软删除：立即对外隐藏，评论、点赞、收藏、浏览数据等由 BlogPostPurger 在后台分批清理
+        post.setDeleted(true);
+        blogPostRepository.save(post);
 
-        // 9. 最后删博客
-        blogPostRepository.delete(post);
+        // 释放封面和正文图片的引用，不再被其他博客引用的文件提交后批量删除
+        postMediaService.removePost(blogPostId);
+        blogViewService.unregisterPost(blogPostId);
+        postLeaderboardService.remove(blogPostId);
+        postSearchService.remove(blogPostId);
+        postDetailCache.evict(blogPostId);
+        categoryChampionCache.markDirty(post.getCategory());
 
         return new ApiResponse<>(200, "删除成功", true);
     }
@@ -810,11 +788,10 @@ public class BlogPostServiceImpl implements BlogPostService {
     @Override
     @Transactional
     public ApiResponse<Boolean> share(Long blogPostId, Long userId) {
-        Optional<BlogPost> opt = blogPostRepository.findById(blogPostId);
+        Optional<BlogPost> opt = blogPostRepository.findByIdAndDeletedFalse(blogPostId);
         if (opt.isEmpty()) {
             return new ApiResponse<>(404, "博客不存在", false);
         }
-        BlogPost post = opt.get();
 
         // 如果提供了 userId，检查是否已分享
         if (userId != null) {
@@ -828,8 +805,9 @@ public class BlogPostServiceImpl implements BlogPostService {
             blogPostShareRepository.save(share);
         }
 
-        post.setShareCount(post.getShareCount() + 1);
-        blogPostRepository.save(post);
+        engagementCounterService.increment(EngagementCounterService.POST, blogPostId,
+                EngagementCounterService.SHARES, 1);
+        postLeaderboardService.increment(blogPostId, PostLeaderboardService.SHARES, 1);
         return new ApiResponse<>(200, "分享成功", true);
     }
 
@@ -837,22 +815,9 @@ public class BlogPostServiceImpl implements BlogPostService {
     @Transactional(readOnly = true)
     public PageResult<BlogPostDTO> getFavorites(Long userId, String categoryName, int page, int size) {
         PageRequest pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        Page<BlogPost> postPage = blogPostRepository.findFavoritesByUserId(userId, categoryName, pageable);
-
-        List<BlogPostDTO> list = postPage.getContent().stream().map(post -> {
-            UserProfile profile = userProfileRepository.findById(post.getUser().getId()).orElse(null);
-            BlogPostDTO dto = blogpostMapper.toDTOWithProfile(post, profile);
-            // 既然是收藏列表，当前用户肯定收藏了
-            dto.setFavoritedByCurrentUser(true);
-            // 检查点赞状态
-            boolean liked = blogPostLikeRepository.findByBlogPostIdAndUserId(post.getId(), userId).isPresent();
-            dto.setLikedByCurrentUser(liked);
+        Page<Long> postPage = blogPostRepository.findFavoriteIdsByUserId(userId, categoryName, pageable);
 
-            // Set view count
-            setViewCount(dto, post.getId());
-
-            return dto;
-        }).collect(Collectors.toList());
+        List<BlogPostDTO> list = blogPostListEnricher.toDTOs(postPage.getContent(), userId);
 
         return new PageResult<>(list, postPage.getTotalElements(), page, size);
     }
@@ -862,6 +827,35 @@ public class BlogPostServiceImpl implements BlogPostService {
         return blogPostRepository.findFavoriteCategories(userId);
     }
 
+    @Override
+    public java.util.Map<String, Object> getDetailCacheMetrics() {
+        return postDetailCache.getMetrics();
+    }
+
+    @Override
+    public ApiResponse<Boolean> rebuildSearchIndex(Long userId) {
+        if (userId == null || opsUserIds == null || !opsUserIds.contains(userId)) {
+            return new ApiResponse<>(403, "无权限重建检索索引", false);
+        }
+        postSearchService.requestRebuild();
+        return new ApiResponse<>(200, "已开始重建检索索引", true);
+    }
+
+    @Override
+    public java.util.Map<String, Object> getSearchIndexMetrics() {
+        return postSearchService.getMetrics();
+    }
+
+    @Override
+    public java.util.Map<String, Object> getPurgeMetrics() {
+        return blogPostPurger.getMetrics();
+    }
+
+    @Override
+    public java.util.Map<String, Object> getCounterMetrics() {
+        return engagementCounterService.getMetrics();
+    }
+
     private long safeLong(Long v) {
         return v == null ? 0L : v;
     }
@@ -895,89 +889,13 @@ public class BlogPostServiceImpl implements BlogPostService {
         }
     }
 
-    /**
-     * 从 Markdown/HTML 内容中提取图片 URL
-     * 简单正则匹配 Markdown ![...](url) 和 HTML <img src="url">
-     */
-    private List<String> extractImageUrls(String content) {
-        List<String> urls = new java.util.ArrayList<>();
-        if (content == null || content.isEmpty()) {
-            return urls;
-        }
-
-        // 匹配 Markdown 图片: ![alt](url)
-        java.util.regex.Pattern mdPattern = java.util.regex.Pattern.compile("!\\[.*?\\]\\((.*?)\\)");
-        java.util.regex.Matcher mdMatcher = mdPattern.matcher(content);
-        while (mdMatcher.find()) {
-            String url = mdMatcher.group(1);
-            // 简单过滤，只提取本站 COS 的链接 (包含 sources/ 或 blogpostcontent/)
-            if (url != null && (url.contains("sources/") || url.contains("blogpostcontent/"))) {
-                // 可能包含 title，如 "url \"title\""
-                int spaceIndex = url.indexOf(" ");
-                if (spaceIndex != -1) {
-                    url = url.substring(0, spaceIndex);
-                }
-                urls.add(url);
-            }
-        }
-
-        // 匹配 HTML 图片: <img ... src="url" ...>
-        java.util.regex.Pattern htmlPattern = java.util.regex.Pattern
-                .compile("<img[^>]+src\\s*=\\s*['\"]([^'\"]+)['\"][^>]*>");
-        java.util.regex.Matcher htmlMatcher = htmlPattern.matcher(content);
-        while (htmlMatcher.find()) {
-            String url = htmlMatcher.group(1);
-            if (url != null && (url.contains("sources/") || url.contains("blogpostcontent/"))) {
-                urls.add(url);
-            }
-        }
-
-        return urls;
-    }
-
     @Override
     public List<BlogPostDTO> getTopPostPerCategory() {
-        // Define the fixed list of 12 categories
-        String[] categoryNames = {
-            "知识", "生活", "游戏", "动漫", "动画", "娱乐", 
-            "美食", "旅行", "电影", "音乐", "绘画", "随笔"
-        };
-        
-        List<BlogPostDTO> result = new java.util.ArrayList<>();
-        
-        for (String catName : categoryNames) {
-            Optional<Category> catOpt = categoryRepository.findByName(catName);
-            
-            if (catOpt.isPresent()) {
-                Category category = catOpt.get();
-                List<BlogPost> posts = blogPostRepository.findTopByCategory(category, PageRequest.of(0, 1));
-                
-                if (!posts.isEmpty()) {
-                    BlogPost post = posts.get(0);
-                    UserProfile profile = userProfileRepository.findById(post.getUser().getId()).orElse(null);
-                    BlogPostDTO dto = blogpostMapper.toDTOWithProfile(post, profile);
-                    setViewCount(dto, post.getId());
-                    result.add(dto);
-                } else {
-                    // Category exists but no posts
-                    result.add(createPlaceholder(catName, -1L * category.getId()));
-                }
-            } else {
-                // Category does not exist in DB
-                result.add(createPlaceholder(catName, -1L * (long)catName.hashCode()));
-            }
-        }
-        return result;
+        return categoryChampionCache.get().getPosts();
     }
 
-    private BlogPostDTO createPlaceholder(String categoryName, Long id) {
-        BlogPostDTO dummy = new BlogPostDTO();
-        dummy.setId(id); 
-        dummy.setTitle("虚位以待");
-        dummy.setCategoryName(categoryName);
-        dummy.setCoverImageUrl(""); 
-        dummy.setAuthorNickname("系统");
-        dummy.setLikeCount(0L);
-        return dummy;
+    @Override
+    public CategoryChampionsSnapshot getTopPostPerCategorySnapshot() {
+        return categoryChampionCache.get();
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -54,7 +54,7 @@ public class BlogUrlPreviewServiceImpl implements BlogUrlPreviewService {
         Long blogId = extractBlogId(urlPart);
         if (blogId == null) return null;
 
-        Optional<BlogPost> opt = blogPostRepository.findById(blogId);
+        Optional<BlogPost> opt = blogPostRepository.findByIdAndDeletedFalse(blogId);
         if (opt.isEmpty()) return null;
         BlogPost post = opt.get();
 
@@ -0,0 +1,405 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.dto.BlogViewTrendPointDTO;
+import com.kirisamemarisa.blog.model.BlogViewRollup;
+import com.kirisamemarisa.blog.repository.BlogPostRepository;
+import com.kirisamemarisa.blog.repository.BlogViewRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按小时分桶的浏览计数。
+ * 浏览写入脚本对 blog:view_buckets:{yyyyMMddHH} 哈希按博客 HINCRBY，
+ * 后台任务定期把分桶取走并 upsert 到 blog_view_rollup 的小时行与天行；
+ * 趋势查询读取预聚合行，再叠加尚未压缩的分桶，保证实时性。
+ */
+@Component
+public class BlogViewBucketStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlogViewBucketStore.class);
+
+    static final String KEY_BUCKET_PREFIX = "blog:view_buckets:";
+    // 有未压缩计数的分桶 id 集合
+    static final String KEY_PENDING_BUCKETS = "blog:view_buckets:pending";
+
+    private static final DateTimeFormatter BUCKET_FORMAT = new DateTimeFormatterBuilder()
+            .appendPattern("uuuuMMddHH")
+            .parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0)
+            .toFormatter();
+
+    // 单次趋势查询的最大点数：小时约 31 天，天约一年
+    private static final int MAX_HOUR_POINTS = 24 * 31;
+    private static final int MAX_DAY_POINTS = 366;
+    private static final int AUTHOR_LOOKUP_CHUNK = 1000;
+    private static final long PRUNE_INTERVAL_MS = 3_600_000L;
+    private static final String LEASE_NAME = "view-rollup";
+    private static final long LEASE_TTL_MS = 5 * 60_000L;
+
+    private static final String UPSERT_SQL = "INSERT INTO blog_view_rollup "
+            + "(blog_post_id, author_id, granularity, bucket_start, view_count) VALUES (?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE view_count = view_count + ?";
+
+    /**
+     * 原子取走一个分桶：HGETALL + DEL，并从待压缩集合移除。之后的新浏览会重新建桶并登记。
+     * 租约已被其他实例接管（fencing token 不符）时不做任何修改并返回 nil。
+     * KEYS: 1 分桶哈希, 2 待压缩集合, 3 压缩任务租约
+     * ARGV: 1 分桶 id, 2 持有的租约值
+     */
+    private static final DefaultRedisScript<List> DRAIN_BUCKET_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[3]) ~= ARGV[2] then return nil end " +
+            "local v = redis.call('HGETALL', KEYS[1]) " +
+            "redis.call('DEL', KEYS[1]) " +
+            "redis.call('SREM', KEYS[2], ARGV[1]) " +
+            "return v",
+            List.class);
+
+    /**
+     * 落库失败时把计数放回分桶。
+     * KEYS: 1 分桶哈希, 2 待压缩集合
+     * ARGV: 1 分桶 id, 2.. {博客 id, 计数} 成对
+     */
+    private static final DefaultRedisScript<Long> RESTORE_BUCKET_SCRIPT = new DefaultRedisScript<>(
+            "for i = 2, #ARGV, 2 do redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('SADD', KEYS[2], ARGV[1]) " +
+            "return (#ARGV - 1) / 2",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlogPostRepository blogPostRepository;
+    private final BlogViewRollupRepository blogViewRollupRepository;
+    private final ClusterCoordinator clusterCoordinator;
+
+    private final AtomicLong compactedBuckets = new AtomicLong();
+    private final AtomicLong compactedRows = new AtomicLong();
+    private final AtomicLong restoredBuckets = new AtomicLong();
+    private volatile long lastPruneAt;
+
+    // 小时粒度保留天数，天粒度长期保留
+    @Value("${blog.view.rollup.hourly-retention-days:31}")
+    private int hourlyRetentionDays;
+
+    public BlogViewBucketStore(StringRedisTemplate redisTemplate,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            BlogPostRepository blogPostRepository,
+            BlogViewRollupRepository blogViewRollupRepository,
+            ClusterCoordinator clusterCoordinator) {
+        this.redisTemplate = redisTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.blogPostRepository = blogPostRepository;
+        this.blogViewRollupRepository = blogViewRollupRepository;
+        this.clusterCoordinator = clusterCoordinator;
+    }
+
+    static String bucketId(LocalDateTime time) {
+        return BUCKET_FORMAT.format(time);
+    }
+
+    static String bucketKey(String bucketId) {
+        return KEY_BUCKET_PREFIX + bucketId;
+    }
+
+    /**
+     * 当前小时的分桶 id，供浏览写入使用
+     */
+    static String currentBucketId() {
+        return bucketId(LocalDateTime.now());
+    }
+
+    private static LocalDateTime parseBucket(String bucketId) {
+        try {
+            return LocalDateTime.parse(bucketId, BUCKET_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 把所有待压缩分桶写入汇总表。集群内同一时刻只有持有租约的实例执行。
+     *
+     * @return 本次写入的博客-分桶数
+     */
+    @Scheduled(fixedDelayString = "${blog.view.rollup.interval-ms:60000}")
+    public int compact() {
+        ClusterCoordinator.Lease lease = clusterCoordinator.tryAcquire(LEASE_NAME, LEASE_TTL_MS);
+        if (lease == null) {
+            return 0;
+        }
+        int rows = 0;
+        try {
+            Set<String> pending = redisTemplate.opsForSet().members(KEY_PENDING_BUCKETS);
+            if (pending != null) {
+                for (String bucket : new TreeSet<>(pending)) {
+                    int written = compactBucket(bucket, lease);
+                    if (written < 0) {
+                        logger.warn("Lost view rollup lease (token {}), stopping compaction", lease.getToken());
+                        return rows;
+                    }
+                    rows += written;
+                }
+            }
+            pruneIfDue();
+        } catch (Exception e) {
+            logger.warn("View bucket compaction failed: {}", e.toString());
+        } finally {
+            clusterCoordinator.release(lease);
+        }
+        return rows;
+    }
+
+    /**
+     * @return 写入的行数；租约已失效时返回 -1
+     */
+    @SuppressWarnings("unchecked")
+    private int compactBucket(String bucket, ClusterCoordinator.Lease lease) {
+        LocalDateTime hour = parseBucket(bucket);
+        if (hour == null) {
+            redisTemplate.opsForSet().remove(KEY_PENDING_BUCKETS, bucket);
+            redisTemplate.delete(bucketKey(bucket));
+            return 0;
+        }
+        List<Object> flat = redisTemplate.execute(DRAIN_BUCKET_SCRIPT,
+                Arrays.asList(bucketKey(bucket), KEY_PENDING_BUCKETS, lease.getKey()), bucket, lease.getValue());
+        if (flat == null) {
+            return -1;
+        }
+        if (flat.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < flat.size(); i += 2) {
+            try {
+                long count = Long.parseLong(String.valueOf(flat.get(i + 1)));
+                if (count != 0) {
+                    counts.merge(Long.parseLong(String.valueOf(flat.get(i))), count, Long::sum);
+                }
+            } catch (NumberFormatException e) {
+                logger.warn("Dropping malformed view bucket entry {}={} in {}", flat.get(i), flat.get(i + 1), bucket);
+            }
+        }
+        if (counts.isEmpty()) {
+            return 0;
+        }
+        try {
+            int written = write(hour, counts);
+            compactedBuckets.incrementAndGet();
+            compactedRows.addAndGet(written);
+            return written;
+        } catch (Exception e) {
+            logger.warn("Failed to compact view bucket {}, restoring {} entries", bucket, counts.size(), e);
+            List<String> args = new ArrayList<>(counts.size() * 2 + 1);
+            args.add(bucket);
+            counts.forEach((id, c) -> {
+                args.add(id.toString());
+                args.add(c.toString());
+            });
+            redisTemplate.execute(RESTORE_BUCKET_SCRIPT,
+                    Arrays.asList(bucketKey(bucket), KEY_PENDING_BUCKETS), args.toArray());
+            restoredBuckets.incrementAndGet();
+            return 0;
+        }
+    }
+
+    /**
+     * 同一批里写入小时行与天行；已删除的博客查不到作者，直接丢弃
+     */
+    private int write(LocalDateTime hour, Map<Long, Long> counts) {
+        Map<Long, Long> authors = new HashMap<>();
+        List<Long> ids = new ArrayList<>(counts.keySet());
+        for (int i = 0; i < ids.size(); i += AUTHOR_LOOKUP_CHUNK) {
+            for (Object[] row : blogPostRepository.findAuthorIdsByIds(
+                    ids.subList(i, Math.min(i + AUTHOR_LOOKUP_CHUNK, ids.size())))) {
+                if (row[1] != null) {
+                    authors.put((Long) row[0], (Long) row[1]);
+                }
+            }
+        }
+        LocalDateTime day = hour.truncatedTo(ChronoUnit.DAYS);
+        List<Object[]> batch = new ArrayList<>(authors.size() * 2);
+        counts.forEach((postId, count) -> {
+            Long authorId = authors.get(postId);
+            if (authorId == null) {
+                return;
+            }
+            batch.add(new Object[] { postId, authorId, BlogViewRollup.HOUR, hour, count, count });
+            batch.add(new Object[] { postId, authorId, BlogViewRollup.DAY, day, count, count });
+        });
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT_SQL, batch));
+        return batch.size() / 2;
+    }
+
+    private void pruneIfDue() {
+        long now = System.currentTimeMillis();
+        if (hourlyRetentionDays <= 0 || now - lastPruneAt < PRUNE_INTERVAL_MS) {
+            return;
+        }
+        lastPruneAt = now;
+        int removed = blogViewRollupRepository.deleteOlderThan(BlogViewRollup.HOUR,
+                LocalDateTime.now().minusDays(hourlyRetentionDays).truncatedTo(ChronoUnit.HOURS));
+        if (removed > 0) {
+            logger.info("Pruned {} expired hourly view rollups", removed);
+        }
+    }
+
+    /**
+     * 单篇博客最近 points 个分桶的浏览量（含当前分桶），缺失的分桶补 0
+     */
+    public List<BlogViewTrendPointDTO> postTrend(Long blogPostId, String granularity, int points) {
+        TrendRange range = TrendRange.of(granularity, points);
+        Map<LocalDateTime, Long> values = new HashMap<>();
+        for (Object[] row : blogViewRollupRepository.findTrend(blogPostId, range.granularity, range.from, range.to)) {
+            values.merge((LocalDateTime) row[0], ((Number) row[1]).longValue(), Long::sum);
+        }
+        addPending(values, Collections.singletonList(blogPostId), range);
+        return range.fill(values);
+    }
+
+    /**
+     * 作者全部博客按分桶汇总的浏览量
+     */
+    public List<BlogViewTrendPointDTO> authorTrend(Long authorId, String granularity, int points) {
+        TrendRange range = TrendRange.of(granularity, points);
+        Map<LocalDateTime, Long> values = new HashMap<>();
+        for (Object[] row : blogViewRollupRepository.sumTrendByAuthor(authorId, range.granularity, range.from,
+                range.to)) {
+            values.merge((LocalDateTime) row[0], ((Number) row[1]).longValue(), Long::sum);
+        }
+        addPending(values, blogPostRepository.findIdsByUserId(authorId), range);
+        return range.fill(values);
+    }
+
+    /**
+     * 叠加范围内尚未压缩的分桶（通常只有最近一两个小时）
+     */
+    private void addPending(Map<LocalDateTime, Long> values, Collection<Long> postIds, TrendRange range) {
+        if (postIds == null || postIds.isEmpty()) {
+            return;
+        }
+        Set<String> pending = redisTemplate.opsForSet().members(KEY_PENDING_BUCKETS);
+        if (pending == null || pending.isEmpty()) {
+            return;
+        }
+        List<String> buckets = new ArrayList<>();
+        List<LocalDateTime> starts = new ArrayList<>();
+        for (String bucket : pending) {
+            LocalDateTime hour = parseBucket(bucket);
+            if (hour == null) {
+                continue;
+            }
+            LocalDateTime start = range.truncate(hour);
+            if (!start.isBefore(range.from) && !start.isAfter(range.to)) {
+                buckets.add(bucket);
+                starts.add(start);
+            }
+        }
+        if (buckets.isEmpty()) {
+            return;
+        }
+        String[] fields = postIds.stream().map(String::valueOf).toArray(String[]::new);
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (String bucket : buckets) {
+                conn.hMGet(bucketKey(bucket), fields);
+            }
+            return null;
+        });
+        for (int i = 0; i < buckets.size() && i < results.size(); i++) {
+            long sum = 0;
+            Object r = results.get(i);
+            if (r instanceof List) {
+                for (Object v : (List<?>) r) {
+                    if (v != null) {
+                        sum += Long.parseLong(v.toString());
+                    }
+                }
+            }
+            if (sum != 0) {
+                values.merge(starts.get(i), sum, Long::sum);
+            }
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        Long pending = redisTemplate.opsForSet().size(KEY_PENDING_BUCKETS);
+        metrics.put("pendingBuckets", pending != null ? pending : 0L);
+        metrics.put("compactedBuckets", compactedBuckets.get());
+        metrics.put("compactedRows", compactedRows.get());
+        metrics.put("restoredBuckets", restoredBuckets.get());
+        return metrics;
+    }
+
+    /**
+     * 趋势查询的时间范围：从 from 到当前分桶 to（均为分桶起始时间）
+     */
+    private static final class TrendRange {
+        private final String granularity;
+        private final ChronoUnit unit;
+        private final int points;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+
+        private TrendRange(String granularity, ChronoUnit unit, int points) {
+            this.granularity = granularity;
+            this.unit = unit;
+            this.points = points;
+            this.to = LocalDateTime.now().truncatedTo(unit);
+            this.from = to.minus(points - 1L, unit);
+        }
+
+        static TrendRange of(String granularity, int points) {
+            boolean day = "day".equalsIgnoreCase(granularity);
+            int max = day ? MAX_DAY_POINTS : MAX_HOUR_POINTS;
+            int n = Math.max(1, Math.min(points, max));
+            return day ? new TrendRange(BlogViewRollup.DAY, ChronoUnit.DAYS, n)
+                    : new TrendRange(BlogViewRollup.HOUR, ChronoUnit.HOURS, n);
+        }
+
+        LocalDateTime truncate(LocalDateTime time) {
+            return time.truncatedTo(unit);
+        }
+
+        List<BlogViewTrendPointDTO> fill(Map<LocalDateTime, Long> values) {
+            List<BlogViewTrendPointDTO> list = new ArrayList<>(points);
+            for (int i = 0; i < points; i++) {
+                LocalDateTime start = from.plus(i, unit);
+                list.add(new BlogViewTrendPointDTO(start, values.getOrDefault(start, 0L)));
+            }
+            return list;
+        }
+    }
+}
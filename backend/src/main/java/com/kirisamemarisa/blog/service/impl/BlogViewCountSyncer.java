@@ -0,0 +1,286 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 浏览量批量同步：按块从待同步集合取出博客，一次脚本调用取走全部 delta，
+ * 再以一条 JDBC 批量 upsert 写入 blog_view_stats。失败的块会被放回 Redis。
+ * 待同步集合按博客 id 分片，每个实例只处理 {@link ClusterCoordinator} 分配给自己的分片。
+ */
+@Component
+public class BlogViewCountSyncer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlogViewCountSyncer.class);
+
+    private static final String UPSERT_SQL = "INSERT INTO blog_view_stats (blog_post_id, view_count) VALUES (?, ?) "
+            + "ON DUPLICATE KEY UPDATE view_count = view_count + ?";
+
+    /**
+     * SPOP count 取出一块博客 id，并对每个 id 执行 GETDEL + 并入已落库基数缓存。
+     * KEYS: 1 待同步集合
+     * ARGV: 1 块大小, 2 delta 前缀, 3 基数前缀
+     * 返回: 扁平数组 {id1, delta1, 基数是否已并入1, id2, ...}，delta 为 0 的 id 不返回
+     */
+    private static final DefaultRedisScript<List> DRAIN_CHUNK_SCRIPT = new DefaultRedisScript<>(
+            "local ids = redis.call('SPOP', KEYS[1], tonumber(ARGV[1])) " +
+            "local out = {} " +
+            "for _, id in ipairs(ids) do " +
+            "  local dk = ARGV[2] .. id " +
+            "  local val = redis.call('GET', dk) " +
+            "  if val then " +
+            "    redis.call('DEL', dk) " +
+            "    local bk = ARGV[3] .. id " +
+            "    local merged = 0 " +
+            "    if redis.call('EXISTS', bk) == 1 then redis.call('INCRBY', bk, val) merged = 1 end " +
+            "    if tonumber(val) ~= 0 then " +
+            "      table.insert(out, id) table.insert(out, val) table.insert(out, merged) end " +
+            "  end " +
+            "end " +
+            "return out",
+            List.class);
+
+    /**
+     * 把落库失败的 delta 放回 Redis，并回退基数缓存，与 DRAIN_CHUNK_SCRIPT 对称。
+     * KEYS: 1 待同步集合
+     * ARGV: 1 delta 前缀, 2 基数前缀, 3.. {id, delta} 成对
+     */
+    private static final DefaultRedisScript<Long> RESTORE_CHUNK_SCRIPT = new DefaultRedisScript<>(
+            "for i = 3, #ARGV, 2 do " +
+            "  local id = ARGV[i] " +
+            "  local val = ARGV[i + 1] " +
+            "  redis.call('INCRBY', ARGV[1] .. id, val) " +
+            "  local bk = ARGV[2] .. id " +
+            "  if redis.call('EXISTS', bk) == 1 then redis.call('DECRBY', bk, val) end " +
+            "  redis.call('SADD', KEYS[1], id) " +
+            "end " +
+            "return (#ARGV - 2) / 2",
+            Long.class);
+
+    /**
+     * 落库提交后使未并入 delta 的基数缓存失效：递增同步代数并删除基数。
+     * 与此同时回源的请求可能在提交前读到了旧值，代数变化使其写入被拒绝，已写入的也在此删除。
+     * KEYS: 无
+     * ARGV: 1 代数前缀, 2 基数前缀, 3 代数过期毫秒, 4.. 博客 id
+     */
+    private static final DefaultRedisScript<Long> INVALIDATE_BASE_SCRIPT = new DefaultRedisScript<>(
+            "for i = 4, #ARGV do " +
+            "  local gk = ARGV[1] .. ARGV[i] " +
+            "  redis.call('INCR', gk) " +
+            "  redis.call('PEXPIRE', gk, ARGV[3]) " +
+            "  redis.call('DEL', ARGV[2] .. ARGV[i]) " +
+            "end " +
+            "return #ARGV - 3",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ClusterCoordinator clusterCoordinator;
+
+    private final AtomicLong syncedPosts = new AtomicLong();
+    private final AtomicLong requeuedPosts = new AtomicLong();
+    private final AtomicLong droppedPosts = new AtomicLong();
+
+    @Value("${blog.view.sync.chunk-size:500}")
+    private int chunkSize;
+
+    // 单次同步最多处理的块数，防止积压过大时阻塞调度线程
+    @Value("${blog.view.sync.max-chunks-per-run:200}")
+    private int maxChunksPerRun;
+
+    public BlogViewCountSyncer(StringRedisTemplate redisTemplate,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ClusterCoordinator clusterCoordinator) {
+        this.redisTemplate = redisTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clusterCoordinator = clusterCoordinator;
+    }
+
+    /**
+     * 同步当前全部待同步博客的浏览增量
+     *
+     * @return 本次成功落库的博客数
+     */
+    public int syncPending() {
+        List<String> keys = new ArrayList<>();
+        for (int shard : clusterCoordinator.ownedShards()) {
+            keys.add(BlogViewServiceImpl.pendingSyncKey(shard));
+        }
+        // 分片之前写入的未分片集合由 0 号分片的所有者顺带处理
+        if (clusterCoordinator.ownedShards().contains(0)) {
+            keys.add(BlogViewServiceImpl.KEY_PENDING_SYNC_POSTS);
+        }
+        int synced = 0;
+        int chunks = 0;
+        for (String key : keys) {
+            while (chunks < maxChunksPerRun) {
+                List<ViewDelta> chunk = drainChunk(key);
+                if (chunk == null) {
+                    break;
+                }
+                chunks++;
+                if (!chunk.isEmpty()) {
+                    synced += apply(key, chunk);
+                }
+            }
+        }
+        return synced;
+    }
+
+    public long getSyncedPosts() {
+        return syncedPosts.get();
+    }
+
+    public long getRequeuedPosts() {
+        return requeuedPosts.get();
+    }
+
+    public long getDroppedPosts() {
+        return droppedPosts.get();
+    }
+
+    /**
+     * @return 取出的增量；集合已空时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    private List<ViewDelta> drainChunk(String pendingKey) {
+        Long remaining = redisTemplate.opsForSet().size(pendingKey);
+        if (remaining == null || remaining == 0) {
+            return null;
+        }
+        List<Object> flat = redisTemplate.execute(DRAIN_CHUNK_SCRIPT,
+                Collections.singletonList(pendingKey),
+                String.valueOf(chunkSize),
+                BlogViewServiceImpl.KEY_VIEW_COUNT_DELTA_PREFIX,
+                BlogViewServiceImpl.KEY_VIEW_COUNT_BASE_PREFIX);
+        List<ViewDelta> chunk = new ArrayList<>();
+        if (flat == null) {
+            return chunk;
+        }
+        for (int i = 0; i + 2 < flat.size(); i += 3) {
+            try {
+                chunk.add(new ViewDelta(Long.parseLong(flat.get(i).toString()),
+                        Long.parseLong(flat.get(i + 1).toString()),
+                        "1".equals(flat.get(i + 2).toString())));
+            } catch (NumberFormatException e) {
+                logger.warn("Skipping malformed pending view delta: {}={}", flat.get(i), flat.get(i + 1));
+            }
+        }
+        return chunk;
+    }
+
+    private int apply(String pendingKey, List<ViewDelta> chunk) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> batchUpsert(chunk));
+            syncedPosts.addAndGet(chunk.size());
+            invalidateBases(chunk);
+            return chunk.size();
+        } catch (Exception e) {
+            logger.warn("Batch view sync failed for {} posts, retrying row by row: {}", chunk.size(), e.toString());
+        }
+
+        // 整块失败时逐行重试，隔离出已被删除的博客（外键冲突），其余失败行放回 Redis
+        List<ViewDelta> synced = new ArrayList<>();
+        List<ViewDelta> failed = new ArrayList<>();
+        for (ViewDelta d : chunk) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> batchUpsert(Collections.singletonList(d)));
+                synced.add(d);
+            } catch (DataIntegrityViolationException e) {
+                droppedPosts.incrementAndGet();
+                logger.warn("Dropping view delta {} for missing post {}", d.delta, d.postId);
+            } catch (Exception e) {
+                failed.add(d);
+            }
+        }
+        syncedPosts.addAndGet(synced.size());
+        invalidateBases(synced);
+        if (!failed.isEmpty()) {
+            requeue(pendingKey, failed);
+        }
+        return synced.size();
+    }
+
+    /**
+     * 取走 delta 时基数缓存不存在的博客，提交后其基数可能已被并发回源以提交前的旧值写入，需要作废
+     */
+    private void invalidateBases(List<ViewDelta> rows) {
+        List<String> args = new ArrayList<>();
+        args.add(BlogViewServiceImpl.KEY_VIEW_COUNT_GEN_PREFIX);
+        args.add(BlogViewServiceImpl.KEY_VIEW_COUNT_BASE_PREFIX);
+        args.add(String.valueOf(BlogViewServiceImpl.VIEW_COUNT_GEN_TTL_MILLIS));
+        for (ViewDelta d : rows) {
+            if (!d.baseMerged) {
+                args.add(String.valueOf(d.postId));
+            }
+        }
+        if (args.size() == 3) {
+            return;
+        }
+        try {
+            redisTemplate.execute(INVALIDATE_BASE_SCRIPT, Collections.emptyList(), args.toArray());
+        } catch (Exception e) {
+            logger.warn("Failed to invalidate view count bases for {} posts: {}", args.size() - 3, e.toString());
+        }
+    }
+
+    private void batchUpsert(List<ViewDelta> rows) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, d) -> {
+            ps.setLong(1, d.postId);
+            ps.setLong(2, d.delta);
+            ps.setLong(3, d.delta);
+        });
+    }
+
+    private void requeue(String pendingKey, List<ViewDelta> rows) {
+        List<String> args = new ArrayList<>(rows.size() * 2 + 2);
+        args.add(BlogViewServiceImpl.KEY_VIEW_COUNT_DELTA_PREFIX);
+        args.add(BlogViewServiceImpl.KEY_VIEW_COUNT_BASE_PREFIX);
+        for (ViewDelta d : rows) {
+            args.add(String.valueOf(d.postId));
+            args.add(String.valueOf(d.delta));
+        }
+        try {
+            redisTemplate.execute(RESTORE_CHUNK_SCRIPT,
+                    Collections.singletonList(pendingKey),
+                    args.toArray());
+            requeuedPosts.addAndGet(rows.size());
+        } catch (Exception e) {
+            logger.error("Failed to requeue {} view deltas, they are lost: {}", rows.size(), rows, e);
+        }
+    }
+
+    static final class ViewDelta {
+        final long postId;
+        final long delta;
+        // 取走时基数缓存已存在并已并入该 delta
+        final boolean baseMerged;
+
+        ViewDelta(long postId, long delta, boolean baseMerged) {
+            this.postId = postId;
+            this.delta = delta;
+            this.baseMerged = baseMerged;
+        }
+
+        @Override
+        public String toString() {
+            return postId + "=" + delta;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.service.PostLeaderboardService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内浏览增量缓冲（可选，默认关闭）。
+ * 匿名浏览无需去重，开启后直接累加到按博客分条的 LongAdder，
+ * 每隔 flush-interval-ms 或累计 flush-threshold 次后用一次脚本批量写入 Redis（delta、待同步集合、
+ * 小时分桶、浏览/热度排行榜）。进程崩溃时最多丢失一个刷新窗口内的匿名浏览。
+ */
+@Component
+public class BlogViewLocalBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlogViewLocalBuffer.class);
+
+    private static final int FLUSH_CHUNK_SIZE = 500;
+    // 长时间没有浏览的博客移出缓冲，避免 map 无限增长
+    private static final long IDLE_EVICT_MS = 10 * 60_000L;
+    private static final int MAX_TRACKED_POSTS = 100_000;
+
+    /**
+     * 批量写入缓冲的增量，效果与浏览写入脚本中“新浏览”分支一致；id 集合中不存在的博客被丢弃。
+     * KEYS: 1 博客 id 集合, 2 热度榜纪元 hash, 3 当前小时分桶, 4 待压缩分桶集合
+     * ARGV: 1 delta 前缀, 2 基数前缀, 3 博客 scope 集合前缀, 4 浏览排行榜前缀, 5 热度榜前缀, 6 浏览热度权重,
+     * 7 热度半衰期毫秒, 8 当前小时分桶 id, 9 待同步集合前缀, 10 分片数, 11.. {博客 id, 增量} 成对
+     * 返回: id 集合未建立时 {-2}；否则扁平数组 {id, 当前浏览量(基数缺失时为 -1), ...}
+     */
+    private static final DefaultRedisScript<List> FLUSH_SCRIPT = new DefaultRedisScript<>(
+            HotScorePolicy.LUA_HOT_FUNCTIONS +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return {-2} end " +
+            "local now = nowMillis() " +
+            "local out = {} " +
+            "local shards = tonumber(ARGV[10]) " +
+            "for i = 11, #ARGV, 2 do " +
+            "  local id = ARGV[i] " +
+            "  local d = tonumber(ARGV[i + 1]) " +
+            "  if redis.call('SISMEMBER', KEYS[1], id) == 1 then " +
+            "    local delta = redis.call('INCRBY', ARGV[1] .. id, d) " +
+            "    redis.call('SADD', ARGV[9] .. (tonumber(id) % shards), id) " +
+            "    redis.call('HINCRBY', KEYS[3], id, d) " +
+            "    for _, sc in ipairs(redis.call('SMEMBERS', ARGV[3] .. id)) do " +
+            "      redis.call('ZINCRBY', ARGV[4] .. sc, d, id) " +
+            "      hotBump(KEYS[2], ARGV[5], sc, id, tonumber(ARGV[6]) * d, tonumber(ARGV[7]), now) " +
+            "    end " +
+            "    local base = redis.call('GET', ARGV[2] .. id) " +
+            "    table.insert(out, id) " +
+            "    if base then table.insert(out, delta + tonumber(base)) else table.insert(out, -1) end " +
+            "  end " +
+            "end " +
+            "if #ARGV >= 11 then redis.call('SADD', KEYS[4], ARGV[8]) end " +
+            "return out",
+            List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final HotScorePolicy hotScorePolicy;
+    private final ClusterCoordinator clusterCoordinator;
+
+    private final ConcurrentHashMap<Long, Slot> slots = new ConcurrentHashMap<>();
+    private final LongAdder unflushed = new LongAdder();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    private final AtomicLong bufferedTotal = new AtomicLong();
+    private final AtomicLong flushedTotal = new AtomicLong();
+    private final AtomicLong droppedTotal = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private volatile long lastFlushAt;
+    private volatile long lastFlushDurationMs;
+
+    @Value("${blog.view.local-buffer.enabled:false}")
+    private boolean enabled;
+
+    // 定时刷新间隔，即崩溃时的最大丢失窗口
+    @Value("${blog.view.local-buffer.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    // 未刷新的增量达到该值时提前触发一次刷新
+    @Value("${blog.view.local-buffer.flush-threshold:5000}")
+    private long flushThreshold;
+
+    public BlogViewLocalBuffer(StringRedisTemplate redisTemplate, HotScorePolicy hotScorePolicy,
+            ClusterCoordinator clusterCoordinator) {
+        this.redisTemplate = redisTemplate;
+        this.hotScorePolicy = hotScorePolicy;
+        this.clusterCoordinator = clusterCoordinator;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 记录一次匿名浏览。仅当该博客最近经脚本确认存在且已知浏览量时才缓冲。
+     *
+     * @return 估算的当前浏览量；未能缓冲时返回 null，由调用方走 Redis 脚本
+     */
+    public Long tryRecord(Long blogPostId) {
+        if (!enabled || blogPostId == null) {
+            return null;
+        }
+        Slot slot = slots.get(blogPostId);
+        if (slot == null || slot.lastKnown < 0) {
+            return null;
+        }
+        slot.pending.increment();
+        if (slot.detached) {
+            // 取到 slot 之后它被移出了缓冲：把落在它上面的增量转到新的 slot，留给下一轮刷新
+            reattach(blogPostId, slot.pending.sumThenReset());
+        }
+        slot.lastTouched = System.currentTimeMillis();
+        bufferedTotal.incrementAndGet();
+        unflushed.increment();
+        if (unflushed.sum() >= flushThreshold && flushing.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    doFlush();
+                } finally {
+                    flushing.set(false);
+                }
+            });
+        }
+        return slot.lastKnown + slot.pending.sum();
+    }
+
+    /**
+     * 经脚本写入后记下博客的当前浏览量，之后的匿名浏览即可进入缓冲
+     */
+    public void remember(Long blogPostId, long viewCount) {
+        if (!enabled || blogPostId == null) {
+            return;
+        }
+        Slot slot = slots.get(blogPostId);
+        if (slot == null) {
+            if (slots.size() >= MAX_TRACKED_POSTS) {
+                return;
+            }
+            slot = slots.computeIfAbsent(blogPostId, k -> new Slot());
+        }
+        slot.lastKnown = viewCount;
+        slot.lastTouched = System.currentTimeMillis();
+    }
+
+    /**
+     * 尚未刷入 Redis 的本地增量，读接口需要加上
+     */
+    public long pendingDelta(Long blogPostId) {
+        if (!enabled || blogPostId == null) {
+            return 0L;
+        }
+        Slot slot = slots.get(blogPostId);
+        return slot != null ? slot.pending.sum() : 0L;
+    }
+
+    /**
+     * 博客删除时丢弃其本地增量
+     */
+    public void forget(Long blogPostId) {
+        if (blogPostId == null) {
+            return;
+        }
+        Slot slot = slots.get(blogPostId);
+        if (slot != null) {
+            long dropped = detach(blogPostId, slot);
+            unflushed.add(-dropped);
+            droppedTotal.addAndGet(dropped);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${blog.view.local-buffer.flush-interval-ms:200}")
+    public void flush() {
+        if (!enabled || !flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            doFlush();
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        if (enabled) {
+            doFlush();
+        }
+    }
+
+    private void doFlush() {
+        long start = System.currentTimeMillis();
+        List<Long> ids = new ArrayList<>();
+        List<Long> deltas = new ArrayList<>();
+        for (Map.Entry<Long, Slot> e : slots.entrySet()) {
+            Slot slot = e.getValue();
+            // sumThenReset 按 cell 原子清零，并发的 increment 不会丢失，只会留到下一轮
+            long d = slot.pending.sumThenReset();
+            if (d != 0) {
+                ids.add(e.getKey());
+                deltas.add(d);
+            } else if (start - slot.lastTouched > IDLE_EVICT_MS) {
+                reattach(e.getKey(), detach(e.getKey(), slot));
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        long total = 0;
+        for (Long d : deltas) {
+            total += d;
+        }
+        unflushed.add(-total);
+
+        String bucket = BlogViewBucketStore.currentBucketId();
+        for (int i = 0; i < ids.size(); i += FLUSH_CHUNK_SIZE) {
+            int end = Math.min(i + FLUSH_CHUNK_SIZE, ids.size());
+            try {
+                flushChunk(ids.subList(i, end), deltas.subList(i, end), bucket);
+            } catch (Exception e) {
+                failedFlushes.incrementAndGet();
+                logger.warn("Failed to flush {} buffered view deltas, keeping them for the next round",
+                        end - i, e);
+                for (int j = i; j < end; j++) {
+                    restore(ids.get(j), deltas.get(j));
+                }
+            }
+        }
+        flushCount.incrementAndGet();
+        lastFlushAt = System.currentTimeMillis();
+        lastFlushDurationMs = lastFlushAt - start;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void flushChunk(List<Long> ids, List<Long> deltas, String bucket) {
+        List<String> args = new ArrayList<>(10 + ids.size() * 2);
+        args.add(BlogViewServiceImpl.KEY_VIEW_COUNT_DELTA_PREFIX);
+        args.add(BlogViewServiceImpl.KEY_VIEW_COUNT_BASE_PREFIX);
+        args.add(PostLeaderboardServiceImpl.KEY_POST_SCOPES_PREFIX);
+        args.add(PostLeaderboardServiceImpl.KEY_RANK_PREFIX + PostLeaderboardService.VIEWS + ":");
+        args.add(PostLeaderboardServiceImpl.KEY_RANK_PREFIX + PostLeaderboardService.HOT + ":");
+        args.add(String.valueOf(hotScorePolicy.weightOf(PostLeaderboardService.VIEWS)));
+        args.add(String.valueOf(hotScorePolicy.halfLifeMillis()));
+        args.add(bucket);
+        args.add(BlogViewServiceImpl.KEY_PENDING_SYNC_POSTS + ":");
+        args.add(String.valueOf(clusterCoordinator.getShardCount()));
+        for (int i = 0; i < ids.size(); i++) {
+            args.add(ids.get(i).toString());
+            args.add(deltas.get(i).toString());
+        }
+        List<Object> out = redisTemplate.execute(FLUSH_SCRIPT,
+                Arrays.asList(BlogViewServiceImpl.KEY_POST_IDS,
+                        HotScorePolicy.KEY_HOT_EPOCHS,
+                        BlogViewBucketStore.bucketKey(bucket),
+                        BlogViewBucketStore.KEY_PENDING_BUCKETS),
+                args.toArray());
+        if (out != null && out.size() == 1 && Long.valueOf(-2L).equals(out.get(0))) {
+            // id 集合失效：保留增量并让后续浏览回到脚本路径，由其重新预热
+            for (int i = 0; i < ids.size(); i++) {
+                restore(ids.get(i), deltas.get(i));
+                Slot slot = slots.get(ids.get(i));
+                if (slot != null) {
+                    slot.lastKnown = -1;
+                }
+            }
+            return;
+        }
+        Map<Long, Long> applied = new LinkedHashMap<>();
+        if (out != null) {
+            for (int i = 0; i + 1 < out.size(); i += 2) {
+                applied.put(Long.parseLong(String.valueOf(out.get(i))), ((Number) out.get(i + 1)).longValue());
+            }
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            Long current = applied.get(id);
+            if (current == null) {
+                // 博客已删除，连同刷新期间新缓冲的增量一起丢弃
+                droppedTotal.addAndGet(deltas.get(i));
+                Slot slot = slots.get(id);
+                if (slot != null) {
+                    long late = detach(id, slot);
+                    unflushed.add(-late);
+                    droppedTotal.addAndGet(late);
+                }
+                continue;
+            }
+            flushedTotal.addAndGet(deltas.get(i));
+            Slot slot = slots.get(id);
+            if (slot != null && current >= 0) {
+                slot.lastKnown = current;
+            }
+        }
+    }
+
+    private void restore(Long id, long delta) {
+        unflushed.add(delta);
+        reattach(id, delta);
+    }
+
+    /**
+     * 把 slot 移出缓冲并取走其增量。先置 detached 再移除：并发的 tryRecord 若仍持有该 slot，
+     * 会在累加后看到标记并自行把增量转走，因此移除前后的增量都不会丢失
+     *
+     * @return 移除时 slot 上剩余的增量（已计入 unflushed）
+     */
+    private long detach(Long id, Slot slot) {
+        slot.detached = true;
+        slots.remove(id, slot);
+        return slot.pending.sumThenReset();
+    }
+
+    /**
+     * 把已计入 unflushed 的增量放回当前 slot；目标 slot 恰好也被移出时继续转移
+     */
+    private void reattach(Long id, long delta) {
+        while (delta != 0) {
+            Slot slot = slots.computeIfAbsent(id, k -> new Slot());
+            slot.pending.add(delta);
+            delta = slot.detached ? slot.pending.sumThenReset() : 0L;
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("flushIntervalMs", flushIntervalMs);
+        metrics.put("flushThreshold", flushThreshold);
+        metrics.put("trackedPosts", slots.size());
+        metrics.put("unflushed", unflushed.sum());
+        metrics.put("bufferedTotal", bufferedTotal.get());
+        metrics.put("flushedTotal", flushedTotal.get());
+        metrics.put("droppedTotal", droppedTotal.get());
+        metrics.put("flushes", flushCount.get());
+        metrics.put("failedFlushes", failedFlushes.get());
+        metrics.put("lastFlushAt", lastFlushAt);
+        metrics.put("lastFlushDurationMs", lastFlushDurationMs);
+        return metrics;
+    }
+
+    private static final class Slot {
+        private final LongAdder pending = new LongAdder();
+        // 最近一次经 Redis 确认的浏览量（含已刷新的增量），-1 表示未知
+        private volatile long lastKnown = -1;
+        private volatile long lastTouched = System.currentTimeMillis();
+        // 已移出缓冲，之后落在其上的增量需要转移
+        private volatile boolean detached;
+    }
+}
@@ -0,0 +1,347 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 浏览明细落库：从 Redis 列表批量取出（LRANGE + LTRIM 原子执行），解码紧凑格式，
+ * 以可配置大小的 JDBC 批量插入写入 blog_view_record。
+ * 只有无法解码或因数据/完整性错误写入失败的记录进入死信列表；连接、超时等暂时性错误时
+ * 把整批放回待处理列表头部，并指数退避后再试。
+ * 每次调度按积压量自适应调整批大小，并在时间预算内持续排空。
+ */
+@Component
+public class BlogViewRecordIngester {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlogViewRecordIngester.class);
+
+    static final String KEY_DEAD_RECORDS = "blog:view_records:dead";
+
+    private static final String INSERT_SQL = "INSERT INTO blog_view_record (blog_post_id, user_id, viewed_at) VALUES (?, ?, ?)";
+
+    // 紧凑格式：postId,userId,epochMillis
+    private static final char FIELD_SEPARATOR = ',';
+
+    private static final long INITIAL_BACKOFF_MS = 1000;
+
+    /**
+     * 原子取出列表头部至多 ARGV[1] 条记录
+     */
+    private static final DefaultRedisScript<List> POP_BATCH_SCRIPT = new DefaultRedisScript<>(
+            "local items = redis.call('LRANGE', KEYS[1], 0, tonumber(ARGV[1]) - 1) " +
+            "if #items > 0 then redis.call('LTRIM', KEYS[1], #items, -1) end " +
+            "return items",
+            List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong ingested = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    // 死信列表超过上限时被裁掉的记录数
+    private final AtomicLong deadLetterDropped = new AtomicLong();
+    private final AtomicLong requeued = new AtomicLong();
+    private volatile long backoffMillis;
+    private volatile long backoffUntil;
+    private volatile long lastBatchMillis;
+    private volatile long lastRunMillis;
+    private volatile double lastRunRowsPerSecond;
+    private volatile int currentBatchSize;
+
+    @Value("${blog.view.records.batch-size:500}")
+    private int batchSize;
+
+    @Value("${blog.view.records.max-batch-size:5000}")
+    private int maxBatchSize;
+
+    // 单次调度最多占用的时间，超过后留给下一次
+    @Value("${blog.view.records.time-budget-ms:2000}")
+    private long timeBudgetMillis;
+
+    @Value("${blog.view.records.dead-letter-max:10000}")
+    private long deadLetterMax;
+
+    @Value("${blog.view.records.max-backoff-ms:60000}")
+    private long maxBackoffMillis;
+
+    public BlogViewRecordIngester(StringRedisTemplate redisTemplate,
+            JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager) {
+        this.redisTemplate = redisTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 编码一条浏览明细
+     */
+    public static String encode(Long blogPostId, Long userId, long viewedAtEpochMillis) {
+        return blogPostId + String.valueOf(FIELD_SEPARATOR) + userId + FIELD_SEPARATOR + viewedAtEpochMillis;
+    }
+
+    /**
+     * 排空待落库明细，直到列表为空或用完时间预算
+     *
+     * @return 本次写入的记录数
+     */
+    public int drain() {
+        long start = System.currentTimeMillis();
+        if (start < backoffUntil) {
+            return 0;
+        }
+        int size = adaptBatchSize();
+        int total = 0;
+        while (System.currentTimeMillis() - start < timeBudgetMillis && System.currentTimeMillis() >= backoffUntil) {
+            List<String> raw = popBatch(size);
+            if (raw.isEmpty()) {
+                break;
+            }
+            long batchStart = System.currentTimeMillis();
+            total += ingest(raw);
+            lastBatchMillis = System.currentTimeMillis() - batchStart;
+            if (raw.size() < size) {
+                break;
+            }
+        }
+        lastRunMillis = System.currentTimeMillis() - start;
+        lastRunRowsPerSecond = total * 1000.0 / Math.max(1, lastRunMillis);
+        return total;
+    }
+
+    /**
+     * 积压越多批越大：取积压量附近的 2 的幂，夹在 [batchSize, maxBatchSize] 之间
+     */
+    private int adaptBatchSize() {
+        long backlog = backlog();
+        int size = batchSize;
+        while (size < maxBatchSize && size < backlog / 4) {
+            size *= 2;
+        }
+        currentBatchSize = Math.min(size, maxBatchSize);
+        return currentBatchSize;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> popBatch(int size) {
+        List<String> items = redisTemplate.execute(POP_BATCH_SCRIPT,
+                Collections.singletonList(BlogViewServiceImpl.KEY_PENDING_RECORDS), String.valueOf(size));
+        return items != null ? items : Collections.emptyList();
+    }
+
+    private int ingest(List<String> raw) {
+        List<ViewRecordRow> rows = new ArrayList<>(raw.size());
+        List<String> rowPayloads = new ArrayList<>(raw.size());
+        List<String> undecodable = new ArrayList<>();
+        for (String payload : raw) {
+            ViewRecordRow row = decode(payload);
+            if (row == null) {
+                undecodable.add(payload);
+            } else {
+                rows.add(row);
+                rowPayloads.add(payload);
+            }
+        }
+        if (!undecodable.isEmpty()) {
+            deadLetter(undecodable, "undecodable");
+        }
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> batchInsert(rows));
+            ingested.addAndGet(rows.size());
+            backoffMillis = 0;
+            return rows.size();
+        } catch (Exception e) {
+            if (!isDataError(e)) {
+                requeue(rowPayloads, e);
+                return 0;
+            }
+            logger.warn("Batch insert of {} view records failed, retrying row by row: {}", rows.size(), e.toString());
+        }
+
+        // 批内有坏数据：逐条重试，只把自身写不进去的记录放入死信
+        int inserted = 0;
+        List<String> failed = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            ViewRecordRow row = rows.get(i);
+            try {
+                transactionTemplate.executeWithoutResult(status -> batchInsert(Collections.singletonList(row)));
+                inserted++;
+            } catch (Exception e) {
+                if (!isDataError(e)) {
+                    requeue(rowPayloads.subList(i, rows.size()), e);
+                    break;
+                }
+                failed.add(rowPayloads.get(i));
+            }
+        }
+        ingested.addAndGet(inserted);
+        if (!failed.isEmpty()) {
+            deadLetter(failed, "insert failed");
+        }
+        return inserted;
+    }
+
+    /**
+     * 数据本身的问题（约束冲突、截断、类型错误等，Spring 统一映射为 DataIntegrityViolationException）
+     * 重试也不会成功；其余异常视为暂时性错误
+     */
+    private static boolean isDataError(Exception e) {
+        return e instanceof DataIntegrityViolationException;
+    }
+
+    /**
+     * 暂时性错误：按原顺序放回待处理列表头部，并指数退避
+     */
+    private void requeue(List<String> payloads, Exception cause) {
+        List<String> reversed = new ArrayList<>(payloads);
+        Collections.reverse(reversed);
+        backoffMillis = backoffMillis == 0 ? INITIAL_BACKOFF_MS : Math.min(backoffMillis * 2, maxBackoffMillis);
+        backoffUntil = System.currentTimeMillis() + backoffMillis;
+        try {
+            redisTemplate.opsForList().leftPushAll(BlogViewServiceImpl.KEY_PENDING_RECORDS, reversed);
+            requeued.addAndGet(payloads.size());
+            logger.warn("Insert of {} view records failed transiently, requeued and backing off {} ms: {}",
+                    payloads.size(), backoffMillis, cause.toString());
+        } catch (Exception e) {
+            logger.error("Failed to requeue {} view records", payloads.size(), e);
+        }
+    }
+
+    private void batchInsert(List<ViewRecordRow> rows) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row.blogPostId);
+            if (row.userId != null) {
+                ps.setLong(2, row.userId);
+            } else {
+                ps.setNull(2, Types.BIGINT);
+            }
+            ps.setTimestamp(3, Timestamp.valueOf(row.viewedAt));
+        });
+    }
+
+    private void deadLetter(List<String> payloads, String reason) {
+        logger.warn("Moving {} view records to dead-letter list ({})", payloads.size(), reason);
+        try {
+            Long length = redisTemplate.opsForList().rightPushAll(KEY_DEAD_RECORDS, payloads);
+            deadLettered.addAndGet(payloads.size());
+            long overflow = length != null ? length - deadLetterMax : 0L;
+            if (overflow > 0) {
+                redisTemplate.opsForList().trim(KEY_DEAD_RECORDS, -deadLetterMax, -1);
+                deadLetterDropped.addAndGet(overflow);
+                logger.warn("Dead-letter list over {} entries, dropped {} oldest view records", deadLetterMax,
+                        overflow);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to dead-letter {} view records", payloads.size(), e);
+        }
+    }
+
+    /**
+     * 解码紧凑格式；兼容旧版本写入的 JSON 记录
+     */
+    ViewRecordRow decode(String payload) {
+        if (payload == null || payload.isEmpty()) {
+            return null;
+        }
+        try {
+            if (payload.charAt(0) == '{') {
+                BlogViewServiceImpl.BlogViewRecordDTO dto = objectMapper.readValue(payload,
+                        BlogViewServiceImpl.BlogViewRecordDTO.class);
+                if (dto.blogPostId == null) {
+                    return null;
+                }
+                return new ViewRecordRow(dto.blogPostId, dto.userId,
+                        dto.viewedAt != null ? dto.viewedAt : LocalDateTime.now());
+            }
+            int first = payload.indexOf(FIELD_SEPARATOR);
+            int second = payload.indexOf(FIELD_SEPARATOR, first + 1);
+            if (first < 0 || second < 0) {
+                return null;
+            }
+            long postId = Long.parseLong(payload, 0, first, 10);
+            String userPart = payload.substring(first + 1, second);
+            Long userId = userPart.isEmpty() || "null".equals(userPart) ? null : Long.parseLong(userPart);
+            long millis = Long.parseLong(payload, second + 1, payload.length(), 10);
+            return new ViewRecordRow(postId, userId,
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public long backlog() {
+        Long size = redisTemplate.opsForList().size(BlogViewServiceImpl.KEY_PENDING_RECORDS);
+        return size != null ? size : 0L;
+    }
+
+    /**
+     * 积压中最早一条记录的等待时长（毫秒），用于观察落库延迟
+     */
+    public long oldestPendingAgeMillis() {
+        String head = redisTemplate.opsForList().index(BlogViewServiceImpl.KEY_PENDING_RECORDS, 0);
+        ViewRecordRow row = decode(head);
+        if (row == null) {
+            return 0L;
+        }
+        long at = row.viewedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return Math.max(0L, System.currentTimeMillis() - at);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("backlog", backlog());
+        m.put("oldestPendingAgeMs", oldestPendingAgeMillis());
+        Long dead = redisTemplate.opsForList().size(KEY_DEAD_RECORDS);
+        m.put("deadLetterSize", dead != null ? dead : 0L);
+        m.put("ingestedTotal", ingested.get());
+        m.put("deadLetteredTotal", deadLettered.get());
+        m.put("deadLetterDroppedTotal", deadLetterDropped.get());
+        m.put("requeuedTotal", requeued.get());
+        m.put("backoffMs", Math.max(0L, backoffUntil - System.currentTimeMillis()));
+        m.put("currentBatchSize", currentBatchSize);
+        m.put("lastBatchMs", lastBatchMillis);
+        m.put("lastRunMs", lastRunMillis);
+        m.put("lastRunRowsPerSecond", lastRunRowsPerSecond);
+        return m;
+    }
+
+    static final class ViewRecordRow {
+        final long blogPostId;
+        final Long userId;
+        final LocalDateTime viewedAt;
+
+        ViewRecordRow(long blogPostId, Long userId, LocalDateTime viewedAt) {
+            this.blogPostId = blogPostId;
+            this.userId = userId;
+            this.viewedAt = viewedAt;
+        }
+    }
+}
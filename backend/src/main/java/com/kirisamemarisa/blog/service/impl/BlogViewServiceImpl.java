@@ -1,29 +1,37 @@
 package com.kirisamemarisa.blog.service.impl;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kirisamemarisa.blog.common.ApiResponse;
 import com.kirisamemarisa.blog.dto.BlogViewRecordCreateDTO;
 import com.kirisamemarisa.blog.dto.BlogViewStatsDTO;
+import com.kirisamemarisa.blog.dto.BlogViewTrendPointDTO;
 import com.kirisamemarisa.blog.model.BlogPost;
-import com.kirisamemarisa.blog.model.BlogViewRecord;
 import com.kirisamemarisa.blog.model.BlogViewStats;
 import com.kirisamemarisa.blog.repository.BlogPostRepository;
 import com.kirisamemarisa.blog.repository.BlogViewRecordRepository;
+import com.kirisamemarisa.blog.repository.BlogViewRollupRepository;
 import com.kirisamemarisa.blog.repository.BlogViewStatsRepository;
-import com.kirisamemarisa.blog.repository.UserRepository;
 import com.kirisamemarisa.blog.service.BlogViewService;
+import com.kirisamemarisa.blog.service.PostLeaderboardService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class BlogViewServiceImpl implements BlogViewService {
@@ -31,44 +39,253 @@ public class BlogViewServiceImpl implements BlogViewService {
     private static final Logger logger = LoggerFactory.getLogger(BlogViewServiceImpl.class);
 
     private final BlogPostRepository blogPostRepository;
-    private final UserRepository userRepository;
     private final BlogViewRecordRepository blogViewRecordRepository;
     private final BlogViewStatsRepository blogViewStatsRepository;
+    private final BlogViewRollupRepository blogViewRollupRepository;
     private final StringRedisTemplate redisTemplate;
-    private final ObjectMapper objectMapper;
-    private final org.springframework.transaction.support.TransactionTemplate transactionTemplate;
-
-    private static final String KEY_VIEWED_USERS_PREFIX = "blog:post:viewed_users:";
-    private static final String KEY_VIEW_COUNT_DELTA_PREFIX = "blog:post:view_count_delta:";
-    private static final String KEY_PENDING_SYNC_POSTS = "blog:post:pending_sync";
-    private static final String KEY_PENDING_RECORDS = "blog:view_records:pending";
+    private final BlogViewCountSyncer blogViewCountSyncer;
+    private final BlogViewRecordIngester blogViewRecordIngester;
+    private final HotScorePolicy hotScorePolicy;
+    private final BlogViewBucketStore blogViewBucketStore;
+    private final BlogViewLocalBuffer blogViewLocalBuffer;
+    private final ClusterCoordinator clusterCoordinator;
+
+    static final String KEY_VIEWED_USERS_PREFIX = "blog:post:viewed_users:";
+    static final String KEY_VIEW_COUNT_DELTA_PREFIX = "blog:post:view_count_delta:";
+    // 待同步集合按分片拆分为 blog:post:pending_sync:{shard}；不带后缀的为分片前遗留的集合
+    static final String KEY_PENDING_SYNC_POSTS = "blog:post:pending_sync";
+    static final String KEY_PENDING_RECORDS = "blog:view_records:pending";
+    // 已浏览用户位图按用户 id 分块：blog:post:seen_viewers:{postId}:{uid / SEEN_CHUNK_BITS}，只为出现过的区段分配内存
+    static final String KEY_SEEN_VIEWERS_PREFIX = "blog:post:seen_viewers:";
+    // 已按分块位图建立的博客；旧版整块位图对应的标记集合不再使用，各博客首次访问时按需重建
+    static final String KEY_SEEN_VIEWERS_READY = "blog:post:seen_viewers_ready:chunked";
+    static final String KEY_UNIQUE_VIEWERS_PREFIX = "blog:post:uv:";
+    static final String KEY_VIEW_COUNT_BASE_PREFIX = "blog:post:view_count_base:";
+    // 基数同步代数：同步器提交后递增，回源写基数前校验，防止以提交前读到的旧值覆盖
+    static final String KEY_VIEW_COUNT_GEN_PREFIX = "blog:post:view_count_gen:";
+    static final String KEY_POST_IDS = "blog:post:ids";
     private static final long VIEW_COOLDOWN_HOURS = 24; // 24 hours cooldown per user per post
+    private static final long VIEW_COUNT_BASE_TTL_MINUTES = 30;
+    static final long VIEW_COUNT_GEN_TTL_MILLIS = TimeUnit.MINUTES.toMillis(VIEW_COUNT_BASE_TTL_MINUTES);
+    private static final int WARM_CHUNK_SIZE = 1000;
+    private static final long WARM_LEASE_MS = 30_000;
+    // 未抢到预热租约的请求最多等待的时间，超时后走数据库回退流程
+    private static final long WARM_WAIT_MS = 2_000;
+    // 每块位图覆盖的用户 id 个数（8KB）
+    private static final long SEEN_CHUNK_BITS = 1L << 16;
+
+    // 脚本返回的状态码
+    private static final long INGEST_SEED_REQUIRED = -3;
+    private static final long INGEST_POST_IDS_COLD = -2;
+    private static final long INGEST_NOT_FOUND = -1;
+
+    /**
+     * 浏览写入脚本。
+     * KEYS: 1 博客 id 集合, 2 该用户所在的已浏览用户位图分块, 3 位图已建立的博客, 4 delta, 5 待同步集合, 6 待落库明细, 7 已落库基数,
+     * 8 独立访客 HyperLogLog, 9 博客所属排行榜 scope 集合, 10 热度榜纪元 hash, 11 当前小时分桶, 12 待压缩分桶集合
+     * ARGV: 1 博客 id, 2 用户 id（匿名为空串）, 3 明细, 4 浏览排行榜 key 前缀, 5 热度榜 key 前缀,
+     * 6 浏览的热度权重, 7 热度半衰期毫秒, 8 当前小时分桶 id, 9 用户在分块内的位偏移
+     * 返回: {状态, 当前浏览量(基数缺失时为 -1), 当前 delta}
+     */
+    private static final DefaultRedisScript<List> VIEW_INGEST_SCRIPT = new DefaultRedisScript<>(
+            HotScorePolicy.LUA_HOT_FUNCTIONS +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return {-2, 0, 0} end " +
+            "if redis.call('SISMEMBER', KEYS[1], ARGV[1]) == 0 then return {-1, 0, 0} end " +
+            "local isNew = 1 " +
+            "if ARGV[2] ~= '' then " +
+            "  if redis.call('SISMEMBER', KEYS[3], ARGV[1]) == 0 then return {-3, 0, 0} end " +
+            "  isNew = 1 - redis.call('SETBIT', KEYS[2], tonumber(ARGV[9]), 1) " +
+            "  if isNew == 1 then redis.call('PFADD', KEYS[8], ARGV[2]) end " +
+            "end " +
+            "local delta " +
+            "if isNew == 1 then " +
+            "  delta = redis.call('INCR', KEYS[4]) " +
+            "  redis.call('SADD', KEYS[5], ARGV[1]) " +
+            "  if ARGV[2] ~= '' and ARGV[3] ~= '' then redis.call('RPUSH', KEYS[6], ARGV[3]) end " +
+            "  redis.call('HINCRBY', KEYS[11], ARGV[1], 1) " +
+            "  redis.call('SADD', KEYS[12], ARGV[8]) " +
+            "  local now = nowMillis() " +
+            "  for _, sc in ipairs(redis.call('SMEMBERS', KEYS[9])) do " +
+            "    redis.call('ZINCRBY', ARGV[4] .. sc, 1, ARGV[1]) " +
+            "    hotBump(KEYS[10], ARGV[5], sc, ARGV[1], tonumber(ARGV[6]), tonumber(ARGV[7]), now) " +
+            "  end " +
+            "else " +
+            "  delta = tonumber(redis.call('GET', KEYS[4]) or '0') " +
+            "end " +
+            "local base = redis.call('GET', KEYS[7]) " +
+            "if not base then return {isNew, -1, delta} end " +
+            "return {isNew, delta + tonumber(base), delta}",
+            List.class);
+
+    /**
+     * 旧流程下把一次新浏览计入博客所属的全部浏览排行榜与热度榜
+     * KEYS: 1 博客所属排行榜 scope 集合, 2 热度榜纪元 hash
+     * ARGV: 1 浏览排行榜 key 前缀, 2 博客 id, 3 热度榜 key 前缀, 4 浏览的热度权重, 5 热度半衰期毫秒
+     */
+    private static final DefaultRedisScript<Long> INCREMENT_RANK_SCRIPT = new DefaultRedisScript<>(
+            HotScorePolicy.LUA_HOT_FUNCTIONS +
+            "local now = nowMillis() " +
+            "for _, sc in ipairs(redis.call('SMEMBERS', KEYS[1])) do " +
+            "  redis.call('ZINCRBY', ARGV[1] .. sc, 1, ARGV[2]) " +
+            "  hotBump(KEYS[2], ARGV[3], sc, ARGV[2], tonumber(ARGV[4]), tonumber(ARGV[5]), now) " +
+            "end " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 同步代数未变时才写入基数（NX，带过期）。
+     * KEYS: 1 基数, 2 同步代数
+     * ARGV: 1 读库前的代数（不存在为空串）, 2 基数, 3 过期毫秒
+     */
+    private static final DefaultRedisScript<Long> SET_BASE_IF_GEN_SCRIPT = new DefaultRedisScript<>(
+            "if (redis.call('GET', KEYS[2]) or '') ~= ARGV[1] then return 0 end " +
+            "if redis.call('SET', KEYS[1], ARGV[2], 'NX', 'PX', ARGV[3]) then return 1 end return 0",
+            Long.class);
+
+    /**
+     * 仅在 id 集合已建立时追加，防止在预热前创建出只含部分 id 的集合。
+     */
+    private static final DefaultRedisScript<Long> ADD_IF_EXISTS_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return redis.call('SADD', KEYS[1], ARGV[1]) end return 0",
+            Long.class);
+
+    @Value("${blog.view.script-ingest.enabled:true}")
+    private boolean scriptIngestEnabled;
 
     public BlogViewServiceImpl(BlogPostRepository blogPostRepository,
-            UserRepository userRepository,
             BlogViewRecordRepository blogViewRecordRepository,
             BlogViewStatsRepository blogViewStatsRepository,
+            BlogViewRollupRepository blogViewRollupRepository,
             StringRedisTemplate redisTemplate,
-            ObjectMapper objectMapper,
-            org.springframework.transaction.PlatformTransactionManager transactionManager) {
+            BlogViewCountSyncer blogViewCountSyncer,
+            BlogViewRecordIngester blogViewRecordIngester,
+            HotScorePolicy hotScorePolicy,
+            BlogViewBucketStore blogViewBucketStore,
+            BlogViewLocalBuffer blogViewLocalBuffer,
+            ClusterCoordinator clusterCoordinator) {
         this.blogPostRepository = blogPostRepository;
-        this.userRepository = userRepository;
         this.blogViewRecordRepository = blogViewRecordRepository;
         this.blogViewStatsRepository = blogViewStatsRepository;
+        this.blogViewRollupRepository = blogViewRollupRepository;
         this.redisTemplate = redisTemplate;
-        this.objectMapper = objectMapper;
-        this.transactionTemplate = new org.springframework.transaction.support.TransactionTemplate(transactionManager);
+        this.blogViewCountSyncer = blogViewCountSyncer;
+        this.blogViewRecordIngester = blogViewRecordIngester;
+        this.hotScorePolicy = hotScorePolicy;
+        this.blogViewBucketStore = blogViewBucketStore;
+        this.blogViewLocalBuffer = blogViewLocalBuffer;
+        this.clusterCoordinator = clusterCoordinator;
+    }
+
+    static String pendingSyncKey(int shard) {
+        return KEY_PENDING_SYNC_POSTS + ":" + shard;
+    }
+
+    private String pendingSyncKeyOf(Long blogPostId) {
+        return pendingSyncKey(clusterCoordinator.shardOf(blogPostId));
     }
 
     @Override
-    @Transactional
     public ApiResponse<BlogViewStatsDTO> recordView(BlogViewRecordCreateDTO dto) {
         if (dto == null || dto.getBlogPostId() == null) {
             return new ApiResponse<>(400, "blogPostId 不能为空", null);
         }
+        if (scriptIngestEnabled) {
+            return recordViewByScript(dto);
+        }
+        return recordViewLegacy(dto);
+    }
+
+    /**
+     * 单次 Redis 往返完成：博客存在性校验（缓存的 id 集合）、用户去重、增量 +1、
+     * 标记待同步、明细入队，并直接返回当前浏览量。稳态下不访问数据库。
+     */
+    private ApiResponse<BlogViewStatsDTO> recordViewByScript(BlogViewRecordCreateDTO dto) {
+        Long postId = dto.getBlogPostId();
+        Long userId = dto.getUserId();
+        String payload = userId != null
+                ? BlogViewRecordIngester.encode(postId, userId, System.currentTimeMillis())
+                : "";
+
+        if (userId != null && userId < 0) {
+            return recordViewLegacy(dto);
+        }
+
+        // 匿名浏览无需去重，开启本地缓冲时直接在进程内累加
+        if (userId == null) {
+            Long buffered = blogViewLocalBuffer.tryRecord(postId);
+            if (buffered != null) {
+                BlogViewStatsDTO stats = new BlogViewStatsDTO();
+                stats.setBlogPostId(postId);
+                stats.setViewCount(buffered);
+                return new ApiResponse<>(200, "获取成功", stats);
+            }
+        }
 
+        String bucket = BlogViewBucketStore.currentBucketId();
+        // 冷启动（id 集合或已浏览用户位图尚未建立）时补齐后重试，最多两次
+        for (int attempt = 0; attempt < 3; attempt++) {
+            List<Long> result = redisTemplate.execute(VIEW_INGEST_SCRIPT,
+                    Arrays.asList(KEY_POST_IDS,
+                            seenChunkKey(postId, userId != null ? userId : 0L),
+                            KEY_SEEN_VIEWERS_READY,
+                            KEY_VIEW_COUNT_DELTA_PREFIX + postId,
+                            pendingSyncKeyOf(postId),
+                            KEY_PENDING_RECORDS,
+                            KEY_VIEW_COUNT_BASE_PREFIX + postId,
+                            KEY_UNIQUE_VIEWERS_PREFIX + postId,
+                            PostLeaderboardServiceImpl.KEY_POST_SCOPES_PREFIX + postId,
+                            HotScorePolicy.KEY_HOT_EPOCHS,
+                            BlogViewBucketStore.bucketKey(bucket),
+                            BlogViewBucketStore.KEY_PENDING_BUCKETS),
+                    postId.toString(), userId != null ? userId.toString() : "", payload,
+                    PostLeaderboardServiceImpl.KEY_RANK_PREFIX + PostLeaderboardService.VIEWS + ":",
+                    PostLeaderboardServiceImpl.KEY_RANK_PREFIX + PostLeaderboardService.HOT + ":",
+                    String.valueOf(hotScorePolicy.weightOf(PostLeaderboardService.VIEWS)),
+                    String.valueOf(hotScorePolicy.halfLifeMillis()),
+                    bucket,
+                    String.valueOf(userId != null ? userId % SEEN_CHUNK_BITS : 0L));
+            if (result == null || result.size() < 2) {
+                logger.warn("View ingest script returned no result for post {}, falling back", postId);
+                return recordViewLegacy(dto);
+            }
+            long status = result.get(0);
+            if (status == INGEST_POST_IDS_COLD) {
+                warmPostIds();
+                continue;
+            }
+            if (status == INGEST_SEED_REQUIRED) {
+                rebuildSeenViewers(postId);
+                continue;
+            }
+            if (status == INGEST_NOT_FOUND) {
+                // id 集合可能漏掉了预热之后才发布的博客：回源确认后补入再重试
+                if (attempt < 2 && blogPostRepository.findByIdAndDeletedFalse(postId).isPresent()) {
+                    redisTemplate.execute(ADD_IF_EXISTS_SCRIPT, Collections.singletonList(KEY_POST_IDS),
+                            postId.toString());
+                    continue;
+                }
+                return new ApiResponse<>(404, "博客不存在", null);
+            }
+            long count = result.get(1);
+            if (count < 0) {
+                // 基数缓存过期：回源一次数据库，脚本已返回当前 delta
+                long delta = result.size() > 2 ? result.get(2) : 0L;
+                count = loadViewCountBase(postId) + delta;
+            }
+            blogViewLocalBuffer.remember(postId, count);
+            count += blogViewLocalBuffer.pendingDelta(postId);
+            BlogViewStatsDTO stats = new BlogViewStatsDTO();
+            stats.setBlogPostId(postId);
+            stats.setViewCount(count);
+            return new ApiResponse<>(200, "获取成功", stats);
+        }
+        logger.warn("View ingest script could not warm caches for post {}, falling back", postId);
+        return recordViewLegacy(dto);
+    }
+
+    private ApiResponse<BlogViewStatsDTO> recordViewLegacy(BlogViewRecordCreateDTO dto) {
         // 检查博客是否存在
-        Optional<BlogPost> postOpt = blogPostRepository.findById(dto.getBlogPostId());
+        Optional<BlogPost> postOpt = blogPostRepository.findByIdAndDeletedFalse(dto.getBlogPostId());
         if (postOpt.isEmpty()) {
             return new ApiResponse<>(404, "博客不存在", null);
         }
@@ -93,7 +310,7 @@ public class BlogViewServiceImpl implements BlogViewService {
                     isNewView = true;
                 }
                 // Refresh expiration
-                redisTemplate.expire(viewedUsersKey, VIEW_COOLDOWN_HOURS, java.util.concurrent.TimeUnit.HOURS);
+                redisTemplate.expire(viewedUsersKey, VIEW_COOLDOWN_HOURS, TimeUnit.HOURS);
             } else {
                 // Already in Redis
                 isNewView = false;
@@ -113,17 +330,26 @@ public class BlogViewServiceImpl implements BlogViewService {
             // 新增浏览
             String deltaKey = KEY_VIEW_COUNT_DELTA_PREFIX + dto.getBlogPostId();
             redisTemplate.opsForValue().increment(deltaKey);
-            redisTemplate.opsForSet().add(KEY_PENDING_SYNC_POSTS, dto.getBlogPostId().toString());
+            redisTemplate.opsForSet().add(pendingSyncKeyOf(dto.getBlogPostId()), dto.getBlogPostId().toString());
+            String bucket = BlogViewBucketStore.currentBucketId();
+            redisTemplate.opsForHash().increment(BlogViewBucketStore.bucketKey(bucket),
+                    dto.getBlogPostId().toString(), 1);
+            redisTemplate.opsForSet().add(BlogViewBucketStore.KEY_PENDING_BUCKETS, bucket);
+            redisTemplate.execute(INCREMENT_RANK_SCRIPT,
+                    Arrays.asList(PostLeaderboardServiceImpl.KEY_POST_SCOPES_PREFIX + dto.getBlogPostId(),
+                            HotScorePolicy.KEY_HOT_EPOCHS),
+                    PostLeaderboardServiceImpl.KEY_RANK_PREFIX + PostLeaderboardService.VIEWS + ":",
+                    dto.getBlogPostId().toString(),
+                    PostLeaderboardServiceImpl.KEY_RANK_PREFIX + PostLeaderboardService.HOT + ":",
+                    String.valueOf(hotScorePolicy.weightOf(PostLeaderboardService.VIEWS)),
+                    String.valueOf(hotScorePolicy.halfLifeMillis()));
 
             // 异步记录明细（仅针对登录用户）
             if (userId != null) {
                 try {
-                    BlogViewRecordDTO recordDTO = new BlogViewRecordDTO(dto.getBlogPostId(), userId,
-                            LocalDateTime.now());
-                    // Jackson 序列化 LocalDateTime 需要模块支持，这里简单转字符串或确保配置了 JavaTimeModule
-                    // 为保险起见，DTO 中使用 String 存储时间或依赖全局配置
-                    String json = objectMapper.writeValueAsString(recordDTO);
-                    redisTemplate.opsForList().rightPush(KEY_PENDING_RECORDS, json);
+                    String payload = BlogViewRecordIngester.encode(dto.getBlogPostId(), userId,
+                            System.currentTimeMillis());
+                    redisTemplate.opsForList().rightPush(KEY_PENDING_RECORDS, payload);
                 } catch (Exception e) {
                     logger.error("Failed to push view record to redis", e);
                 }
@@ -134,24 +360,24 @@ public class BlogViewServiceImpl implements BlogViewService {
     }
 
     @Override
-    @Transactional(readOnly = true)
     public ApiResponse<BlogViewStatsDTO> getStats(Long blogPostId) {
         if (blogPostId == null) {
             return new ApiResponse<>(400, "blogPostId 不能为空", null);
         }
 
-        // 查库
-        Optional<BlogViewStats> statsOpt = blogViewStatsRepository.findByBlogPostId(blogPostId);
-        long dbCount = statsOpt.map(BlogViewStats::getViewCount).orElse(0L);
-
-        // 查 Redis Delta
-        String deltaKey = KEY_VIEW_COUNT_DELTA_PREFIX + blogPostId;
-        String deltaStr = redisTemplate.opsForValue().get(deltaKey);
+        // 一次 MGET 取已落库基数（缓存）与 Redis Delta
+        List<String> values = redisTemplate.opsForValue().multiGet(Arrays.asList(
+                KEY_VIEW_COUNT_BASE_PREFIX + blogPostId,
+                KEY_VIEW_COUNT_DELTA_PREFIX + blogPostId));
+        String baseStr = values != null ? values.get(0) : null;
+        String deltaStr = values != null ? values.get(1) : null;
+        long base = baseStr != null ? Long.parseLong(baseStr) : loadViewCountBase(blogPostId);
         long delta = deltaStr != null ? Long.parseLong(deltaStr) : 0L;
+        delta += blogViewLocalBuffer.pendingDelta(blogPostId);
 
         BlogViewStatsDTO dto = new BlogViewStatsDTO();
         dto.setBlogPostId(blogPostId);
-        dto.setViewCount(dbCount + delta);
+        dto.setViewCount(base + delta);
 
         return new ApiResponse<>(200, "获取成功", dto);
     }
@@ -183,6 +409,7 @@ public class BlogViewServiceImpl implements BlogViewService {
             if (deltaValues != null && deltaValues.get(i) != null) {
                 delta = Long.parseLong(deltaValues.get(i));
             }
+            delta += blogViewLocalBuffer.pendingDelta(id);
             result.put(id, db + delta);
         }
 
@@ -199,18 +426,238 @@ public class BlogViewServiceImpl implements BlogViewService {
         // 1. 删除数据库中的记录
         blogViewRecordRepository.deleteByBlogPost_Id(blogPostId);
         blogViewStatsRepository.deleteByBlogPost_Id(blogPostId);
+        blogViewRollupRepository.deleteByBlogPostId(blogPostId);
+        blogViewLocalBuffer.forget(blogPostId);
 
         // 2. 清理 Redis 缓存
         String viewedUsersKey = KEY_VIEWED_USERS_PREFIX + blogPostId;
         String deltaKey = KEY_VIEW_COUNT_DELTA_PREFIX + blogPostId;
 
-        redisTemplate.delete(viewedUsersKey);
-        redisTemplate.delete(deltaKey);
+        redisTemplate.delete(Arrays.asList(viewedUsersKey, deltaKey, KEY_VIEW_COUNT_BASE_PREFIX + blogPostId,
+                KEY_SEEN_VIEWERS_PREFIX + blogPostId, KEY_UNIQUE_VIEWERS_PREFIX + blogPostId));
+        deleteSeenChunks(blogPostId);
+        redisTemplate.opsForSet().remove(KEY_POST_IDS, blogPostId.toString());
+        redisTemplate.opsForSet().remove(KEY_SEEN_VIEWERS_READY, blogPostId.toString());
 
         // 从待同步集合中移除，防止再次同步
+        redisTemplate.opsForSet().remove(pendingSyncKeyOf(blogPostId), blogPostId.toString());
         redisTemplate.opsForSet().remove(KEY_PENDING_SYNC_POSTS, blogPostId.toString());
     }
 
+    @Override
+    public void registerPost(Long blogPostId) {
+        if (blogPostId == null) {
+            return;
+        }
+        // 与 unregisterPost 相同，提交后再写入：回滚的创建不会在 id 集合中留下不存在的博客
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addToPostIds(blogPostId);
+                }
+            });
+        } else {
+            addToPostIds(blogPostId);
+        }
+    }
+
+    private void addToPostIds(Long blogPostId) {
+        try {
+            redisTemplate.execute(ADD_IF_EXISTS_SCRIPT, Collections.singletonList(KEY_POST_IDS),
+                    blogPostId.toString());
+            // 新博客没有历史浏览者，可直接视为位图已建立
+            redisTemplate.opsForSet().add(KEY_SEEN_VIEWERS_READY, blogPostId.toString());
+        } catch (Exception e) {
+            logger.warn("Failed to register post {} in view caches", blogPostId, e);
+        }
+    }
+
+    @Override
+    public void unregisterPost(Long blogPostId) {
+        if (blogPostId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    removeFromPostIds(blogPostId);
+                }
+            });
+        } else {
+            removeFromPostIds(blogPostId);
+        }
+    }
+
+    private void removeFromPostIds(Long blogPostId) {
+        blogViewLocalBuffer.forget(blogPostId);
+        try {
+            redisTemplate.opsForSet().remove(KEY_POST_IDS, blogPostId.toString());
+        } catch (Exception e) {
+            logger.warn("Failed to unregister post {} from view caches", blogPostId, e);
+        }
+    }
+
+    /**
+     * 从数据库重建博客 id 集合。先写入临时 key 再 RENAME，保证读侧看到的始终是完整集合。
+     * 以租约保证同一时刻只有一个请求回源，其余请求短暂等待集合出现。
+     */
+    private void warmPostIds() {
+        ClusterCoordinator.Lease lease = clusterCoordinator.tryAcquire("post-ids-warm", WARM_LEASE_MS);
+        if (lease == null) {
+            awaitPostIds();
+            return;
+        }
+        try {
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(KEY_POST_IDS))) {
+                loadPostIds();
+            }
+        } finally {
+            clusterCoordinator.release(lease);
+        }
+    }
+
+    private void awaitPostIds() {
+        long deadline = System.currentTimeMillis() + WARM_WAIT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(KEY_POST_IDS))) {
+                return;
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void loadPostIds() {
+        List<Long> ids = blogPostRepository.findAllIds();
+        String tmpKey = KEY_POST_IDS + ":warming:" + java.util.UUID.randomUUID();
+        // 占位成员保证即使没有博客 key 也存在
+        redisTemplate.opsForSet().add(tmpKey, "0");
+        for (int i = 0; i < ids.size(); i += WARM_CHUNK_SIZE) {
+            String[] chunk = ids.subList(i, Math.min(i + WARM_CHUNK_SIZE, ids.size())).stream()
+                    .map(String::valueOf)
+                    .toArray(String[]::new);
+            redisTemplate.opsForSet().add(tmpKey, chunk);
+        }
+        redisTemplate.rename(tmpKey, KEY_POST_IDS);
+        logger.info("Warmed blog post id cache with {} ids", ids.size());
+    }
+
+    @Override
+    public ApiResponse<Long> getUniqueViewerEstimate(Long blogPostId) {
+        if (blogPostId == null) {
+            return new ApiResponse<>(400, "blogPostId 不能为空", null);
+        }
+        if (!Boolean.TRUE.equals(redisTemplate.opsForSet().isMember(KEY_SEEN_VIEWERS_READY, blogPostId.toString()))) {
+            // 只为存在的博客重建，避免任意 id 都在标记集合中留下记录
+            if (blogPostRepository.findByIdAndDeletedFalse(blogPostId).isEmpty()) {
+                return new ApiResponse<>(404, "博客不存在", null);
+            }
+            rebuildSeenViewers(blogPostId);
+        }
+        Long estimate = redisTemplate.opsForHyperLogLog().size(KEY_UNIQUE_VIEWERS_PREFIX + blogPostId);
+        return new ApiResponse<>(200, "获取成功", estimate != null ? estimate : 0L);
+    }
+
+    static String seenChunkKey(Long blogPostId, long userId) {
+        return KEY_SEEN_VIEWERS_PREFIX + blogPostId + ":" + (userId / SEEN_CHUNK_BITS);
+    }
+
+    /**
+     * 重建某篇博客的已浏览用户分块位图与独立访客 HyperLogLog。浏览者来源：
+     * 待落库明细列表中该博客的记录（先读，避免与落库并发时两边都漏掉）、浏览明细表、旧版 24 小时已浏览集合。
+     * 两者均不过期，重建后“每个用户只计一次”的判断只走 Redis。
+     */
+    private void rebuildSeenViewers(Long blogPostId) {
+        String uvKey = KEY_UNIQUE_VIEWERS_PREFIX + blogPostId;
+        Set<Long> viewers = new HashSet<>();
+        collectPendingViewers(blogPostId, viewers);
+        viewers.addAll(blogViewRecordRepository.findUserIdsByBlogPostId(blogPostId));
+        Set<String> legacy = redisTemplate.opsForSet().members(KEY_VIEWED_USERS_PREFIX + blogPostId);
+        if (legacy != null) {
+            for (String uid : legacy) {
+                try {
+                    viewers.add(Long.parseLong(uid));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        viewers.removeIf(uid -> uid == null || uid < 0);
+        List<Long> userIds = new ArrayList<>(viewers);
+        for (int i = 0; i < userIds.size(); i += WARM_CHUNK_SIZE) {
+            List<Long> chunk = userIds.subList(i, Math.min(i + WARM_CHUNK_SIZE, userIds.size()));
+            redisTemplate.executePipelined((org.springframework.data.redis.core.RedisCallback<Object>) connection -> {
+                for (Long uid : chunk) {
+                    connection.stringCommands().setBit(
+                            seenChunkKey(blogPostId, uid).getBytes(java.nio.charset.StandardCharsets.UTF_8),
+                            uid % SEEN_CHUNK_BITS, true);
+                }
+                return null;
+            });
+            redisTemplate.opsForHyperLogLog().add(uvKey, chunk.stream().map(String::valueOf).toArray(String[]::new));
+        }
+        // 旧版本的 24 小时已浏览集合与整块位图不再需要
+        redisTemplate.delete(Arrays.asList(KEY_VIEWED_USERS_PREFIX + blogPostId, KEY_SEEN_VIEWERS_PREFIX + blogPostId));
+        redisTemplate.opsForSet().add(KEY_SEEN_VIEWERS_READY, blogPostId.toString());
+        logger.debug("Rebuilt seen-viewer bitmap for post {} with {} users", blogPostId, userIds.size());
+    }
+
+    /**
+     * 从待落库明细列表中收集该博客的浏览者
+     */
+    private void collectPendingViewers(Long blogPostId, Set<Long> viewers) {
+        Long size = redisTemplate.opsForList().size(KEY_PENDING_RECORDS);
+        long total = size != null ? size : 0L;
+        for (long from = 0; from < total; from += WARM_CHUNK_SIZE) {
+            List<String> page = redisTemplate.opsForList().range(KEY_PENDING_RECORDS, from, from + WARM_CHUNK_SIZE - 1);
+            if (page == null || page.isEmpty()) {
+                break;
+            }
+            for (String payload : page) {
+                BlogViewRecordIngester.ViewRecordRow row = blogViewRecordIngester.decode(payload);
+                if (row != null && row.blogPostId == blogPostId && row.userId != null) {
+                    viewers.add(row.userId);
+                }
+            }
+        }
+    }
+
+    private void deleteSeenChunks(Long blogPostId) {
+        Set<String> keys = new HashSet<>();
+        redisTemplate.execute((org.springframework.data.redis.core.RedisCallback<Object>) connection -> {
+            try (var cursor = connection.keyCommands().scan(org.springframework.data.redis.core.ScanOptions
+                    .scanOptions().match(KEY_SEEN_VIEWERS_PREFIX + blogPostId + ":*").count(1000).build())) {
+                cursor.forEachRemaining(k -> keys.add(new String(k, java.nio.charset.StandardCharsets.UTF_8)));
+            }
+            return null;
+        });
+        if (!keys.isEmpty()) {
+            redisTemplate.delete(keys);
+        }
+    }
+
+    /**
+     * 读取已落库的浏览量并缓存为基数，缓存带过期时间以便自愈。
+     * 读库前记下同步代数，读库期间若有同步提交（代数变化）则不写入，避免缓存提交前的旧值。
+     */
+    private long loadViewCountBase(Long blogPostId) {
+        String genKey = KEY_VIEW_COUNT_GEN_PREFIX + blogPostId;
+        String gen = redisTemplate.opsForValue().get(genKey);
+        long dbCount = blogViewStatsRepository.findByBlogPostId(blogPostId)
+                .map(BlogViewStats::getViewCount)
+                .orElse(0L);
+        redisTemplate.execute(SET_BASE_IF_GEN_SCRIPT,
+                Arrays.asList(KEY_VIEW_COUNT_BASE_PREFIX + blogPostId, genKey),
+                gen != null ? gen : "", String.valueOf(dbCount),
+                String.valueOf(TimeUnit.MINUTES.toMillis(VIEW_COUNT_BASE_TTL_MINUTES)));
+        return dbCount;
+    }
+
     @Override
     public void flushPendingViewCounts() {
         syncViewCounts();
@@ -227,79 +674,69 @@ public class BlogViewServiceImpl implements BlogViewService {
     }
 
     private void syncViewCounts() {
-        Set<String> pendingPosts = redisTemplate.opsForSet().members(KEY_PENDING_SYNC_POSTS);
-        if (pendingPosts == null || pendingPosts.isEmpty()) {
-            return;
-        }
-
-        for (String postIdStr : pendingPosts) {
-            // 先移除，防止处理期间又有新浏览导致丢失同步信号
-            redisTemplate.opsForSet().remove(KEY_PENDING_SYNC_POSTS, postIdStr);
-            try {
-                Long postId = Long.parseLong(postIdStr);
-                String deltaKey = KEY_VIEW_COUNT_DELTA_PREFIX + postId;
-
-                // 原子获取并删除（重置）
-                DefaultRedisScript<String> script = new DefaultRedisScript<>();
-                script.setScriptText(
-                        "local val = redis.call('GET', KEYS[1]); redis.call('DEL', KEYS[1]); return val;");
-                script.setResultType(String.class);
-                String deltaStr = redisTemplate.execute(script, Collections.singletonList(deltaKey));
-
-                if (deltaStr != null) {
-                    long delta = Long.parseLong(deltaStr);
-                    if (delta > 0) {
-                        // 使用事务模板确保 DB 操作的原子性
-                        transactionTemplate.executeWithoutResult(status -> {
-                            BlogViewStats stats = blogViewStatsRepository.findByBlogPostId(postId)
-                                    .orElseGet(() -> {
-                                        BlogViewStats s = new BlogViewStats();
-                                        s.setBlogPost(blogPostRepository.getReferenceById(postId));
-                                        s.setViewCount(0L);
-                                        return s;
-                                    });
-                            stats.setViewCount(stats.getViewCount() + delta);
-                            blogViewStatsRepository.save(stats);
-
-                            // 如果需要同步更新 BlogPost 表，可以在这里添加
-                            // blogPostRepository.updateViewCount(postId, stats.getViewCount());
-                        });
-                    }
-                }
-            } catch (Exception e) {
-                logger.error("Error syncing view stats for post " + postIdStr, e);
-                // 如果失败，尝试加回集合以便下次重试（可选）
-                redisTemplate.opsForSet().add(KEY_PENDING_SYNC_POSTS, postIdStr);
-            }
+        int synced = blogViewCountSyncer.syncPending();
+        if (synced > 0) {
+            logger.debug("Synced view counts for {} posts", synced);
         }
     }
 
     private void syncViewRecords() {
-        // 每次处理最多 100 条，防止长事务
-        for (int i = 0; i < 100; i++) {
-            String json = redisTemplate.opsForList().leftPop(KEY_PENDING_RECORDS);
-            if (json == null)
-                break;
+        int ingested = blogViewRecordIngester.drain();
+        if (ingested > 0) {
+            logger.debug("Ingested {} view records", ingested);
+        }
+    }
 
-            try {
-                BlogViewRecordDTO dto = objectMapper.readValue(json, BlogViewRecordDTO.class);
-                transactionTemplate.executeWithoutResult(status -> {
-                    BlogViewRecord record = new BlogViewRecord();
-                    record.setBlogPost(blogPostRepository.getReferenceById(dto.blogPostId));
-                    if (dto.userId != null) {
-                        record.setUser(userRepository.getReferenceById(dto.userId));
+    @Override
+    public java.util.Map<String, Object> getSyncMetrics() {
+        java.util.Map<String, Object> metrics = new java.util.LinkedHashMap<>();
+        java.util.Map<String, Object> counts = new java.util.LinkedHashMap<>();
+        int shards = clusterCoordinator.getShardCount();
+        List<Object> sizes = redisTemplate.executePipelined(
+                (org.springframework.data.redis.core.RedisCallback<Object>) connection -> {
+                    for (int s = 0; s < shards; s++) {
+                        connection.setCommands().sCard(pendingSyncKey(s).getBytes(java.nio.charset.StandardCharsets.UTF_8));
                     }
-                    record.setViewedAt(dto.viewedAt);
-                    blogViewRecordRepository.save(record);
+                    connection.setCommands().sCard(KEY_PENDING_SYNC_POSTS.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                    return null;
                 });
-            } catch (Exception e) {
-                logger.error("Error syncing view record: " + json, e);
-                // 可选：如果失败，可以将 json 重新 push 回队列（右侧），或者放入死信队列
-                // redisTemplate.opsForList().rightPush(KEY_PENDING_RECORDS, json);
+        long pending = 0L;
+        for (Object size : sizes) {
+            if (size instanceof Number) {
+                pending += ((Number) size).longValue();
             }
         }
-    } // 内部 DTO 用于序列化
+        counts.put("pendingPosts", pending);
+        counts.put("syncedTotal", blogViewCountSyncer.getSyncedPosts());
+        counts.put("requeuedTotal", blogViewCountSyncer.getRequeuedPosts());
+        counts.put("droppedTotal", blogViewCountSyncer.getDroppedPosts());
+        metrics.put("viewCounts", counts);
+        metrics.put("viewRecords", blogViewRecordIngester.getMetrics());
+        metrics.put("viewRollups", blogViewBucketStore.getMetrics());
+        metrics.put("localBuffer", blogViewLocalBuffer.getMetrics());
+        metrics.put("cluster", clusterCoordinator.getMetrics());
+        return metrics;
+    }
+
+    @Override
+    public ApiResponse<java.util.List<BlogViewTrendPointDTO>> getTrend(Long blogPostId, String granularity,
+            int points) {
+        if (blogPostId == null) {
+            return new ApiResponse<>(400, "blogPostId 不能为空", null);
+        }
+        return new ApiResponse<>(200, "获取成功", blogViewBucketStore.postTrend(blogPostId, granularity, points));
+    }
+
+    @Override
+    public ApiResponse<java.util.List<BlogViewTrendPointDTO>> getAuthorTrend(Long authorId, String granularity,
+            int points) {
+        if (authorId == null) {
+            return new ApiResponse<>(400, "authorId 不能为空", null);
+        }
+        return new ApiResponse<>(200, "获取成功", blogViewBucketStore.authorTrend(authorId, granularity, points));
+    }
 
+    // 旧版本以 JSON 写入明细，保留用于解码积压中的历史数据
     public static class BlogViewRecordDTO {
         public Long blogPostId;
         public Long userId;
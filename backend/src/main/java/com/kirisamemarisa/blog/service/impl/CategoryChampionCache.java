@@ -0,0 +1,271 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kirisamemarisa.blog.dto.BlogPostDTO;
+import com.kirisamemarisa.blog.dto.CategoryChampionsSnapshot;
+import com.kirisamemarisa.blog.model.Category;
+import com.kirisamemarisa.blog.repository.BlogPostRepository;
+import com.kirisamemarisa.blog.repository.CategoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 首页“各分类榜首”读模型。
+ * 快照整体序列化存于 Redis，各实例在内存中持有一份并直接返回；发文、改文、删文以及点赞/收藏计数落库时把分类标记为脏，
+ * 持有租约的实例只重算脏分类，另按 refresh-ms 全量重算一次（浏览量只影响并列排序，随全量刷新更新）。
+ * 其他实例通过比较 etag 拉取新快照。
+ */
+@Component
+public class CategoryChampionCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CategoryChampionCache.class);
+
+    // 首页固定展示的 12 个分类，顺序即展示顺序
+    static final List<String> CATEGORY_NAMES = Collections.unmodifiableList(Arrays.asList(
+            "知识", "生活", "游戏", "动漫", "动画", "娱乐",
+            "美食", "旅行", "电影", "音乐", "绘画", "随笔"));
+
+    private static final String KEY_SNAPSHOT = "blog:post:category_champions";
+    private static final String KEY_ETAG = "blog:post:category_champions:etag";
+    // 待重算的分类 id，互动计数落库时也会写入
+    static final String KEY_DIRTY = "blog:post:category_champions:dirty";
+    private static final String LEASE_NAME = "category-champions";
+    private static final long LEASE_TTL_MS = 30_000L;
+
+    private final BlogPostRepository blogPostRepository;
+    private final CategoryRepository categoryRepository;
+    private final BlogPostListEnricher blogPostListEnricher;
+    private final StringRedisTemplate redisTemplate;
+    private final ClusterCoordinator clusterCoordinator;
+    private final ObjectMapper objectMapper;
+
+    @Value("${blog.post.category-champions.refresh-ms:30000}")
+    private long refreshMs;
+
+    private volatile CategoryChampionsSnapshot current;
+
+    public CategoryChampionCache(BlogPostRepository blogPostRepository,
+            CategoryRepository categoryRepository,
+            BlogPostListEnricher blogPostListEnricher,
+            StringRedisTemplate redisTemplate,
+            ClusterCoordinator clusterCoordinator,
+            ObjectMapper objectMapper) {
+        this.blogPostRepository = blogPostRepository;
+        this.categoryRepository = categoryRepository;
+        this.blogPostListEnricher = blogPostListEnricher;
+        this.redisTemplate = redisTemplate;
+        this.clusterCoordinator = clusterCoordinator;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 当前快照。只有进程内尚无快照时才会访问 Redis 或数据库。
+     */
+    public CategoryChampionsSnapshot get() {
+        CategoryChampionsSnapshot snap = current;
+        if (snap != null) {
+            return snap;
+        }
+        synchronized (this) {
+            if (current == null) {
+                CategoryChampionsSnapshot shared = loadShared();
+                if (shared == null) {
+                    shared = build(null, Collections.emptySet());
+                    publish(shared);
+                }
+                current = shared;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * 标记分类榜首需要重算。处于事务中时提交后再标记，避免重算读到未提交前的数据。
+     */
+    public void markDirty(Category category) {
+        if (category == null || category.getId() == null) {
+            return;
+        }
+        String id = category.getId().toString();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addDirty(id);
+                }
+            });
+        } else {
+            addDirty(id);
+        }
+    }
+
+    private void addDirty(String categoryId) {
+        try {
+            redisTemplate.opsForSet().add(KEY_DIRTY, categoryId);
+        } catch (Exception e) {
+            logger.warn("Failed to mark category {} champion dirty: {}", categoryId, e.toString());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${blog.post.category-champions.check-interval-ms:2000}")
+    public void refresh() {
+        try {
+            CategoryChampionsSnapshot snap = current;
+            boolean due = snap == null || System.currentTimeMillis() - snap.getGeneratedAt() >= refreshMs;
+            Set<String> dirty = redisTemplate.opsForSet().members(KEY_DIRTY);
+            if (!due && (dirty == null || dirty.isEmpty())) {
+                syncFromShared();
+                return;
+            }
+            ClusterCoordinator.Lease lease = clusterCoordinator.tryAcquire(LEASE_NAME, LEASE_TTL_MS);
+            if (lease == null) {
+                syncFromShared();
+                return;
+            }
+            try {
+                Set<Long> dirtyIds = new HashSet<>();
+                if (dirty != null && !dirty.isEmpty()) {
+                    // 先移除再重算：重算期间新增的标记留到下一轮
+                    redisTemplate.opsForSet().remove(KEY_DIRTY, dirty.toArray());
+                    for (String s : dirty) {
+                        try {
+                            dirtyIds.add(Long.valueOf(s));
+                        } catch (NumberFormatException ignored) {
+                        }
+                    }
+                }
+                CategoryChampionsSnapshot next = build(due ? null : snap, dirtyIds);
+                publish(next);
+                current = next;
+            } finally {
+                clusterCoordinator.release(lease);
+            }
+        } catch (Exception e) {
+            logger.warn("Category champion refresh failed: {}", e.toString());
+        }
+    }
+
+    /**
+     * 按分类重算榜首。base 不为 null 时只重算 dirtyIds 中的分类，其余沿用 base。
+     */
+    private CategoryChampionsSnapshot build(CategoryChampionsSnapshot base, Set<Long> dirtyIds) {
+        Map<String, Category> categories = new HashMap<>();
+        for (Category c : categoryRepository.findByNameIn(CATEGORY_NAMES)) {
+            categories.put(c.getName(), c);
+        }
+        boolean incremental = base != null && base.getPosts() != null
+                && base.getPosts().size() == CATEGORY_NAMES.size();
+
+        List<BlogPostDTO> posts = new ArrayList<>(CATEGORY_NAMES.size());
+        Map<Integer, Long> toLoad = new LinkedHashMap<>();
+        for (int i = 0; i < CATEGORY_NAMES.size(); i++) {
+            String name = CATEGORY_NAMES.get(i);
+            Category category = categories.get(name);
+            if (category == null) {
+                posts.add(placeholder(name, -1L * name.hashCode()));
+            } else if (incremental && !dirtyIds.contains(category.getId())) {
+                posts.add(base.getPosts().get(i));
+            } else {
+                List<Long> top = blogPostRepository.findTopIdsByCategory(category, PageRequest.of(0, 1));
+                if (top.isEmpty()) {
+                    posts.add(placeholder(name, -1L * category.getId()));
+                } else {
+                    toLoad.put(i, top.get(0));
+                    posts.add(null);
+                }
+            }
+        }
+        if (!toLoad.isEmpty()) {
+            Map<Long, BlogPostDTO> cards = new HashMap<>();
+            for (BlogPostDTO dto : blogPostListEnricher.toDTOs(new ArrayList<>(toLoad.values()), null)) {
+                cards.put(dto.getId(), dto);
+            }
+            for (Map.Entry<Integer, Long> e : toLoad.entrySet()) {
+                BlogPostDTO dto = cards.get(e.getValue());
+                posts.set(e.getKey(), dto != null ? dto : placeholder(CATEGORY_NAMES.get(e.getKey()), -e.getValue()));
+            }
+        }
+        List<BlogPostDTO> frozen = Collections.unmodifiableList(posts);
+        return new CategoryChampionsSnapshot(frozen, etagOf(frozen), System.currentTimeMillis());
+    }
+
+    private String etagOf(List<BlogPostDTO> posts) {
+        try {
+            return DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(posts));
+        } catch (Exception e) {
+            return Long.toHexString(System.nanoTime());
+        }
+    }
+
+    private void publish(CategoryChampionsSnapshot snap) {
+        try {
+            redisTemplate.opsForValue().set(KEY_SNAPSHOT, objectMapper.writeValueAsString(snap));
+            redisTemplate.opsForValue().set(KEY_ETAG, snap.getEtag());
+        } catch (Exception e) {
+            logger.warn("Failed to publish category champion snapshot: {}", e.toString());
+        }
+    }
+
+    private CategoryChampionsSnapshot loadShared() {
+        try {
+            String raw = redisTemplate.opsForValue().get(KEY_SNAPSHOT);
+            if (raw == null) {
+                return null;
+            }
+            CategoryChampionsSnapshot snap = objectMapper.readValue(raw, CategoryChampionsSnapshot.class);
+            if (snap.getPosts() == null || snap.getPosts().size() != CATEGORY_NAMES.size()) {
+                return null;
+            }
+            snap.setPosts(Collections.unmodifiableList(snap.getPosts()));
+            return snap;
+        } catch (Exception e) {
+            logger.warn("Failed to load category champion snapshot: {}", e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * 只比较 etag，变化时才拉取整份快照
+     */
+    private void syncFromShared() {
+        CategoryChampionsSnapshot snap = current;
+        String etag = redisTemplate.opsForValue().get(KEY_ETAG);
+        if (etag == null || (snap != null && etag.equals(snap.getEtag()))) {
+            return;
+        }
+        CategoryChampionsSnapshot shared = loadShared();
+        if (shared != null) {
+            current = shared;
+        }
+    }
+
+    private static BlogPostDTO placeholder(String categoryName, Long id) {
+        BlogPostDTO dummy = new BlogPostDTO();
+        dummy.setId(id);
+        dummy.setTitle("虚位以待");
+        dummy.setCategoryName(categoryName);
+        dummy.setCoverImageUrl("");
+        dummy.setAuthorNickname("系统");
+        dummy.setLikeCount(0L);
+        return dummy;
+    }
+}
@@ -0,0 +1,251 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * 多实例下后台任务的协调。
+ * 1. 成员：各实例定期在 blog:cluster:members 有序集合中心跳，超时未心跳的被剔除；
+ * 2. 分片：博客按 id 取模分到固定数量的分片，分片归属按最高随机权重（rendezvous hashing）在存活成员间分配，
+ * 成员变化时只有少量分片迁移；
+ * 3. 租约：只应由一个实例执行的任务通过带 fencing token 的租约互斥，token 单调递增，
+ * 写入方可据此拒绝已过期的持有者。
+ */
+@Component
+public class ClusterCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterCoordinator.class);
+
+    static final String KEY_MEMBERS = "blog:cluster:members";
+    static final String KEY_LEASE_PREFIX = "blog:cluster:lease:";
+    private static final String KEY_FENCE_PREFIX = "blog:cluster:fence:";
+
+    /**
+     * 心跳并返回存活成员。
+     * KEYS: 1 成员集合
+     * ARGV: 1 实例 id, 2 成员超时毫秒
+     */
+    private static final DefaultRedisScript<List> HEARTBEAT_SCRIPT = new DefaultRedisScript<>(
+            "local t = redis.call('TIME') " +
+            "local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000) " +
+            "redis.call('ZADD', KEYS[1], now, ARGV[1]) " +
+            "redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - tonumber(ARGV[2])) " +
+            "return redis.call('ZRANGE', KEYS[1], 0, -1)",
+            List.class);
+
+    /**
+     * 获取租约：成功时递增 fencing token 并写入 “实例 id:token”。
+     * KEYS: 1 租约 key, 2 token 计数器
+     * ARGV: 1 实例 id, 2 租期毫秒
+     * 返回: token，已被占用时返回 -1
+     */
+    private static final DefaultRedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return -1 end " +
+            "local token = redis.call('INCR', KEYS[2]) " +
+            "redis.call('SET', KEYS[1], ARGV[1] .. ':' .. token, 'PX', ARGV[2]) " +
+            "return token",
+            Long.class);
+
+    /**
+     * 仅当租约仍由自己持有时释放
+     * KEYS: 1 租约 key
+     * ARGV: 1 租约值
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String instanceId;
+
+    @Value("${blog.cluster.shards:16}")
+    private int shardCount;
+
+    @Value("${blog.cluster.member-ttl-ms:15000}")
+    private long memberTtlMs;
+
+    private volatile List<String> members = Collections.emptyList();
+    // 尚未成功心跳（如 Redis 不可用）时视为单实例，拥有全部分片
+    private volatile Set<Integer> ownedShards;
+
+    public ClusterCoordinator(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        this.instanceId = host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public int getShardCount() {
+        return Math.max(1, shardCount);
+    }
+
+    public int shardOf(long blogPostId) {
+        return (int) Math.floorMod(blogPostId, (long) getShardCount());
+    }
+
+    public Set<Integer> ownedShards() {
+        Set<Integer> owned = ownedShards;
+        if (owned == null) {
+            Set<Integer> all = new TreeSet<>();
+            for (int s = 0; s < getShardCount(); s++) {
+                all.add(s);
+            }
+            return all;
+        }
+        return owned;
+    }
+
+    @Scheduled(fixedDelayString = "${blog.cluster.heartbeat-ms:3000}")
+    public void heartbeat() {
+        try {
+            List<Object> live = redisTemplate.execute(HEARTBEAT_SCRIPT, Collections.singletonList(KEY_MEMBERS),
+                    instanceId, String.valueOf(memberTtlMs));
+            List<String> current = new ArrayList<>();
+            if (live != null) {
+                for (Object m : live) {
+                    current.add(String.valueOf(m));
+                }
+            }
+            if (!current.contains(instanceId)) {
+                current.add(instanceId);
+            }
+            Collections.sort(current);
+            if (!current.equals(members) || ownedShards == null) {
+                Set<Integer> owned = assign(current);
+                logger.info("Cluster membership {} -> instance {} owns shards {}", current, instanceId, owned);
+                members = current;
+                ownedShards = owned;
+            }
+        } catch (Exception e) {
+            logger.warn("Cluster heartbeat failed: {}", e.toString());
+        }
+    }
+
+    @PreDestroy
+    public void leave() {
+        try {
+            redisTemplate.opsForZSet().remove(KEY_MEMBERS, instanceId);
+        } catch (Exception e) {
+            logger.debug("Failed to leave cluster membership: {}", e.toString());
+        }
+    }
+
+    private Set<Integer> assign(List<String> live) {
+        Set<Integer> owned = new TreeSet<>();
+        for (int shard = 0; shard < getShardCount(); shard++) {
+            String owner = null;
+            long best = Long.MIN_VALUE;
+            for (String m : live) {
+                long w = weight(m, shard);
+                if (owner == null || w > best) {
+                    best = w;
+                    owner = m;
+                }
+            }
+            if (instanceId.equals(owner)) {
+                owned.add(shard);
+            }
+        }
+        return owned;
+    }
+
+    // 各实例上结果一致的成员-分片权重（String.hashCode 与 SplitMix64 混合）
+    private static long weight(String member, int shard) {
+        long z = member.hashCode() * 0x9E3779B97F4A7C15L + shard;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 尝试获取租约
+     *
+     * @return 成功时返回租约，已被其他实例持有或 Redis 异常时返回 null
+     */
+    public Lease tryAcquire(String name, long ttlMs) {
+        try {
+            Long token = redisTemplate.execute(ACQUIRE_SCRIPT,
+                    Arrays.asList(KEY_LEASE_PREFIX + name, KEY_FENCE_PREFIX + name),
+                    instanceId, String.valueOf(ttlMs));
+            if (token == null || token < 0) {
+                return null;
+            }
+            return new Lease(KEY_LEASE_PREFIX + name, instanceId + ":" + token, token);
+        } catch (Exception e) {
+            logger.warn("Failed to acquire lease {}: {}", name, e.toString());
+            return null;
+        }
+    }
+
+    public void release(Lease lease) {
+        if (lease == null) {
+            return;
+        }
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(lease.getKey()), lease.getValue());
+        } catch (Exception e) {
+            logger.warn("Failed to release lease {}: {}", lease.getKey(), e.toString());
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("instanceId", instanceId);
+        metrics.put("members", members);
+        metrics.put("shardCount", getShardCount());
+        metrics.put("ownedShards", ownedShards());
+        return metrics;
+    }
+
+    /**
+     * 租约。value 为 “实例 id:token”，写入脚本可比对租约 key 的当前值来拒绝过期持有者。
+     */
+    public static final class Lease {
+        private final String key;
+        private final String value;
+        private final long token;
+
+        Lease(String key, String value, long token) {
+            this.key = key;
+            this.value = value;
+            this.token = token;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public long getToken() {
+            return token;
+        }
+    }
+}
@@ -17,6 +17,7 @@ import com.kirisamemarisa.blog.repository.CommentRepository;
 import com.kirisamemarisa.blog.repository.UserProfileRepository;
 import com.kirisamemarisa.blog.repository.UserRepository;
 import com.kirisamemarisa.blog.service.CommentReplyService;
+import com.kirisamemarisa.blog.service.EngagementCounterService;
 import com.kirisamemarisa.blog.service.NotificationService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -40,6 +41,7 @@ public class CommentReplyServiceImpl implements CommentReplyService {
     private final UserProfileRepository userProfileRepository;
     private final CommentReplyMapper replyMapper;
     private final NotificationService notificationService;
+    private final EngagementCounterService engagementCounterService;
 
     public CommentReplyServiceImpl(CommentReplyRepository replyRepository,
                                    CommentReplyLikeRepository replyLikeRepository,
@@ -47,7 +49,8 @@ public class CommentReplyServiceImpl implements CommentReplyService {
                                    UserRepository userRepository,
                                    UserProfileRepository userProfileRepository,
                                    CommentReplyMapper replyMapper,
-                                   NotificationService notificationService) {
+                                   NotificationService notificationService,
+                                   EngagementCounterService engagementCounterService) {
         this.replyRepository = replyRepository;
         this.replyLikeRepository = replyLikeRepository;
         this.commentRepository = commentRepository;
@@ -55,6 +58,7 @@ public class CommentReplyServiceImpl implements CommentReplyService {
         this.userProfileRepository = userProfileRepository;
         this.replyMapper = replyMapper;
         this.notificationService = notificationService;
+        this.engagementCounterService = engagementCounterService;
     }
 
     @Override
@@ -145,6 +149,11 @@ public class CommentReplyServiceImpl implements CommentReplyService {
             return dto;
         }).collect(Collectors.toList());
 
+        // 叠加尚未落库的点赞增量
+        engagementCounterService.mergePending(EngagementCounterService.REPLY, dtoList, CommentReplyDTO::getId,
+                List.of(EngagementCounterService.CounterField.of(EngagementCounterService.LIKES,
+                        CommentReplyDTO::getLikeCount, CommentReplyDTO::setLikeCount)));
+
         return new PageResult<>(dtoList, replyPage.getTotalElements(), page, size);
     }
 
@@ -175,16 +184,16 @@ public class CommentReplyServiceImpl implements CommentReplyService {
         Optional<CommentReplyLike> likeOpt = replyLikeRepository.findByReplyIdAndUserId(replyId, userId);
         if (likeOpt.isPresent()) {
             replyLikeRepository.delete(likeOpt.get());
-            reply.setLikeCount(Math.max(0, reply.getLikeCount() - 1));
-            replyRepository.save(reply);
+            engagementCounterService.increment(EngagementCounterService.REPLY, replyId,
+                    EngagementCounterService.LIKES, -1);
             return new ApiResponse<>(200, "取消点赞", false);
         } else {
             CommentReplyLike like = new CommentReplyLike();
             like.setReply(reply);
             like.setUser(userRepository.findById(userId).orElse(null));
             replyLikeRepository.save(like);
-            reply.setLikeCount(reply.getLikeCount() + 1);
-            replyRepository.save(reply);
+            engagementCounterService.increment(EngagementCounterService.REPLY, replyId,
+                    EngagementCounterService.LIKES, 1);
 
             // 楼中楼被点赞通知
                         try {
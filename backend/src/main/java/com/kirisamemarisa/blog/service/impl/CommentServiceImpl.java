@@ -20,7 +20,9 @@ import com.kirisamemarisa.blog.repository.CommentReplyRepository;
 import com.kirisamemarisa.blog.repository.UserProfileRepository;
 import com.kirisamemarisa.blog.repository.UserRepository;
 import com.kirisamemarisa.blog.service.CommentService;
+import com.kirisamemarisa.blog.service.EngagementCounterService;
 import com.kirisamemarisa.blog.service.NotificationService;
+import com.kirisamemarisa.blog.service.PostLeaderboardService;
 import com.kirisamemarisa.blog.dto.NotificationDTO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -35,6 +37,10 @@ import java.util.Optional;
 @Service
 public class CommentServiceImpl implements CommentService {
     private static final Logger logger = LoggerFactory.getLogger(CommentServiceImpl.class);
+
+    private static final List<EngagementCounterService.CounterField<CommentDTO>> COMMENT_LIKES = List.of(
+            EngagementCounterService.CounterField.of(EngagementCounterService.LIKES,
+                    CommentDTO::getLikeCount, CommentDTO::setLikeCount));
     @Autowired
     private CommentRepository commentRepository;
     @Autowired
@@ -51,6 +57,10 @@ public class CommentServiceImpl implements CommentService {
     private CommentReplyRepository commentReplyRepository;
     @Autowired(required = false)
     private NotificationService notificationService;
+    @Autowired
+    private PostLeaderboardService postLeaderboardService;
+    @Autowired
+    private EngagementCounterService engagementCounterService;
 
     @Override
     @Transactional
@@ -59,7 +69,7 @@ public class CommentServiceImpl implements CommentService {
                 || dto.getContent().trim().isEmpty()) {
             return new ApiResponse<>(400, "参数不完整", null);
         }
-        Optional<BlogPost> blogPostOpt = blogPostRepository.findById(dto.getBlogPostId());
+        Optional<BlogPost> blogPostOpt = blogPostRepository.findByIdAndDeletedFalse(dto.getBlogPostId());
         Optional<User> userOpt = userRepository.findById(dto.getUserId());
         if (blogPostOpt.isEmpty() || userOpt.isEmpty()) {
             return new ApiResponse<>(404, "博客或用户不存在", null);
@@ -71,8 +81,9 @@ public class CommentServiceImpl implements CommentService {
         commentRepository.save(comment);
         // 更新博客评论数
         BlogPost blogPost = blogPostOpt.get();
-        blogPost.setCommentCount(blogPost.getCommentCount() + 1);
-        blogPostRepository.save(blogPost);
+        engagementCounterService.increment(EngagementCounterService.POST, blogPost.getId(),
+                EngagementCounterService.COMMENTS, 1);
+        postLeaderboardService.increment(blogPost.getId(), PostLeaderboardService.COMMENTS, 1);
 
         // 通知文章作者“收到评论”
         try {
@@ -88,15 +99,7 @@ public class CommentServiceImpl implements CommentService {
                     n.setCreatedAt(Instant.now());
                     n.setReferenceId(blogPost.getId()); // 文章ID
                     n.setReferenceExtraId(comment.getId()); // 评论ID
-
-                    // 填充发送者信息
-                    UserProfile up = userProfileRepository.findById(commenterId).orElse(null);
-                    String nickname = (up != null && up.getNickname() != null) ? up.getNickname()
-                            : comment.getUser().getUsername();
-                    String avatar = (up != null) ? up.getAvatarUrl() : null;
-                    n.setSenderNickname(nickname);
-                    n.setSenderAvatarUrl(avatar);
-
+                    // 发送者昵称与头像由通知投递时批量补齐
                     notificationService.sendNotification(ownerId, n);
                 }
             }
@@ -130,7 +133,7 @@ public class CommentServiceImpl implements CommentService {
         for (UserProfile profile : profiles) {
             profileMap.put(profile.getUser().getId(), profile);
         }
-        return comments.stream().map(comment -> {
+        List<CommentDTO> dtos = comments.stream().map(comment -> {
             CommentDTO dto = commentMapper.toDTO(comment);
             dto.setReplyCount(replyCountMap.getOrDefault(comment.getId(), 0L));
             if (currentUserId != null) {
@@ -146,6 +149,8 @@ public class CommentServiceImpl implements CommentService {
             }
             return dto;
         }).collect(java.util.stream.Collectors.toList());
+        applyPendingLikes(dtos);
+        return dtos;
     }
 
     @Override
@@ -190,6 +195,7 @@ public class CommentServiceImpl implements CommentService {
             }
             return dto;
         }).collect(java.util.stream.Collectors.toList());
+        applyPendingLikes(dtoList);
         return new PageResult<>(dtoList, commentPage.getTotalElements(), page, size);
     }
 
@@ -207,8 +213,9 @@ public class CommentServiceImpl implements CommentService {
         commentRepository.delete(comment);
         // 更新博客评论数
         BlogPost blogPost = comment.getBlogPost();
-        blogPost.setCommentCount(Math.max(0, blogPost.getCommentCount() - 1));
-        blogPostRepository.save(blogPost);
+        engagementCounterService.increment(EngagementCounterService.POST, blogPost.getId(),
+                EngagementCounterService.COMMENTS, -1);
+        postLeaderboardService.increment(blogPost.getId(), PostLeaderboardService.COMMENTS, -1);
         return new ApiResponse<>(200, "删除成功", true);
     }
 
@@ -222,16 +229,16 @@ public class CommentServiceImpl implements CommentService {
         Comment comment = commentOpt.get();
         if (likeOpt.isPresent()) {
             commentLikeRepository.delete(likeOpt.get());
-            comment.setLikeCount(Math.max(0, comment.getLikeCount() - 1));
-            commentRepository.save(comment);
+            engagementCounterService.increment(EngagementCounterService.COMMENT, commentId,
+                    EngagementCounterService.LIKES, -1);
             return new ApiResponse<>(200, "取消点赞", false);
         } else {
             CommentLike like = new CommentLike();
             like.setComment(comment);
             like.setUser(userRepository.findById(userId).orElse(null));
             commentLikeRepository.save(like);
-            comment.setLikeCount(comment.getLikeCount() + 1);
-            commentRepository.save(comment);
+            engagementCounterService.increment(EngagementCounterService.COMMENT, commentId,
+                    EngagementCounterService.LIKES, 1);
 
             // 评论被点赞通知
             try {
@@ -247,14 +254,7 @@ public class CommentServiceImpl implements CommentService {
                         n.setCreatedAt(Instant.now());
                         n.setReferenceId(comment.getBlogPost() != null ? comment.getBlogPost().getId() : null);
                         n.setReferenceExtraId(comment.getId());
-
-                        // 填充发送者信息
-                        UserProfile up = userProfileRepository.findById(likerId).orElse(null);
-                        String nickname = (up != null && up.getNickname() != null) ? up.getNickname() : "有人";
-                        String avatar = (up != null) ? up.getAvatarUrl() : null;
-                        n.setSenderNickname(nickname);
-                        n.setSenderAvatarUrl(avatar);
-
+                        // 发送者昵称与头像由通知投递时批量补齐
                         notificationService.sendNotification(authorId, n);
                     }
                 }
@@ -295,6 +295,13 @@ public class CommentServiceImpl implements CommentService {
             dto.setNickname(profile.getNickname());
             dto.setAvatarUrl(profile.getAvatarUrl());
         }
+        applyPendingLikes(List.of(dto));
         return dto;
     }
+
+    // 叠加尚未落库的点赞增量
+    private void applyPendingLikes(List<CommentDTO> dtos) {
+        engagementCounterService.mergePending(EngagementCounterService.COMMENT, dtos, CommentDTO::getId,
+                COMMENT_LIKES);
+    }
 }
\ No newline at end of file
@@ -4,6 +4,8 @@ import com.kirisamemarisa.blog.common.BusinessException;
 import com.kirisamemarisa.blog.config.CosProperties;
 import com.kirisamemarisa.blog.service.FileStorageService;
 import com.qcloud.cos.COSClient;
+import com.qcloud.cos.exception.MultiObjectDeleteException;
+import com.qcloud.cos.model.DeleteObjectsRequest;
 import com.qcloud.cos.model.ObjectMetadata;
 import com.qcloud.cos.model.PutObjectRequest;
 import org.slf4j.Logger;
@@ -14,6 +16,10 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.UUID;
 
 import com.qcloud.cos.http.HttpMethodName;
@@ -26,6 +32,8 @@ import java.util.Map;
 public class CosStorageServiceImpl implements FileStorageService {
 
     private static final Logger logger = LoggerFactory.getLogger(CosStorageServiceImpl.class);
+    // COS 批量删除单次请求的 key 上限
+    private static final int MAX_DELETE_KEYS = 1000;
 
     private final COSClient cosClient;
     private final CosProperties cosProperties;
@@ -143,22 +151,8 @@ public class CosStorageServiceImpl implements FileStorageService {
         if (fileUrl == null || fileUrl.isEmpty()) {
             return;
         }
-        // 提取 Key
-        // 假设 fileUrl 可能是完整 URL (https://...) 或相对路径 (/sources/...) 或 key (sources/...)
-        String key = fileUrl;
-        if (key.startsWith("http")) {
-            // 尝试从 URL 中提取 key
-            // 简单做法：找到 /sources/ 之后的部分
-            int index = key.indexOf("/sources/");
-            if (index != -1) {
-                key = key.substring(index + 1); // 去掉前面的部分，保留 sources/...
-            }
-        } else if (key.startsWith("/")) {
-            key = key.substring(1);
-        }
-
-        // 再次确认 key 是否以 sources/ 开头 (根据当前存储结构)
-        if (!key.startsWith("sources/")) {
+        String key = toKey(fileUrl);
+        if (key == null) {
             logger.warn("尝试删除非 sources 目录下的文件或无法解析 Key: {}", fileUrl);
             return;
         }
@@ -172,6 +166,67 @@ public class CosStorageServiceImpl implements FileStorageService {
         }
     }
 
+    /**
+     * 使用批量删除接口，每次请求最多 1000 个 key
+     */
+    @Override
+    public List<String> deleteFiles(Collection<String> fileUrls) {
+        List<String> failed = new ArrayList<>();
+        Map<String, String> byKey = new LinkedHashMap<>();
+        for (String fileUrl : fileUrls) {
+            String key = fileUrl == null ? null : toKey(fileUrl);
+            if (key == null) {
+                // 无法解析的地址重试也不会成功，按已处理丢弃
+                logger.warn("尝试删除非 sources 目录下的文件或无法解析 Key: {}", fileUrl);
+                continue;
+            }
+            byKey.putIfAbsent(key, fileUrl);
+        }
+        List<String> keys = new ArrayList<>(byKey.keySet());
+        for (int from = 0; from < keys.size(); from += MAX_DELETE_KEYS) {
+            List<String> chunk = keys.subList(from, Math.min(from + MAX_DELETE_KEYS, keys.size()));
+            DeleteObjectsRequest request = new DeleteObjectsRequest(cosProperties.getBucketName())
+                    .withQuiet(true)
+                    .withKeys(chunk.toArray(new String[0]));
+            try {
+                cosClient.deleteObjects(request);
+            } catch (MultiObjectDeleteException e) {
+                for (MultiObjectDeleteException.DeleteError error : e.getErrors()) {
+                    logger.warn("删除 COS 文件失败: {} ({})", error.getKey(), error.getCode());
+                    String fileUrl = byKey.get(error.getKey());
+                    if (fileUrl != null) {
+                        failed.add(fileUrl);
+                    }
+                }
+            } catch (Exception e) {
+                logger.warn("批量删除 COS 文件失败 ({} 个): {}", chunk.size(), e.toString());
+                for (String key : chunk) {
+                    failed.add(byKey.get(key));
+                }
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * fileUrl 可能是完整 URL (https://...)、相对路径 (/sources/...) 或 key (sources/...)
+     *
+     * @return sources/ 开头的 key，无法解析时返回 null
+     */
+    private String toKey(String fileUrl) {
+        String key = fileUrl;
+        if (key.startsWith("http")) {
+            // 找到 /sources/ 之后的部分
+            int index = key.indexOf("/sources/");
+            if (index != -1) {
+                key = key.substring(index + 1); // 去掉前面的部分，保留 sources/...
+            }
+        } else if (key.startsWith("/")) {
+            key = key.substring(1);
+        }
+        return key.startsWith("sources/") ? key : null;
+    }
+
     private String generateFileName(MultipartFile file) {
         String originalFilename = file.getOriginalFilename();
         String ext = "";
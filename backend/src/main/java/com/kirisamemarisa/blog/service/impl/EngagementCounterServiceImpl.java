@@ -0,0 +1,369 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.service.EngagementCounterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 互动计数的 Redis 增量与批量落库。
+ * 每个实体一个 Hash（计数项 → 增量），有增量的实体登记在待落库集合中。
+ * 落库与浏览量同步相同：脚本一次取走一块增量，在一个事务里以 JDBC 批量增量 UPDATE 写入，失败时整块放回 Redis。
+ * 实体的计数列不可由 JPA 更新，数据库中的值只由这里改变。
+ */
+@Service
+public class EngagementCounterServiceImpl implements EngagementCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EngagementCounterServiceImpl.class);
+
+    static final String KEY_PREFIX = "blog:counter:";
+    static final String KEY_DIRTY = "blog:counter:dirty";
+    private static final String LEASE_NAME = "counter-flush";
+    private static final long LEASE_TTL_MS = 60_000L;
+
+    // 各实体的表与 {计数项, 列名}
+    private static final Map<String, String> TABLES = Map.of(
+            POST, "blog_post",
+            COMMENT, "comment",
+            REPLY, "comment_reply");
+    private static final Map<String, List<String[]>> COLUMNS = Map.of(
+            POST, Arrays.asList(
+                    new String[] { LIKES, "like_count" },
+                    new String[] { FAVORITES, "favorite_count" },
+                    new String[] { SHARES, "share_count" },
+                    new String[] { COMMENTS, "comment_count" }),
+            COMMENT, Collections.singletonList(new String[] { LIKES, "like_count" }),
+            REPLY, Collections.singletonList(new String[] { LIKES, "like_count" }));
+
+    /**
+     * KEYS: 1 实体 Hash, 2 待落库集合
+     * ARGV: 1 计数项, 2 增量, 3 集合成员（type:id）
+     */
+    private static final DefaultRedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "local v = redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2]) " +
+            "if v == 0 then redis.call('HDEL', KEYS[1], ARGV[1]) end " +
+            "redis.call('SADD', KEYS[2], ARGV[3]) " +
+            "return v",
+            Long.class);
+
+    /**
+     * SPOP count 取出一块实体，并取走各自的全部增量。
+     * KEYS: 1 待落库集合
+     * ARGV: 1 块大小, 2 Hash 前缀
+     * 返回: 扁平数组 {成员, 计数项, 增量, ...}，增量为 0 的项不返回
+     */
+    private static final DefaultRedisScript<List> DRAIN_CHUNK_SCRIPT = new DefaultRedisScript<>(
+            "local members = redis.call('SPOP', KEYS[1], tonumber(ARGV[1])) " +
+            "local out = {} " +
+            "for _, m in ipairs(members) do " +
+            "  local k = ARGV[2] .. m " +
+            "  local h = redis.call('HGETALL', k) " +
+            "  redis.call('DEL', k) " +
+            "  for i = 1, #h, 2 do " +
+            "    if tonumber(h[i + 1]) ~= 0 then " +
+            "      table.insert(out, m) table.insert(out, h[i]) table.insert(out, h[i + 1]) " +
+            "    end " +
+            "  end " +
+            "end " +
+            "return out",
+            List.class);
+
+    /**
+     * 把落库失败的增量放回 Redis，与 DRAIN_CHUNK_SCRIPT 对称。
+     * KEYS: 1 待落库集合
+     * ARGV: 1 Hash 前缀, 2.. {成员, 计数项, 增量} 三元组
+     */
+    private static final DefaultRedisScript<Long> RESTORE_CHUNK_SCRIPT = new DefaultRedisScript<>(
+            "for i = 2, #ARGV, 3 do " +
+            "  redis.call('HINCRBY', ARGV[1] .. ARGV[i], ARGV[i + 1], ARGV[i + 2]) " +
+            "  redis.call('SADD', KEYS[1], ARGV[i]) " +
+            "end " +
+            "return (#ARGV - 1) / 3",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ClusterCoordinator clusterCoordinator;
+    private final PostDetailCache postDetailCache;
+
+    private final AtomicLong flushedEntities = new AtomicLong();
+    private final AtomicLong requeuedEntities = new AtomicLong();
+    private volatile long lastFlushAt;
+    private volatile long lastFlushMs;
+
+    @Value("${blog.counter.chunk-size:500}")
+    private int chunkSize;
+
+    // 单次落库最多处理的块数，防止积压过大时阻塞调度线程
+    @Value("${blog.counter.max-chunks-per-run:100}")
+    private int maxChunksPerRun;
+
+    public EngagementCounterServiceImpl(StringRedisTemplate redisTemplate,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ClusterCoordinator clusterCoordinator,
+            PostDetailCache postDetailCache) {
+        this.redisTemplate = redisTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clusterCoordinator = clusterCoordinator;
+        this.postDetailCache = postDetailCache;
+    }
+
+    @Override
+    public void increment(String type, Long id, String metric, long delta) {
+        if (id == null || delta == 0 || !TABLES.containsKey(type)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    incrementNow(type, id, metric, delta);
+                }
+            });
+        } else {
+            incrementNow(type, id, metric, delta);
+        }
+    }
+
+    private void incrementNow(String type, Long id, String metric, long delta) {
+        String member = type + ":" + id;
+        try {
+            redisTemplate.execute(INCREMENT_SCRIPT, Arrays.asList(KEY_PREFIX + member, KEY_DIRTY),
+                    metric, String.valueOf(delta), member);
+        } catch (Exception e) {
+            // Redis 不可用时直接写库，保证计数不丢
+            logger.warn("Counter increment for {} {} fell back to database: {}", member, metric, e.toString());
+            Map<String, Long> one = Collections.singletonMap(metric, delta);
+            update(type, Collections.singletonMap(id, one));
+        }
+    }
+
+    @Override
+    public Map<Long, Map<String, Long>> pendingDeltas(String type, Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Long> idList = new ArrayList<>(new LinkedHashSet<>(ids));
+        idList.remove(null);
+        List<Object> hashes;
+        try {
+            hashes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                for (Long id : idList) {
+                    conn.hGetAll(KEY_PREFIX + type + ":" + id);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn("Failed to read pending counters: {}", e.toString());
+            return Collections.emptyMap();
+        }
+        Map<Long, Map<String, Long>> result = new HashMap<>();
+        for (int i = 0; i < idList.size() && i < hashes.size(); i++) {
+            if (!(hashes.get(i) instanceof Map<?, ?> hash) || hash.isEmpty()) {
+                continue;
+            }
+            Map<String, Long> deltas = new HashMap<>();
+            for (Map.Entry<?, ?> e : hash.entrySet()) {
+                try {
+                    long v = Long.parseLong(String.valueOf(e.getValue()));
+                    if (v != 0) {
+                        deltas.put(String.valueOf(e.getKey()), v);
+                    }
+                } catch (NumberFormatException ignored) {
+                }
+            }
+            if (!deltas.isEmpty()) {
+                result.put(idList.get(i), deltas);
+            }
+        }
+        return result;
+    }
+
+    @Scheduled(initialDelayString = "${blog.counter.flush-interval-ms:5000}",
+            fixedDelayString = "${blog.counter.flush-interval-ms:5000}")
+    public void scheduledFlush() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.warn("Counter flush failed: {}", e.toString());
+        }
+    }
+
+    @Override
+    public int flush() {
+        ClusterCoordinator.Lease lease = clusterCoordinator.tryAcquire(LEASE_NAME, LEASE_TTL_MS);
+        if (lease == null) {
+            return 0;
+        }
+        long started = System.currentTimeMillis();
+        int flushed = 0;
+        try {
+            for (int chunks = 0; chunks < maxChunksPerRun; chunks++) {
+                Long remaining = redisTemplate.opsForSet().size(KEY_DIRTY);
+                if (remaining == null || remaining == 0) {
+                    break;
+                }
+                flushed += flushChunk();
+            }
+        } finally {
+            clusterCoordinator.release(lease);
+        }
+        lastFlushAt = System.currentTimeMillis();
+        lastFlushMs = lastFlushAt - started;
+        return flushed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int flushChunk() {
+        List<Object> flat = redisTemplate.execute(DRAIN_CHUNK_SCRIPT, Collections.singletonList(KEY_DIRTY),
+                String.valueOf(chunkSize), KEY_PREFIX);
+        if (flat == null || flat.isEmpty()) {
+            return 0;
+        }
+        // type → id → (计数项 → 增量)
+        Map<String, Map<Long, Map<String, Long>>> byType = new LinkedHashMap<>();
+        for (int i = 0; i + 2 < flat.size(); i += 3) {
+            String member = flat.get(i).toString();
+            int sep = member.indexOf(':');
+            try {
+                String type = member.substring(0, sep);
+                Long id = Long.valueOf(member.substring(sep + 1));
+                long delta = Long.parseLong(flat.get(i + 2).toString());
+                byType.computeIfAbsent(type, k -> new LinkedHashMap<>())
+                        .computeIfAbsent(id, k -> new HashMap<>())
+                        .merge(flat.get(i + 1).toString(), delta, Long::sum);
+            } catch (RuntimeException e) {
+                logger.warn("Skipping malformed pending counter: {} {}={}", member, flat.get(i + 1), flat.get(i + 2));
+            }
+        }
+        int entities = 0;
+        for (Map<Long, Map<String, Long>> rows : byType.values()) {
+            entities += rows.size();
+        }
+        try {
+            // 已删除的实体 UPDATE 不命中任何行，增量随之丢弃
+            transactionTemplate.executeWithoutResult(status -> byType.forEach(this::update));
+        } catch (Exception e) {
+            logger.warn("Counter flush failed for {} entities, requeueing: {}", entities, e.toString());
+            requeue(flat);
+            requeuedEntities.addAndGet(entities);
+            return 0;
+        }
+        flushedEntities.addAndGet(entities);
+        Map<Long, Map<String, Long>> posts = byType.get(POST);
+        if (posts != null) {
+            // 详情缓存只保存数据库中的计数，把落库的增量同步改写进去
+            postDetailCache.applyCounterDeltas(posts);
+            markChampionsDirty(posts);
+        }
+        return entities;
+    }
+
+    /**
+     * 分类榜首按数据库中的点赞/收藏数排序，只有落库之后重算才能看到变化，
+     * 因此在这里（而不是点赞提交时）把相关分类标记为脏
+     */
+    private void markChampionsDirty(Map<Long, Map<String, Long>> posts) {
+        List<Long> ids = new ArrayList<>();
+        posts.forEach((id, deltas) -> {
+            if (deltas.containsKey(LIKES) || deltas.containsKey(FAVORITES)) {
+                ids.add(id);
+            }
+        });
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+            List<String> categoryIds = jdbcTemplate.queryForList("SELECT DISTINCT category_id FROM blog_post "
+                    + "WHERE category_id IS NOT NULL AND id IN (" + in + ")", String.class, ids.toArray());
+            if (!categoryIds.isEmpty()) {
+                redisTemplate.opsForSet().add(CategoryChampionCache.KEY_DIRTY, categoryIds.toArray(new String[0]));
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to mark category champions dirty after counter flush: {}", e.toString());
+        }
+    }
+
+    private void update(String type, Map<Long, Map<String, Long>> rows) {
+        String table = TABLES.get(type);
+        List<String[]> columns = COLUMNS.get(type);
+        if (table == null || rows.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+        for (int i = 0; i < columns.size(); i++) {
+            String col = columns.get(i)[1];
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(col).append(" = GREATEST(").append(col).append(" + ?, 0)");
+        }
+        sql.append(" WHERE id = ?");
+        List<Object[]> args = new ArrayList<>(rows.size());
+        rows.forEach((id, deltas) -> {
+            Object[] row = new Object[columns.size() + 1];
+            for (int i = 0; i < columns.size(); i++) {
+                row[i] = deltas.getOrDefault(columns.get(i)[0], 0L);
+            }
+            row[columns.size()] = id;
+            args.add(row);
+        });
+        jdbcTemplate.batchUpdate(sql.toString(), args);
+    }
+
+    private void requeue(List<Object> flat) {
+        List<String> args = new ArrayList<>(flat.size() + 1);
+        args.add(KEY_PREFIX);
+        for (Object o : flat) {
+            args.add(o.toString());
+        }
+        try {
+            redisTemplate.execute(RESTORE_CHUNK_SCRIPT, Collections.singletonList(KEY_DIRTY), args.toArray());
+        } catch (Exception e) {
+            logger.error("Failed to requeue {} counter deltas, they are lost", flat.size() / 3, e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        Long dirty = null;
+        try {
+            dirty = redisTemplate.opsForSet().size(KEY_DIRTY);
+        } catch (Exception ignored) {
+        }
+        metrics.put("pendingEntities", dirty);
+        metrics.put("flushedEntities", flushedEntities.get());
+        metrics.put("requeuedEntities", requeuedEntities.get());
+        metrics.put("lastFlushAt", lastFlushAt);
+        metrics.put("lastFlushMs", lastFlushMs);
+        return metrics;
+    }
+}
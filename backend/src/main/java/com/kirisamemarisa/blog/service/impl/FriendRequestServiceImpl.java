@@ -18,8 +18,6 @@ import com.kirisamemarisa.blog.mapper.FriendRequestMapper;
 import com.kirisamemarisa.blog.repository.UserProfileRepository;
 import com.kirisamemarisa.blog.model.UserProfile;
 
-import org.springframework.transaction.support.TransactionSynchronization;
-import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 import java.time.Instant;
@@ -34,17 +32,20 @@ public class FriendRequestServiceImpl implements FriendRequestService {
     private final FollowService followService;
     private final FriendService friendService;
     private final UserProfileRepository userProfileRepository;
+    private final NotificationUnreadCounter unreadCounter;
 
     public FriendRequestServiceImpl(FriendRequestRepository friendRequestRepository,
             NotificationService notificationService,
             FollowService followService,
             UserProfileRepository userProfileRepository,
-            FriendService friendService) {
+            FriendService friendService,
+            NotificationUnreadCounter unreadCounter) {
         this.friendRequestRepository = friendRequestRepository;
         this.notificationService = notificationService;
         this.followService = followService;
         this.userProfileRepository = userProfileRepository;
         this.friendService = friendService;
+        this.unreadCounter = unreadCounter;
     }
 
     @Override
@@ -86,12 +87,12 @@ public class FriendRequestServiceImpl implements FriendRequestService {
         }
 
         FriendRequest saved = friendRequestRepository.save(req);
+        unreadCounter.adjust(receiver.getId(), NotificationUnreadCounter.PENDING_REQUESTS, 1);
         boolean online = notificationService.isOnline(receiver.getId());
         NotificationDTO note = FriendRequestMapper.toNotification(saved);
         note.setType("FRIEND_REQUEST");
 
-        // send notification after the transaction commits to avoid inconsistency
-        sendNotificationAfterCommit(receiver.getId(), note, saved.getId(), "friend request");
+        enqueueNotification(receiver.getId(), note, saved.getId(), "friend request");
 
         logger.info("Sent friend request {} from {} to {} (online={})", saved.getId(), sender.getId(), receiver.getId(),
                 online);
@@ -148,6 +149,7 @@ public class FriendRequestServiceImpl implements FriendRequestService {
             req.setStatus(FriendRequest.Status.REJECTED);
         }
         FriendRequest saved = friendRequestRepository.save(req);
+        unreadCounter.adjust(receiver.getId(), NotificationUnreadCounter.PENDING_REQUESTS, -1);
         NotificationDTO note = FriendRequestMapper.toNotification(saved);
 
         if (accept) {
@@ -158,8 +160,8 @@ public class FriendRequestServiceImpl implements FriendRequestService {
             note.setMessage(receiver.getUsername() + " 拒绝了你的好友申请");
         }
 
-        // ensure notification sending is done after transaction commit
-        sendNotificationAfterCommit(req.getSender().getId(), note, req.getId(), "friend request response");
+        // written to the outbox in this transaction; delivered after commit
+        enqueueNotification(req.getSender().getId(), note, req.getId(), "friend request response");
 
         FriendRequestDTO dto = FriendRequestMapper.toDTO(saved);
         if (dto.getSenderId() != null) {
@@ -172,25 +174,14 @@ public class FriendRequestServiceImpl implements FriendRequestService {
         return dto;
     }
 
-    private void sendNotificationAfterCommit(Long userId, NotificationDTO note, Long requestIdForLog, String what) {
-        if (TransactionSynchronizationManager.isSynchronizationActive()) {
-            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
-                @Override
-                public void afterCommit() {
-                    try {
-                        notificationService.sendNotification(userId, note);
-                    } catch (Exception ex) {
-                        logger.error("Failed to send {} notification for request {}: {}", what, requestIdForLog,
-                                ex.toString());
-                    }
-                }
-            });
-        } else {
-            try {
-                notificationService.sendNotification(userId, note);
-            } catch (Exception ex) {
-                logger.error("Failed to send {} notification for request {}: {}", what, requestIdForLog, ex.toString());
-            }
+    /**
+     * 通知写入发件箱，随本事务提交；提交后才会落库和推送，事务回滚时通知一并撤销
+     */
+    private void enqueueNotification(Long userId, NotificationDTO note, Long requestIdForLog, String what) {
+        try {
+            notificationService.sendNotification(userId, note);
+        } catch (Exception ex) {
+            logger.error("Failed to send {} notification for request {}: {}", what, requestIdForLog, ex.toString());
         }
     }
 }
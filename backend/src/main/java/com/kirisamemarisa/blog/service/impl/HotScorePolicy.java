@@ -0,0 +1,91 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.service.PostLeaderboardService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 热度分策略。
+ * 热度分 = Σ 互动权重 × 2^((互动时间 - 纪元) / 半衰期)。同一热度榜内所有成员共享一个纪元，
+ * 因此新互动只需按当前时间折算后 ZINCRBY，旧互动的相对权重自然随时间衰减；
+ * 纪元定期前移（rebase）并整体缩放分值，避免指数增长溢出。
+ */
+@Component
+public class HotScorePolicy {
+
+    // 各热度榜的纪元（毫秒），field 为 scope
+    static final String KEY_HOT_EPOCHS = PostLeaderboardServiceImpl.KEY_RANK_PREFIX + "hot_epoch";
+
+    /**
+     * Lua 公共函数，供写入脚本拼接使用：
+     * nowMillis() 取 Redis 服务器时间；hotEpoch(纪元 hash, scope, now) 读取或初始化纪元；
+     * hotBump(纪元 hash, 热度榜前缀, scope, 成员, 权重, 半衰期毫秒, now) 按当前时间折算后累加
+     */
+    static final String LUA_HOT_FUNCTIONS =
+            "local function nowMillis() local t = redis.call('TIME') " +
+            "  return tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000) end " +
+            "local function hotEpoch(epochs, sc, now) " +
+            "  local e = tonumber(redis.call('HGET', epochs, sc)) " +
+            "  if not e then e = now redis.call('HSET', epochs, sc, now) end " +
+            "  return e end " +
+            "local function hotBump(epochs, prefix, sc, member, w, halfLife, now) " +
+            "  local e = hotEpoch(epochs, sc, now) " +
+            "  redis.call('ZINCRBY', prefix .. sc, w * math.pow(2, (now - e) / halfLife), member) end ";
+
+    @Value("${blog.rank.hot.half-life-hours:12}")
+    private double halfLifeHours;
+
+    @Value("${blog.rank.hot.weight.views:1}")
+    private double viewWeight;
+
+    @Value("${blog.rank.hot.weight.likes:3}")
+    private double likeWeight;
+
+    @Value("${blog.rank.hot.weight.favorites:5}")
+    private double favoriteWeight;
+
+    @Value("${blog.rank.hot.weight.comments:4}")
+    private double commentWeight;
+
+    @Value("${blog.rank.hot.weight.shares:6}")
+    private double shareWeight;
+
+    public long halfLifeMillis() {
+        return Math.max(1L, (long) (halfLifeHours * 3_600_000L));
+    }
+
+    public double weightOf(String metric) {
+        if (metric == null) {
+            return 0;
+        }
+        switch (metric) {
+            case PostLeaderboardService.VIEWS:
+                return viewWeight;
+            case PostLeaderboardService.LIKES:
+                return likeWeight;
+            case PostLeaderboardService.FAVORITES:
+                return favoriteWeight;
+            case PostLeaderboardService.COMMENTS:
+                return commentWeight;
+            case PostLeaderboardService.SHARES:
+                return shareWeight;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * 各项累计计数的加权和，用于重建或首次入榜时估算初始热度
+     */
+    public double weightedTotal(long views, long likes, long favorites, long comments, long shares) {
+        return views * viewWeight + likes * likeWeight + favorites * favoriteWeight
+                + comments * commentWeight + shares * shareWeight;
+    }
+
+    /**
+     * 把发生在 atMillis 的 weight 折算到以 epochMillis 为纪元的热度分
+     */
+    public double scaled(double weight, long atMillis, long epochMillis) {
+        return weight * Math.pow(2, (double) (atMillis - epochMillis) / halfLifeMillis());
+    }
+}
@@ -13,7 +13,10 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -89,33 +92,64 @@ public class LocalFileStorageServiceImpl implements FileStorageService {
             return;
         }
         try {
-            // fileUrl example: /sources/blogpostcontent/1/abc.jpg
-            // or /avatar/1/abc.jpg -> /app/sources/avatar/1/abc.jpg
-
-            String relativePath = fileUrl;
-            if (relativePath.startsWith("/sources/")) {
-                relativePath = relativePath.substring("/sources/".length());
-            } else if (relativePath.startsWith("/avatar/")) {
-                relativePath = "avatar/" + relativePath.substring("/avatar/".length());
-            } else if (relativePath.startsWith("/files/messages/")) {
-                relativePath = "messages/" + relativePath.substring("/files/messages/".length());
-            } else if (relativePath.startsWith("/")) {
-                relativePath = relativePath.substring(1);
+            Path targetPath = resolveForDelete(fileUrl);
+            if (targetPath != null) {
+                Files.deleteIfExists(targetPath);
             }
+        } catch (IOException e) {
+            logger.error("Failed to delete file: " + fileUrl, e);
+        }
+    }
 
-            Path rootPath = Paths.get(BASE_DIR).toAbsolutePath();
-            Path targetPath = rootPath.resolve(relativePath);
-
-            // Security check to prevent directory traversal
-            if (!targetPath.normalize().startsWith(rootPath.normalize())) {
-                logger.warn("Attempt to delete file outside of base dir: {}", fileUrl);
-                return;
+    @Override
+    public List<String> deleteFiles(Collection<String> fileUrls) {
+        List<String> failed = new ArrayList<>();
+        for (String fileUrl : fileUrls) {
+            if (fileUrl == null || fileUrl.isEmpty()) {
+                continue;
             }
+            try {
+                Path targetPath = resolveForDelete(fileUrl);
+                if (targetPath != null) {
+                    Files.deleteIfExists(targetPath);
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to delete file {}: {}", fileUrl, e.toString());
+                failed.add(fileUrl);
+            }
+        }
+        return failed;
+    }
 
-            Files.deleteIfExists(targetPath);
-        } catch (IOException e) {
-            logger.error("Failed to delete file: " + fileUrl, e);
+    /**
+     * @return 待删除文件的绝对路径；不在存储目录下时返回 null
+     */
+    private Path resolveForDelete(String fileUrl) {
+        // fileUrl example: /sources/blogpostcontent/1/abc.jpg
+        // or /avatar/1/abc.jpg -> /app/sources/avatar/1/abc.jpg
+        // or storage key sources/blogpostcontent/1/abc.jpg (post_media)
+        String relativePath = fileUrl;
+        if (relativePath.startsWith("/sources/")) {
+            relativePath = relativePath.substring("/sources/".length());
+        } else if (relativePath.startsWith("sources/")) {
+            relativePath = relativePath.substring("sources/".length());
+        } else if (relativePath.startsWith("/avatar/")) {
+            relativePath = "avatar/" + relativePath.substring("/avatar/".length());
+        } else if (relativePath.startsWith("/files/messages/")) {
+            relativePath = "messages/" + relativePath.substring("/files/messages/".length());
+        } else if (relativePath.startsWith("/")) {
+            relativePath = relativePath.substring(1);
+        }
+
+        Path rootPath = Paths.get(BASE_DIR).toAbsolutePath();
+        Path targetPath = rootPath.resolve(relativePath);
+
+        // Security check to prevent directory traversal
+        if (!targetPath.normalize().startsWith(rootPath.normalize())) {
+            logger.warn("Attempt to delete file outside of base dir: {}", fileUrl);
+            return null;
         }
+        return targetPath;
     }
 
     private String saveFile(MultipartFile file, String relativePath) {
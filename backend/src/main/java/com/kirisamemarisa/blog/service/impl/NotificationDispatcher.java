@@ -0,0 +1,654 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.dto.NotificationDTO;
+import com.kirisamemarisa.blog.events.NotificationEventPublisher;
+import com.kirisamemarisa.blog.events.NotificationMessage;
+import com.kirisamemarisa.blog.events.RabbitNotificationBridge;
+import com.kirisamemarisa.blog.model.Notification;
+import com.kirisamemarisa.blog.model.NotificationOutbox;
+import com.kirisamemarisa.blog.model.NotificationType;
+import com.kirisamemarisa.blog.repository.NotificationOutboxRepository;
+import com.kirisamemarisa.blog.repository.NotificationRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 通知发件箱的投递。
+ * 业务事务只写 notification_outbox，提交后唤醒后台线程；另有定时轮询兜底（重启、重试）。
+ * 每批先一次性补齐发送者资料，再以一条多行 INSERT IGNORE 写入 notifications（outbox_id 唯一，重复投递不重复落库），
+ * 最后在同一信道上批量发布到 RabbitMQ 并等待 publisher confirm，全部确认后才删除发件箱行，保证至少投递一次。
+ * 推送多次失败后退回本实例的 SSE 直接下发。集群内由租约保证同一时刻只有一个实例投递。
+ * <p>
+ * 点赞、收藏类事件按（接收者, 类型, 文章, 评论/回复）聚合：入箱时投递时间对齐到窗口末尾，
+ * 同一窗口内同组的事件在同一批次中取出，合并为一条 aggregate_key 唯一的通知（参与人数 + 最近几位参与者），
+ * 整组只推送一次。聚合通知已读后再有新事件时重新计数并置为未读。
+ * 每条落库的通知都从 notification_sequence 分配水位序号 last_event_id（与写入同一事务）；聚合通知的 id 保持不变
+ * （客户端持有的 id 始终可用于单条已读），每次更新分配新的序号，使其位于接收者的已读水位之上。
+ */
+@Component
+public class NotificationDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    private static final String LEASE_NAME = "notification-dispatch";
+    private static final long LEASE_TTL_MS = 60_000L;
+    // 单次排空的时间上限，远小于租期：租约不续期，超时前停止，剩余事件留给下一次轮询或唤醒
+    private static final long DRAIN_DEADLINE_MS = LEASE_TTL_MS / 3;
+    // 私信只推送，消息本身存于 private_messages
+    private static final String TYPE_PRIVATE_MESSAGE = "PRIVATE_MESSAGE";
+    // 按窗口聚合的通知类型
+    private static final Set<String> COALESCED_TYPES = Set.of(
+            NotificationType.POST_LIKE.name(),
+            NotificationType.POST_FAVORITE.name(),
+            NotificationType.COMMENT_LIKE.name(),
+            NotificationType.REPLY_LIKE.name());
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final NotificationRepository notificationRepository;
+    private final UserDisplayProfiles userDisplayProfiles;
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationEventPublisher publisher;
+    private final ClusterCoordinator clusterCoordinator;
+    private final NotificationUnreadCounter unreadCounter;
+    private final NotificationReadWatermarks readWatermarks;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired(required = false)
+    private RabbitNotificationBridge rabbitBridge;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "notification-dispatch");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean wakeQueued = new AtomicBoolean();
+
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong inserted = new AtomicLong();
+    private final AtomicLong publishFailures = new AtomicLong();
+    private final AtomicLong localFallbacks = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong aggregatesWritten = new AtomicLong();
+    private volatile long lastBatchMs;
+
+    @Value("${blog.notification.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${blog.notification.outbox.max-publish-attempts:5}")
+    private int maxPublishAttempts;
+
+    @Value("${blog.notification.outbox.backoff-base-ms:2000}")
+    private long backoffBaseMs;
+
+    @Value("${blog.notification.outbox.backoff-max-ms:300000}")
+    private long backoffMaxMs;
+
+    @Value("${blog.notification.outbox.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+
+    @Value("${blog.notification.coalesce.window-ms:60000}")
+    private long coalesceWindowMs;
+
+    @Value("${blog.notification.coalesce.recent-actors:3}")
+    private int recentActors;
+
+    public NotificationDispatcher(NotificationOutboxRepository outboxRepository,
+            NotificationRepository notificationRepository,
+            UserDisplayProfiles userDisplayProfiles,
+            JdbcTemplate jdbcTemplate,
+            NotificationEventPublisher publisher,
+            ClusterCoordinator clusterCoordinator,
+            NotificationUnreadCounter unreadCounter,
+            NotificationReadWatermarks readWatermarks,
+            PlatformTransactionManager transactionManager) {
+        this.outboxRepository = outboxRepository;
+        this.notificationRepository = notificationRepository;
+        this.userDisplayProfiles = userDisplayProfiles;
+        this.jdbcTemplate = jdbcTemplate;
+        this.publisher = publisher;
+        this.clusterCoordinator = clusterCoordinator;
+        this.unreadCounter = unreadCounter;
+        this.readWatermarks = readWatermarks;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 事件首次可投递的时间。聚合类事件推迟到所在窗口的末尾，窗口为 0 时不推迟。
+     */
+    public Instant firstAttemptAt(String type, Instant now) {
+        if (coalesceWindowMs <= 0 || !COALESCED_TYPES.contains(type)) {
+            return now;
+        }
+        return Instant.ofEpochMilli((now.toEpochMilli() / coalesceWindowMs + 1) * coalesceWindowMs);
+    }
+
+    /**
+     * 有新事件写入发件箱。处于事务中时提交后再唤醒投递线程。
+     */
+    public void wakeAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wake();
+                }
+            });
+        } else {
+            wake();
+        }
+    }
+
+    private void wake() {
+        if (wakeQueued.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                wakeQueued.set(false);
+                drain();
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${blog.notification.outbox.poll-interval-ms:10000}")
+    public void poll() {
+        drain();
+    }
+
+    /**
+     * @return 本次投递完成（已删除发件箱行）的事件数
+     */
+    synchronized int drain() {
+        ClusterCoordinator.Lease lease = clusterCoordinator.tryAcquire(LEASE_NAME, LEASE_TTL_MS);
+        if (lease == null) {
+            return 0;
+        }
+        int processed = 0;
+        long deadline = System.currentTimeMillis() + DRAIN_DEADLINE_MS;
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                List<NotificationOutbox> due = outboxRepository.findDue(Instant.now(), PageRequest.of(0, batchSize));
+                if (due.isEmpty()) {
+                    break;
+                }
+                int n = process(due);
+                processed += n;
+                // 整批都在退避中时停止，等下一次轮询
+                if (due.size() < batchSize || n == 0) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Notification dispatch failed: {}", e.toString());
+        } finally {
+            clusterCoordinator.release(lease);
+        }
+        return processed;
+    }
+
+    private int process(List<NotificationOutbox> due) {
+        long start = System.currentTimeMillis();
+        Instant now = Instant.now();
+        List<Delivery> deliveries = group(due);
+        try {
+            List<NotificationOutbox> plain = new ArrayList<>();
+            List<Delivery> aggregates = new ArrayList<>();
+            for (Delivery d : deliveries) {
+                if (d.key == null) {
+                    plain.add(d.latest());
+                } else {
+                    aggregates.add(d);
+                }
+            }
+            // 序号分配与写入同一事务，发号行锁持有到提交
+            transactionTemplate.executeWithoutResult(status -> {
+                insertNotifications(plain);
+                upsertAggregates(aggregates);
+            });
+        } catch (Exception e) {
+            // 落库失败时整批退避重试，已写入的行在重试时被跳过（outbox_id 唯一 / 聚合行记录的 outbox_id）
+            logger.warn("Failed to store {} notifications, retrying later: {}", due.size(), e.toString());
+            for (NotificationOutbox row : due) {
+                row.setAttempts(row.getAttempts() + 1);
+                row.setNextAttemptAt(now.plusMillis(backoffMs(row.getAttempts())));
+            }
+            outboxRepository.saveAll(due);
+            return 0;
+        }
+
+        Map<Long, String[]> senders = loadSenders(due);
+        List<NotificationMessage> messages = new ArrayList<>(deliveries.size());
+        for (Delivery d : deliveries) {
+            NotificationOutbox latest = d.latest();
+            NotificationMessage m = toMessage(latest, senders.get(latest.getSenderId()));
+            if (d.key != null) {
+                m.setActorCount(d.actorCount);
+                m.setRecentActorIds(d.recentActorIds);
+            }
+            messages.add(m);
+        }
+
+        List<NotificationOutbox> done = new ArrayList<>(due.size());
+        List<NotificationOutbox> retry = new ArrayList<>();
+        if (rabbitBridge == null) {
+            deliverLocally(messages);
+            done.addAll(due);
+        } else if (rabbitBridge.publishAll(messages, confirmTimeoutMs)) {
+            done.addAll(due);
+        } else {
+            // 未确认的批次整体重发，接收方可能收到重复推送（至少一次）
+            publishFailures.incrementAndGet();
+            for (int i = 0; i < deliveries.size(); i++) {
+                Delivery d = deliveries.get(i);
+                int attempts = 0;
+                for (NotificationOutbox row : d.rows) {
+                    attempts = Math.max(attempts, row.getAttempts() + 1);
+                }
+                if (attempts >= maxPublishAttempts) {
+                    deliverLocally(List.of(messages.get(i)));
+                    done.addAll(d.rows);
+                } else {
+                    for (NotificationOutbox row : d.rows) {
+                        row.setAttempts(attempts);
+                        row.setNextAttemptAt(now.plusMillis(backoffMs(attempts)));
+                        retry.add(row);
+                    }
+                }
+            }
+        }
+        if (!done.isEmpty()) {
+            outboxRepository.deleteAllInBatch(done);
+        }
+        if (!retry.isEmpty()) {
+            outboxRepository.saveAll(retry);
+        }
+
+        dispatched.addAndGet(done.size());
+        batches.incrementAndGet();
+        lastBatchMs = System.currentTimeMillis() - start;
+        return done.size();
+    }
+
+    /**
+     * 按聚合键分组，保持发件箱顺序；非聚合类事件各自成组
+     */
+    private List<Delivery> group(List<NotificationOutbox> due) {
+        List<Delivery> deliveries = new ArrayList<>();
+        Map<String, Delivery> byKey = new HashMap<>();
+        for (NotificationOutbox row : due) {
+            String key = aggregateKey(row);
+            Delivery d = key != null ? byKey.get(key) : null;
+            if (d == null) {
+                d = new Delivery(key);
+                deliveries.add(d);
+                if (key != null) {
+                    byKey.put(key, d);
+                }
+            } else {
+                coalesced.incrementAndGet();
+            }
+            d.rows.add(row);
+        }
+        return deliveries;
+    }
+
+    private static String aggregateKey(NotificationOutbox row) {
+        if (!COALESCED_TYPES.contains(row.getType()) || row.getSenderId() == null) {
+            return null;
+        }
+        return row.getType() + ":" + row.getReceiverId() + ":" + row.getReferenceId() + ":"
+                + row.getReferenceExtraId();
+    }
+
+    /**
+     * 合并到聚合通知。读取现有聚合行后在内存中计算参与人数与最近参与者，再一条多行 upsert 写回
+     * （按 aggregate_key 原地更新，id 不变；last_event_id 取新分配的水位序号，更新后的通知不会落在已读水位之下）；
+     * 投递由租约串行化（每次排空在租约到期前远早结束），读改写之间没有并发写入。现有行记录的 outbox_id 不小于本组最新事件时
+     * 说明本组已合并过（上次投递在删除发件箱行之前中断），跳过写入。
+     */
+    private void upsertAggregates(List<Delivery> groups) {
+        if (groups.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(groups.size());
+        for (Delivery d : groups) {
+            keys.add(d.key);
+        }
+        Map<String, Notification> existing = new HashMap<>();
+        for (Notification n : notificationRepository.findByAggregateKeyIn(keys)) {
+            existing.put(n.getAggregateKey(), n);
+        }
+        Set<Long> receivers = new HashSet<>();
+        for (Notification n : existing.values()) {
+            receivers.add(n.getReceiverId());
+        }
+        Map<Long, Map<String, Long>> marks = readWatermarks.marksOf(receivers);
+
+        StringBuilder sql = new StringBuilder("INSERT INTO notifications "
+                + "(outbox_id, aggregate_key, sender_id, receiver_id, type, reference_id, reference_extra_id, content, "
+                + "actor_count, recent_actor_ids, last_event_id, is_read, created_at) VALUES ");
+        List<Object> args = new ArrayList<>();
+        // 各行序号参数在 args 中的位置，行数确定后一次分配
+        List<Integer> sequenceSlots = new ArrayList<>();
+        Map<Long, Map<String, Long>> unreadDeltas = new HashMap<>();
+        int count = 0;
+        for (Delivery d : groups) {
+            NotificationOutbox latest = d.latest();
+            Notification prev = existing.get(d.key);
+            if (prev != null && prev.getOutboxId() != null && prev.getOutboxId() >= latest.getId()) {
+                d.actorCount = prev.getActorCount() != null ? prev.getActorCount() : 1;
+                d.recentActorIds = parseActorIds(prev.getRecentActorIds());
+                continue;
+            }
+            List<Long> senders = new ArrayList<>(d.rows.size());
+            for (NotificationOutbox row : d.rows) {
+                senders.add(row.getSenderId());
+            }
+            boolean prevRead = prev == null
+                    || NotificationReadWatermarks.isRead(prev, marks.getOrDefault(prev.getReceiverId(), Map.of()));
+            Aggregate merged = prevRead
+                    ? mergeActors(senders, null, null, recentActors)
+                    : mergeActors(senders, prev.getActorCount(), parseActorIds(prev.getRecentActorIds()), recentActors);
+            int actorCount = merged.actorCount;
+            List<Long> recent = merged.recentActorIds;
+            d.actorCount = actorCount;
+            d.recentActorIds = recent;
+            // 新建或由已读重新置为未读时，未读数加一
+            if (prevRead) {
+                unreadDeltas.computeIfAbsent(latest.getReceiverId(), k -> new HashMap<>())
+                        .merge(latest.getType(), 1L, Long::sum);
+            }
+
+            if (count++ > 0) {
+                sql.append(", ");
+            }
+            sql.append("(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?)");
+            args.add(latest.getId());
+            args.add(d.key);
+            args.add(latest.getSenderId());
+            args.add(latest.getReceiverId());
+            args.add(latest.getType());
+            args.add(latest.getReferenceId());
+            args.add(latest.getReferenceExtraId());
+            args.add(latest.getContent());
+            args.add(actorCount);
+            args.add(joinActorIds(recent));
+            sequenceSlots.add(args.size());
+            args.add(null);
+            args.add(Timestamp.from(latest.getCreatedAt()));
+        }
+        if (count == 0) {
+            return;
+        }
+        fillSequences(args, sequenceSlots);
+        sql.append(" ON DUPLICATE KEY UPDATE outbox_id = VALUES(outbox_id), sender_id = VALUES(sender_id), "
+                + "content = VALUES(content), actor_count = VALUES(actor_count), "
+                + "recent_actor_ids = VALUES(recent_actor_ids), last_event_id = VALUES(last_event_id), is_read = 0, "
+                + "created_at = VALUES(created_at)");
+        jdbcTemplate.update(sql.toString(), args.toArray());
+        aggregatesWritten.addAndGet(count);
+        unreadCounter.adjustAll(unreadDeltas);
+    }
+
+    /**
+     * 参与人数与最近参与者的计算。senders 为本组事件的发送者（按发件箱顺序，最新的在后）；
+     * previousRecent 为未读的上一条聚合通知记录的最近参与者，已读或不存在时为 null，此时重新计数。
+     * 只记得最近几位参与者，更早的参与者再次出现时会被重复计数。
+     */
+    static Aggregate mergeActors(List<Long> senders, Integer previousCount, List<Long> previousRecent,
+            int recentActors) {
+        // 本组参与者，最新的在前
+        List<Long> actors = new ArrayList<>();
+        for (int i = senders.size() - 1; i >= 0; i--) {
+            Long sender = senders.get(i);
+            if (!actors.contains(sender)) {
+                actors.add(sender);
+            }
+        }
+        int actorCount = actors.size();
+        List<Long> recent = new ArrayList<>(actors);
+        if (previousRecent != null) {
+            int fresh = 0;
+            for (Long id : actors) {
+                if (!previousRecent.contains(id)) {
+                    fresh++;
+                }
+            }
+            for (Long id : previousRecent) {
+                if (!recent.contains(id)) {
+                    recent.add(id);
+                }
+            }
+            actorCount = (previousCount != null ? previousCount : 1) + fresh;
+        }
+        if (recent.size() > recentActors) {
+            recent = new ArrayList<>(recent.subList(0, Math.max(recentActors, 1)));
+        }
+        return new Aggregate(actorCount, recent);
+    }
+
+    static List<Long> parseActorIds(String value) {
+        List<Long> ids = new ArrayList<>();
+        if (value == null || value.isEmpty()) {
+            return ids;
+        }
+        for (String part : value.split(",")) {
+            try {
+                ids.add(Long.parseLong(part.trim()));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return ids;
+    }
+
+    private static String joinActorIds(List<Long> ids) {
+        StringBuilder sb = new StringBuilder();
+        for (Long id : ids) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(id);
+        }
+        return sb.toString();
+    }
+
+    private void fillSequences(List<Object> args, List<Integer> slots) {
+        long next = readWatermarks.allocate(slots.size());
+        for (Integer slot : slots) {
+            args.set(slot, next++);
+        }
+    }
+
+    /**
+     * 一条多行 INSERT IGNORE 写入 notifications
+     */
+    private void insertNotifications(List<NotificationOutbox> rows) {
+        StringBuilder sql = new StringBuilder("INSERT IGNORE INTO notifications "
+                + "(outbox_id, sender_id, receiver_id, type, reference_id, reference_extra_id, content, last_event_id, "
+                + "is_read, created_at) VALUES ");
+        List<Object> args = new ArrayList<>();
+        List<Integer> sequenceSlots = new ArrayList<>();
+        Map<Long, Map<String, Long>> unreadDeltas = new HashMap<>();
+        int count = 0;
+        for (NotificationOutbox row : rows) {
+            if (TYPE_PRIVATE_MESSAGE.equals(row.getType())) {
+                continue;
+            }
+            if (row.getSenderId() == null) {
+                logger.warn("Skipping storage of {} notification {} without sender", row.getType(), row.getId());
+                continue;
+            }
+            NotificationType type;
+            try {
+                type = NotificationType.valueOf(row.getType());
+            } catch (IllegalArgumentException e) {
+                logger.warn("Unknown notification type: {}", row.getType());
+                type = NotificationType.SYSTEM;
+            }
+            if (count++ > 0) {
+                sql.append(", ");
+            }
+            sql.append("(?, ?, ?, ?, ?, ?, ?, ?, 0, ?)");
+            args.add(row.getId());
+            args.add(row.getSenderId());
+            args.add(row.getReceiverId());
+            args.add(type.name());
+            args.add(row.getReferenceId());
+            args.add(row.getReferenceExtraId());
+            args.add(row.getContent());
+            sequenceSlots.add(args.size());
+            args.add(null);
+            args.add(Timestamp.from(row.getCreatedAt()));
+            unreadDeltas.computeIfAbsent(row.getReceiverId(), k -> new HashMap<>()).merge(type.name(), 1L, Long::sum);
+        }
+        if (count > 0) {
+            // 重试时已存在的行被忽略，其序号作废，不影响比较
+            fillSequences(args, sequenceSlots);
+            int n = jdbcTemplate.update(sql.toString(), args.toArray());
+            inserted.addAndGet(n);
+            if (n == count) {
+                unreadCounter.adjustAll(unreadDeltas);
+            } else {
+                // 重试时部分行已存在，无法区分哪些是新行，丢弃这些用户的计数等待重建
+                unreadCounter.invalidate(unreadDeltas.keySet());
+            }
+        }
+    }
+
+    /**
+     * 批量查询发送者资料：{昵称, 头像}
+     */
+    private Map<Long, String[]> loadSenders(List<NotificationOutbox> rows) {
+        Set<Long> ids = new HashSet<>();
+        for (NotificationOutbox row : rows) {
+            if (row.getSenderId() != null) {
+                ids.add(row.getSenderId());
+            }
+        }
+        return userDisplayProfiles.load(ids);
+    }
+
+    private static NotificationMessage toMessage(NotificationOutbox row, String[] sender) {
+        NotificationMessage m = new NotificationMessage();
+        m.setReceiverId(row.getReceiverId());
+        m.setSenderId(row.getSenderId());
+        m.setRequestId(row.getRequestId());
+        m.setType(row.getType());
+        m.setMessage(row.getContent());
+        m.setStatus(row.getStatus());
+        m.setCreatedAt(row.getCreatedAt());
+        m.setReferenceId(row.getReferenceId());
+        m.setReferenceExtraId(row.getReferenceExtraId());
+        if (sender != null) {
+            m.setSenderNickname(sender[0]);
+            m.setSenderAvatarUrl(sender[1]);
+        }
+        return m;
+    }
+
+    private void deliverLocally(List<NotificationMessage> messages) {
+        for (NotificationMessage m : messages) {
+            try {
+                NotificationDTO dto = new NotificationDTO();
+                dto.setType(m.getType());
+                dto.setRequestId(m.getRequestId());
+                dto.setSenderId(m.getSenderId());
+                dto.setReceiverId(m.getReceiverId());
+                dto.setMessage(m.getMessage());
+                dto.setStatus(m.getStatus());
+                dto.setCreatedAt(m.getCreatedAt());
+                dto.setReferenceId(m.getReferenceId());
+                dto.setReferenceExtraId(m.getReferenceExtraId());
+                dto.setSenderNickname(m.getSenderNickname());
+                dto.setSenderAvatarUrl(m.getSenderAvatarUrl());
+                dto.setActorCount(m.getActorCount());
+                dto.setRecentActorIds(m.getRecentActorIds());
+                publisher.sendNotification(m.getReceiverId(), dto);
+                localFallbacks.incrementAndGet();
+            } catch (Exception e) {
+                logger.warn("Failed to deliver notification locally: {}", e.toString());
+            }
+        }
+    }
+
+    private long backoffMs(int attempts) {
+        long ms = backoffBaseMs << Math.min(attempts - 1, 20);
+        return Math.min(ms, backoffMaxMs);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("pending", outboxRepository.count());
+        metrics.put("retrying", outboxRepository.countByAttemptsGreaterThan(0));
+        Instant oldest = outboxRepository.findOldestCreatedAt();
+        metrics.put("oldestAgeMs", oldest != null ? System.currentTimeMillis() - oldest.toEpochMilli() : 0L);
+        metrics.put("dispatched", dispatched.get());
+        metrics.put("inserted", inserted.get());
+        metrics.put("publishFailures", publishFailures.get());
+        metrics.put("localFallbacks", localFallbacks.get());
+        metrics.put("batches", batches.get());
+        metrics.put("coalesced", coalesced.get());
+        metrics.put("aggregatesWritten", aggregatesWritten.get());
+        metrics.put("lastBatchMs", lastBatchMs);
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 聚合通知的参与人数与最近参与者（最新的在前）
+     */
+    static final class Aggregate {
+        final int actorCount;
+        final List<Long> recentActorIds;
+
+        Aggregate(int actorCount, List<Long> recentActorIds) {
+            this.actorCount = actorCount;
+            this.recentActorIds = recentActorIds;
+        }
+    }
+
+    /**
+     * 一次推送：一条普通事件，或同一聚合键下的一组事件
+     */
+    private static final class Delivery {
+        final String key;
+        final List<NotificationOutbox> rows = new ArrayList<>();
+        int actorCount;
+        List<Long> recentActorIds;
+
+        Delivery(String key) {
+            this.key = key;
+        }
+
+        NotificationOutbox latest() {
+            return rows.get(rows.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.model.Notification;
+import com.kirisamemarisa.blog.model.NotificationReadMark;
+import com.kirisamemarisa.blog.model.NotificationType;
+import com.kirisamemarisa.blog.repository.NotificationReadMarkRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 通知已读水位（notification_read_marks）。
+ * 通知已读 ⇔ 水位序号（last_event_id，旧通知为 id）不大于该用户该类型的水位，
+ * 或 is_read 为真（水位之上单独点开的通知）。
+ * 序号由 notification_sequence 在写入通知的事务中分配，发号行的行锁持有到该事务提交；
+ * 推进水位时以一致性读取已提交的序号，尚未提交的通知的序号必然更大，不会被提前标为已读。
+ * 没有水位行时水位为 0，已读完全由 is_read 决定，与引入水位前一致，旧数据无需迁移；
+ * 此后“全部已读”只推进水位，不再改写历史通知行。
+ */
+@Component
+public class NotificationReadWatermarks {
+
+    private final NotificationReadMarkRepository readMarkRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    public NotificationReadWatermarks(NotificationReadMarkRepository readMarkRepository,
+            JdbcTemplate jdbcTemplate) {
+        this.readMarkRepository = readMarkRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return 类型 → 水位；没有水位的类型不在结果中
+     */
+    public Map<String, Long> marksOf(Long userId) {
+        Map<String, Long> marks = marksOf(Collections.singletonList(userId)).get(userId);
+        return marks != null ? marks : Collections.emptyMap();
+    }
+
+    /**
+     * @return 用户 id → (类型 → 水位)；没有任何水位的用户不在结果中
+     */
+    public Map<Long, Map<String, Long>> marksOf(Collection<Long> userIds) {
+        Map<Long, Map<String, Long>> result = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return result;
+        }
+        for (NotificationReadMark m : readMarkRepository.findByUserIdIn(userIds)) {
+            result.computeIfAbsent(m.getUserId(), k -> new HashMap<>()).put(m.getType(), m.getLastReadId());
+        }
+        return result;
+    }
+
+    /**
+     * 与水位比较的序号：last_event_id，发号器之前的旧通知为 id
+     */
+    public static Long sequenceOf(Long id, Long lastEventId) {
+        return lastEventId != null ? lastEventId : id;
+    }
+
+    public static boolean isRead(Notification n, Map<String, Long> marks) {
+        return isRead(sequenceOf(n.getId(), n.getLastEventId()), n.getType(), n.isRead(), marks);
+    }
+
+    public static boolean isRead(Long sequence, NotificationType type, boolean flag, Map<String, Long> marks) {
+        if (flag) {
+            return true;
+        }
+        Long mark = marks.get(type.name());
+        return mark != null && sequence != null && sequence <= mark;
+    }
+
+    /**
+     * 已提交的最大水位序号
+     */
+    public long currentSequence() {
+        List<Long> current = jdbcTemplate.queryForList(
+                "SELECT seq_value FROM notification_sequence WHERE id = 1", Long.class);
+        return !current.isEmpty() ? current.get(0) : legacyMax();
+    }
+
+    /**
+     * 分配 count 个连续序号，须在写入这些通知的事务中调用
+     *
+     * @return 第一个序号
+     */
+    public long allocate(int count) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            // LAST_INSERT_ID(expr) 把新值记在当前连接上，随后在同一连接上读出
+            int updated = jdbcTemplate.update("UPDATE notification_sequence "
+                    + "SET seq_value = LAST_INSERT_ID(seq_value + ?) WHERE id = 1", count);
+            if (updated == 1) {
+                Long last = jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class);
+                return last - count + 1;
+            }
+            // 首次使用：从现有通知的最大 id / 序号起步，旧水位仍然有效
+            jdbcTemplate.update("INSERT IGNORE INTO notification_sequence (id, seq_value) VALUES (1, ?)", legacyMax());
+        }
+        throw new IllegalStateException("notification_sequence is not available");
+    }
+
+    private long legacyMax() {
+        Long max = jdbcTemplate.queryForObject(
+                "SELECT GREATEST(COALESCE(MAX(id), 0), COALESCE(MAX(last_event_id), 0)) FROM notifications",
+                Long.class);
+        return max != null ? max : 0L;
+    }
+
+    /**
+     * 单条通知是否已被水位覆盖（一次唯一键查询）
+     */
+    public boolean covers(Notification n) {
+        return readMarkRepository.findByUserIdAndType(n.getReceiverId(), n.getType().name())
+                .map(m -> sequenceOf(n.getId(), n.getLastEventId()) <= m.getLastReadId())
+                .orElse(false);
+    }
+
+    /**
+     * 把指定类型的水位推进到当前最大的水位序号：一条多行 upsert，与用户的历史通知数量无关。
+     * 水位只增不减。
+     */
+    public void advance(Long userId, Collection<NotificationType> types) {
+        if (types.isEmpty()) {
+            return;
+        }
+        long maxId = currentSequence();
+        if (maxId == 0) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO notification_read_marks (user_id, type, last_read_id, updated_at) VALUES ");
+        List<Object> args = new ArrayList<>();
+        Timestamp now = Timestamp.from(Instant.now());
+        int i = 0;
+        for (NotificationType type : types) {
+            if (i++ > 0) {
+                sql.append(", ");
+            }
+            sql.append("(?, ?, ?, ?)");
+            args.add(userId);
+            args.add(type.name());
+            args.add(maxId);
+            args.add(now);
+        }
+        sql.append(" ON DUPLICATE KEY UPDATE last_read_id = GREATEST(last_read_id, VALUES(last_read_id)), "
+                + "updated_at = VALUES(updated_at)");
+        jdbcTemplate.update(sql.toString(), args.toArray());
+    }
+}
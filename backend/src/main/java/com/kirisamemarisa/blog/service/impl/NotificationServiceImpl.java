@@ -2,19 +2,14 @@ package com.kirisamemarisa.blog.service.impl;
 
 import com.kirisamemarisa.blog.dto.NotificationDTO;
 import com.kirisamemarisa.blog.events.NotificationEventPublisher;
-import com.kirisamemarisa.blog.events.NotificationMessage;
-import com.kirisamemarisa.blog.events.RabbitNotificationBridge;
-import com.kirisamemarisa.blog.model.Notification;
+import com.kirisamemarisa.blog.model.NotificationOutbox;
 import com.kirisamemarisa.blog.model.NotificationType;
-import com.kirisamemarisa.blog.model.UserProfile;
+import com.kirisamemarisa.blog.repository.NotificationOutboxRepository;
 import com.kirisamemarisa.blog.repository.NotificationRepository;
-import com.kirisamemarisa.blog.repository.UserProfileRepository;
-import com.kirisamemarisa.blog.repository.FriendRequestRepository;
-import com.kirisamemarisa.blog.model.FriendRequest;
+import com.kirisamemarisa.blog.repository.NotificationRepository.NotificationRow;
 import com.kirisamemarisa.blog.service.NotificationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -22,7 +17,6 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.Instant;
-import java.util.Optional;
 
 @Service
 public class NotificationServiceImpl implements NotificationService {
@@ -30,20 +24,26 @@ public class NotificationServiceImpl implements NotificationService {
 
     private final NotificationEventPublisher publisher;
     private final NotificationRepository notificationRepository;
-    private final UserProfileRepository userProfileRepository;
-    private final FriendRequestRepository friendRequestRepository;
-
-    @Autowired(required = false)
-    private RabbitNotificationBridge rabbitBridge;
+    private final UserDisplayProfiles userDisplayProfiles;
+    private final NotificationOutboxRepository notificationOutboxRepository;
+    private final NotificationDispatcher notificationDispatcher;
+    private final NotificationUnreadCounter unreadCounter;
+    private final NotificationReadWatermarks readWatermarks;
 
     public NotificationServiceImpl(NotificationEventPublisher publisher,
             NotificationRepository notificationRepository,
-            UserProfileRepository userProfileRepository,
-            FriendRequestRepository friendRequestRepository) {
+            UserDisplayProfiles userDisplayProfiles,
+            NotificationOutboxRepository notificationOutboxRepository,
+            NotificationDispatcher notificationDispatcher,
+            NotificationUnreadCounter unreadCounter,
+            NotificationReadWatermarks readWatermarks) {
         this.publisher = publisher;
         this.notificationRepository = notificationRepository;
-        this.userProfileRepository = userProfileRepository;
-        this.friendRequestRepository = friendRequestRepository;
+        this.userDisplayProfiles = userDisplayProfiles;
+        this.notificationOutboxRepository = notificationOutboxRepository;
+        this.notificationDispatcher = notificationDispatcher;
+        this.unreadCounter = unreadCounter;
+        this.readWatermarks = readWatermarks;
     }
 
     @Override
@@ -51,62 +51,40 @@ public class NotificationServiceImpl implements NotificationService {
         return publisher.subscribe(userId, initialPayload);
     }
 
+    /**
+     * 只在调用方事务中追加一条发件箱记录，落库与推送由 NotificationDispatcher 在提交后异步完成；
+     * 点赞、收藏类事件推迟到聚合窗口结束后合并投递
+     */
     @Override
     @Transactional
     public void sendNotification(Long userId, NotificationDTO payload) {
         if (payload == null || userId == null)
             return;
 
-        // 1. Save to DB (Skip PRIVATE_MESSAGE as they are stored in private_messages
-        // table)
-        if (!"PRIVATE_MESSAGE".equals(payload.getType())) {
-            try {
-                NotificationType type;
-                try {
-                    type = NotificationType.valueOf(payload.getType());
-                } catch (IllegalArgumentException e) {
-                    logger.warn("Unknown notification type: {}", payload.getType());
-                    type = NotificationType.SYSTEM;
-                }
-
-                Notification notification = new Notification();
-                notification.setReceiverId(userId);
-                notification.setSenderId(payload.getSenderId());
-                notification.setType(type);
-                notification.setReferenceId(payload.getReferenceId());
-                notification.setReferenceExtraId(payload.getReferenceExtraId());
-                notification.setContent(payload.getMessage());
-                notification.setCreatedAt(payload.getCreatedAt() != null ? payload.getCreatedAt() : Instant.now());
-                notification.setRead(false);
-
-                notificationRepository.save(notification);
-            } catch (Exception e) {
-                logger.error("Failed to save notification to DB", e);
-            }
-        }
-
-        // 2. Send Real-time (RabbitMQ / SSE)
-        if (rabbitBridge != null) {
-            try {
-                NotificationMessage m = new NotificationMessage();
-                m.setReceiverId(userId);
-                m.setSenderId(payload.getSenderId());
-                m.setRequestId(payload.getRequestId());
-                m.setType(payload.getType());
-                m.setMessage(payload.getMessage());
-                m.setStatus(payload.getStatus());
-                m.setCreatedAt(payload.getCreatedAt());
-                m.setReferenceId(payload.getReferenceId());
-                m.setReferenceExtraId(payload.getReferenceExtraId());
-                rabbitBridge.publish(m);
-                return;
-            } catch (Exception ex) {
-                logger.warn("Failed to publish notification via Rabbit bridge: {}. Falling back to local send",
-                        ex.toString());
-            }
+        NotificationOutbox row = new NotificationOutbox();
+        row.setReceiverId(userId);
+        row.setSenderId(payload.getSenderId());
+        row.setType(payload.getType() != null ? payload.getType() : NotificationType.SYSTEM.name());
+        String content = payload.getMessage();
+        row.setContent(content != null && content.length() > 500 ? content.substring(0, 500) : content);
+        row.setStatus(payload.getStatus());
+        row.setRequestId(payload.getRequestId());
+        row.setReferenceId(payload.getReferenceId());
+        row.setReferenceExtraId(payload.getReferenceExtraId());
+        row.setCreatedAt(payload.getCreatedAt() != null ? payload.getCreatedAt() : Instant.now());
+        Instant now = Instant.now();
+        Instant due = notificationDispatcher.firstAttemptAt(row.getType(), now);
+        row.setNextAttemptAt(due);
+        notificationOutboxRepository.save(row);
+        // 聚合类事件等窗口结束后由轮询取出
+        if (!due.isAfter(now)) {
+            notificationDispatcher.wakeAfterCommit();
         }
+    }
 
-        publisher.sendNotification(userId, payload);
+    @Override
+    public java.util.Map<String, Object> getDispatchMetrics() {
+        return notificationDispatcher.getMetrics();
     }
 
     @Override
@@ -134,36 +112,54 @@ public class NotificationServiceImpl implements NotificationService {
             return Page.empty(pageable);
         }
 
-        Page<Notification> notifications = notificationRepository.findByReceiverIdAndTypeInOrderByCreatedAtDesc(userId,
-                typeEnums, pageable);
-        return notifications.map(this::convertToDTO);
+        return toDTOs(userId, notificationRepository.findRowsByReceiverIdAndTypeIn(userId, typeEnums, pageable));
     }
 
     @Override
     public Page<NotificationDTO> getUserNotifications(Long userId, Pageable pageable) {
-        Page<Notification> notifications = notificationRepository.findByReceiverIdOrderByCreatedAtDesc(userId,
-                pageable);
-        return notifications.map(this::convertToDTO);
+        return toDTOs(userId, notificationRepository.findRowsByReceiverId(userId, pageable));
+    }
+
+    /**
+     * 一页通知转为 DTO：水位与发送者资料各一次批量查询，与页大小无关
+     */
+    private Page<NotificationDTO> toDTOs(Long userId, Page<NotificationRow> rows) {
+        java.util.Map<String, Long> marks = readWatermarks.marksOf(userId);
+        java.util.Set<Long> senderIds = new java.util.HashSet<>();
+        for (NotificationRow n : rows.getContent()) {
+            if (n.getSenderId() != null) {
+                senderIds.add(n.getSenderId());
+            }
+        }
+        java.util.Map<Long, String[]> senders = userDisplayProfiles.load(senderIds);
+        return rows.map(n -> convertToDTO(n, marks, senders.get(n.getSenderId())));
     }
 
     @Override
     public long getUnreadCount(Long userId) {
-        return notificationRepository.countByReceiverIdAndIsReadFalse(userId);
+        java.util.Map<String, Long> counts = unreadCounter.get(userId);
+        return sumOf(counts, NotificationType.values());
     }
 
     @Override
     @Transactional
     public void markAsRead(Long notificationId) {
         notificationRepository.findById(notificationId).ifPresent(n -> {
-            n.setRead(true);
-            notificationRepository.saveAndFlush(n);
+            // 已在水位之下的无需再标记；条件更新保证并发重复标记时只扣减一次
+            if (n.isRead() || readWatermarks.covers(n)) {
+                return;
+            }
+            if (notificationRepository.markAsReadIfUnread(notificationId) > 0) {
+                unreadCounter.adjust(n.getReceiverId(), n.getType().name(), -1);
+            }
         });
     }
 
     @Override
     @Transactional
     public void markAllAsRead(Long userId) {
-        notificationRepository.markAllAsRead(userId);
+        readWatermarks.advance(userId, java.util.Arrays.asList(NotificationType.values()));
+        unreadCounter.reset(userId, java.util.Arrays.asList(NotificationType.values()));
     }
 
     @Override
@@ -185,55 +181,65 @@ public class NotificationServiceImpl implements NotificationService {
                 .collect(java.util.stream.Collectors.toList());
 
         if (!typeEnums.isEmpty()) {
-            notificationRepository.markAllAsRead(userId, typeEnums);
+            readWatermarks.advance(userId, typeEnums);
+            unreadCounter.reset(userId, typeEnums);
         }
     }
 
+    /**
+     * 各分类未读数，由 Redis 中按类型维护的计数汇总，不访问数据库
+     */
     @Override
     public java.util.Map<String, Long> getUnreadStats(Long userId) {
+        java.util.Map<String, Long> counts = unreadCounter.get(userId);
         java.util.Map<String, Long> stats = new java.util.HashMap<>();
 
         // LIKES: POST_LIKE, POST_FAVORITE, COMMENT_LIKE, REPLY_LIKE
-        stats.put("LIKES", notificationRepository.countByReceiverIdAndIsReadFalseAndTypeIn(userId,
-                java.util.Arrays.asList(
-                        NotificationType.POST_LIKE,
-                        NotificationType.POST_FAVORITE,
-                        NotificationType.COMMENT_LIKE,
-                        NotificationType.REPLY_LIKE)));
+        stats.put("LIKES", sumOf(counts,
+                NotificationType.POST_LIKE,
+                NotificationType.POST_FAVORITE,
+                NotificationType.COMMENT_LIKE,
+                NotificationType.REPLY_LIKE));
 
         // COMMENTS: POST_COMMENT, COMMENT_REPLY
-        stats.put("COMMENTS", notificationRepository.countByReceiverIdAndIsReadFalseAndTypeIn(userId,
-                java.util.Arrays.asList(
-                        NotificationType.POST_COMMENT,
-                        NotificationType.COMMENT_REPLY)));
+        stats.put("COMMENTS", sumOf(counts,
+                NotificationType.POST_COMMENT,
+                NotificationType.COMMENT_REPLY));
 
         // FOLLOW: FOLLOW, UNFOLLOW
-        stats.put("FOLLOW", notificationRepository.countByReceiverIdAndIsReadFalseAndTypeIn(userId,
-                java.util.Arrays.asList(
-                        NotificationType.FOLLOW,
-                        NotificationType.UNFOLLOW)));
+        stats.put("FOLLOW", sumOf(counts,
+                NotificationType.FOLLOW,
+                NotificationType.UNFOLLOW));
 
         // REQUESTS: FRIEND_REQUEST, FRIEND_REQUEST_ACCEPTED, FRIEND_REQUEST_REJECTED +
         // Pending Friend Requests
-        long unreadRequestNotes = notificationRepository.countByReceiverIdAndIsReadFalseAndTypeIn(userId,
-                java.util.Arrays.asList(
-                        NotificationType.FRIEND_REQUEST,
-                        NotificationType.FRIEND_REQUEST_ACCEPTED,
-                        NotificationType.FRIEND_REQUEST_REJECTED));
-        long pendingRequests = friendRequestRepository.countByReceiverIdAndStatus(userId,
-                FriendRequest.Status.PENDING);
+        long unreadRequestNotes = sumOf(counts,
+                NotificationType.FRIEND_REQUEST,
+                NotificationType.FRIEND_REQUEST_ACCEPTED,
+                NotificationType.FRIEND_REQUEST_REJECTED);
+        long pendingRequests = counts.getOrDefault(NotificationUnreadCounter.PENDING_REQUESTS, 0L);
         stats.put("REQUESTS", unreadRequestNotes + pendingRequests);
 
-        // ALL: Sum of above (or just query all)
-        // Note: This excludes SYSTEM or other types if they exist but aren't in
-        // categories
-        // Better to query all unread
-        stats.put("ALL", notificationRepository.countByReceiverIdAndIsReadFalse(userId));
+        // ALL: all unread notifications, including types outside the categories above
+        stats.put("ALL", sumOf(counts, NotificationType.values()));
 
         return stats;
     }
 
-    private NotificationDTO convertToDTO(Notification n) {
+    @Override
+    public java.util.Map<String, Object> getUnreadCounterMetrics() {
+        return unreadCounter.getMetrics();
+    }
+
+    private static long sumOf(java.util.Map<String, Long> counts, NotificationType... types) {
+        long sum = 0;
+        for (NotificationType type : types) {
+            sum += counts.getOrDefault(type.name(), 0L);
+        }
+        return sum;
+    }
+
+    private NotificationDTO convertToDTO(NotificationRow n, java.util.Map<String, Long> marks, String[] sender) {
         NotificationDTO dto = new NotificationDTO();
         dto.setRequestId(n.getId());
         dto.setType(n.getType().name());
@@ -243,13 +249,17 @@ public class NotificationServiceImpl implements NotificationService {
         dto.setCreatedAt(n.getCreatedAt());
         dto.setReferenceId(n.getReferenceId());
         dto.setReferenceExtraId(n.getReferenceExtraId());
-        dto.setRead(n.isRead());
-
-        Optional<UserProfile> senderProfile = userProfileRepository.findById(n.getSenderId());
-        senderProfile.ifPresent(p -> {
-            dto.setSenderNickname(p.getNickname());
-            dto.setSenderAvatarUrl(p.getAvatarUrl());
-        });
+        dto.setRead(NotificationReadWatermarks.isRead(
+                NotificationReadWatermarks.sequenceOf(n.getId(), n.getLastEventId()), n.getType(), n.getIsRead(),
+                marks));
+        if (n.getAggregateKey() != null) {
+            dto.setActorCount(n.getActorCount() != null ? n.getActorCount() : 1);
+            dto.setRecentActorIds(NotificationDispatcher.parseActorIds(n.getRecentActorIds()));
+        }
+        if (sender != null) {
+            dto.setSenderNickname(sender[0]);
+            dto.setSenderAvatarUrl(sender[1]);
+        }
 
         return dto;
     }
@@ -0,0 +1,346 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.model.FriendRequest;
+import com.kirisamemarisa.blog.model.NotificationType;
+import com.kirisamemarisa.blog.repository.FriendRequestRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 每个用户的未读通知计数，存于 Redis Hash（通知类型 → 未读数，另有待处理好友申请数）。
+ * 通知落库、标记已读、好友申请状态变化时增减；Hash 不存在时不增减，由下一次读取从数据库重建。
+ * 增减在事务提交后执行，并发下仍可能与数据库有少量偏差，由定时对账按数据库的值覆盖。
+ */
+@Component
+public class NotificationUnreadCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationUnreadCounter.class);
+
+    static final String KEY_PREFIX = "blog:notify:unread:";
+    // 已建立计数的用户 → 上次对账时间
+    static final String KEY_USERS = "blog:notify:unread:users";
+    static final String PENDING_REQUESTS = "PENDING_REQUESTS";
+    private static final String LEASE_NAME = "notification-unread-reconcile";
+    private static final long LEASE_TTL_MS = 60_000L;
+
+    /**
+     * Hash 存在时才累加，结果小于 0 时归零。在流水线中以 EVAL 执行。
+     * KEYS: 1 用户 Hash
+     * ARGV: {字段, 增量} 二元组
+     */
+    private static final String ADJUST_LUA =
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "for i = 1, #ARGV, 2 do " +
+            "  if redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1]) < 0 then " +
+            "    redis.call('HSET', KEYS[1], ARGV[i], 0) " +
+            "  end " +
+            "end " +
+            "return 1";
+
+    /**
+     * 整体写入计数。ARGV[1] 为 1 时重建（覆盖并设置过期时间），为 0 时对账（只覆盖仍存在的 Hash，不改过期时间）。
+     * KEYS: 1 用户 Hash
+     * ARGV: 1 模式, 2 过期毫秒, 3.. {字段, 值} 二元组
+     * 返回: 对账时与原值不同的字段数；Hash 不存在时返回 -1
+     */
+    private static final DefaultRedisScript<Long> WRITE_SCRIPT = new DefaultRedisScript<>(
+            "local rebuild = ARGV[1] == '1' " +
+            "if not rebuild and redis.call('EXISTS', KEYS[1]) == 0 then return -1 end " +
+            "local changed = 0 " +
+            "if rebuild then redis.call('DEL', KEYS[1]) end " +
+            "for i = 3, #ARGV, 2 do " +
+            "  if not rebuild and redis.call('HGET', KEYS[1], ARGV[i]) ~= ARGV[i + 1] then changed = changed + 1 end " +
+            "  redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) " +
+            "end " +
+            "if rebuild then redis.call('PEXPIRE', KEYS[1], ARGV[2]) end " +
+            "return changed",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final FriendRequestRepository friendRequestRepository;
+    private final ClusterCoordinator clusterCoordinator;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final AtomicLong reconciled = new AtomicLong();
+    private final AtomicLong corrections = new AtomicLong();
+    private volatile long lastReconcileAt;
+
+    @Value("${blog.notification.unread.ttl-ms:86400000}")
+    private long ttlMs;
+
+    // 同一用户两次对账的最小间隔
+    @Value("${blog.notification.unread.reconcile-age-ms:600000}")
+    private long reconcileAgeMs;
+
+    @Value("${blog.notification.unread.reconcile-batch-size:500}")
+    private int reconcileBatchSize;
+
+    public NotificationUnreadCounter(StringRedisTemplate redisTemplate,
+            JdbcTemplate jdbcTemplate,
+            FriendRequestRepository friendRequestRepository,
+            ClusterCoordinator clusterCoordinator) {
+        this.redisTemplate = redisTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.friendRequestRepository = friendRequestRepository;
+        this.clusterCoordinator = clusterCoordinator;
+    }
+
+    /**
+     * 读取未读计数：一次 HGETALL，未建立时从数据库重建
+     *
+     * @return 字段 → 未读数，包含全部通知类型与 PENDING_REQUESTS
+     */
+    public Map<String, Long> get(Long userId) {
+        try {
+            Map<Object, Object> hash = redisTemplate.opsForHash().entries(KEY_PREFIX + userId);
+            if (!hash.isEmpty()) {
+                hits.incrementAndGet();
+                Map<String, Long> counts = emptyCounts();
+                hash.forEach((k, v) -> counts.put((String) k, Long.parseLong((String) v)));
+                return counts;
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to read unread counters for user {}: {}", userId, e.toString());
+            return load(Collections.singletonList(userId)).get(userId);
+        }
+        Map<String, Long> counts = load(Collections.singletonList(userId)).get(userId);
+        rebuilds.incrementAndGet();
+        try {
+            write(userId, counts, true);
+            redisTemplate.opsForZSet().add(KEY_USERS, String.valueOf(userId), System.currentTimeMillis());
+        } catch (Exception e) {
+            logger.warn("Failed to cache unread counters for user {}: {}", userId, e.toString());
+        }
+        return counts;
+    }
+
+    /**
+     * 调整一个用户的计数。处于事务中时提交后再执行。
+     */
+    public void adjust(Long userId, String field, long delta) {
+        if (userId == null || delta == 0) {
+            return;
+        }
+        Map<String, Long> deltas = new HashMap<>();
+        deltas.put(field, delta);
+        adjustAll(Collections.singletonMap(userId, deltas));
+    }
+
+    /**
+     * 批量调整多个用户的计数，一次流水线提交
+     *
+     * @param deltas 用户 id → (字段 → 增量)
+     */
+    public void adjustAll(Map<Long, Map<String, Long>> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> {
+            try {
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection conn = (StringRedisConnection) connection;
+                    for (Map.Entry<Long, Map<String, Long>> e : deltas.entrySet()) {
+                        List<String> keysAndArgs = new ArrayList<>();
+                        keysAndArgs.add(KEY_PREFIX + e.getKey());
+                        e.getValue().forEach((field, delta) -> {
+                            keysAndArgs.add(field);
+                            keysAndArgs.add(String.valueOf(delta));
+                        });
+                        conn.eval(ADJUST_LUA, ReturnType.INTEGER, 1, keysAndArgs.toArray(new String[0]));
+                    }
+                    return null;
+                });
+            } catch (Exception e) {
+                logger.warn("Failed to adjust unread counters for {} users: {}", deltas.size(), e.toString());
+            }
+        });
+    }
+
+    /**
+     * 把指定类型的计数归零（全部已读）。处于事务中时提交后再执行。
+     */
+    public void reset(Long userId, Collection<NotificationType> types) {
+        List<String> args = new ArrayList<>();
+        for (NotificationType type : types) {
+            args.add(type.name());
+            args.add("0");
+        }
+        afterCommit(() -> {
+            try {
+                // 借用对账模式：只覆盖仍存在的 Hash
+                List<String> argv = new ArrayList<>();
+                argv.add("0");
+                argv.add(String.valueOf(ttlMs));
+                argv.addAll(args);
+                redisTemplate.execute(WRITE_SCRIPT, Collections.singletonList(KEY_PREFIX + userId), argv.toArray());
+            } catch (Exception e) {
+                logger.warn("Failed to reset unread counters for user {}: {}", userId, e.toString());
+            }
+        });
+    }
+
+    /**
+     * 丢弃用户的计数，下一次读取时重建。处于事务中时提交后再丢弃，避免重建读到提交前的数据。
+     */
+    public void invalidate(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(userIds.size());
+        for (Long id : userIds) {
+            keys.add(KEY_PREFIX + id);
+        }
+        afterCommit(() -> {
+            try {
+                redisTemplate.delete(keys);
+            } catch (Exception e) {
+                logger.warn("Failed to invalidate unread counters for {} users: {}", keys.size(), e.toString());
+            }
+        });
+    }
+
+    /**
+     * 定时对账：取最久未对账的一批用户，以数据库中的计数覆盖；Hash 已过期的用户移出登记
+     */
+    @Scheduled(initialDelayString = "${blog.notification.unread.reconcile-interval-ms:60000}",
+            fixedDelayString = "${blog.notification.unread.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        ClusterCoordinator.Lease lease = clusterCoordinator.tryAcquire(LEASE_NAME, LEASE_TTL_MS);
+        if (lease == null) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            Set<String> members = redisTemplate.opsForZSet()
+                    .rangeByScore(KEY_USERS, 0, now - reconcileAgeMs, 0, reconcileBatchSize);
+            if (members == null || members.isEmpty()) {
+                return;
+            }
+            List<Long> userIds = new ArrayList<>(members.size());
+            for (String m : members) {
+                userIds.add(Long.parseLong(m));
+            }
+            Map<Long, Map<String, Long>> counts = load(userIds);
+            for (Long userId : userIds) {
+                long changed = write(userId, counts.get(userId), false);
+                if (changed < 0) {
+                    redisTemplate.opsForZSet().remove(KEY_USERS, String.valueOf(userId));
+                    continue;
+                }
+                corrections.addAndGet(changed);
+                redisTemplate.opsForZSet().add(KEY_USERS, String.valueOf(userId), now);
+                reconciled.incrementAndGet();
+            }
+        } catch (Exception e) {
+            logger.warn("Unread counter reconcile failed: {}", e.toString());
+        } finally {
+            lastReconcileAt = System.currentTimeMillis();
+            clusterCoordinator.release(lease);
+        }
+    }
+
+    /**
+     * 从数据库统计：以 (用户 × 类型) 列表驱动，LEFT JOIN 水位行（缺失视为 0），
+     * 每个 (用户, 类型) 在 (receiver_id, is_read, type) 索引上计数；读路径不写水位行。
+     * 另一条统计待处理好友申请
+     */
+    private Map<Long, Map<String, Long>> load(List<Long> userIds) {
+        Map<Long, Map<String, Long>> result = new HashMap<>();
+        for (Long id : userIds) {
+            result.put(id, emptyCounts());
+        }
+        List<Object> args = new ArrayList<>(userIds.size() + NotificationType.values().length);
+        StringBuilder users = new StringBuilder();
+        for (Long id : userIds) {
+            users.append(users.length() == 0 ? "SELECT ? AS user_id" : " UNION ALL SELECT ?");
+            args.add(id);
+        }
+        StringBuilder types = new StringBuilder();
+        for (NotificationType type : NotificationType.values()) {
+            types.append(types.length() == 0 ? "SELECT ? AS type" : " UNION ALL SELECT ?");
+            args.add(type.name());
+        }
+        jdbcTemplate.query("SELECT u.user_id, t.type, COUNT(n.id) FROM (" + users + ") u CROSS JOIN (" + types + ") t "
+                + "LEFT JOIN notification_read_marks m ON m.user_id = u.user_id AND m.type = t.type "
+                + "JOIN notifications n ON n.receiver_id = u.user_id AND n.is_read = 0 AND n.type = t.type "
+                + "AND COALESCE(n.last_event_id, n.id) > COALESCE(m.last_read_id, 0) GROUP BY u.user_id, t.type",
+                rs -> {
+                    result.get(rs.getLong(1)).put(rs.getString(2), rs.getLong(3));
+                }, args.toArray());
+        for (Object[] row : friendRequestRepository.countByReceiverIdsAndStatus(userIds,
+                FriendRequest.Status.PENDING)) {
+            result.get(((Number) row[0]).longValue()).put(PENDING_REQUESTS, ((Number) row[1]).longValue());
+        }
+        return result;
+    }
+
+    private long write(Long userId, Map<String, Long> counts, boolean rebuild) {
+        List<String> argv = new ArrayList<>();
+        argv.add(rebuild ? "1" : "0");
+        argv.add(String.valueOf(ttlMs));
+        counts.forEach((field, value) -> {
+            argv.add(field);
+            argv.add(String.valueOf(value));
+        });
+        Long changed = redisTemplate.execute(WRITE_SCRIPT, Collections.singletonList(KEY_PREFIX + userId),
+                argv.toArray());
+        return changed != null ? changed : 0L;
+    }
+
+    private static Map<String, Long> emptyCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (NotificationType type : NotificationType.values()) {
+            counts.put(type.name(), 0L);
+        }
+        counts.put(PENDING_REQUESTS, 0L);
+        return counts;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        Long tracked = redisTemplate.opsForZSet().zCard(KEY_USERS);
+        metrics.put("trackedUsers", tracked != null ? tracked : 0L);
+        metrics.put("hits", hits.get());
+        metrics.put("rebuilds", rebuilds.get());
+        metrics.put("reconciledUsers", reconciled.get());
+        metrics.put("corrections", corrections.get());
+        metrics.put("lastReconcileAt", lastReconcileAt);
+        return metrics;
+    }
+}
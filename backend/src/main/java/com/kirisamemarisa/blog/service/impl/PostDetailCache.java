@@ -0,0 +1,366 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kirisamemarisa.blog.common.LocalTtlCache;
+import com.kirisamemarisa.blog.dto.BlogPostDTO;
+import com.kirisamemarisa.blog.service.EngagementCounterService;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 博客详情两级缓存。
+ * L1 为进程内 LRU（条目数与 TTL 受限），L2 为 Redis 中的紧凑 JSON 数组快照。
+ * 缓存内容与访问者无关：点赞/收藏标记和浏览量在读取后由调用方覆盖。
+ * 失效时把 L2 换成短期墓碑并通过 Redis 频道通知所有实例清除 L1。
+ * 回填只在 L2 为空时写入：失效之前从数据库读到的旧内容在墓碑有效期内无法写回，也不会覆盖已有快照，
+ * L1 只在 L2 写入成功后填充。
+ * 计数落库后不失效，而是把增量直接改写到 L2 快照的计数字段（见 applyCounterDeltas），热门博客的快照持续可用。
+ */
+@Component
+public class PostDetailCache implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostDetailCache.class);
+
+    static final String KEY_PREFIX = "blog:post:detail:";
+    static final String INVALIDATE_CHANNEL = "blog:post:detail:invalidate";
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    // 墓碑值：不是合法的 JSON 数组快照
+    private static final String TOMBSTONE = "~";
+
+    /**
+     * 仅当快照与读取时一致才改写，保留剩余 TTL；快照不存在时写入墓碑，拦住计数落库之前读库的回填。
+     * KEYS: 1 快照 key
+     * ARGV: 1 读取时的快照, 2 新快照, 3 墓碑值, 4 墓碑毫秒
+     * 返回: 1 已改写，2 写入墓碑，0 快照已变化
+     */
+    private static final DefaultRedisScript<Long> PATCH_SCRIPT = new DefaultRedisScript<>(
+            "local cur = redis.call('GET', KEYS[1]) " +
+            "if not cur then redis.call('SET', KEYS[1], ARGV[3], 'PX', tonumber(ARGV[4])) return 2 end " +
+            "if cur ~= ARGV[1] then return 0 end " +
+            "local ttl = redis.call('PTTL', KEYS[1]) " +
+            "if ttl > 0 then redis.call('SET', KEYS[1], ARGV[2], 'PX', ttl) end " +
+            "return 1",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper objectMapper;
+
+    @Value("${blog.post.detail-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${blog.post.detail-cache.local-max-size:10000}")
+    private int localMaxSize;
+
+    @Value("${blog.post.detail-cache.local-ttl-ms:30000}")
+    private long localTtlMs;
+
+    @Value("${blog.post.detail-cache.redis-ttl-seconds:600}")
+    private long redisTtlSeconds;
+
+    // 失效后墓碑的保留时间，需覆盖一次回源读库的耗时
+    @Value("${blog.post.detail-cache.tombstone-ms:5000}")
+    private long tombstoneMs;
+
+    private LocalTtlCache<Long, Snapshot> local;
+
+    private final AtomicLong redisHits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong rejectedPuts = new AtomicLong();
+    private final AtomicLong patchedCounters = new AtomicLong();
+
+    public PostDetailCache(StringRedisTemplate redisTemplate,
+            RedisMessageListenerContainer listenerContainer,
+            ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        local = new LocalTtlCache<>(localMaxSize, localTtlMs);
+        if (enabled) {
+            listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+        }
+    }
+
+    /**
+     * 读取缓存
+     *
+     * @return 缓存内容的新副本，调用方可自由修改；未命中返回 null
+     */
+    public BlogPostDTO get(Long id) {
+        if (!enabled || id == null) {
+            return null;
+        }
+        Snapshot snap = local.get(id);
+        if (snap == null) {
+            try {
+                String raw = redisTemplate.opsForValue().get(KEY_PREFIX + id);
+                if (raw != null && !TOMBSTONE.equals(raw)) {
+                    snap = objectMapper.readValue(raw, Snapshot.class);
+                    local.put(id, snap);
+                    redisHits.incrementAndGet();
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to read post detail cache for {}: {}", id, e.toString());
+            }
+        }
+        return snap == null ? null : snap.toDTO();
+    }
+
+    public void put(BlogPostDTO dto) {
+        if (!enabled || dto == null || dto.getId() == null) {
+            return;
+        }
+        loads.incrementAndGet();
+        Snapshot snap = Snapshot.of(dto);
+        try {
+            // 已有快照或墓碑时不写：回填内容可能早于其后的改写或失效
+            Boolean written = redisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + dto.getId(),
+                    objectMapper.writeValueAsString(snap), redisTtlSeconds, TimeUnit.SECONDS);
+            if (Boolean.TRUE.equals(written)) {
+                local.put(dto.getId(), snap);
+            } else {
+                rejectedPuts.incrementAndGet();
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to write post detail cache for {}: {}", dto.getId(), e.toString());
+        }
+    }
+
+    /**
+     * 失效指定博客。处于事务中时提交后再失效一次，避免提交前被并发读回填旧数据。
+     */
+    public void evict(Long id) {
+        if (!enabled || id == null) {
+            return;
+        }
+        evictNow(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(id);
+                }
+            });
+        }
+    }
+
+    /**
+     * 把已落库的计数增量改写到 L2 快照中，并通知各实例清除 L1（不写墓碑）。
+     * 快照在读取后被并发修改时退回为普通失效。
+     *
+     * @param deltas 博客 id → (计数项 → 增量)，计数项见 EngagementCounterService
+     */
+    public void applyCounterDeltas(Map<Long, Map<String, Long>> deltas) {
+        if (!enabled || deltas == null || deltas.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(deltas.keySet());
+        List<String> raws;
+        try {
+            raws = redisTemplate.opsForValue().multiGet(ids.stream().map(id -> KEY_PREFIX + id).toList());
+        } catch (Exception e) {
+            logger.warn("Failed to read post detail cache for counter update: {}", e.toString());
+            ids.forEach(this::evictNow);
+            return;
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            String raw = raws != null && i < raws.size() ? raws.get(i) : null;
+            if (TOMBSTONE.equals(raw)) {
+                continue;
+            }
+            try {
+                String patched = "";
+                if (raw != null) {
+                    Snapshot snap = objectMapper.readValue(raw, Snapshot.class);
+                    snap.addCounters(deltas.get(id));
+                    patched = objectMapper.writeValueAsString(snap);
+                }
+                Long result = redisTemplate.execute(PATCH_SCRIPT, Collections.singletonList(KEY_PREFIX + id),
+                        raw != null ? raw : "", patched, TOMBSTONE, String.valueOf(tombstoneMs));
+                if (result != null && result == 0L) {
+                    evictNow(id);
+                    continue;
+                }
+                patchedCounters.incrementAndGet();
+                local.remove(id);
+                redisTemplate.convertAndSend(INVALIDATE_CHANNEL, id.toString());
+            } catch (Exception e) {
+                logger.warn("Failed to update counters in post detail cache for {}: {}", id, e.toString());
+                evictNow(id);
+            }
+        }
+    }
+
+    private void evictNow(Long id) {
+        invalidations.incrementAndGet();
+        local.remove(id);
+        try {
+            redisTemplate.opsForValue().set(KEY_PREFIX + id, TOMBSTONE, tombstoneMs, TimeUnit.MILLISECONDS);
+            redisTemplate.convertAndSend(INVALIDATE_CHANNEL, id.toString());
+        } catch (Exception e) {
+            logger.warn("Failed to invalidate post detail cache for {}: {}", id, e.toString());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            local.remove(Long.valueOf(new String(message.getBody(), StandardCharsets.UTF_8).trim()));
+        } catch (NumberFormatException e) {
+            logger.debug("Ignoring malformed post detail invalidation message");
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        long localHits = local.getHits();
+        long l2Hits = redisHits.get();
+        long misses = Math.max(0L, local.getMisses() - l2Hits);
+        long total = localHits + l2Hits + misses;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("localSize", local.size());
+        metrics.put("localHits", localHits);
+        metrics.put("redisHits", l2Hits);
+        metrics.put("misses", misses);
+        metrics.put("hitRate", total == 0 ? 0.0 : (double) (localHits + l2Hits) / total);
+        metrics.put("loads", loads.get());
+        metrics.put("localEvictions", local.getEvictions());
+        metrics.put("invalidations", invalidations.get());
+        metrics.put("rejectedPuts", rejectedPuts.get());
+        metrics.put("patchedCounters", patchedCounters.get());
+        return metrics;
+    }
+
+    private static Long toMillis(LocalDateTime t) {
+        return t == null ? null : t.atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(Long ms) {
+        return ms == null ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(ms), ZONE);
+    }
+
+    /**
+     * 与访问者无关的详情快照，序列化为按字段顺序排列的 JSON 数组，时间存为毫秒时间戳
+     */
+    @JsonFormat(shape = JsonFormat.Shape.ARRAY)
+    @JsonPropertyOrder({ "id", "title", "userId", "coverImageUrl", "content", "directory", "likeCount",
+            "commentCount", "shareCount", "favoriteCount", "repostCount", "createdAt", "updatedAt", "repost",
+            "originalPostId", "authorNickname", "authorAvatarUrl", "categoryName", "tags", "status", "excerpt" })
+    static class Snapshot {
+        public Long id;
+        public String title;
+        public Long userId;
+        public String coverImageUrl;
+        public String content;
+        public String directory;
+        public Long likeCount;
+        public Long commentCount;
+        public Long shareCount;
+        public Long favoriteCount;
+        public Integer repostCount;
+        public Long createdAt;
+        public Long updatedAt;
+        public Boolean repost;
+        public Long originalPostId;
+        public String authorNickname;
+        public String authorAvatarUrl;
+        public String categoryName;
+        public List<String> tags;
+        public String status;
+        public String excerpt;
+
+        static Snapshot of(BlogPostDTO dto) {
+            Snapshot s = new Snapshot();
+            s.id = dto.getId();
+            s.title = dto.getTitle();
+            s.userId = dto.getUserId();
+            s.coverImageUrl = dto.getCoverImageUrl();
+            s.content = dto.getContent();
+            s.directory = dto.getDirectory();
+            s.likeCount = dto.getLikeCount();
+            s.commentCount = dto.getCommentCount();
+            s.shareCount = dto.getShareCount();
+            s.favoriteCount = dto.getFavoriteCount();
+            s.repostCount = dto.getRepostCount();
+            s.createdAt = toMillis(dto.getCreatedAt());
+            s.updatedAt = toMillis(dto.getUpdatedAt());
+            s.repost = dto.getRepost();
+            s.originalPostId = dto.getOriginalPostId();
+            s.authorNickname = dto.getAuthorNickname();
+            s.authorAvatarUrl = dto.getAuthorAvatarUrl();
+            s.categoryName = dto.getCategoryName();
+            s.tags = dto.getTags() == null ? null : new ArrayList<>(dto.getTags());
+            s.status = dto.getStatus();
+            s.excerpt = dto.getExcerpt();
+            return s;
+        }
+
+        void addCounters(Map<String, Long> d) {
+            if (d == null) {
+                return;
+            }
+            likeCount = EngagementCounterService.merge(likeCount, d.get(EngagementCounterService.LIKES));
+            favoriteCount = EngagementCounterService.merge(favoriteCount, d.get(EngagementCounterService.FAVORITES));
+            shareCount = EngagementCounterService.merge(shareCount, d.get(EngagementCounterService.SHARES));
+            commentCount = EngagementCounterService.merge(commentCount, d.get(EngagementCounterService.COMMENTS));
+        }
+
+        BlogPostDTO toDTO() {
+            BlogPostDTO dto = new BlogPostDTO();
+            dto.setId(id);
+            dto.setTitle(title);
+            dto.setUserId(userId);
+            dto.setCoverImageUrl(coverImageUrl);
+            dto.setContent(content);
+            dto.setDirectory(directory);
+            dto.setLikeCount(likeCount);
+            dto.setCommentCount(commentCount);
+            dto.setShareCount(shareCount);
+            dto.setFavoriteCount(favoriteCount);
+            dto.setRepostCount(repostCount);
+            dto.setCreatedAt(fromMillis(createdAt));
+            dto.setUpdatedAt(fromMillis(updatedAt));
+            dto.setRepost(repost);
+            dto.setOriginalPostId(originalPostId);
+            dto.setAuthorNickname(authorNickname);
+            dto.setAuthorAvatarUrl(authorAvatarUrl);
+            dto.setCategoryName(categoryName);
+            dto.setTags(tags == null ? null : new ArrayList<>(tags));
+            dto.setStatus(status);
+            dto.setExcerpt(excerpt);
+            return dto;
+        }
+    }
+}
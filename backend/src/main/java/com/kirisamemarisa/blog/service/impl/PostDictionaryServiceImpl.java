@@ -0,0 +1,234 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.common.LocalTtlCache;
+import com.kirisamemarisa.blog.model.Category;
+import com.kirisamemarisa.blog.model.Tag;
+import com.kirisamemarisa.blog.repository.CategoryRepository;
+import com.kirisamemarisa.blog.repository.TagRepository;
+import com.kirisamemarisa.blog.service.PostDictionaryService;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 标签/分类字典。
+ * 本地缓存“名称 → id”，未命中的名称用一次 IN 查询补齐，仍缺失的用一条多行
+ * INSERT ... ON DUPLICATE KEY UPDATE id = id 补建（只跳过重名，不像 INSERT IGNORE 那样静默截断超长名称），
+ * 再以共享锁读取拿到 id（并发创建同名标签时读到对方已提交的行）。
+ * 新建前校验名称长度，超长时抛出 IllegalArgumentException。
+ * 新建项在事务提交后才写入缓存，避免回滚后缓存里留下不存在的 id。
+ * 名称按小写匹配，与数据库的大小写不敏感排序规则一致。
+ * 标签与分类只增不改，缓存不需要主动失效；直接在库里改名或删除时，各实例的旧映射在 TTL 到期后淘汰。
+ */
+@Service
+public class PostDictionaryServiceImpl implements PostDictionaryService {
+
+    // 与 tag.name / category.name 的列长度一致
+    static final int MAX_NAME_LENGTH = 50;
+
+    private final TagRepository tagRepository;
+    private final CategoryRepository categoryRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${blog.dictionary.max-size:10000}")
+    private int maxSize;
+
+    @Value("${blog.dictionary.ttl-ms:600000}")
+    private long ttlMs;
+
+    private Dictionary tags;
+    private Dictionary categories;
+
+    public PostDictionaryServiceImpl(TagRepository tagRepository,
+            CategoryRepository categoryRepository,
+            JdbcTemplate jdbcTemplate) {
+        this.tagRepository = tagRepository;
+        this.categoryRepository = categoryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        tags = new Dictionary("tag", "标签", tagRepository::findIdAndNameByNameIn);
+        categories = new Dictionary("category", "分类", categoryRepository::findIdAndNameByNameIn);
+    }
+
+    @Override
+    public Category resolveCategory(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return null;
+        }
+        Map<String, Long> ids = categories.resolve(Collections.singletonList(name), true);
+        return ids.isEmpty() ? null : categoryRepository.getReferenceById(ids.values().iterator().next());
+    }
+
+    @Override
+    public Long findCategoryId(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return null;
+        }
+        Map<String, Long> ids = categories.resolve(Collections.singletonList(name), false);
+        return ids.isEmpty() ? null : ids.values().iterator().next();
+    }
+
+    @Override
+    public Set<Tag> resolveTags(Collection<String> names) {
+        Set<Tag> result = new LinkedHashSet<>();
+        if (names == null || names.isEmpty()) {
+            return result;
+        }
+        for (Long id : tags.resolve(names, true).values()) {
+            result.add(tagRepository.getReferenceById(id));
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("tag", tags.metrics());
+        metrics.put("category", categories.metrics());
+        return metrics;
+    }
+
+    private static String keyOf(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private final class Dictionary {
+        private final String table;
+        private final String label;
+        // {id, name}
+        private final Function<Collection<String>, List<Object[]>> lookup;
+        private final LocalTtlCache<String, Long> cache;
+        private final AtomicLong inserts = new AtomicLong();
+
+        Dictionary(String table, String label, Function<Collection<String>, List<Object[]>> lookup) {
+            this.table = table;
+            this.label = label;
+            this.lookup = lookup;
+            this.cache = new LocalTtlCache<>(maxSize, ttlMs);
+        }
+
+        /**
+         * @return 小写名称 → id，按输入顺序去重；create 为 false 时不存在的名称不在结果中
+         */
+        Map<String, Long> resolve(Collection<String> names, boolean create) {
+            Map<String, String> wanted = new LinkedHashMap<>();
+            for (String name : names) {
+                if (name == null || name.trim().isEmpty()) {
+                    continue;
+                }
+                String clean = name.trim();
+                if (create && clean.codePointCount(0, clean.length()) > MAX_NAME_LENGTH) {
+                    throw new IllegalArgumentException(label + "名称不能超过" + MAX_NAME_LENGTH + "个字符");
+                }
+                wanted.putIfAbsent(keyOf(clean), clean);
+            }
+            Map<String, Long> found = new LinkedHashMap<>();
+            Map<String, String> misses = new LinkedHashMap<>();
+            for (Map.Entry<String, String> e : wanted.entrySet()) {
+                Long id = cache.get(e.getKey());
+                if (id != null) {
+                    found.put(e.getKey(), id);
+                } else {
+                    misses.put(e.getKey(), e.getValue());
+                }
+            }
+            if (!misses.isEmpty()) {
+                for (Object[] row : lookup.apply(misses.values())) {
+                    String key = keyOf((String) row[1]);
+                    if (misses.remove(key) != null) {
+                        Long id = ((Number) row[0]).longValue();
+                        found.put(key, id);
+                        cache.put(key, id);
+                    }
+                }
+            }
+            if (create && !misses.isEmpty()) {
+                for (Map.Entry<String, Long> e : insertMissing(misses.values()).entrySet()) {
+                    if (misses.containsKey(e.getKey())) {
+                        found.put(e.getKey(), e.getValue());
+                    }
+                }
+            }
+            // 恢复输入顺序
+            Map<String, Long> ordered = new LinkedHashMap<>();
+            for (String key : wanted.keySet()) {
+                Long id = found.get(key);
+                if (id != null) {
+                    ordered.put(key, id);
+                }
+            }
+            return ordered;
+        }
+
+        private Map<String, Long> insertMissing(Collection<String> names) {
+            List<Object> args = new ArrayList<>(names.size() * 2);
+            StringBuilder values = new StringBuilder();
+            StringBuilder in = new StringBuilder();
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (String name : names) {
+                if (values.length() > 0) {
+                    values.append(", ");
+                    in.append(", ");
+                }
+                values.append("(?, ?)");
+                in.append('?');
+                args.add(name);
+                args.add(now);
+            }
+            int inserted = jdbcTemplate.update(
+                    "INSERT INTO " + table + " (name, created_at) VALUES " + values
+                            + " ON DUPLICATE KEY UPDATE id = id", args.toArray());
+            // Connector/J 默认返回匹配行数，并发重名的行也会计入
+            inserts.addAndGet(inserted);
+            Map<String, Long> ids = new LinkedHashMap<>();
+            jdbcTemplate.query("SELECT id, name FROM " + table + " WHERE name IN (" + in + ") LOCK IN SHARE MODE",
+                    rs -> {
+                        ids.put(keyOf(rs.getString(2)), rs.getLong(1));
+                    }, names.toArray());
+            cacheAfterCommit(ids);
+            return ids;
+        }
+
+        private void cacheAfterCommit(Map<String, Long> ids) {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        ids.forEach(cache::put);
+                    }
+                });
+            } else {
+                ids.forEach(cache::put);
+            }
+        }
+
+        Map<String, Object> metrics() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("size", cache.size());
+            m.put("hits", cache.getHits());
+            m.put("misses", cache.getMisses());
+            m.put("inserts", inserts.get());
+            return m;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.common.ExcerptUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 为摘要列上线前的历史博客补算 excerpt。
+ * 按批读取 excerpt 为空的行并回写，集群内由租约保证只有一个实例执行；全部补完后不再查询。
+ */
+@Component
+public class PostExcerptBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostExcerptBackfill.class);
+
+    private static final String LEASE_NAME = "post-excerpt-backfill";
+    private static final long LEASE_TTL_MS = 60_000L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ClusterCoordinator clusterCoordinator;
+
+    @Value("${blog.post.excerpt-backfill.batch-size:200}")
+    private int batchSize;
+
+    private volatile boolean done;
+
+    public PostExcerptBackfill(JdbcTemplate jdbcTemplate, ClusterCoordinator clusterCoordinator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clusterCoordinator = clusterCoordinator;
+    }
+
+    @Scheduled(initialDelayString = "${blog.post.excerpt-backfill.initial-delay-ms:30000}",
+            fixedDelayString = "${blog.post.excerpt-backfill.interval-ms:60000}")
+    public void run() {
+        if (done) {
+            return;
+        }
+        ClusterCoordinator.Lease lease = clusterCoordinator.tryAcquire(LEASE_NAME, LEASE_TTL_MS);
+        if (lease == null) {
+            return;
+        }
+        int total = 0;
+        try {
+            while (true) {
+                int n = backfillBatch();
+                total += n;
+                if (n < batchSize) {
+                    break;
+                }
+            }
+            done = true;
+        } catch (Exception e) {
+            logger.warn("Post excerpt backfill failed after {} rows: {}", total, e.toString());
+        } finally {
+            clusterCoordinator.release(lease);
+        }
+        if (total > 0) {
+            logger.info("Backfilled excerpt for {} posts", total);
+        }
+    }
+
+    private int backfillBatch() {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, content FROM blog_post WHERE excerpt IS NULL ORDER BY id LIMIT ?", batchSize);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> args = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            // 空正文得到空串而非 null，不会被下一批重复选中
+            args.add(new Object[] { ExcerptUtil.of((String) row.get("content")), row.get("id") });
+        }
+        jdbcTemplate.batchUpdate("UPDATE blog_post SET excerpt = ? WHERE id = ? AND excerpt IS NULL", args);
+        return rows.size();
+    }
+}
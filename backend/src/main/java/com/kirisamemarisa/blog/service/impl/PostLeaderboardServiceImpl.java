@@ -0,0 +1,545 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.dto.PageResult;
+import com.kirisamemarisa.blog.model.BlogPost;
+import com.kirisamemarisa.blog.repository.BlogPostRepository;
+import com.kirisamemarisa.blog.service.BlogViewService;
+import com.kirisamemarisa.blog.service.EngagementCounterService;
+import com.kirisamemarisa.blog.service.PostLeaderboardService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class PostLeaderboardServiceImpl implements PostLeaderboardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostLeaderboardServiceImpl.class);
+
+    // 排行榜 key：blog:rank:{metric}:{scope}，scope 为 global / cat:{categoryId} / dir:{userId}:{directory}
+    static final String KEY_RANK_PREFIX = "blog:rank:";
+    // 每篇博客所属的 scope 集合，写入脚本据此找到需要更新的排行榜
+    static final String KEY_POST_SCOPES_PREFIX = "blog:rank:post_scopes:";
+    static final String SCOPE_GLOBAL = "global";
+    private static final String KEY_READY = "blog:rank:ready";
+    // 重建时的临时 key 前缀（不在 blog:rank:* 之下），建完后 RENAME 为 blog:rank:{同名后缀}
+    private static final String KEY_BUILD_PREFIX = "blog:rank_build:";
+    // 重建进行中标记，存在期间写入脚本把增量同时记入已写好的临时榜单
+    private static final String KEY_BUILDING = "blog:rank:building";
+    // 有独立计数排行榜的指标
+    private static final List<String> METRICS = Arrays.asList(VIEWS, LIKES, FAVORITES);
+    private static final List<String> ALL_RANKS = Arrays.asList(VIEWS, LIKES, FAVORITES, HOT);
+    private static final int REBUILD_CHUNK_SIZE = 500;
+    // 重建租约与重建标记的有效期；租约不续期，重建须在截止时间内完成，超时放弃本次重建、保留线上榜单
+    private static final long REBUILD_LEASE_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final long REBUILD_DEADLINE_MS = REBUILD_LEASE_MS * 3 / 5;
+
+    /**
+     * 重建进行中时，该博客若已写入临时榜单（临时 scope 集合存在），增量同样记入临时榜单，
+     * 避免 RENAME 覆盖时丢失重建期间的互动；尚未写入的博客稍后按重建时读到的计数写入。
+     * KEYS: 1 博客的 scope 集合, 2 热度榜纪元 hash, 3 重建标记, 4 临时 scope 集合, 5 临时纪元 hash
+     * ARGV: 1 指标 key 前缀（blog:rank:{metric}:，无独立排行榜时为空串）, 2 博客 id, 3 delta,
+     * 4 热度榜 key 前缀, 5 热度权重 × delta（为 0 时不计热度）, 6 半衰期毫秒,
+     * 7 临时指标 key 前缀（可为空串）, 8 临时热度榜 key 前缀
+     */
+    private static final DefaultRedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            HotScorePolicy.LUA_HOT_FUNCTIONS +
+            "local w = tonumber(ARGV[5]) " +
+            "local now = nowMillis() " +
+            "local function bump(scopes, epochs, metricPrefix, hotPrefix) " +
+            "  for _, sc in ipairs(scopes) do " +
+            "    if metricPrefix ~= '' then redis.call('ZINCRBY', metricPrefix .. sc, ARGV[3], ARGV[2]) end " +
+            "    if w ~= 0 then hotBump(epochs, hotPrefix, sc, ARGV[2], w, tonumber(ARGV[6]), now) end " +
+            "  end end " +
+            "local scopes = redis.call('SMEMBERS', KEYS[1]) " +
+            "bump(scopes, KEYS[2], ARGV[1], ARGV[4]) " +
+            "if redis.call('EXISTS', KEYS[3]) == 1 then " +
+            "  bump(redis.call('SMEMBERS', KEYS[4]), KEYS[5], ARGV[7], ARGV[8]) " +
+            "end " +
+            "return #scopes",
+            Long.class);
+
+    /**
+     * 首次进入某热度榜时按累计互动与发布时间估算初始分，已在榜的不覆盖。
+     * KEYS: 1 热度榜纪元 hash
+     * ARGV: 1 热度榜 key 前缀, 2 博客 id, 3 累计互动加权和, 4 发布时间毫秒, 5 半衰期毫秒, 6.. scope
+     */
+    private static final DefaultRedisScript<Long> SEED_HOT_SCRIPT = new DefaultRedisScript<>(
+            HotScorePolicy.LUA_HOT_FUNCTIONS +
+            "local now = nowMillis() " +
+            "for i = 6, #ARGV do " +
+            "  local e = hotEpoch(KEYS[1], ARGV[i], now) " +
+            "  local score = tonumber(ARGV[3]) * math.pow(2, (tonumber(ARGV[4]) - e) / tonumber(ARGV[5])) " +
+            "  redis.call('ZADD', ARGV[1] .. ARGV[i], 'NX', score, ARGV[2]) " +
+            "end " +
+            "return #ARGV - 5",
+            Long.class);
+
+    /**
+     * 纪元前移：按经过的时间整体缩放热度榜并把纪元设为当前时间；榜单已不存在时清除纪元。
+     * KEYS: 1 热度榜纪元 hash, 2 热度榜
+     * ARGV: 1 scope, 2 半衰期毫秒
+     */
+    private static final DefaultRedisScript<Long> REBASE_HOT_SCRIPT = new DefaultRedisScript<>(
+            HotScorePolicy.LUA_HOT_FUNCTIONS +
+            "local e = tonumber(redis.call('HGET', KEYS[1], ARGV[1])) " +
+            "if not e then return 0 end " +
+            "if redis.call('EXISTS', KEYS[2]) == 0 then redis.call('HDEL', KEYS[1], ARGV[1]) return 0 end " +
+            "local now = nowMillis() " +
+            "redis.call('ZUNIONSTORE', KEYS[2], 1, KEYS[2], 'WEIGHTS', math.pow(2, (e - now) / tonumber(ARGV[2]))) " +
+            "redis.call('HSET', KEYS[1], ARGV[1], now) " +
+            "return 1",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final BlogPostRepository blogPostRepository;
+    private final BlogViewService blogViewService;
+    private final HotScorePolicy hotScorePolicy;
+    private final ClusterCoordinator clusterCoordinator;
+    private final EngagementCounterService engagementCounterService;
+
+    public PostLeaderboardServiceImpl(StringRedisTemplate redisTemplate,
+            BlogPostRepository blogPostRepository,
+            BlogViewService blogViewService,
+            HotScorePolicy hotScorePolicy,
+            ClusterCoordinator clusterCoordinator,
+            EngagementCounterService engagementCounterService) {
+        this.redisTemplate = redisTemplate;
+        this.blogPostRepository = blogPostRepository;
+        this.blogViewService = blogViewService;
+        this.hotScorePolicy = hotScorePolicy;
+        this.clusterCoordinator = clusterCoordinator;
+        this.engagementCounterService = engagementCounterService;
+    }
+
+    static String rankKey(String metric, String scope) {
+        return KEY_RANK_PREFIX + metric + ":" + scope;
+    }
+
+    static String categoryScope(Long categoryId) {
+        return "cat:" + categoryId;
+    }
+
+    static String directoryScope(Long userId, String directory) {
+        return "dir:" + userId + ":" + directory;
+    }
+
+    private static String rankPrefix(String metric) {
+        return KEY_RANK_PREFIX + metric + ":";
+    }
+
+    /**
+     * 线上 key（blog:rank:xxx）对应的重建临时 key（blog:rank_build:xxx）
+     */
+    private static String buildKey(String liveKey) {
+        return KEY_BUILD_PREFIX + liveKey.substring(KEY_RANK_PREFIX.length());
+    }
+
+    private static String liveKey(String buildKey) {
+        return KEY_RANK_PREFIX + buildKey.substring(KEY_BUILD_PREFIX.length());
+    }
+
+    private static long withPending(Number base, Map<String, Long> pending, String metric) {
+        long value = base != null ? base.longValue() : 0L;
+        Long delta = pending.get(metric);
+        return delta != null ? Math.max(0L, value + delta) : value;
+    }
+
+    private static long toMillis(java.time.LocalDateTime time) {
+        return time != null
+                ? time.atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : System.currentTimeMillis();
+    }
+
+    private static boolean isPublished(String status) {
+        return status == null || "PUBLISHED".equals(status);
+    }
+
+    private static Set<String> scopesOf(Long categoryId, Long userId, String directory) {
+        Set<String> scopes = new LinkedHashSet<>();
+        scopes.add(SCOPE_GLOBAL);
+        if (categoryId != null) {
+            scopes.add(categoryScope(categoryId));
+        }
+        if (userId != null && directory != null && !directory.isEmpty()) {
+            scopes.add(directoryScope(userId, directory));
+        }
+        return scopes;
+    }
+
+    /**
+     * 启动时以及之后定期检查：榜单未建成（例如 Redis 数据丢失）时重建，期间读取回退 SQL
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${blog.rank.ready-check-interval-ms:60000}",
+            fixedDelayString = "${blog.rank.ready-check-interval-ms:60000}")
+    public void warmUp() {
+        try {
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(KEY_READY))) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to warm up post leaderboards: {}", e.toString());
+        }
+    }
+
+    @Override
+    public void reindex(BlogPost post) {
+        if (post == null || post.getId() == null) {
+            return;
+        }
+        if (post.isDeleted() || !isPublished(post.getStatus())) {
+            remove(post.getId());
+            return;
+        }
+        Long postId = post.getId();
+        Set<String> target = scopesOf(post.getCategory() != null ? post.getCategory().getId() : null,
+                post.getUser() != null ? post.getUser().getId() : null,
+                post.getDirectory());
+        long views = 0L;
+        try {
+            var stats = blogViewService.getStats(postId);
+            if (stats != null && stats.getData() != null && stats.getData().getViewCount() != null) {
+                views = stats.getData().getViewCount();
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to load view count while indexing post {}", postId, e);
+        }
+        // 实体中的计数只含已落库部分，叠加尚未落库的增量
+        Map<String, Long> pending = engagementCounterService
+                .pendingDeltas(EngagementCounterService.POST, Collections.singletonList(postId))
+                .getOrDefault(postId, Collections.emptyMap());
+        long likes = withPending(post.getLikeCount(), pending, EngagementCounterService.LIKES);
+        long favorites = withPending(post.getFavoriteCount(), pending, EngagementCounterService.FAVORITES);
+        long comments = withPending(post.getCommentCount(), pending, EngagementCounterService.COMMENTS);
+        long shares = withPending(post.getShareCount(), pending, EngagementCounterService.SHARES);
+        try {
+            String scopesKey = KEY_POST_SCOPES_PREFIX + postId;
+            Set<String> current = redisTemplate.opsForSet().members(scopesKey);
+            Set<String> stale = current != null ? new HashSet<>(current) : new HashSet<>();
+            stale.removeAll(target);
+            String member = postId.toString();
+            final long v = views;
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                for (String scope : stale) {
+                    for (String metric : ALL_RANKS) {
+                        conn.zRem(rankKey(metric, scope), member);
+                    }
+                    conn.sRem(scopesKey, scope);
+                }
+                for (String scope : target) {
+                    conn.zAdd(rankKey(VIEWS, scope), v, member);
+                    conn.zAdd(rankKey(LIKES, scope), likes, member);
+                    conn.zAdd(rankKey(FAVORITES, scope), favorites, member);
+                    conn.sAdd(scopesKey, scope);
+                }
+                return null;
+            });
+            List<String> args = new ArrayList<>();
+            args.add(rankPrefix(HOT));
+            args.add(member);
+            args.add(String.valueOf(hotScorePolicy.weightedTotal(views, likes, favorites, comments, shares)));
+            args.add(String.valueOf(toMillis(post.getCreatedAt())));
+            args.add(String.valueOf(hotScorePolicy.halfLifeMillis()));
+            args.addAll(target);
+            redisTemplate.execute(SEED_HOT_SCRIPT, Collections.singletonList(HotScorePolicy.KEY_HOT_EPOCHS),
+                    args.toArray());
+        } catch (Exception e) {
+            logger.warn("Failed to index post {} in leaderboards", postId, e);
+        }
+    }
+
+    @Override
+    public void remove(Long blogPostId) {
+        if (blogPostId == null) {
+            return;
+        }
+        try {
+            String scopesKey = KEY_POST_SCOPES_PREFIX + blogPostId;
+            Set<String> scopes = redisTemplate.opsForSet().members(scopesKey);
+            String member = blogPostId.toString();
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                if (scopes != null) {
+                    for (String scope : scopes) {
+                        for (String metric : ALL_RANKS) {
+                            conn.zRem(rankKey(metric, scope), member);
+                        }
+                    }
+                }
+                conn.del(scopesKey);
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn("Failed to remove post {} from leaderboards", blogPostId, e);
+        }
+    }
+
+    @Override
+    public void increment(Long blogPostId, String metric, long delta) {
+        if (blogPostId == null || delta == 0) {
+            return;
+        }
+        // 与计数增量一致，在事务提交后才写入排行榜，回滚的互动不计入
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    incrementNow(blogPostId, metric, delta);
+                }
+            });
+        } else {
+            incrementNow(blogPostId, metric, delta);
+        }
+    }
+
+    private void incrementNow(Long blogPostId, String metric, long delta) {
+        try {
+            String scopesKey = KEY_POST_SCOPES_PREFIX + blogPostId;
+            String metricPrefix = METRICS.contains(metric) ? rankPrefix(metric) : "";
+            redisTemplate.execute(INCREMENT_SCRIPT,
+                    Arrays.asList(scopesKey, HotScorePolicy.KEY_HOT_EPOCHS, KEY_BUILDING, buildKey(scopesKey),
+                            buildKey(HotScorePolicy.KEY_HOT_EPOCHS)),
+                    metricPrefix, blogPostId.toString(), String.valueOf(delta),
+                    rankPrefix(HOT), String.valueOf(hotScorePolicy.weightOf(metric) * delta),
+                    String.valueOf(hotScorePolicy.halfLifeMillis()),
+                    metricPrefix.isEmpty() ? "" : buildKey(metricPrefix), buildKey(rankPrefix(HOT)));
+        } catch (Exception e) {
+            logger.warn("Failed to update {} leaderboard for post {}", metric, blogPostId, e);
+        }
+    }
+
+    @Override
+    public PageResult<Long> page(String metric, Long categoryId, Long userId, String directory, int page,
+            int size) {
+        return range(metric, categoryId, userId, directory, (long) page * size, size);
+    }
+
+    @Override
+    public PageResult<Long> range(String metric, Long categoryId, Long userId, String directory, long offset,
+            int size) {
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(KEY_READY))) {
+            return null;
+        }
+        String scope;
+        if (userId != null && directory != null && !directory.isEmpty()) {
+            scope = directoryScope(userId, directory);
+        } else if (categoryId != null) {
+            scope = categoryScope(categoryId);
+        } else {
+            scope = SCOPE_GLOBAL;
+        }
+        String key = rankKey(metric, scope);
+        Set<String> members = redisTemplate.opsForZSet().reverseRange(key, offset, offset + size - 1);
+        Long total = redisTemplate.opsForZSet().zCard(key);
+        List<Long> ids = new ArrayList<>();
+        if (members != null) {
+            for (String m : members) {
+                ids.add(Long.parseLong(m));
+            }
+        }
+        return new PageResult<>(ids, total != null ? total : 0L, (int) (offset / Math.max(1, size)), size);
+    }
+
+    @Override
+    public void rebuild() {
+        ClusterCoordinator.Lease lease = clusterCoordinator.tryAcquire("rank-rebuild", REBUILD_LEASE_MS);
+        if (lease == null) {
+            logger.info("Leaderboard rebuild already running elsewhere, skipping");
+            return;
+        }
+        long deadline = System.currentTimeMillis() + REBUILD_DEADLINE_MS;
+        boolean swapped = false;
+        try {
+            // 清理上次中断留下的临时 key，线上榜单在整个重建期间保持可读
+            Set<String> leftovers = scanKeys(KEY_BUILD_PREFIX + "*");
+            if (!leftovers.isEmpty()) {
+                redisTemplate.delete(leftovers);
+            }
+            redisTemplate.opsForValue().set(KEY_BUILDING, String.valueOf(System.currentTimeMillis()),
+                    REBUILD_LEASE_MS, TimeUnit.MILLISECONDS);
+
+            long epoch = System.currentTimeMillis();
+            long afterId = 0L;
+            int posts = 0;
+            while (true) {
+                if (System.currentTimeMillis() > deadline) {
+                    logger.warn("Leaderboard rebuild exceeded {} ms after {} posts, keeping the live boards",
+                            REBUILD_DEADLINE_MS, posts);
+                    return;
+                }
+                List<Long> chunkIds = blogPostRepository.findLeaderboardIdsAfter(afterId,
+                        PageRequest.of(0, REBUILD_CHUNK_SIZE));
+                if (chunkIds.isEmpty()) {
+                    break;
+                }
+                afterId = chunkIds.get(chunkIds.size() - 1);
+                // 先取 Redis 中尚未落库的增量，再读这一块的数据库计数：两次读取之间恰好落库的增量
+                // 会被两边同时计入（偶尔多算，下次重建纠正），而不会两边都漏掉
+                List<String> deltaKeys = new ArrayList<>(chunkIds.size());
+                for (Long id : chunkIds) {
+                    deltaKeys.add(BlogViewServiceImpl.KEY_VIEW_COUNT_DELTA_PREFIX + id);
+                }
+                List<String> deltaValues = redisTemplate.opsForValue().multiGet(deltaKeys);
+                Map<Long, Long> viewDeltas = new HashMap<>();
+                for (int j = 0; deltaValues != null && j < chunkIds.size() && j < deltaValues.size(); j++) {
+                    if (deltaValues.get(j) != null) {
+                        viewDeltas.put(chunkIds.get(j), Long.parseLong(deltaValues.get(j)));
+                    }
+                }
+                Map<Long, Map<String, Long>> pendingCounters = engagementCounterService
+                        .pendingDeltas(EngagementCounterService.POST, chunkIds);
+                List<Object[]> chunk = blogPostRepository.findLeaderboardRowsByIds(chunkIds);
+                posts += chunk.size();
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection conn = (StringRedisConnection) connection;
+                    for (Object[] r : chunk) {
+                        Long id = ((Number) r[0]).longValue();
+                        String member = String.valueOf(id);
+                        Long categoryId = (Long) r[1];
+                        Long userId = (Long) r[2];
+                        String directory = (String) r[3];
+                        Map<String, Long> pending = pendingCounters.getOrDefault(id, Collections.emptyMap());
+                        long likes = withPending((Number) r[4], pending, EngagementCounterService.LIKES);
+                        long favorites = withPending((Number) r[5], pending, EngagementCounterService.FAVORITES);
+                        long views = (r[6] != null ? ((Number) r[6]).longValue() : 0L)
+                                + viewDeltas.getOrDefault(id, 0L);
+                        long comments = withPending((Number) r[7], pending, EngagementCounterService.COMMENTS);
+                        long shares = withPending((Number) r[8], pending, EngagementCounterService.SHARES);
+                        // 重建时无法还原每次互动的时间，按发布时间整体折算
+                        double hot = hotScorePolicy.scaled(
+                                hotScorePolicy.weightedTotal(views, likes, favorites, comments, shares),
+                                toMillis((java.time.LocalDateTime) r[9]), epoch);
+                        String scopesKey = buildKey(KEY_POST_SCOPES_PREFIX + member);
+                        for (String scope : scopesOf(categoryId, userId, directory)) {
+                            conn.zAdd(buildKey(rankKey(VIEWS, scope)), views, member);
+                            conn.zAdd(buildKey(rankKey(LIKES, scope)), likes, member);
+                            conn.zAdd(buildKey(rankKey(FAVORITES, scope)), favorites, member);
+                            conn.zAdd(buildKey(rankKey(HOT, scope)), hot, member);
+                            conn.hSetNX(buildKey(HotScorePolicy.KEY_HOT_EPOCHS), scope, String.valueOf(epoch));
+                            // scope 集合最后写入：写入脚本以它是否存在判断该博客是否已进入临时榜单
+                            conn.sAdd(scopesKey, scope);
+                        }
+                    }
+                    return null;
+                });
+            }
+            swapIn();
+            swapped = true;
+            redisTemplate.opsForValue().set(KEY_READY, String.valueOf(System.currentTimeMillis()));
+            logger.info("Rebuilt post leaderboards for {} posts", posts);
+        } finally {
+            redisTemplate.delete(KEY_BUILDING);
+            if (!swapped) {
+                // 未完成的临时榜单没有用处，也不应留到租约过期后被别的实例误用
+                Set<String> partial = scanKeys(KEY_BUILD_PREFIX + "*");
+                if (!partial.isEmpty()) {
+                    redisTemplate.delete(partial);
+                }
+            }
+            clusterCoordinator.release(lease);
+        }
+    }
+
+    /**
+     * 用临时 key 逐个 RENAME 覆盖线上 key，再删除新榜单中已不存在的线上 key（已删除的博客、空了的作用域）。
+     * 先换 scope 集合：换过之后写入脚本不再记入临时榜单，增量直接落到随后换上的线上榜单。
+     */
+    private void swapIn() {
+        Set<String> oldKeys = scanKeys(KEY_RANK_PREFIX + "*");
+        Set<String> built = scanKeys(KEY_BUILD_PREFIX + "*");
+        List<String> ordered = new ArrayList<>(built.size());
+        String scopesPrefix = buildKey(KEY_POST_SCOPES_PREFIX);
+        for (String key : built) {
+            if (key.startsWith(scopesPrefix)) {
+                ordered.add(key);
+            }
+        }
+        for (String key : built) {
+            if (!key.startsWith(scopesPrefix)) {
+                ordered.add(key);
+            }
+        }
+        for (int i = 0; i < ordered.size(); i += REBUILD_CHUNK_SIZE) {
+            List<String> chunk = ordered.subList(i, Math.min(i + REBUILD_CHUNK_SIZE, ordered.size()));
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                for (String key : chunk) {
+                    conn.rename(key, liveKey(key));
+                }
+                return null;
+            });
+            for (String key : chunk) {
+                oldKeys.remove(liveKey(key));
+            }
+        }
+        oldKeys.remove(KEY_READY);
+        oldKeys.remove(KEY_BUILDING);
+        if (!oldKeys.isEmpty()) {
+            redisTemplate.delete(oldKeys);
+        }
+    }
+
+    private Set<String> scanKeys(String pattern) {
+        Set<String> keys = new HashSet<>();
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            try (var cursor = connection.keyCommands().scan(
+                    org.springframework.data.redis.core.ScanOptions.scanOptions()
+                            .match(pattern).count(1000).build())) {
+                cursor.forEachRemaining(k -> keys.add(new String(k, java.nio.charset.StandardCharsets.UTF_8)));
+            }
+            return null;
+        });
+        return keys;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${blog.rank.hot.rebase-interval-ms:3600000}")
+    public void rebaseHotScores() {
+        // 缩放脚本本身是原子且幂等的，租约只是避免多个实例重复扫描
+        ClusterCoordinator.Lease lease = clusterCoordinator.tryAcquire("hot-rebase", TimeUnit.MINUTES.toMillis(5));
+        if (lease == null) {
+            return;
+        }
+        try {
+            Map<Object, Object> epochs = redisTemplate.opsForHash().entries(HotScorePolicy.KEY_HOT_EPOCHS);
+            String halfLife = String.valueOf(hotScorePolicy.halfLifeMillis());
+            int rebased = 0;
+            // 每个榜单单独一次脚本调用，纪元与分值在同一原子操作内更新，避免与并发写入错位
+            for (Object scope : epochs.keySet()) {
+                Long r = redisTemplate.execute(REBASE_HOT_SCRIPT,
+                        Arrays.asList(HotScorePolicy.KEY_HOT_EPOCHS, rankKey(HOT, scope.toString())),
+                        scope.toString(), halfLife);
+                if (r != null && r == 1L) {
+                    rebased++;
+                }
+            }
+            logger.debug("Rebased {} hot leaderboards", rebased);
+        } catch (Exception e) {
+            logger.warn("Failed to rebase hot leaderboards: {}", e.toString());
+        } finally {
+            clusterCoordinator.release(lease);
+        }
+    }
+}
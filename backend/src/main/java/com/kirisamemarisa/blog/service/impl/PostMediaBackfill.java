@@ -0,0 +1,130 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.model.PostMedia;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 为 post_media 上线前的历史博客回填媒体引用。
+ * 按 id 分批扫描正文和封面，进度记录在 Redis 中，集群内由租约保证只有一个实例执行，重启后从断点继续。
+ */
+@Component
+public class PostMediaBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostMediaBackfill.class);
+
+    private static final String KEY_CURSOR = "blog:post_media:backfill:cursor";
+    private static final String KEY_DONE = "blog:post_media:backfill:done";
+    private static final String LEASE_NAME = "post-media-backfill";
+    private static final long LEASE_TTL_MS = 60_000L;
+    // 单轮扫描的时间上限，远小于租期：租约不续期，超时前停止，从断点留给下一轮
+    private static final long RUN_DEADLINE_MS = LEASE_TTL_MS / 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final ClusterCoordinator clusterCoordinator;
+
+    @Value("${blog.post.media.backfill-batch-size:200}")
+    private int batchSize;
+
+    private volatile boolean complete;
+
+    public PostMediaBackfill(JdbcTemplate jdbcTemplate, StringRedisTemplate redisTemplate,
+            ClusterCoordinator clusterCoordinator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.redisTemplate = redisTemplate;
+        this.clusterCoordinator = clusterCoordinator;
+    }
+
+    /**
+     * 历史博客是否已全部回填
+     */
+    public boolean isComplete() {
+        if (!complete) {
+            try {
+                complete = Boolean.TRUE.equals(redisTemplate.hasKey(KEY_DONE));
+            } catch (Exception e) {
+                return false;
+            }
+        }
+        return complete;
+    }
+
+    @Scheduled(initialDelayString = "${blog.post.media.backfill-initial-delay-ms:30000}",
+            fixedDelayString = "${blog.post.media.backfill-interval-ms:60000}")
+    public void run() {
+        if (isComplete()) {
+            return;
+        }
+        ClusterCoordinator.Lease lease = clusterCoordinator.tryAcquire(LEASE_NAME, LEASE_TTL_MS);
+        if (lease == null) {
+            return;
+        }
+        int posts = 0;
+        boolean finished = false;
+        long deadline = System.currentTimeMillis() + RUN_DEADLINE_MS;
+        try {
+            String raw = redisTemplate.opsForValue().get(KEY_CURSOR);
+            long cursor = raw == null ? 0L : Long.parseLong(raw);
+            while (System.currentTimeMillis() < deadline) {
+                // 已软删除的博客由 BlogPostPurger 清理，不再登记引用
+                List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                        "SELECT id, content, cover_image_url FROM blog_post "
+                                + "WHERE id > ? AND is_deleted = 0 ORDER BY id LIMIT ?",
+                        cursor, batchSize);
+                if (rows.isEmpty()) {
+                    finished = true;
+                    break;
+                }
+                List<Object[]> args = new ArrayList<>();
+                Timestamp now = Timestamp.from(Instant.now());
+                for (Map<String, Object> row : rows) {
+                    long postId = ((Number) row.get("id")).longValue();
+                    String coverKey = PostMediaScanner.toStorageKey((String) row.get("cover_image_url"));
+                    if (coverKey != null) {
+                        args.add(new Object[] { postId, coverKey, PostMedia.KIND_COVER, now });
+                    }
+                    for (String key : PostMediaScanner.scan((String) row.get("content"))) {
+                        if (!key.equals(coverKey)) {
+                            args.add(new Object[] { postId, key, PostMedia.KIND_CONTENT, now });
+                        }
+                    }
+                    cursor = postId;
+                }
+                if (!args.isEmpty()) {
+                    // 回填期间新写的博客已由写路径建好索引，重复行被忽略
+                    jdbcTemplate.batchUpdate("INSERT IGNORE INTO post_media (post_id, storage_key, kind, created_at) "
+                            + "VALUES (?, ?, ?, ?)", args);
+                }
+                redisTemplate.opsForValue().set(KEY_CURSOR, Long.toString(cursor));
+                posts += rows.size();
+                if (rows.size() < batchSize) {
+                    finished = true;
+                    break;
+                }
+            }
+            if (finished) {
+                redisTemplate.opsForValue().set(KEY_DONE, "1");
+                complete = true;
+                logger.info("Post media backfill complete ({} posts in this run)", posts);
+            } else {
+                logger.info("Post media backfill paused at post {} ({} posts in this run)", cursor, posts);
+            }
+        } catch (Exception e) {
+            logger.warn("Post media backfill failed after {} posts: {}", posts, e.toString());
+        } finally {
+            clusterCoordinator.release(lease);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 从博客正文中提取本站媒体的存储 key。
+ * 一个预编译的正则同时匹配 Markdown 图片和 HTML img 的 src，正文只扫描一遍。
+ */
+final class PostMediaScanner {
+
+    private static final Pattern MEDIA = Pattern.compile(
+            "!\\[[^\\]]*\\]\\(\\s*<?([^)\\s>]+)|<img\\b[^>]*?\\bsrc\\s*=\\s*['\"]([^'\"]+)['\"]",
+            Pattern.CASE_INSENSITIVE);
+
+    // 博客专属文件的路径起始标记，COS 带 sources/ 前缀，本地存储不带；头像等用户文件不纳入
+    private static final String[] KEY_MARKERS = {
+            "sources/blogpostcontent/", "sources/blogpostcover/", "blogpostcontent/", "blogpostcover/" };
+
+    private PostMediaScanner() {
+    }
+
+    /**
+     * @return 正文引用的存储 key，按出现顺序去重；外链和非博客文件被忽略
+     */
+    static Set<String> scan(String content) {
+        Set<String> keys = new LinkedHashSet<>();
+        if (content == null || content.isEmpty()) {
+            return keys;
+        }
+        Matcher m = MEDIA.matcher(content);
+        while (m.find()) {
+            String key = toStorageKey(m.group(1) != null ? m.group(1) : m.group(2));
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 把完整 URL 或相对路径规整为存储 key，去掉查询串；不是博客文件时返回 null
+     */
+    static String toStorageKey(String url) {
+        if (url == null || url.isEmpty()) {
+            return null;
+        }
+        int end = url.length();
+        int q = url.indexOf('?');
+        if (q >= 0) {
+            end = q;
+        }
+        int h = url.indexOf('#');
+        if (h >= 0 && h < end) {
+            end = h;
+        }
+        for (String marker : KEY_MARKERS) {
+            int idx = url.indexOf(marker);
+            if (idx >= 0 && idx < end) {
+                String key = url.substring(idx, end);
+                return key.length() > marker.length() && key.length() <= 255 ? key : null;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,98 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.model.PostMedia;
+import com.kirisamemarisa.blog.model.StorageDeletion;
+import com.kirisamemarisa.blog.repository.PostMediaRepository;
+import com.kirisamemarisa.blog.service.PostMediaService;
+import com.kirisamemarisa.blog.service.StorageDeletionService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+public class PostMediaServiceImpl implements PostMediaService {
+
+    private final PostMediaRepository postMediaRepository;
+    private final StorageDeletionService storageDeletionService;
+
+    public PostMediaServiceImpl(PostMediaRepository postMediaRepository,
+            StorageDeletionService storageDeletionService) {
+        this.postMediaRepository = postMediaRepository;
+        this.storageDeletionService = storageDeletionService;
+    }
+
+    @Override
+    @Transactional
+    public void sync(Long postId, String content, String coverUrl) {
+        if (postId == null) {
+            return;
+        }
+        // 期望的引用：封面优先，正文里同一文件不重复记录
+        Map<String, String> desired = new LinkedHashMap<>();
+        String coverKey = PostMediaScanner.toStorageKey(coverUrl);
+        if (coverKey != null) {
+            desired.put(coverKey, PostMedia.KIND_COVER);
+        }
+        for (String key : PostMediaScanner.scan(content)) {
+            desired.putIfAbsent(key, PostMedia.KIND_CONTENT);
+        }
+
+        Map<String, PostMedia> existing = new HashMap<>();
+        for (PostMedia m : postMediaRepository.findByPostId(postId)) {
+            existing.put(m.getStorageKey(), m);
+        }
+        List<PostMedia> added = new ArrayList<>();
+        for (Map.Entry<String, String> e : desired.entrySet()) {
+            PostMedia m = existing.get(e.getKey());
+            if (m == null) {
+                added.add(new PostMedia(postId, e.getKey(), e.getValue()));
+            } else if (!e.getValue().equals(m.getKind())) {
+                m.setKind(e.getValue());
+            }
+        }
+        Set<String> removed = new LinkedHashSet<>(existing.keySet());
+        removed.removeAll(desired.keySet());
+
+        if (!removed.isEmpty()) {
+            postMediaRepository.deleteByPostIdAndStorageKeyIn(postId, removed);
+        }
+        if (!added.isEmpty()) {
+            postMediaRepository.saveAll(added);
+        }
+        releaseUnreferenced(removed);
+    }
+
+    @Override
+    @Transactional
+    public int removePost(Long postId) {
+        if (postId == null) {
+            return 0;
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        for (PostMedia m : postMediaRepository.findByPostId(postId)) {
+            keys.add(m.getStorageKey());
+        }
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        int removed = postMediaRepository.deleteByPostId(postId);
+        releaseUnreferenced(keys);
+        return removed;
+    }
+
+    // 引用计数归零的文件写入删除发件箱，提交后批量删除
+    private void releaseUnreferenced(Set<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        keys.removeAll(postMediaRepository.findReferencedKeys(keys));
+        storageDeletionService.enqueue(StorageDeletion.SOURCE_POST_MEDIA, keys);
+    }
+}
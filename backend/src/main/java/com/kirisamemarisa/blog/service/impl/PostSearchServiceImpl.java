@@ -0,0 +1,575 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.common.ExcerptUtil;
+import com.kirisamemarisa.blog.dto.PageResult;
+import com.kirisamemarisa.blog.model.BlogPost;
+import com.kirisamemarisa.blog.model.Tag;
+import com.kirisamemarisa.blog.repository.BlogPostRepository;
+import com.kirisamemarisa.blog.service.PostSearchService;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内倒排索引 + BM25 的博客检索。
+ * 标题、标签、分类、正文摘要按字段加权计入词频；倒排表为按博客 ID 排序的定长数组，求交用二分查找。
+ * 索引在启动时从数据库全量构建，之后随增删改在事务提交后增量更新，并通过 Redis 频道同步到其他实例。
+ */
+@Service
+public class PostSearchServiceImpl implements PostSearchService, MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostSearchServiceImpl.class);
+
+    static final String CHANNEL = "blog:search:index";
+
+    private static final float TITLE_WEIGHT = 3f;
+    private static final float TAG_WEIGHT = 2f;
+    private static final float CATEGORY_WEIGHT = 2f;
+    private static final float CONTENT_WEIGHT = 1f;
+
+    // BM25 参数
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final int REBUILD_BATCH = 200;
+
+    private final BlogPostRepository blogPostRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ClusterCoordinator clusterCoordinator;
+    private final TransactionTemplate readOnlyTx;
+
+    @Value("${blog.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${blog.search.rebuild-cooldown-ms:300000}")
+    private long rebuildCooldownMs;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Index index = new Index();
+    private volatile boolean ready;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    // 重建期间发生变更的博客，新索引替换后再补一次
+    private final Set<Long> dirtyDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile long lastRebuildAt;
+    private volatile long lastRebuildMs;
+
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong queryNanos = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    public PostSearchServiceImpl(BlogPostRepository blogPostRepository,
+            StringRedisTemplate redisTemplate,
+            RedisMessageListenerContainer listenerContainer,
+            ClusterCoordinator clusterCoordinator,
+            PlatformTransactionManager transactionManager) {
+        this.blogPostRepository = blogPostRepository;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.clusterCoordinator = clusterCoordinator;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        rebuildAsync();
+    }
+
+    @Override
+    public PageResult<Long> search(String keyword, Long userId, String directory, String categoryName,
+            String status, long offset, int size) {
+        if (!enabled || !ready || keyword == null) {
+            return null;
+        }
+        Set<String> terms = PostSearchTokenizer.queryTerms(keyword);
+        // 单字无法由二元组回答，交给 LIKE
+        if (terms.isEmpty() || terms.stream().anyMatch(t -> t.codePointCount(0, t.length()) < 2)) {
+            fallbacks.incrementAndGet();
+            return null;
+        }
+        // 长单词按三元组求交，命中后再核对整词
+        Set<String> lookup = new LinkedHashSet<>();
+        List<String> verify = new ArrayList<>();
+        for (String t : terms) {
+            lookup.addAll(PostSearchTokenizer.lookupTerms(t));
+            if (PostSearchTokenizer.needsVerify(t)) {
+                verify.add(t);
+            }
+        }
+        long start = System.nanoTime();
+        List<Hit> hits;
+        lock.readLock().lock();
+        try {
+            hits = index.match(lookup, verify, userId, directory, categoryName, status);
+        } finally {
+            lock.readLock().unlock();
+        }
+        hits.sort(Comparator.comparingDouble((Hit h) -> -h.score)
+                .thenComparing((Hit h) -> h.createdAt, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing((Hit h) -> -h.id));
+        List<Long> ids = new ArrayList<>();
+        for (long i = offset; i < hits.size() && ids.size() < size; i++) {
+            ids.add(hits.get((int) i).id);
+        }
+        queries.incrementAndGet();
+        queryNanos.addAndGet(System.nanoTime() - start);
+        return new PageResult<>(ids, hits.size(), (int) (offset / Math.max(1, size)), size);
+    }
+
+    @Override
+    public void index(BlogPost post) {
+        if (!enabled || post == null || post.getId() == null) {
+            return;
+        }
+        Doc doc = buildDoc(post);
+        afterCommit(() -> {
+            apply(doc);
+            publish("u", doc.id);
+        });
+    }
+
+    @Override
+    public void remove(Long blogPostId) {
+        if (!enabled || blogPostId == null) {
+            return;
+        }
+        afterCommit(() -> {
+            removeLocal(blogPostId);
+            publish("d", blogPostId);
+        });
+    }
+
+    @Override
+    public void requestRebuild() {
+        publish("r", 0L);
+        rebuildAsync();
+    }
+
+    @Override
+    public synchronized void rebuild() {
+        rebuilding.set(true);
+        long started = System.currentTimeMillis();
+        try {
+            dirtyDuringRebuild.clear();
+            Index fresh = new Index();
+            long afterId = 0L;
+            int total = 0;
+            while (true) {
+                final long from = afterId;
+                List<Doc> batch = readOnlyTx.execute(status -> {
+                    List<Doc> docs = new ArrayList<>();
+                    for (BlogPost p : blogPostRepository.findByIdGreaterThanAndDeletedFalseOrderByIdAsc(from,
+                            PageRequest.of(0, REBUILD_BATCH))) {
+                        docs.add(buildDoc(p));
+                    }
+                    return docs;
+                });
+                if (batch == null || batch.isEmpty()) {
+                    break;
+                }
+                for (Doc d : batch) {
+                    fresh.put(d);
+                }
+                total += batch.size();
+                afterId = batch.get(batch.size() - 1).id;
+            }
+            lock.writeLock().lock();
+            try {
+                index = fresh;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            for (Long id : new ArrayList<>(dirtyDuringRebuild)) {
+                reload(id);
+            }
+            lastRebuildAt = System.currentTimeMillis();
+            lastRebuildMs = lastRebuildAt - started;
+            logger.info("Search index rebuilt: {} posts, {} terms in {} ms", total, fresh.postings.size(),
+                    lastRebuildMs);
+        } catch (Exception e) {
+            logger.error("Search index rebuild failed", e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private void rebuildAsync() {
+        if (rebuilding.get() || (ready && System.currentTimeMillis() - lastRebuildAt < rebuildCooldownMs)) {
+            logger.info("Search index rebuilding or rebuilt recently, skipping");
+            return;
+        }
+        Thread t = new Thread(this::rebuild, "post-search-rebuild");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|");
+        if (parts.length != 3 || clusterCoordinator.getInstanceId().equals(parts[0])) {
+            return;
+        }
+        try {
+            long id = Long.parseLong(parts[2]);
+            switch (parts[1]) {
+                case "u":
+                    reload(id);
+                    break;
+                case "d":
+                    removeLocal(id);
+                    break;
+                case "r":
+                    rebuildAsync();
+                    break;
+                default:
+                    break;
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to apply search index message: {}", e.toString());
+        }
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        Index current = index;
+        long q = queries.get();
+        metrics.put("enabled", enabled);
+        metrics.put("ready", ready);
+        metrics.put("documents", current.docs.size());
+        metrics.put("terms", current.postings.size());
+        metrics.put("queries", q);
+        metrics.put("avgQueryMicros", q == 0 ? 0 : queryNanos.get() / q / 1000);
+        metrics.put("fallbacks", fallbacks.get());
+        metrics.put("rebuilding", rebuilding.get());
+        metrics.put("lastRebuildMs", lastRebuildMs);
+        return metrics;
+    }
+
+    private void reload(long id) {
+        Doc doc = readOnlyTx.execute(status -> blogPostRepository.findByIdAndDeletedFalse(id).map(this::buildDoc).orElse(null));
+        if (doc == null) {
+            removeLocal(id);
+        } else {
+            apply(doc);
+        }
+    }
+
+    private void apply(Doc doc) {
+        if (rebuilding.get()) {
+            dirtyDuringRebuild.add(doc.id);
+        }
+        lock.writeLock().lock();
+        try {
+            index.put(doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocal(long id) {
+        if (rebuilding.get()) {
+            dirtyDuringRebuild.add(id);
+        }
+        lock.writeLock().lock();
+        try {
+            index.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void publish(String op, long id) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, clusterCoordinator.getInstanceId() + "|" + op + "|" + id);
+        } catch (Exception e) {
+            logger.warn("Failed to publish search index change: {}", e.toString());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private Doc buildDoc(BlogPost post) {
+        Map<String, Float> tf = new HashMap<>();
+        float length = 0f;
+        length += addField(tf, post.getTitle(), TITLE_WEIGHT);
+        String categoryName = post.getCategory() == null ? null : post.getCategory().getName();
+        length += addField(tf, categoryName, CATEGORY_WEIGHT);
+        if (post.getTags() != null) {
+            for (Tag tag : post.getTags()) {
+                length += addField(tf, tag.getName(), TAG_WEIGHT);
+            }
+        }
+        // 正文只索引摘要；与 excerpt 列同一算法现算，避免更新时 @PreUpdate 尚未执行取到旧值
+        length += addField(tf, ExcerptUtil.of(post.getContent()), CONTENT_WEIGHT);
+        Long userId = post.getUser() == null ? null : post.getUser().getId();
+        return new Doc(post.getId(), userId, post.getDirectory(), categoryName, post.getStatus(),
+                post.getCreatedAt(), length, tf);
+    }
+
+    private static float addField(Map<String, Float> tf, String text, float weight) {
+        List<String> terms = PostSearchTokenizer.indexTerms(text);
+        for (String t : terms) {
+            tf.merge(t, weight, Float::sum);
+        }
+        return terms.size() * weight;
+    }
+
+    /**
+     * 索引文档：过滤用的元数据、加权文档长度，以及写入时的词频（写入后只保留词项用于删除）
+     */
+    private static final class Doc {
+        final long id;
+        final Long userId;
+        final String directory;
+        final String categoryName;
+        final String status;
+        final LocalDateTime createdAt;
+        final float length;
+        Map<String, Float> termFreqs;
+        String[] terms;
+
+        Doc(long id, Long userId, String directory, String categoryName, String status, LocalDateTime createdAt,
+                float length, Map<String, Float> termFreqs) {
+            this.id = id;
+            this.userId = userId;
+            this.directory = directory;
+            this.categoryName = categoryName;
+            this.status = status;
+            this.createdAt = createdAt;
+            this.length = length;
+            this.termFreqs = termFreqs;
+        }
+
+        boolean accepts(Long userId, String directory, String categoryName, String status) {
+            if (userId != null && !userId.equals(this.userId)) {
+                return false;
+            }
+            if (directory != null && !directory.isEmpty() && !directory.equals(this.directory)) {
+                return false;
+            }
+            if (categoryName != null && !categoryName.isEmpty() && !categoryName.equals(this.categoryName)) {
+                return false;
+            }
+            if (status != null && !status.isEmpty()) {
+                return status.equals(this.status) || ("PUBLISHED".equals(status) && this.status == null);
+            }
+            return true;
+        }
+    }
+
+    private static final class Hit {
+        final long id;
+        final double score;
+        final LocalDateTime createdAt;
+
+        Hit(long id, double score, LocalDateTime createdAt) {
+            this.id = id;
+            this.score = score;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /**
+     * 单个词项的倒排表：按博客 ID 升序的并行数组
+     */
+    private static final class Postings {
+        final String term;
+        long[] ids = new long[4];
+        float[] freqs = new float[4];
+        int size;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        void put(long id, float freq) {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i >= 0) {
+                freqs[i] = freq;
+                return;
+            }
+            i = -i - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            System.arraycopy(ids, i, ids, i + 1, size - i);
+            System.arraycopy(freqs, i, freqs, i + 1, size - i);
+            ids[i] = id;
+            freqs[i] = freq;
+            size++;
+        }
+
+        void remove(long id) {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i < 0) {
+                return;
+            }
+            System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+            System.arraycopy(freqs, i + 1, freqs, i, size - i - 1);
+            size--;
+        }
+
+        float get(long id) {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            return i >= 0 ? freqs[i] : 0f;
+        }
+    }
+
+    private static final class Index {
+        final Map<String, Postings> postings = new HashMap<>();
+        final Map<Long, Doc> docs = new HashMap<>();
+        double totalLength;
+
+        void put(Doc doc) {
+            remove(doc.id);
+            String[] terms = new String[doc.termFreqs.size()];
+            int k = 0;
+            for (Map.Entry<String, Float> e : doc.termFreqs.entrySet()) {
+                Postings p = postings.computeIfAbsent(e.getKey(), Postings::new);
+                p.put(doc.id, e.getValue());
+                // 共用词典中的字符串实例
+                terms[k++] = p.term;
+            }
+            doc.terms = terms;
+            doc.termFreqs = null;
+            docs.put(doc.id, doc);
+            totalLength += doc.length;
+        }
+
+        void remove(long id) {
+            Doc old = docs.remove(id);
+            if (old == null) {
+                return;
+            }
+            for (String t : old.terms) {
+                Postings p = postings.get(t);
+                if (p != null) {
+                    p.remove(id);
+                    if (p.size == 0) {
+                        postings.remove(t);
+                    }
+                }
+            }
+            totalLength -= old.length;
+        }
+
+        /**
+         * 所有词项均命中（AND）且 verify 中每个关键字都是文档某个词项子串的文档，按 BM25 计分
+         */
+        List<Hit> match(Set<String> terms, List<String> verify, Long userId, String directory,
+                String categoryName, String status) {
+            List<Postings> lists = new ArrayList<>(terms.size());
+            for (String t : terms) {
+                Postings p = postings.get(t);
+                if (p == null) {
+                    return new ArrayList<>();
+                }
+                lists.add(p);
+            }
+            lists.sort(Comparator.comparingInt(p -> p.size));
+            int n = docs.size();
+            double avgLength = n == 0 ? 1.0 : Math.max(1.0, totalLength / n);
+            double[] idf = new double[lists.size()];
+            for (int i = 0; i < lists.size(); i++) {
+                int df = lists.get(i).size;
+                idf[i] = Math.log(1.0 + (n - df + 0.5) / (df + 0.5));
+            }
+            Postings rarest = lists.get(0);
+            List<Hit> hits = new ArrayList<>();
+            for (int j = 0; j < rarest.size; j++) {
+                long id = rarest.ids[j];
+                Doc doc = docs.get(id);
+                if (doc == null || !doc.accepts(userId, directory, categoryName, status)) {
+                    continue;
+                }
+                double norm = K1 * (1 - B + B * doc.length / avgLength);
+                double score = 0;
+                boolean all = true;
+                for (int i = 0; i < lists.size(); i++) {
+                    float f = i == 0 ? rarest.freqs[j] : lists.get(i).get(id);
+                    if (f <= 0f) {
+                        all = false;
+                        break;
+                    }
+                    score += idf[i] * f * (K1 + 1) / (f + norm);
+                }
+                if (all && containsAll(doc, verify)) {
+                    hits.add(new Hit(id, score, doc.createdAt));
+                }
+            }
+            return hits;
+        }
+
+        private static boolean containsAll(Doc doc, List<String> verify) {
+            for (String q : verify) {
+                boolean found = false;
+                for (String t : doc.terms) {
+                    if (t.length() > q.length() ? t.contains(q) : t.equals(q)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
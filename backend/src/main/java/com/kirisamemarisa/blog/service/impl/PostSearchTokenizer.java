@@ -0,0 +1,134 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 博客搜索分词。
+ * 中日韩等连续文字按二元组（bigram）切分，单字片段保留单字；
+ * 字母数字按单词切分，建索引时额外写入单词的前两个字符与全部三元组（trigram），每个单词只多出约单词长度个词项。
+ * 查询时长度超过 3 的单词拆成三元组求交，再由调用方核对单词确实是某个索引单词的子串，
+ * 因此字母数字关键字能命中：整词、前缀（“spr” → “spring”）、中缀与后缀（“script” → “javascript”）；
+ * 两个字符的关键字只能命中整词与前缀。单字关键字由调用方回退 LIKE。
+ */
+final class PostSearchTokenizer {
+
+    private static final int GRAM = 3;
+
+    private PostSearchTokenizer() {
+    }
+
+    /**
+     * 建索引用：返回全部词项（含重复，用于统计词频）
+     */
+    static List<String> indexTerms(String text) {
+        List<String> terms = new ArrayList<>();
+        scan(text, terms, true);
+        return terms;
+    }
+
+    /**
+     * 查询用：去重后的关键字，单词不展开
+     */
+    static Set<String> queryTerms(String text) {
+        List<String> terms = new ArrayList<>();
+        scan(text, terms, false);
+        return new LinkedHashSet<>(terms);
+    }
+
+    /**
+     * 查询关键字在索引中对应的词项：长度超过 3 的字母数字单词为它的三元组，其余为关键字本身
+     */
+    static List<String> lookupTerms(String term) {
+        if (!needsVerify(term)) {
+            return List.of(term);
+        }
+        List<String> out = new ArrayList<>();
+        emitTrigrams(term, out);
+        return out;
+    }
+
+    /**
+     * 三元组求交会带来跨单词的误命中，需要核对关键字是否为某个索引词项的子串
+     */
+    static boolean needsVerify(String term) {
+        return term.codePointCount(0, term.length()) > GRAM && !isIdeographic(term.codePointAt(0));
+    }
+
+    private static void scan(String text, List<String> out, boolean expand) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String s = text.toLowerCase(Locale.ROOT);
+        int i = 0;
+        int n = s.length();
+        while (i < n) {
+            int cp = s.codePointAt(i);
+            if (isIdeographic(cp)) {
+                int start = i;
+                while (i < n && isIdeographic(s.codePointAt(i))) {
+                    i += Character.charCount(s.codePointAt(i));
+                }
+                emitGrams(s.substring(start, i), out);
+            } else if (Character.isLetterOrDigit(cp)) {
+                int start = i;
+                while (i < n) {
+                    int c = s.codePointAt(i);
+                    if (!Character.isLetterOrDigit(c) || isIdeographic(c)) {
+                        break;
+                    }
+                    i += Character.charCount(c);
+                }
+                String word = s.substring(start, i);
+                out.add(word);
+                if (expand) {
+                    emitPrefixAndTrigrams(word, out);
+                }
+            } else {
+                i += Character.charCount(cp);
+            }
+        }
+    }
+
+    /**
+     * 写入长度 2 的前缀和全部三元组；与整词相同的词项不重复写入（整词已单独写入）
+     */
+    private static void emitPrefixAndTrigrams(String word, List<String> out) {
+        int[] cps = word.codePoints().toArray();
+        if (cps.length > 2) {
+            out.add(new String(cps, 0, 2));
+        }
+        if (cps.length > GRAM) {
+            emitTrigrams(word, out);
+        }
+    }
+
+    private static void emitTrigrams(String word, List<String> out) {
+        int[] cps = word.codePoints().toArray();
+        for (int k = 0; k + GRAM <= cps.length; k++) {
+            out.add(new String(cps, k, GRAM));
+        }
+    }
+
+    private static void emitGrams(String run, List<String> out) {
+        int[] cps = run.codePoints().toArray();
+        if (cps.length == 1) {
+            out.add(new String(cps, 0, 1));
+            return;
+        }
+        for (int k = 0; k + 1 < cps.length; k++) {
+            out.add(new String(cps, k, 2));
+        }
+    }
+
+    private static boolean isIdeographic(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -4,12 +4,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.kirisamemarisa.blog.model.PrivateMessage;
+import com.kirisamemarisa.blog.model.StorageDeletion;
 import com.kirisamemarisa.blog.model.User;
 import com.kirisamemarisa.blog.repository.PrivateMessageRepository;
 import com.kirisamemarisa.blog.service.FollowService;
 import com.kirisamemarisa.blog.service.FriendService;
 import com.kirisamemarisa.blog.service.PrivateMessageService;
-import com.kirisamemarisa.blog.service.FileStorageService;
+import com.kirisamemarisa.blog.service.StorageDeletionService;
 import com.kirisamemarisa.blog.events.MessageEventPublisher;
 import com.kirisamemarisa.blog.service.PrivateMessageDtoService;
 import com.kirisamemarisa.blog.dto.PrivateMessageDTO;
@@ -30,20 +31,20 @@ public class PrivateMessageServiceImpl implements PrivateMessageService {
     private final FriendService friendService;
     private final MessageEventPublisher publisher;
     private final PrivateMessageDtoService dtoService;
-    private final com.kirisamemarisa.blog.service.FileStorageService fileStorageService;
+    private final StorageDeletionService storageDeletionService;
 
     public PrivateMessageServiceImpl(PrivateMessageRepository messageRepository,
             FollowService followService,
             FriendService friendService,
             MessageEventPublisher publisher,
             PrivateMessageDtoService dtoService,
-            com.kirisamemarisa.blog.service.FileStorageService fileStorageService) {
+            StorageDeletionService storageDeletionService) {
         this.messageRepository = messageRepository;
         this.followService = followService;
         this.friendService = friendService;
         this.publisher = publisher;
         this.dtoService = dtoService;
-        this.fileStorageService = fileStorageService;
+        this.storageDeletionService = storageDeletionService;
     }
 
     @Override
@@ -142,15 +143,10 @@ public class PrivateMessageServiceImpl implements PrivateMessageService {
             throw new IllegalStateException("超过2分钟无法撤回");
         }
 
-        // 如果是媒体消息，尝试删除 COS 文件
+        // 如果是媒体消息，登记删除文件，撤回提交后异步删除
         if ((msg.getType() == PrivateMessage.MessageType.IMAGE || msg.getType() == PrivateMessage.MessageType.VIDEO)
                 && msg.getMediaUrl() != null && !msg.getMediaUrl().isEmpty()) {
-            try {
-                fileStorageService.deleteFile(msg.getMediaUrl());
-            } catch (Exception e) {
-                logger.warn("撤回消息时删除文件失败: {}", msg.getMediaUrl(), e);
-                // 不阻断撤回流程
-            }
+            storageDeletionService.enqueue(StorageDeletion.SOURCE_MESSAGE, List.of(msg.getMediaUrl()));
         }
 
         msg.setRecalled(true);
@@ -0,0 +1,127 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.repository.BlogPostRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 博客搜索的近似总数。
+ * 按过滤条件组合缓存 count 结果到 Redis，过期后仍先返回旧值，并在后台线程重新计数，
+ * 使翻页请求不再每次执行带 LIKE 和标签子查询的 count。
+ */
+@Component
+public class SearchCountCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchCountCache.class);
+
+    static final String KEY_PREFIX = "blog:post:search_count:";
+
+    private final BlogPostRepository blogPostRepository;
+    private final StringRedisTemplate redisTemplate;
+
+    // 正在后台刷新的过滤条件，避免同一组合并发重复计数
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "search-count-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Value("${blog.post.search-count.refresh-ms:60000}")
+    private long refreshMs;
+
+    @Value("${blog.post.search-count.ttl-seconds:3600}")
+    private long ttlSeconds;
+
+    public SearchCountCache(BlogPostRepository blogPostRepository, StringRedisTemplate redisTemplate) {
+        this.blogPostRepository = blogPostRepository;
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * 获取过滤条件对应的近似总数。首次查询同步计数，之后超过刷新间隔的值在后台刷新。
+     */
+    public long approximateCount(String keyword, Long userId, String directory, String categoryName, String status) {
+        String key = KEY_PREFIX + fingerprint(keyword, userId, directory, categoryName, status);
+        String cached = null;
+        try {
+            cached = redisTemplate.opsForValue().get(key);
+        } catch (Exception e) {
+            logger.warn("Failed to read search count cache: {}", e.toString());
+        }
+        if (cached != null) {
+            int sep = cached.indexOf(':');
+            try {
+                long count = Long.parseLong(cached.substring(0, sep));
+                long computedAt = Long.parseLong(cached.substring(sep + 1));
+                if (System.currentTimeMillis() - computedAt > refreshMs) {
+                    refreshAsync(key, keyword, userId, directory, categoryName, status);
+                }
+                return count;
+            } catch (RuntimeException e) {
+                logger.debug("Malformed search count entry {}", key);
+            }
+        }
+        return refresh(key, keyword, userId, directory, categoryName, status);
+    }
+
+    private void refreshAsync(String key, String keyword, Long userId, String directory, String categoryName,
+            String status) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    refresh(key, keyword, userId, directory, categoryName, status);
+                } catch (Exception e) {
+                    logger.warn("Background search count refresh failed: {}", e.toString());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.remove(key);
+        }
+    }
+
+    private long refresh(String key, String keyword, Long userId, String directory, String categoryName,
+            String status) {
+        long count = blogPostRepository.countSearch(keyword, userId, directory, categoryName, status);
+        try {
+            redisTemplate.opsForValue().set(key, count + ":" + System.currentTimeMillis(), ttlSeconds,
+                    TimeUnit.SECONDS);
+        } catch (Exception e) {
+            logger.warn("Failed to write search count cache: {}", e.toString());
+        }
+        return count;
+    }
+
+    private static String fingerprint(String keyword, Long userId, String directory, String categoryName,
+            String status) {
+        String raw = nullToEmpty(keyword) + '\u0001' + (userId == null ? "" : userId) + '\u0001'
+                + nullToEmpty(directory) + '\u0001' + nullToEmpty(categoryName) + '\u0001' + nullToEmpty(status);
+        return DigestUtils.md5DigestAsHex(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
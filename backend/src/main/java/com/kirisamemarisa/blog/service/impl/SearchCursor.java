@@ -0,0 +1,93 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.common.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 博客列表的不透明游标，记录排序方式和上一页最后一条的 (排序键, id)。
+ * 由排行榜分页的列表没有 SQL 排序键，游标记录的是下一页在榜单中的起始排名。
+ * 编码为 base64url("v1|排序|排序键|id")。
+ */
+final class SearchCursor {
+
+    enum Order {
+        LATEST, LIKES, FAVORITES, VIEWS, RANK
+    }
+
+    private static final String VERSION = "v1";
+
+    private final Order order;
+    private final String key;
+    private final long id;
+
+    private SearchCursor(Order order, String key, long id) {
+        this.order = order;
+        this.key = key;
+        this.id = id;
+    }
+
+    static SearchCursor afterCreatedAt(LocalDateTime createdAt, long id) {
+        return new SearchCursor(Order.LATEST, createdAt.toString(), id);
+    }
+
+    static SearchCursor afterKey(Order order, long key, long id) {
+        return new SearchCursor(order, Long.toString(key), id);
+    }
+
+    static SearchCursor atRank(long offset) {
+        return new SearchCursor(Order.RANK, Long.toString(offset), 0L);
+    }
+
+    Order getOrder() {
+        return order;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    long getLongKey() {
+        return Long.parseLong(key);
+    }
+
+    LocalDateTime getCreatedAt() {
+        return LocalDateTime.parse(key);
+    }
+
+    String encode() {
+        String raw = VERSION + "|" + order.name() + "|" + key + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标，空串或 null 返回 null（从第一页开始）
+     *
+     * @throws BusinessException 游标格式不正确
+     */
+    static SearchCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 4 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException(raw);
+            }
+            SearchCursor c = new SearchCursor(Order.valueOf(parts[1]), parts[2], Long.parseLong(parts[3]));
+            // 提前校验排序键格式
+            if (c.order == Order.LATEST) {
+                c.getCreatedAt();
+            } else if (c.getLongKey() < 0 && c.order == Order.RANK) {
+                // 排名偏移不能为负
+                throw new IllegalArgumentException(raw);
+            }
+            return c;
+        } catch (RuntimeException e) {
+            throw new BusinessException(400, "无效的分页游标");
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.model.StorageDeletion;
+import com.kirisamemarisa.blog.repository.PostMediaRepository;
+import com.kirisamemarisa.blog.repository.StorageDeletionRepository;
+import com.kirisamemarisa.blog.service.FileStorageService;
+import com.kirisamemarisa.blog.service.StorageDeletionService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 删除发件箱的投递。
+ * 登记时只写 storage_deletion_outbox，事务提交后唤醒后台线程；另有定时轮询兜底（重启、重试）。
+ * 投递时先在短事务中取一批到期行，再在事务外调用存储的批量删除，最后按结果删除或退避重试，
+ * 远程调用期间不占用数据库连接。集群内由租约保证同一时刻只有一个实例投递。
+ */
+@Service
+public class StorageDeletionServiceImpl implements StorageDeletionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageDeletionServiceImpl.class);
+
+    private static final String LEASE_NAME = "storage-deletion";
+    private static final long LEASE_TTL_MS = 120_000L;
+    // 单次排空的时间上限，远小于租期：租约不续期，超时前停止，剩余行留给下一次轮询或唤醒
+    private static final long DRAIN_DEADLINE_MS = LEASE_TTL_MS / 3;
+
+    private final StorageDeletionRepository storageDeletionRepository;
+    private final FileStorageService fileStorageService;
+    private final PostMediaRepository postMediaRepository;
+    private final PostMediaBackfill postMediaBackfill;
+    private final ClusterCoordinator clusterCoordinator;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "storage-deletion");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean wakeQueued = new AtomicBoolean();
+
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong stillReferenced = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile long lastBatchMs;
+
+    // COS 批量删除单次最多 1000 个 key
+    @Value("${blog.storage.deletion.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${blog.storage.deletion.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${blog.storage.deletion.backoff-base-ms:5000}")
+    private long backoffBaseMs;
+
+    @Value("${blog.storage.deletion.backoff-max-ms:3600000}")
+    private long backoffMaxMs;
+
+    public StorageDeletionServiceImpl(StorageDeletionRepository storageDeletionRepository,
+            FileStorageService fileStorageService,
+            PostMediaRepository postMediaRepository,
+            PostMediaBackfill postMediaBackfill,
+            ClusterCoordinator clusterCoordinator) {
+        this.storageDeletionRepository = storageDeletionRepository;
+        this.fileStorageService = fileStorageService;
+        this.postMediaRepository = postMediaRepository;
+        this.postMediaBackfill = postMediaBackfill;
+        this.clusterCoordinator = clusterCoordinator;
+    }
+
+    @Override
+    @Transactional
+    public void enqueue(String source, Collection<String> fileUrls) {
+        if (fileUrls == null || fileUrls.isEmpty()) {
+            return;
+        }
+        List<StorageDeletion> rows = new ArrayList<>();
+        for (String url : new LinkedHashSet<>(fileUrls)) {
+            if (url != null && !url.isBlank() && url.length() <= 512) {
+                rows.add(new StorageDeletion(url, source));
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        storageDeletionRepository.saveAll(rows);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wake();
+                }
+            });
+        } else {
+            wake();
+        }
+    }
+
+    private void wake() {
+        if (wakeQueued.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                wakeQueued.set(false);
+                drain();
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${blog.storage.deletion.poll-interval-ms:30000}")
+    public void poll() {
+        drain();
+    }
+
+    /**
+     * @return 本次处理（删除、丢弃或记为失败）的行数
+     */
+    synchronized int drain() {
+        ClusterCoordinator.Lease lease = clusterCoordinator.tryAcquire(LEASE_NAME, LEASE_TTL_MS);
+        if (lease == null) {
+            return 0;
+        }
+        int processed = 0;
+        long deadline = System.currentTimeMillis() + DRAIN_DEADLINE_MS;
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                List<StorageDeletion> due = storageDeletionRepository.findDue(maxAttempts, Instant.now(),
+                        PageRequest.of(0, batchSize));
+                if (due.isEmpty()) {
+                    break;
+                }
+                processed += process(due);
+                if (due.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Storage deletion drain failed: {}", e.toString());
+        } finally {
+            clusterCoordinator.release(lease);
+        }
+        return processed;
+    }
+
+    private int process(List<StorageDeletion> due) {
+        long start = System.currentTimeMillis();
+        Instant now = Instant.now();
+        List<StorageDeletion> deferred = new ArrayList<>();
+        List<StorageDeletion> dropped = new ArrayList<>();
+        List<StorageDeletion> toDelete = new ArrayList<>();
+
+        // 博客媒体：历史引用回填完成前暂缓；删除前再查一次引用，期间被其他博客引用的保留文件
+        Set<String> postMediaKeys = new HashSet<>();
+        for (StorageDeletion row : due) {
+            if (StorageDeletion.SOURCE_POST_MEDIA.equals(row.getSource())) {
+                postMediaKeys.add(row.getFileUrl());
+            }
+        }
+        boolean backfilled = postMediaKeys.isEmpty() || postMediaBackfill.isComplete();
+        Set<String> referenced = backfilled && !postMediaKeys.isEmpty()
+                ? new HashSet<>(postMediaRepository.findReferencedKeys(postMediaKeys))
+                : Set.of();
+        for (StorageDeletion row : due) {
+            if (!StorageDeletion.SOURCE_POST_MEDIA.equals(row.getSource())) {
+                toDelete.add(row);
+            } else if (!backfilled) {
+                deferred.add(row);
+            } else if (referenced.contains(row.getFileUrl())) {
+                dropped.add(row);
+            } else {
+                toDelete.add(row);
+            }
+        }
+
+        Set<String> failedUrls = Set.of();
+        if (!toDelete.isEmpty()) {
+            List<String> urls = new ArrayList<>(toDelete.size());
+            for (StorageDeletion row : toDelete) {
+                urls.add(row.getFileUrl());
+            }
+            try {
+                failedUrls = new HashSet<>(fileStorageService.deleteFiles(urls));
+            } catch (Exception e) {
+                logger.warn("Batch storage deletion failed: {}", e.toString());
+                failedUrls = new HashSet<>(urls);
+            }
+        }
+
+        List<StorageDeletion> done = new ArrayList<>(dropped);
+        List<StorageDeletion> retry = new ArrayList<>();
+        for (StorageDeletion row : toDelete) {
+            if (failedUrls.contains(row.getFileUrl())) {
+                int attempts = row.getAttempts() + 1;
+                row.setAttempts(attempts);
+                row.setNextAttemptAt(now.plusMillis(backoffMs(attempts)));
+                row.setLastError("delete failed");
+                retry.add(row);
+                if (attempts >= maxAttempts) {
+                    logger.error("Giving up deleting {} after {} attempts", row.getFileUrl(), attempts);
+                }
+            } else {
+                done.add(row);
+            }
+        }
+        for (StorageDeletion row : deferred) {
+            row.setNextAttemptAt(now.plusMillis(backoffBaseMs));
+            retry.add(row);
+        }
+        if (!done.isEmpty()) {
+            storageDeletionRepository.deleteAllInBatch(done);
+        }
+        if (!retry.isEmpty()) {
+            storageDeletionRepository.saveAll(retry);
+        }
+
+        deleted.addAndGet(toDelete.size() - failedUrls.size());
+        failed.addAndGet(failedUrls.size());
+        stillReferenced.addAndGet(dropped.size());
+        batches.incrementAndGet();
+        lastBatchMs = System.currentTimeMillis() - start;
+        return due.size() - deferred.size();
+    }
+
+    private long backoffMs(int attempts) {
+        long ms = backoffBaseMs << Math.min(attempts - 1, 20);
+        return Math.min(ms, backoffMaxMs);
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("pending", storageDeletionRepository.countByAttemptsLessThan(maxAttempts));
+        metrics.put("dead", storageDeletionRepository.countByAttemptsGreaterThanEqual(maxAttempts));
+        metrics.put("deleted", deleted.get());
+        metrics.put("failed", failed.get());
+        metrics.put("stillReferenced", stillReferenced.get());
+        metrics.put("batches", batches.get());
+        metrics.put("lastBatchMs", lastBatchMs);
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,39 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.repository.UserRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 批量查询用户的展示资料（昵称、头像），用于通知等列表中发送者信息的补齐。
+ * 一条 users LEFT JOIN user_profile 的投影查询，不加载实体；没有资料或昵称为空时回退到用户名。
+ */
+@Component
+public class UserDisplayProfiles {
+
+    private final UserRepository userRepository;
+
+    public UserDisplayProfiles(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * @return 用户 id → {昵称, 头像}；不存在的用户不在结果中
+     */
+    public Map<Long, String[]> load(Collection<Long> userIds) {
+        Map<Long, String[]> profiles = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return profiles;
+        }
+        // {id, username, nickname, avatarUrl}
+        for (Object[] row : userRepository.findAuthorCardsByIds(userIds)) {
+            String nickname = (String) row[2];
+            profiles.put(((Number) row[0]).longValue(),
+                    new String[] { nickname != null ? nickname : (String) row[1], (String) row[3] });
+        }
+        return profiles;
+    }
+}
@@ -313,7 +313,7 @@ public class UserServiceImpl implements UserService {
         }
         long following = followRepository.countByFollower(user);
         long followers = followRepository.countByFollowee(user);
-        long articles = blogPostRepository.countByUserId(userId);
+        long articles = blogPostRepository.countByUserIdAndDeletedFalse(userId);
         return new UserStatsDTO(following, followers, articles);
     }
 
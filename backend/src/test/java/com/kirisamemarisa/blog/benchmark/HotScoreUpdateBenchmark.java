@@ -0,0 +1,98 @@
+package com.kirisamemarisa.blog.benchmark;
+
+import com.kirisamemarisa.blog.dto.PageResult;
+import com.kirisamemarisa.blog.service.PostLeaderboardService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 热度分增量更新基准：对 1 万篇（虚拟）博客随机施加互动，统计每秒热度更新次数与分类 Top-N 读取耗时。
+ * 需要真实的 Redis，默认跳过，使用 {@code mvn test -Dbenchmark=true -Dtest=HotScoreUpdateBenchmark} 运行。
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class HotScoreUpdateBenchmark {
+
+    // 使用远离真实自增 id 的区间，避免与现有数据冲突
+    private static final long FIRST_ID = 9_000_000_000L;
+    private static final int POSTS = 10_000;
+    private static final int CATEGORIES = 20;
+    private static final int UPDATES = 50_000;
+    private static final long BENCH_CATEGORY_BASE = 9_000_000L;
+
+    private static final String[] METRICS = {
+            PostLeaderboardService.VIEWS, PostLeaderboardService.LIKES, PostLeaderboardService.FAVORITES,
+            PostLeaderboardService.COMMENTS, PostLeaderboardService.SHARES };
+
+    @Autowired
+    private PostLeaderboardService leaderboard;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @BeforeEach
+    void seed() {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < POSTS; i++) {
+                long id = FIRST_ID + i;
+                connection.setCommands().sAdd(("blog:rank:post_scopes:" + id).getBytes(),
+                        ("cat:" + (BENCH_CATEGORY_BASE + i % CATEGORIES)).getBytes());
+            }
+            return null;
+        });
+    }
+
+    @Test
+    void scoreUpdatesPerSecond() {
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        for (int i = 0; i < UPDATES; i++) {
+            long id = FIRST_ID + random.nextInt(POSTS);
+            leaderboard.increment(id, METRICS[random.nextInt(METRICS.length)], 1);
+        }
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        System.out.printf("Applied %d hot score updates in %d ms (%.0f updates/s)%n",
+                UPDATES, elapsedMs, UPDATES * 1000.0 / elapsedMs);
+
+        int reads = 1_000;
+        start = System.nanoTime();
+        PageResult<Long> top = null;
+        for (int i = 0; i < reads; i++) {
+            top = leaderboard.page(PostLeaderboardService.HOT, BENCH_CATEGORY_BASE + i % CATEGORIES, null, null,
+                    0, 20);
+        }
+        long readUs = (System.nanoTime() - start) / 1_000 / reads;
+        System.out.printf("Top-20 per category read: %d us avg%n", readUs);
+
+        assertEquals(POSTS / CATEGORIES, top.getTotal());
+        leaderboard.rebaseHotScores();
+    }
+
+    @AfterEach
+    void cleanup() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < POSTS; i++) {
+            keys.add("blog:rank:post_scopes:" + (FIRST_ID + i));
+        }
+        for (int c = 0; c < CATEGORIES; c++) {
+            for (String metric : new String[] { PostLeaderboardService.VIEWS, PostLeaderboardService.LIKES,
+                    PostLeaderboardService.FAVORITES, PostLeaderboardService.HOT }) {
+                keys.add("blog:rank:" + metric + ":cat:" + (BENCH_CATEGORY_BASE + c));
+            }
+            redisTemplate.opsForHash().delete("blog:rank:hot_epoch", "cat:" + (BENCH_CATEGORY_BASE + c));
+        }
+        redisTemplate.delete(keys);
+    }
+}
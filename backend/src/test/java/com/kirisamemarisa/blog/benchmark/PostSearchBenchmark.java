@@ -0,0 +1,103 @@
+package com.kirisamemarisa.blog.benchmark;
+
+import com.kirisamemarisa.blog.dto.PageResult;
+import com.kirisamemarisa.blog.repository.BlogPostRepository;
+import com.kirisamemarisa.blog.service.PostSearchService;
+import com.kirisamemarisa.blog.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 关键字检索基准：1 万篇博客上，原 LIKE '%keyword%' 分页 + count 与倒排索引 BM25 检索的单次耗时对比。
+ * 需要真实的 MySQL 与 Redis，默认跳过，使用 {@code mvn test -Dbenchmark=true -Dtest=PostSearchBenchmark} 运行。
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PostSearchBenchmark {
+
+    private static final int POSTS = 10_000;
+    private static final int QUERIES = 200;
+    private static final String[] WORDS = {
+            "春天", "旅行", "游戏", "音乐", "电影", "美食", "编程", "插画", "随笔", "动漫",
+            "京都", "咖啡", "夜晚", "猫咪", "Spring", "Redis", "索引", "性能", "读书", "摄影" };
+
+    @Autowired
+    private BlogPostRepository blogPostRepository;
+
+    @Autowired
+    private PostSearchService postSearchService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long userId;
+
+    @BeforeEach
+    void seed() {
+        userId = TestData.insertUser(jdbcTemplate, TestData.uniqueName("bench"));
+
+        Random random = new Random(7);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < POSTS; i++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + "的" + WORDS[random.nextInt(WORDS.length)] + i;
+            StringBuilder content = new StringBuilder();
+            for (int w = 0; w < 60; w++) {
+                content.append(WORDS[random.nextInt(WORDS.length)]).append(w % 7 == 0 ? "。" : "，");
+            }
+            rows.add(new Object[] { userId, title, content.toString() });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO blog_post (user_id, title, content, like_count, comment_count, "
+                + "share_count, favorite_count, status, repost_count, is_repost, is_deleted, created_at) "
+                + "VALUES (?, ?, ?, 0, 0, 0, 0, 'PUBLISHED', 0, false, false, NOW())", rows);
+        postSearchService.rebuild();
+    }
+
+    @Test
+    void likeScanVersusInvertedIndex() {
+        Random random = new Random(11);
+        String[] keywords = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            keywords[i] = WORDS[random.nextInt(WORDS.length)];
+        }
+
+        long start = System.nanoTime();
+        for (String k : keywords) {
+            blogPostRepository.searchIds(k, userId, null, null, "PUBLISHED",
+                    PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "createdAt")));
+            blogPostRepository.countSearch(k, userId, null, null, "PUBLISHED");
+        }
+        long likeUs = (System.nanoTime() - start) / 1_000 / QUERIES;
+
+        start = System.nanoTime();
+        PageResult<Long> last = null;
+        for (String k : keywords) {
+            last = postSearchService.search(k, userId, null, null, "PUBLISHED", 0, 20);
+        }
+        long indexUs = (System.nanoTime() - start) / 1_000 / QUERIES;
+
+        System.out.printf("LIKE page + count: %d us/query, inverted index BM25: %d us/query%n", likeUs, indexUs);
+        assertNotNull(last);
+        assertTrue(last.getTotal() > 0);
+    }
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.update("DELETE FROM blog_post WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+        postSearchService.rebuild();
+    }
+}
@@ -0,0 +1,89 @@
+package com.kirisamemarisa.blog.benchmark;
+
+import com.kirisamemarisa.blog.service.impl.BlogViewCountSyncer;
+import com.kirisamemarisa.blog.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 浏览量批量同步基准：10k 个待同步博客一次落库的耗时。
+ * 需要真实的 MySQL 与 Redis，默认跳过，使用 {@code mvn test -Dbenchmark=true -Dtest=ViewCountSyncBenchmark} 运行。
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ViewCountSyncBenchmark {
+
+    private static final int POSTS = 10_000;
+    private static final int DELTA_PER_POST = 3;
+
+    @Autowired
+    private BlogViewCountSyncer syncer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    private Long userId;
+    private final List<Long> postIds = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        userId = TestData.insertUser(jdbcTemplate, TestData.uniqueName("bench"));
+
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < POSTS; i++) {
+            rows.add(new Object[] { userId, "bench-" + i });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO blog_post (user_id, title, content, like_count, comment_count, "
+                + "share_count, favorite_count, status, repost_count, is_repost, is_deleted, created_at) "
+                + "VALUES (?, ?, 'bench', 0, 0, 0, 0, 'PUBLISHED', 0, false, false, NOW())", rows);
+        postIds.addAll(jdbcTemplate.queryForList("SELECT id FROM blog_post WHERE user_id = ?", Long.class, userId));
+
+        redisTemplate.executePipelined((org.springframework.data.redis.core.RedisCallback<Object>) connection -> {
+            for (Long id : postIds) {
+                connection.stringCommands().set(("blog:post:view_count_delta:" + id).getBytes(),
+                        String.valueOf(DELTA_PER_POST).getBytes());
+                connection.setCommands().sAdd("blog:post:pending_sync".getBytes(), String.valueOf(id).getBytes());
+            }
+            return null;
+        });
+    }
+
+    @Test
+    void syncTenThousandPendingPosts() {
+        long start = System.nanoTime();
+        int synced = syncer.syncPending();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("Synced %d pending posts in %d ms (%.0f posts/s)%n",
+                synced, elapsedMs, synced * 1000.0 / Math.max(1, elapsedMs));
+
+        assertEquals(POSTS, synced);
+        Long total = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(s.view_count), 0) FROM blog_view_stats s JOIN blog_post b ON b.id = s.blog_post_id "
+                        + "WHERE b.user_id = ?",
+                Long.class, userId);
+        assertEquals((long) POSTS * DELTA_PER_POST, total);
+    }
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.update("DELETE s FROM blog_view_stats s JOIN blog_post b ON b.id = s.blog_post_id WHERE b.user_id = ?",
+                userId);
+        jdbcTemplate.update("DELETE FROM blog_post WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+    }
+}
@@ -0,0 +1,36 @@
+package com.kirisamemarisa.blog.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExcerptUtilTest {
+
+    @Test
+    void stripsMarkupAndCollapsesWhitespace() {
+        String content = "# 标题\n\n![图](/a.png) **加粗** 与 <b>html</b>\n\n[链接](https://example.com)\t`code`";
+
+        assertEquals("标题 加粗 与 html 链接 code", ExcerptUtil.of(content));
+    }
+
+    @Test
+    void emptyContentHasEmptyExcerpt() {
+        assertEquals("", ExcerptUtil.of(null));
+        assertEquals("", ExcerptUtil.of(""));
+        assertEquals("", ExcerptUtil.of("  \n# "));
+    }
+
+    @Test
+    void longContentIsTruncated() {
+        String excerpt = ExcerptUtil.of("字".repeat(ExcerptUtil.MAX_LENGTH * 20));
+
+        assertEquals(ExcerptUtil.MAX_LENGTH, excerpt.length());
+    }
+
+    @Test
+    void doesNotSplitSurrogatePair() {
+        String content = "a".repeat(ExcerptUtil.MAX_LENGTH - 1) + "😀" + "tail";
+
+        assertEquals("a".repeat(ExcerptUtil.MAX_LENGTH - 1), ExcerptUtil.of(content));
+    }
+}
@@ -0,0 +1,83 @@
+package com.kirisamemarisa.blog.repository;
+
+import com.kirisamemarisa.blog.repository.BlogPostRepositoryCustom.KeysetSort;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 游标分页的 JPQL 只包含实际给出的条件，只有按浏览量排序时关联浏览统计
+ */
+class BlogPostRepositoryImplTest {
+
+    private final EntityManager entityManager = mock(EntityManager.class);
+    @SuppressWarnings("unchecked")
+    private final TypedQuery<Object[]> query = mock(TypedQuery.class);
+    private final BlogPostRepositoryImpl repository = new BlogPostRepositoryImpl();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(repository, "entityManager", entityManager);
+        when(entityManager.createQuery(anyString(), eq(Object[].class))).thenReturn(query);
+    }
+
+    @Test
+    void firstPageHasOnlyTheDeletedFilter() {
+        repository.searchAfter(KeysetSort.LIKES, null, null, "", null, null, null, null, 21);
+
+        assertEquals("SELECT b.id, b.likeCount FROM BlogPost b WHERE b.deleted = false "
+                + "ORDER BY b.likeCount DESC, b.id DESC", jpql());
+        verify(query, never()).setParameter(anyString(), any());
+        verify(query).setMaxResults(21);
+    }
+
+    @Test
+    void givenFiltersAndCursorAreBound() {
+        repository.searchAfter(KeysetSort.FAVORITES, "java", 7L, null, "后端", "DRAFT", 3L, 99L, 11);
+
+        String jpql = jpql();
+        assertFalse(jpql.contains("viewStats"));
+        assertFalse(jpql.contains("IS NULL"));
+        assertTrue(jpql.contains("AND b.user.id = :userId AND b.category.name = :categoryName "
+                + "AND b.status = :status AND (b.favoriteCount < :afterKey OR "
+                + "(b.favoriteCount = :afterKey AND b.id < :afterId))"));
+        verify(query).setParameter("keyword", "%java%");
+        verify(query).setParameter("afterKey", 3L);
+        verify(query).setParameter("afterId", 99L);
+    }
+
+    @Test
+    void publishedAlsoMatchesLegacyNullStatus() {
+        repository.searchAfter(KeysetSort.CREATED_AT, null, null, null, null, "PUBLISHED", null, null, 11);
+
+        assertTrue(jpql().contains("AND (b.status = :status OR b.status IS NULL) "));
+    }
+
+    @Test
+    void onlyViewOrderJoinsViewStats() {
+        repository.searchAfter(KeysetSort.VIEWS, null, null, null, null, null, 5L, 1L, 11);
+
+        assertTrue(jpql().startsWith("SELECT b.id, COALESCE(s.viewCount, 0) FROM BlogPost b "
+                + "LEFT JOIN b.viewStats s WHERE"));
+    }
+
+    private String jpql() {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(entityManager).createQuery(captor.capture(), eq(Object[].class));
+        return captor.getValue();
+    }
+}
@@ -0,0 +1,96 @@
+package com.kirisamemarisa.blog.service;
+
+import com.kirisamemarisa.blog.dto.NotificationDTO;
+import com.kirisamemarisa.blog.support.TestData;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 通知分页的 SQL 语句数回归：每页的语句数固定（分页、计数、已读水位、发送者资料），与页大小无关。
+ * 与 contextLoads 相同，需要真实的 MySQL 与 Redis。
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class NotificationPagingQueryCountTest {
+
+    private static final int SENDERS = 60;
+    // 分页查询、总数查询、已读水位、发送者资料
+    private static final long MAX_STATEMENTS_PER_PAGE = 4;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long receiverId;
+    private final List<Long> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        String prefix = TestData.uniqueName("qc");
+        receiverId = insertUser(prefix + "_r");
+        for (int i = 0; i < SENDERS; i++) {
+            Long senderId = insertUser(prefix + "_" + i);
+            jdbcTemplate.update("INSERT INTO user_profile (user_id, nickname) VALUES (?, ?)", senderId, "sender" + i);
+            jdbcTemplate.update("INSERT INTO notifications (sender_id, receiver_id, type, reference_id, content, "
+                    + "is_read, created_at) VALUES (?, ?, 'POST_COMMENT', ?, 'qc', 0, NOW())", senderId, receiverId, i);
+        }
+    }
+
+    @Test
+    void statementCountDoesNotGrowWithPageSize() {
+        long small = statementsFor(5);
+        long large = statementsFor(50);
+
+        assertEquals(small, large, "statements per page should not depend on page size");
+        assertTrue(large <= MAX_STATEMENTS_PER_PAGE, "expected at most " + MAX_STATEMENTS_PER_PAGE
+                + " statements per page but was " + large);
+    }
+
+    private long statementsFor(int pageSize) {
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        Page<NotificationDTO> page = notificationService.getUserNotifications(receiverId, PageRequest.of(0, pageSize));
+        long statements = stats.getPrepareStatementCount();
+
+        assertEquals(pageSize, page.getContent().size());
+        for (NotificationDTO dto : page.getContent()) {
+            assertNotNull(dto.getSenderNickname());
+        }
+        return statements;
+    }
+
+    private Long insertUser(String username) {
+        Long id = TestData.insertUser(jdbcTemplate, username);
+        userIds.add(id);
+        return id;
+    }
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.update("DELETE FROM notifications WHERE receiver_id = ?", receiverId);
+        for (Long id : userIds) {
+            jdbcTemplate.update("DELETE FROM user_profile WHERE user_id = ?", id);
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", id);
+        }
+    }
+}
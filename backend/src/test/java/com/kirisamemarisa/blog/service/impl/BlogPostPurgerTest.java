@@ -0,0 +1,93 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.service.BlogViewService;
+import com.kirisamemarisa.blog.service.PostMediaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 软删除博客的后台清理：从表分批删除，释放媒体引用后才删除博客本身
+ */
+class BlogPostPurgerTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final BlogViewService blogViewService = mock(BlogViewService.class);
+    private final PostMediaService postMediaService = mock(PostMediaService.class);
+    private final ClusterCoordinator clusterCoordinator = mock(ClusterCoordinator.class);
+
+    private BlogPostPurger purger;
+
+    @BeforeEach
+    void setUp() {
+        purger = new BlogPostPurger(jdbcTemplate, blogViewService, postMediaService, clusterCoordinator);
+        ReflectionTestUtils.setField(purger, "chunkSize", 2);
+        when(clusterCoordinator.tryAcquire(anyString(), anyLong()))
+                .thenReturn(new ClusterCoordinator.Lease("k", "v", 1L));
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM blog_post WHERE is_deleted = 1"),
+                eq(Long.class), any(Object[].class))).thenReturn(List.of(7L));
+    }
+
+    @Test
+    void releasesMediaBeforeDeletingThePost() {
+        when(postMediaService.removePost(7L)).thenReturn(3);
+        when(jdbcTemplate.update(eq("DELETE FROM blog_post WHERE id = ? AND is_deleted = 1"), any(Object[].class)))
+                .thenReturn(1);
+
+        purger.run();
+
+        InOrder order = inOrder(jdbcTemplate, postMediaService, blogViewService);
+        order.verify(jdbcTemplate).update(startsWith("DELETE FROM blog_post_tag"), any(Object[].class));
+        order.verify(postMediaService).removePost(7L);
+        order.verify(blogViewService).deleteByBlogPostId(7L);
+        order.verify(jdbcTemplate).update(eq("DELETE FROM blog_post WHERE id = ? AND is_deleted = 1"),
+                any(Object[].class));
+        verify(clusterCoordinator).release(any());
+
+        Map<String, Object> metrics = purger.getMetrics();
+        assertEquals(1L, metrics.get("postsPurged"));
+        assertEquals(3L, ((Map<?, ?>) metrics.get("rowsDeleted")).get("post_media"));
+    }
+
+    @Test
+    void repeatsAStepUntilAShortChunk() {
+        when(jdbcTemplate.update(startsWith("DELETE FROM comment WHERE"), any(Object[].class)))
+                .thenReturn(2, 2, 1);
+
+        purger.run();
+
+        verify(jdbcTemplate, times(3)).update(startsWith("DELETE FROM comment WHERE"), any(Object[].class));
+        assertEquals(5L, ((Map<?, ?>) purger.getMetrics().get("rowsDeleted")).get("comment"));
+    }
+
+    @Test
+    void leavesThePostAndItsMediaWhenAStepFails() {
+        when(jdbcTemplate.update(startsWith("DELETE FROM comment_like"), any(Object[].class)))
+                .thenThrow(new IllegalStateException("lock wait timeout"));
+
+        purger.run();
+
+        verify(postMediaService, never()).removePost(anyLong());
+        verify(jdbcTemplate, never()).update(eq("DELETE FROM blog_post WHERE id = ? AND is_deleted = 1"),
+                any(Object[].class));
+        verify(clusterCoordinator).release(any());
+    }
+}
@@ -0,0 +1,133 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 本地浏览缓冲：刷新、失败回滚与空闲移除都不能丢失或重复计入增量
+ */
+class BlogViewLocalBufferTest {
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final ClusterCoordinator clusterCoordinator = mock(ClusterCoordinator.class);
+    // Redis 中已确认写入的增量
+    private final Map<Long, AtomicLong> written = new ConcurrentHashMap<>();
+    private final AtomicBoolean failNext = new AtomicBoolean();
+
+    private BlogViewLocalBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new BlogViewLocalBuffer(redisTemplate, new HotScorePolicy(), clusterCoordinator);
+        ReflectionTestUtils.setField(buffer, "enabled", true);
+        ReflectionTestUtils.setField(buffer, "flushThreshold", Long.MAX_VALUE);
+        when(clusterCoordinator.getShardCount()).thenReturn(1);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(inv -> {
+            if (failNext.getAndSet(false)) {
+                throw new IllegalStateException("redis down");
+            }
+            Object[] args = inv.getArguments();
+            List<Object> out = new ArrayList<>();
+            // args: script, keys, 10 个固定参数, 然后 {id, 增量} 成对
+            for (int i = 12; i + 1 < args.length; i += 2) {
+                long id = Long.parseLong(args[i].toString());
+                long d = Long.parseLong(args[i + 1].toString());
+                long total = written.computeIfAbsent(id, k -> new AtomicLong()).addAndGet(d);
+                out.add(args[i].toString());
+                out.add(100L + total);
+            }
+            return out;
+        });
+    }
+
+    @Test
+    void unknownPostIsNotBuffered() {
+        assertNull(buffer.tryRecord(1L));
+    }
+
+    @Test
+    void flushWritesBufferedDeltas() {
+        buffer.remember(1L, 100L);
+        buffer.tryRecord(1L);
+        assertEquals(102L, buffer.tryRecord(1L));
+
+        buffer.flush();
+
+        assertEquals(2L, written.get(1L).get());
+        assertEquals(0L, buffer.pendingDelta(1L));
+        assertEquals(0L, buffer.getMetrics().get("unflushed"));
+    }
+
+    @Test
+    void failedFlushKeepsDeltasForNextRound() {
+        buffer.remember(1L, 100L);
+        buffer.tryRecord(1L);
+        failNext.set(true);
+
+        buffer.flush();
+        assertEquals(1L, buffer.pendingDelta(1L));
+
+        buffer.flush();
+        assertEquals(1L, written.get(1L).get());
+        assertEquals(0L, buffer.getMetrics().get("unflushed"));
+    }
+
+    @Test
+    void idleEvictionRacingWithRecordsLosesNothing() throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong recorded = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                while (running.get()) {
+                    if (buffer.tryRecord(1L) != null) {
+                        recorded.incrementAndGet();
+                    } else {
+                        buffer.remember(1L, 100L);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (int round = 0; round < 2_000; round++) {
+            expireSlots();
+            buffer.flush();
+        }
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        buffer.flush();
+
+        long flushed = written.containsKey(1L) ? written.get(1L).get() : 0L;
+        assertEquals(recorded.get(), flushed + buffer.pendingDelta(1L));
+        assertEquals(buffer.pendingDelta(1L), buffer.getMetrics().get("unflushed"));
+    }
+
+    // 让所有 slot 看起来已空闲很久，下一次刷新时没有增量的 slot 会被移出
+    @SuppressWarnings("unchecked")
+    private void expireSlots() {
+        Map<Long, Object> slots = (Map<Long, Object>) ReflectionTestUtils.getField(buffer, "slots");
+        for (Object slot : slots.values()) {
+            ReflectionTestUtils.setField(slot, "lastTouched", 0L);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.service.EngagementCounterService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 互动计数落库：成功时批量 UPDATE 并同步详情缓存与分类榜首，失败时整块放回 Redis
+ */
+class EngagementCounterFlushTest {
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final SetOperations<String, String> setOps = mock(SetOperations.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ClusterCoordinator clusterCoordinator = mock(ClusterCoordinator.class);
+    private final PostDetailCache postDetailCache = mock(PostDetailCache.class);
+    private final List<Object[]> restored = new ArrayList<>();
+
+    private EngagementCounterServiceImpl service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        service = new EngagementCounterServiceImpl(redisTemplate, jdbcTemplate, mock(PlatformTransactionManager.class),
+                clusterCoordinator, postDetailCache);
+        ReflectionTestUtils.setField(service, "chunkSize", 500);
+        ReflectionTestUtils.setField(service, "maxChunksPerRun", 10);
+        when(clusterCoordinator.tryAcquire(anyString(), any(Long.class)))
+                .thenReturn(new ClusterCoordinator.Lease("k", "v", 1L));
+        when(redisTemplate.opsForSet()).thenReturn(setOps);
+        when(setOps.size(EngagementCounterServiceImpl.KEY_DIRTY)).thenReturn(2L, 0L);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(inv -> {
+            String script = ((RedisScript<?>) inv.getArgument(0)).getScriptAsString();
+            if (script.contains("SPOP")) {
+                return new ArrayList<>(Arrays.asList("post:1", "likes", "3", "post:2", "shares", "-1"));
+            }
+            Object[] args = new Object[inv.getArguments().length - 2];
+            System.arraycopy(inv.getArguments(), 2, args, 0, args.length);
+            restored.add(args);
+            return 2L;
+        });
+    }
+
+    @Test
+    void flushedDeltasUpdateDatabaseAndCaches() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any(Object[].class))).thenReturn(List.of("7"));
+
+        assertEquals(2, service.flush());
+
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+        verify(postDetailCache).applyCounterDeltas(Map.of(
+                1L, Map.of(EngagementCounterService.LIKES, 3L),
+                2L, Map.of(EngagementCounterService.SHARES, -1L)));
+        // 只有点赞/收藏变化的博客影响分类榜首
+        verify(jdbcTemplate).queryForList(anyString(), eq(String.class), eq(1L));
+        verify(setOps).add(CategoryChampionCache.KEY_DIRTY, "7");
+        assertEquals(0, restored.size());
+    }
+
+    @Test
+    void failedFlushRequeuesTheWholeChunk() {
+        doThrow(new QueryTimeoutException("timeout")).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+
+        assertEquals(0, service.flush());
+
+        assertEquals(1, restored.size());
+        assertEquals(Arrays.asList(EngagementCounterServiceImpl.KEY_PREFIX, "post:1", "likes", "3", "post:2", "shares", "-1"),
+                Arrays.asList(restored.get(0)));
+        verify(postDetailCache, never()).applyCounterDeltas(any());
+        assertEquals(2L, service.getMetrics().get("requeuedEntities"));
+    }
+}
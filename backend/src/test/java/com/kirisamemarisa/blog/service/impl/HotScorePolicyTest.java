@@ -0,0 +1,58 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.service.PostLeaderboardService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HotScorePolicyTest {
+
+    private final HotScorePolicy policy = new HotScorePolicy();
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(policy, "halfLifeHours", 2.0);
+        ReflectionTestUtils.setField(policy, "viewWeight", 1.0);
+        ReflectionTestUtils.setField(policy, "likeWeight", 3.0);
+        ReflectionTestUtils.setField(policy, "favoriteWeight", 5.0);
+        ReflectionTestUtils.setField(policy, "commentWeight", 4.0);
+        ReflectionTestUtils.setField(policy, "shareWeight", 6.0);
+    }
+
+    @Test
+    void halfLifeIsConvertedToMillis() {
+        assertEquals(7_200_000L, policy.halfLifeMillis());
+
+        ReflectionTestUtils.setField(policy, "halfLifeHours", 0.0);
+        assertEquals(1L, policy.halfLifeMillis());
+    }
+
+    @Test
+    void weightsFollowMetric() {
+        assertEquals(1.0, policy.weightOf(PostLeaderboardService.VIEWS));
+        assertEquals(3.0, policy.weightOf(PostLeaderboardService.LIKES));
+        assertEquals(5.0, policy.weightOf(PostLeaderboardService.FAVORITES));
+        assertEquals(4.0, policy.weightOf(PostLeaderboardService.COMMENTS));
+        assertEquals(6.0, policy.weightOf(PostLeaderboardService.SHARES));
+        assertEquals(0.0, policy.weightOf("unknown"));
+        assertEquals(0.0, policy.weightOf(null));
+    }
+
+    @Test
+    void weightedTotalSumsAllMetrics() {
+        assertEquals(10 + 2 * 3 + 5 + 4 * 4 + 6, policy.weightedTotal(10, 2, 1, 4, 1), 1e-9);
+    }
+
+    @Test
+    void scoreDoublesEveryHalfLife() {
+        long epoch = 1_000_000L;
+        long halfLife = policy.halfLifeMillis();
+
+        assertEquals(3.0, policy.scaled(3.0, epoch, epoch), 1e-9);
+        assertEquals(6.0, policy.scaled(3.0, epoch + halfLife, epoch), 1e-9);
+        assertEquals(12.0, policy.scaled(3.0, epoch + 2 * halfLife, epoch), 1e-9);
+        assertEquals(1.5, policy.scaled(3.0, epoch - halfLife, epoch), 1e-9);
+    }
+}
@@ -0,0 +1,44 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NotificationDispatcherAggregationTest {
+
+    @Test
+    void freshAggregateCountsDistinctSendersNewestFirst() {
+        NotificationDispatcher.Aggregate a = NotificationDispatcher.mergeActors(List.of(1L, 2L, 1L, 3L), null, null, 10);
+
+        assertEquals(3, a.actorCount);
+        assertEquals(List.of(3L, 1L, 2L), a.recentActorIds);
+    }
+
+    @Test
+    void unreadAggregateAddsOnlyNewActors() {
+        NotificationDispatcher.Aggregate a = NotificationDispatcher.mergeActors(List.of(4L, 7L), 5, List.of(4L, 3L), 10);
+
+        assertEquals(6, a.actorCount);
+        assertEquals(List.of(7L, 4L, 3L), a.recentActorIds);
+    }
+
+    @Test
+    void recentActorsAreTruncated() {
+        NotificationDispatcher.Aggregate a = NotificationDispatcher.mergeActors(List.of(1L, 2L, 3L), 2, List.of(8L, 9L), 3);
+
+        assertEquals(5, a.actorCount);
+        assertEquals(List.of(3L, 2L, 1L), a.recentActorIds);
+
+        NotificationDispatcher.Aggregate b = NotificationDispatcher.mergeActors(List.of(1L, 2L), null, null, 0);
+        assertEquals(List.of(2L), b.recentActorIds);
+    }
+
+    @Test
+    void malformedActorIdsAreSkipped() {
+        assertEquals(List.of(1L, 3L), NotificationDispatcher.parseActorIds("1, x,,3"));
+        assertTrue(NotificationDispatcher.parseActorIds(null).isEmpty());
+    }
+}
@@ -0,0 +1,126 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.events.NotificationEventPublisher;
+import com.kirisamemarisa.blog.events.RabbitNotificationBridge;
+import com.kirisamemarisa.blog.model.NotificationOutbox;
+import com.kirisamemarisa.blog.model.NotificationType;
+import com.kirisamemarisa.blog.repository.NotificationOutboxRepository;
+import com.kirisamemarisa.blog.repository.NotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 发件箱投递的重试：落库失败整批退避，推送未确认时退避重发，超过次数后改为本地推送
+ */
+class NotificationDispatcherRetryTest {
+
+    private final NotificationOutboxRepository outboxRepository = mock(NotificationOutboxRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final NotificationEventPublisher publisher = mock(NotificationEventPublisher.class);
+    private final ClusterCoordinator clusterCoordinator = mock(ClusterCoordinator.class);
+    private final NotificationReadWatermarks readWatermarks = mock(NotificationReadWatermarks.class);
+    private final RabbitNotificationBridge rabbitBridge = mock(RabbitNotificationBridge.class);
+
+    private NotificationDispatcher dispatcher;
+    private NotificationOutbox row;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new NotificationDispatcher(outboxRepository, mock(NotificationRepository.class),
+                mock(UserDisplayProfiles.class), jdbcTemplate, publisher, clusterCoordinator,
+                mock(NotificationUnreadCounter.class), readWatermarks, mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 200);
+        ReflectionTestUtils.setField(dispatcher, "maxPublishAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "backoffBaseMs", 2000L);
+        ReflectionTestUtils.setField(dispatcher, "backoffMaxMs", 300_000L);
+        ReflectionTestUtils.setField(dispatcher, "rabbitBridge", rabbitBridge);
+        when(clusterCoordinator.tryAcquire(anyString(), anyLong()))
+                .thenReturn(new ClusterCoordinator.Lease("k", "v", 1L));
+        when(readWatermarks.allocate(anyInt())).thenReturn(1L);
+
+        row = new NotificationOutbox();
+        row.setId(10L);
+        row.setSenderId(1L);
+        row.setReceiverId(2L);
+        row.setType(NotificationType.POST_COMMENT.name());
+        row.setCreatedAt(Instant.now());
+        row.setNextAttemptAt(Instant.now());
+        when(outboxRepository.findDue(any(Instant.class), any(Pageable.class))).thenReturn(List.of(row));
+    }
+
+    @Test
+    void storeFailureBacksOffTheWholeBatch() {
+        when(jdbcTemplate.update(startsWith("INSERT IGNORE INTO notifications"), any(Object[].class)))
+                .thenThrow(new IllegalStateException("deadlock"));
+        Instant before = Instant.now();
+
+        assertEquals(0, dispatcher.drain());
+
+        assertEquals(1, row.getAttempts());
+        assertTrue(!row.getNextAttemptAt().isBefore(before.plusMillis(2000)));
+        verify(outboxRepository).saveAll(List.of(row));
+        verify(outboxRepository, never()).deleteAllInBatch(anyList());
+        verify(rabbitBridge, never()).publishAll(anyList(), anyLong());
+        verify(clusterCoordinator).release(any());
+    }
+
+    @Test
+    void unconfirmedPublishIsRetriedWithBackoff() {
+        when(jdbcTemplate.update(startsWith("INSERT IGNORE INTO notifications"), any(Object[].class))).thenReturn(1);
+        when(rabbitBridge.publishAll(anyList(), anyLong())).thenReturn(false);
+        row.setAttempts(1);
+        Instant before = Instant.now();
+
+        assertEquals(0, dispatcher.drain());
+
+        assertEquals(2, row.getAttempts());
+        assertTrue(!row.getNextAttemptAt().isBefore(before.plusMillis(4000)));
+        verify(outboxRepository).saveAll(List.of(row));
+        verify(outboxRepository, never()).deleteAllInBatch(anyList());
+        verify(publisher, never()).sendNotification(anyLong(), any());
+    }
+
+    @Test
+    void lastPublishAttemptFallsBackToLocalDelivery() {
+        when(jdbcTemplate.update(startsWith("INSERT IGNORE INTO notifications"), any(Object[].class))).thenReturn(1);
+        when(rabbitBridge.publishAll(anyList(), anyLong())).thenReturn(false);
+        row.setAttempts(2);
+
+        assertEquals(1, dispatcher.drain());
+
+        verify(publisher).sendNotification(anyLong(), any());
+        verify(outboxRepository).deleteAllInBatch(List.of(row));
+        verify(outboxRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void confirmedPublishRemovesTheRow() {
+        when(jdbcTemplate.update(startsWith("INSERT IGNORE INTO notifications"), any(Object[].class))).thenReturn(1);
+        when(rabbitBridge.publishAll(anyList(), anyLong())).thenReturn(true);
+
+        assertEquals(1, dispatcher.drain());
+
+        verify(outboxRepository).deleteAllInBatch(List.of(row));
+        verify(outboxRepository, never()).saveAll(anyList());
+    }
+}
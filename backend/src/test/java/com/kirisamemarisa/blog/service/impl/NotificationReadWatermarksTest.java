@@ -0,0 +1,93 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.model.NotificationType;
+import com.kirisamemarisa.blog.repository.NotificationReadMarkRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationReadWatermarksTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final NotificationReadWatermarks watermarks = new NotificationReadWatermarks(
+            mock(NotificationReadMarkRepository.class), jdbcTemplate);
+
+    @Test
+    void sequenceComparesAgainstTheMark() {
+        Map<String, Long> marks = Map.of(NotificationType.POST_LIKE.name(), 100L);
+
+        assertTrue(NotificationReadWatermarks.isRead(100L, NotificationType.POST_LIKE, false, marks));
+        assertFalse(NotificationReadWatermarks.isRead(101L, NotificationType.POST_LIKE, false, marks));
+        assertFalse(NotificationReadWatermarks.isRead(1L, NotificationType.POST_COMMENT, false, marks));
+        assertTrue(NotificationReadWatermarks.isRead(101L, NotificationType.POST_LIKE, true, marks));
+    }
+
+    @Test
+    void stampedSequenceWinsOverId() {
+        assertEquals(500L, NotificationReadWatermarks.sequenceOf(7L, 500L));
+        assertEquals(7L, NotificationReadWatermarks.sequenceOf(7L, null));
+    }
+
+    @Test
+    void allocateReturnsFirstOfTheBlock() {
+        when(jdbcTemplate.update(contains("LAST_INSERT_ID(seq_value + ?)"), eq(10))).thenReturn(1);
+        when(jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class)).thenReturn(110L);
+
+        assertEquals(101L, watermarks.allocate(10));
+        verify(jdbcTemplate, never()).update(contains("INSERT IGNORE INTO notification_sequence"), any(Object[].class));
+    }
+
+    @Test
+    void allocateSeedsTheSequenceAboveExistingNotifications() {
+        when(jdbcTemplate.update(contains("LAST_INSERT_ID(seq_value + ?)"), eq(1))).thenReturn(0, 1);
+        when(jdbcTemplate.queryForObject(contains("MAX(id)"), eq(Long.class))).thenReturn(42L);
+        when(jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class)).thenReturn(43L);
+
+        assertEquals(43L, watermarks.allocate(1));
+        verify(jdbcTemplate).update(contains("INSERT IGNORE INTO notification_sequence"), eq(42L));
+    }
+
+    @Test
+    void currentSequenceReadsTheCommittedValue() {
+        when(jdbcTemplate.queryForList(contains("FROM notification_sequence"), eq(Long.class))).thenReturn(List.of(77L));
+        assertEquals(77L, watermarks.currentSequence());
+
+        when(jdbcTemplate.queryForList(contains("FROM notification_sequence"), eq(Long.class))).thenReturn(List.of());
+        when(jdbcTemplate.queryForObject(contains("MAX(id)"), eq(Long.class))).thenReturn(9L);
+        assertEquals(9L, watermarks.currentSequence());
+    }
+
+    @Test
+    void advanceRaisesMarksToTheCurrentSequenceOnly() {
+        when(jdbcTemplate.queryForList(contains("FROM notification_sequence"), eq(Long.class))).thenReturn(List.of(77L));
+
+        watermarks.advance(5L, List.of(NotificationType.POST_LIKE));
+
+        verify(jdbcTemplate).update(contains("GREATEST(last_read_id, VALUES(last_read_id))"),
+                eq(5L), eq("POST_LIKE"), eq(77L), any());
+    }
+
+    @Test
+    void advanceWithoutNotificationsWritesNothing() {
+        when(jdbcTemplate.queryForList(contains("FROM notification_sequence"), eq(Long.class))).thenReturn(List.of(0L));
+
+        watermarks.advance(5L, List.of(NotificationType.POST_LIKE));
+
+        verify(jdbcTemplate, never()).update(contains("notification_read_marks"), any(Object[].class));
+        verify(jdbcTemplate, never()).update(anyString());
+    }
+}
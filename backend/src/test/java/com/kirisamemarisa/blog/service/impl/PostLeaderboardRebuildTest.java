@@ -0,0 +1,104 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.repository.BlogPostRepository;
+import com.kirisamemarisa.blog.service.BlogViewService;
+import com.kirisamemarisa.blog.service.EngagementCounterService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 排行榜重建：按块先取 Redis 增量再读库，计数叠加未落库增量后写入临时榜单
+ */
+class PostLeaderboardRebuildTest {
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> valueOps = mock(ValueOperations.class);
+    private final BlogPostRepository blogPostRepository = mock(BlogPostRepository.class);
+    private final ClusterCoordinator clusterCoordinator = mock(ClusterCoordinator.class);
+    private final EngagementCounterService engagementCounterService = mock(EngagementCounterService.class);
+    private final StringRedisConnection conn = mock(StringRedisConnection.class);
+
+    private PostLeaderboardServiceImpl service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        HotScorePolicy hotScorePolicy = new HotScorePolicy();
+        ReflectionTestUtils.setField(hotScorePolicy, "halfLifeHours", 12.0);
+        service = new PostLeaderboardServiceImpl(redisTemplate, blogPostRepository, mock(BlogViewService.class),
+                hotScorePolicy, clusterCoordinator, engagementCounterService);
+        when(clusterCoordinator.tryAcquire(anyString(), anyLong()))
+                .thenReturn(new ClusterCoordinator.Lease("k", "v", 1L));
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(inv -> {
+            ((RedisCallback<Object>) inv.getArgument(0)).doInRedis(conn);
+            return Collections.emptyList();
+        });
+    }
+
+    @Test
+    void rebuildMergesPendingDeltasReadBeforeTheRows() {
+        when(blogPostRepository.findLeaderboardIdsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(blogPostRepository.findLeaderboardIdsAfter(eq(2L), any(Pageable.class))).thenReturn(List.of());
+        when(valueOps.multiGet(anyList())).thenReturn(Arrays.asList("5", null));
+        when(engagementCounterService.pendingDeltas(eq(EngagementCounterService.POST), anyList()))
+                .thenReturn(Map.of(1L, Map.of(EngagementCounterService.LIKES, 2L)));
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] { 1L, null, 9L, null, 3L, 0L, 10L, 0L, 0L, LocalDateTime.now() });
+        rows.add(new Object[] { 2L, null, 9L, null, 1L, 0L, 4L, 0L, 0L, LocalDateTime.now() });
+        when(blogPostRepository.findLeaderboardRowsByIds(List.of(1L, 2L))).thenReturn(rows);
+
+        service.rebuild();
+
+        InOrder order = inOrder(valueOps, engagementCounterService, blogPostRepository);
+        order.verify(valueOps).multiGet(anyList());
+        order.verify(engagementCounterService).pendingDeltas(eq(EngagementCounterService.POST), anyList());
+        order.verify(blogPostRepository).findLeaderboardRowsByIds(List.of(1L, 2L));
+        verify(conn).zAdd("blog:rank_build:views:global", 15.0, "1");
+        verify(conn).zAdd("blog:rank_build:likes:global", 5.0, "1");
+        verify(conn).zAdd("blog:rank_build:views:global", 4.0, "2");
+        verify(valueOps).set(eq("blog:rank:ready"), anyString());
+        verify(redisTemplate).delete("blog:rank:building");
+    }
+
+    @Test
+    void failedRebuildKeepsLiveBoardsAndDropsTheBuildingMark() {
+        when(blogPostRepository.findLeaderboardIdsAfter(eq(0L), any(Pageable.class)))
+                .thenThrow(new IllegalStateException("db down"));
+
+        assertThrows(IllegalStateException.class, service::rebuild);
+
+        verify(conn, never()).zAdd(anyString(), anyDouble(), anyString());
+        verify(valueOps, never()).set(eq("blog:rank:ready"), anyString());
+        verify(redisTemplate).delete("blog:rank:building");
+        verify(clusterCoordinator).release(any());
+    }
+}
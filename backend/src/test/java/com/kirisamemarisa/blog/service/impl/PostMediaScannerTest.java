@@ -0,0 +1,48 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PostMediaScannerTest {
+
+    @Test
+    void extractsMarkdownAndHtmlImages() {
+        String content = "![a](https://cdn.example.com/sources/blogpostcontent/1/a.png)\n"
+                + "<IMG class=\"x\" src='/files/blogpostcontent/1/b.jpg?w=200'>\n"
+                + "![cover]( <https://cdn.example.com/sources/blogpostcover/1/c.webp#top> )";
+
+        assertEquals(List.of("sources/blogpostcontent/1/a.png", "blogpostcontent/1/b.jpg",
+                "sources/blogpostcover/1/c.webp"), List.copyOf(PostMediaScanner.scan(content)));
+    }
+
+    @Test
+    void ignoresExternalAndUserFiles() {
+        String content = "![x](https://other.example.com/pic.png) "
+                + "<img src=\"https://cdn.example.com/sources/avatar/1/me.png\"> "
+                + "[link](https://cdn.example.com/sources/blogpostcontent/1/not-an-image.png)";
+
+        assertTrue(PostMediaScanner.scan(content).isEmpty());
+    }
+
+    @Test
+    void keepsFirstOccurrenceOrderWithoutDuplicates() {
+        String content = "![b](/sources/blogpostcontent/b.png) ![a](/sources/blogpostcontent/a.png) "
+                + "<img src=\"/sources/blogpostcontent/b.png?v=2\">";
+
+        Set<String> keys = PostMediaScanner.scan(content);
+
+        assertEquals(List.of("sources/blogpostcontent/b.png", "sources/blogpostcontent/a.png"), List.copyOf(keys));
+    }
+
+    @Test
+    void bareMarkerIsNotAKey() {
+        assertNull(PostMediaScanner.toStorageKey("https://cdn.example.com/sources/blogpostcontent/?x=1"));
+        assertTrue(PostMediaScanner.scan(null).isEmpty());
+    }
+}
@@ -0,0 +1,71 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.model.BlogPost;
+import com.kirisamemarisa.blog.repository.BlogPostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 进程内检索：三元组求交后按整词核对，前缀、中缀、后缀可命中，跨单词拼出的三元组不误命中
+ */
+class PostSearchIndexTest {
+
+    private final ClusterCoordinator clusterCoordinator = mock(ClusterCoordinator.class);
+    private PostSearchServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PostSearchServiceImpl(mock(BlogPostRepository.class), mock(StringRedisTemplate.class),
+                mock(RedisMessageListenerContainer.class), clusterCoordinator,
+                mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "ready", true);
+        when(clusterCoordinator.getInstanceId()).thenReturn("test");
+        service.index(post(1L, "JavaScript closures"));
+        service.index(post(2L, "Spring Boot"));
+        // 含 “scr”“cri”“rip”“ipt” 全部三元组，但没有单词包含 “script”
+        service.index(post(3L, "scrim crib ripple dipt"));
+    }
+
+    @Test
+    void suffixPrefixAndWholeWordHit() {
+        assertEquals(List.of(1L), ids("script"));
+        assertEquals(List.of(2L), ids("spr"));
+        assertEquals(List.of(2L), ids("sp"));
+        assertEquals(List.of(2L), ids("boot"));
+        assertEquals(List.of(1L), ids("JAVASCRIPT closures"));
+    }
+
+    @Test
+    void trigramsFromDifferentWordsDoNotMatch() {
+        assertEquals(List.of(1L), ids("script"));
+        assertEquals(List.of(3L), ids("ripple"));
+    }
+
+    @Test
+    void singleCharacterFallsBack() {
+        assertNull(service.search("s", null, null, null, null, 0, 10));
+    }
+
+    private List<Long> ids(String keyword) {
+        return service.search(keyword, null, null, null, null, 0, 10).getList();
+    }
+
+    private static BlogPost post(long id, String title) {
+        BlogPost p = new BlogPost();
+        ReflectionTestUtils.setField(p, "id", id);
+        p.setTitle(title);
+        return p;
+    }
+}
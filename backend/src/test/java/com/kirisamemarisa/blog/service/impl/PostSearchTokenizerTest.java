@@ -0,0 +1,65 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PostSearchTokenizerTest {
+
+    @Test
+    void ideographicRunsSplitIntoBigrams() {
+        assertEquals(List.of("博客", "客系", "系统"), PostSearchTokenizer.indexTerms("博客系统"));
+    }
+
+    @Test
+    void singleIdeographKeptAsUnigram() {
+        assertEquals(List.of("a", "博"), PostSearchTokenizer.indexTerms("a 博"));
+    }
+
+    @Test
+    void wordsAreLowercasedAndExpandedToTrigrams() {
+        assertEquals(List.of("javascript", "ja", "jav", "ava", "vas", "asc", "scr", "cri", "rip", "ipt"),
+                PostSearchTokenizer.indexTerms("JavaScript"));
+    }
+
+    @Test
+    void shortWordsAreNotExpandedTwice() {
+        assertEquals(List.of("go", "vue", "vu"), PostSearchTokenizer.indexTerms("Go vue"));
+    }
+
+    @Test
+    void longWordsGrowLinearly() {
+        List<String> terms = PostSearchTokenizer.indexTerms("abcdefghijklmnopqrstuvwxyz");
+
+        assertEquals(1 + 1 + 24, terms.size());
+        assertTrue(terms.contains("xyz"));
+    }
+
+    @Test
+    void longQueryWordsLookUpTheirTrigrams() {
+        assertEquals(List.of("scr", "cri", "rip", "ipt"), PostSearchTokenizer.lookupTerms("script"));
+        assertTrue(PostSearchTokenizer.needsVerify("script"));
+        assertEquals(List.of("spr"), PostSearchTokenizer.lookupTerms("spr"));
+        assertFalse(PostSearchTokenizer.needsVerify("spr"));
+        assertEquals(List.of("博客"), PostSearchTokenizer.lookupTerms("博客"));
+        assertFalse(PostSearchTokenizer.needsVerify("博客"));
+    }
+
+    @Test
+    void queryTermsAreDistinctAndNotExpanded() {
+        Set<String> terms = PostSearchTokenizer.queryTerms("Spring spring 博客");
+
+        assertEquals(List.of("spring", "博客"), List.copyOf(terms));
+    }
+
+    @Test
+    void blankTextHasNoTerms() {
+        assertTrue(PostSearchTokenizer.indexTerms(null).isEmpty());
+        assertTrue(PostSearchTokenizer.queryTerms("  ,. ").isEmpty());
+    }
+}
@@ -0,0 +1,68 @@
+package com.kirisamemarisa.blog.service.impl;
+
+import com.kirisamemarisa.blog.common.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SearchCursorTest {
+
+    @Test
+    void createdAtCursorRoundTrips() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_000_000);
+        SearchCursor c = SearchCursor.decode(SearchCursor.afterCreatedAt(createdAt, 42L).encode());
+
+        assertEquals(SearchCursor.Order.LATEST, c.getOrder());
+        assertEquals(createdAt, c.getCreatedAt());
+        assertEquals(42L, c.getId());
+    }
+
+    @Test
+    void keyCursorRoundTrips() {
+        SearchCursor c = SearchCursor.decode(SearchCursor.afterKey(SearchCursor.Order.LIKES, 17L, 9L).encode());
+
+        assertEquals(SearchCursor.Order.LIKES, c.getOrder());
+        assertEquals(17L, c.getLongKey());
+        assertEquals(9L, c.getId());
+    }
+
+    @Test
+    void rankCursorRoundTrips() {
+        SearchCursor c = SearchCursor.decode(SearchCursor.atRank(40L).encode());
+
+        assertEquals(SearchCursor.Order.RANK, c.getOrder());
+        assertEquals(40L, c.getLongKey());
+    }
+
+    @Test
+    void emptyCursorStartsFromFirstPage() {
+        assertNull(SearchCursor.decode(null));
+        assertNull(SearchCursor.decode(""));
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertBadCursor("not base64 !");
+        assertBadCursor(encode("v2|LIKES|1|1"));
+        assertBadCursor(encode("v1|UNKNOWN|1|1"));
+        assertBadCursor(encode("v1|LIKES|abc|1"));
+        assertBadCursor(encode("v1|LATEST|yesterday|1"));
+        assertBadCursor(encode("v1|LIKES|1"));
+        assertBadCursor(encode("v1|RANK|-1|0"));
+    }
+
+    private static void assertBadCursor(String cursor) {
+        BusinessException e = assertThrows(BusinessException.class, () -> SearchCursor.decode(cursor));
+        assertEquals(400, e.getCode());
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,38 @@
+package com.kirisamemarisa.blog.support;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * 需要真实数据库的测试与基准共用的造数方法
+ */
+public final class TestData {
+
+    private TestData() {
+    }
+
+    /**
+     * 带时间后缀的用户名，避免与上次未清理干净的数据冲突
+     */
+    public static String uniqueName(String prefix) {
+        return prefix + (System.currentTimeMillis() % 1_000_000_000L);
+    }
+
+    /**
+     * 插入一个最小化的用户行并返回其 id
+     */
+    public static Long insertUser(JdbcTemplate jdbcTemplate, String username) {
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO users (username, password, created_at) VALUES (?, '', NOW())",
+                    Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, username);
+            return ps;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+}
@@ -9,7 +9,7 @@ import HomeArticleList from '@components/home/HomeArticleList';
 import HomeCarousel from '@components/home/HomeCarousel';
 import ArticleCard from '@components/common/ArticleCard';
 import ScrollControls from '@components/common/ScrollControls';
-import { fetchPosts } from '@utils/api/postService';
+import { fetchPosts, fetchPostFeed } from '@utils/api/postService';
 import { fetchBlogViewBatch } from '@utils/api/blogViewService';
 import { useAuthState } from '@hooks/useAuthState';
 
@@ -26,6 +26,8 @@ const Home = () => {
   const [loadingMore, setLoadingMore] = useState(false);
   const [hasMore, setHasMore] = useState(true);
   const sortTabsRef = useRef(null);
+  // 游标分页：上一页返回的 nextCursor，page 为 0 时从头加载
+  const nextCursorRef = useRef(null);
 
   // Hot 模式一次性拉取过多会导致首页白屏/卡顿；限制最大拉取数量（可按数据规模调整）
   const HOT_MODE_MAX_FETCH = 600;
@@ -91,16 +93,14 @@ const Home = () => {
     let mounted = true;
     setLoadingMore(true);
 
-    const fetchSize = size;
-    const fetchPage = page;
     const categoryParam = selectedCategory === '首页' ? null : selectedCategory;
+    const cursor = page === 0 ? null : nextCursorRef.current;
 
-    fetchPosts({ page: fetchPage, size: fetchSize, sortMode, category: categoryParam })
+    fetchPostFeed({ cursor, size, sortMode, categoryName: categoryParam })
       .then(async j => {
         if (!mounted) return;
         if (j && (j.code === 200 || j.status === 200)) {
-          let list = j.data && j.data.list ? j.data.list : (j.data || []);
-          if (!Array.isArray(list) && Array.isArray(j.data)) list = j.data;
+          const list = j.data && Array.isArray(j.data.list) ? j.data.list : [];
 
           if (page === 0) {
             setPosts(list);
@@ -108,11 +108,8 @@ const Home = () => {
             setPosts(prev => [...prev, ...list]);
           }
 
-          if (j.data && typeof j.data.total === 'number') {
-            setHasMore((page * size) + list.length < j.data.total);
-          } else {
-            setHasMore(list.length === size);
-          }
+          nextCursorRef.current = j.data ? j.data.nextCursor : null;
+          setHasMore(!!(j.data && j.data.hasMore && j.data.nextCursor));
         } else {
           if (page === 0) setPosts([]);
           setHasMore(false);
@@ -292,6 +292,7 @@ export default function NotificationCenter() {
                 <div className="notification-content">
                     <div className="notification-header">
                         <span className="notification-sender">{note.senderNickname || '未知用户'}</span>
+                        {note.actorCount > 1 && <span className="notification-action">等 {note.actorCount} 人</span>}
                         <span className="notification-action">{actionText}</span>
                         <span className="notification-time">{new Date(note.createdAt).toLocaleString('zh-CN', { hour12: false })}</span>
                     </div>
@@ -29,6 +29,31 @@ export async function fetchPosts({
   return response.data;
 }
 
+// 游标分页：首次不传 cursor，之后传上一页返回的 nextCursor
+export async function fetchPostFeed({
+  cursor,
+  size,
+  sortMode,
+  keyword,
+  userId,
+  directory,
+  categoryName,
+  status,
+} = {}) {
+  const params = { size };
+
+  if (cursor) params.cursor = cursor;
+  if (sortMode) params.sortMode = sortMode;
+  if (keyword) params.keyword = keyword;
+  if (userId !== undefined && userId !== null && userId !== '') params.userId = userId;
+  if (directory) params.directory = directory;
+  if (categoryName) params.categoryName = categoryName;
+  if (status) params.status = status;
+
+  const response = await httpClient.get('/blogpost/feed', { params });
+  return response.data;
+}
+
 export async function fetchPostDetail(id, params = {}) {
   const response = await httpClient.get(`/blogpost/${id}`, { params });
   return response.data;